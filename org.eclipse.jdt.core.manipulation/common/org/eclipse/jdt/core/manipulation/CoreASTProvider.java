@@ -26,6 +26,7 @@ import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
+import org.eclipse.jdt.internal.core.manipulation.ASTCache;
 import org.eclipse.jdt.internal.core.manipulation.JavaManipulationPlugin;
 import org.eclipse.jdt.internal.corext.dom.ASTNodes;
 import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
@@ -33,6 +34,11 @@ import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
 /**
  * The {@link CoreASTProvider} provides access to the {@link CompilationUnit AST root} used by
  * the current active Java editor.
+ * <p>
+ * ASTs of recently active Java elements and ASTs created on behalf of clients are kept in a bounded
+ * {@link ASTCache}, so that switching between editors and asking for the AST of a recently used
+ * element does not require to create the AST again.
+ * </p>
  *
  * The {@link CoreASTProvider} contains all methods/functionality that are
  * not dependent on the UI, from org.eclipse.jdt.internal.ui.javaeditor.ASTProvider
@@ -58,6 +64,7 @@ public final class CoreASTProvider {
 	private Object fReconcileLock= new Object();
 	private Object fWaitLock= new Object();
 	private volatile boolean fIsReconciling;
+	private final ASTCache fASTCache= new ASTCache();
 
 	/**
 	 * Wait flag class.
@@ -137,6 +144,16 @@ public final class CoreASTProvider {
 
 					return fAST;
 				}
+				if (!isReconciling(input)) {
+					CompilationUnit cached= fASTCache.remove(input);
+					if (cached != null) {
+						if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
+							System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "reusing AST from cache: " + toString(cached) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+						fAST= cached;
+						return fAST;
+					}
+				}
 				if (waitFlag == CoreASTProvider.WAIT_NO) {
 					if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
 						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning null (WAIT_NO) for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
@@ -144,6 +161,14 @@ public final class CoreASTProvider {
 					return null;
 
 				}
+			} else {
+				CompilationUnit cached= fASTCache.get(input);
+				if (cached != null) {
+					if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
+						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning AST from cache: " + toString(cached) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+					return cached;
+				}
 			}
 		}
 
@@ -206,6 +231,8 @@ public final class CoreASTProvider {
 					return fAST;
 				} else
 					reconciled(ast, input, null);
+			} else {
+				fASTCache.put(input, ast);
 			}
 		}
 		return ast;
@@ -229,6 +256,7 @@ public final class CoreASTProvider {
 			fReconcilingJavaElement= javaElement;
 			fIsReconciling= true;
 		}
+		fASTCache.invalidate(javaElement);
 		cache(null, javaElement);
 	}
 
@@ -467,7 +495,13 @@ public final class CoreASTProvider {
 	 * Set the active java element that is currently active.
 	 * @param activeJavaElement the java element.
 	 */
-	public void setActiveJavaElement (ITypeRoot activeJavaElement) {
+	public synchronized void setActiveJavaElement (ITypeRoot activeJavaElement) {
+		if (fAST != null && fActiveJavaElement != null && !fActiveJavaElement.equals(activeJavaElement) && !isReconciling(fActiveJavaElement)) {
+			if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "moving AST to cache: " + toString(fAST) + " for: " + toString(fActiveJavaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+			fASTCache.put(fActiveJavaElement, fAST);
+		}
 		fActiveJavaElement = activeJavaElement;
 	}
 
@@ -478,6 +512,16 @@ public final class CoreASTProvider {
 		return fAST;
 	}
 
+	/**
+	 * Returns the cache holding the ASTs of recently used Java elements.
+	 *
+	 * @return the AST cache
+	 * @noreference This method is not intended to be referenced by clients.
+	 */
+	public ASTCache getASTCache() {
+		return fASTCache;
+	}
+
 	/**
 	 * Notify all waiting threads that the AST has changed.
 	 */
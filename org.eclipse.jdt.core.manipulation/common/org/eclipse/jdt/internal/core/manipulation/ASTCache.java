@@ -0,0 +1,416 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.manipulation;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.BufferChangedEvent;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.IBufferChangedListener;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * A bounded cache of shared compilation unit ASTs for recently used {@link ITypeRoot}s.
+ * <p>
+ * Entries are keyed by the type root and listen to the buffer from which the AST was created. An
+ * entry is only returned if this buffer is still the type root's open buffer and has not changed
+ * since the AST was cached, so that lookups do not need to read the buffer contents. The
+ * cache is bounded by a number of entries and by an estimated memory budget and evicts the least
+ * recently used entries first. ASTs are held through {@link SoftReference}s, so that the garbage
+ * collector can reclaim them under memory pressure.
+ * </p>
+ * <p>
+ * Entries are invalidated when the corresponding compilation unit or its working copy changes, when
+ * it is removed, and when the classpath of its project changes.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 1.10
+ */
+public final class ASTCache {
+
+	/**
+	 * The default maximum number of cached ASTs.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES= 8;
+
+	/**
+	 * Rough estimate of the number of bytes used by a binding-resolved AST per character of source.
+	 */
+	private static final int ESTIMATED_BYTES_PER_CHAR= 64;
+
+	private static final class Entry implements IBufferChangedListener {
+		final SoftReference<CompilationUnit> fAST;
+		final IBuffer fBuffer;
+		final long fEstimatedSize;
+		/**
+		 * Set when the buffer changes or is closed. Written by the thread changing the buffer,
+		 * without holding the cache lock.
+		 */
+		volatile boolean fChanged;
+
+		Entry(CompilationUnit ast, IBuffer buffer, long estimatedSize) {
+			fAST= new SoftReference<>(ast);
+			fBuffer= buffer;
+			fEstimatedSize= estimatedSize;
+			buffer.addBufferChangedListener(this);
+		}
+
+		@Override
+		public void bufferChanged(BufferChangedEvent event) {
+			fChanged= true;
+		}
+
+		boolean isValid(ITypeRoot input) {
+			if (fChanged || fBuffer.isClosed())
+				return false;
+			try {
+				return input.getBuffer() == fBuffer;
+			} catch (JavaModelException e) {
+				return false;
+			}
+		}
+
+		void dispose() {
+			fBuffer.removeBufferChangedListener(this);
+		}
+	}
+
+	private final IElementChangedListener fElementChangedListener= new IElementChangedListener() {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			processDelta(event.getDelta());
+		}
+	};
+
+	/**
+	 * Access ordered map of all entries, the eldest entry is the least recently used one.
+	 */
+	private final LinkedHashMap<ITypeRoot, Entry> fEntries= new LinkedHashMap<>(16, 0.75f, true);
+
+	private int fMaxEntries;
+	private long fMaxMemory;
+	private long fUsedMemory;
+	private boolean fListenerInstalled;
+
+	private int fHits;
+	private int fMisses;
+	private int fEvictions;
+	private int fInvalidations;
+
+	/**
+	 * Creates a new AST cache with the default number of entries and a memory budget of one eighth
+	 * of the maximum heap size.
+	 */
+	public ASTCache() {
+		this(DEFAULT_MAX_ENTRIES, Runtime.getRuntime().maxMemory() / 8);
+	}
+
+	/**
+	 * Creates a new AST cache.
+	 *
+	 * @param maxEntries the maximum number of cached ASTs, <code>0</code> to disable the cache
+	 * @param maxMemory the estimated number of bytes cached ASTs may occupy
+	 */
+	public ASTCache(int maxEntries, long maxMemory) {
+		fMaxEntries= maxEntries;
+		fMaxMemory= maxMemory;
+	}
+
+	/**
+	 * Returns the cached AST for the given type root if it is still up to date with the type root's
+	 * buffer.
+	 *
+	 * @param input the type root
+	 * @return the cached AST or <code>null</code> if no up to date AST is available
+	 */
+	public CompilationUnit get(ITypeRoot input) {
+		Entry entry;
+		synchronized (this) {
+			entry= fEntries.get(input);
+			if (entry == null) {
+				fMisses++;
+				return null;
+			}
+		}
+		CompilationUnit ast= entry.fAST.get();
+		boolean valid= ast != null && entry.isValid(input);
+		synchronized (this) {
+			if (!valid) {
+				if (fEntries.get(input) == entry)
+					removeEntry(input);
+				fInvalidations++;
+				fMisses++;
+				return null;
+			}
+			fHits++;
+			return ast;
+		}
+	}
+
+	/**
+	 * Removes the AST for the given type root from the cache and returns it if it is still up to
+	 * date with the type root's buffer.
+	 *
+	 * @param input the type root
+	 * @return the cached AST or <code>null</code> if no up to date AST is available
+	 */
+	public CompilationUnit remove(ITypeRoot input) {
+		CompilationUnit ast= get(input);
+		synchronized (this) {
+			removeEntry(input);
+		}
+		return ast;
+	}
+
+	/**
+	 * Adds the given AST to the cache. The AST must have been created from the current contents of
+	 * the type root's buffer.
+	 *
+	 * @param input the type root
+	 * @param ast the AST created for the type root
+	 */
+	public void put(ITypeRoot input, CompilationUnit ast) {
+		if (input == null || ast == null || fMaxEntries <= 0)
+			return;
+
+		long estimatedSize= (long) ast.getLength() * ESTIMATED_BYTES_PER_CHAR;
+		if (estimatedSize > fMaxMemory)
+			return;
+
+		IBuffer buffer= getBuffer(input);
+		if (buffer == null)
+			return;
+
+		synchronized (this) {
+			if (!fListenerInstalled) {
+				JavaCore.addElementChangedListener(fElementChangedListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+				fListenerInstalled= true;
+			}
+			removeEntry(input);
+			fEntries.put(input, new Entry(ast, buffer, estimatedSize));
+			fUsedMemory+= estimatedSize;
+			evict();
+		}
+	}
+
+	/**
+	 * Removes the entry for the given type root without any checks.
+	 *
+	 * @param input the type root
+	 */
+	public synchronized void invalidate(ITypeRoot input) {
+		if (removeEntry(input))
+			fInvalidations++;
+	}
+
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public synchronized void clear() {
+		for (Entry entry : fEntries.values())
+			entry.dispose();
+		fEntries.clear();
+		fUsedMemory= 0;
+	}
+
+	/**
+	 * Removes all entries and stops listening for Java element changes.
+	 */
+	public synchronized void dispose() {
+		clear();
+		if (fListenerInstalled) {
+			JavaCore.removeElementChangedListener(fElementChangedListener);
+			fListenerInstalled= false;
+		}
+	}
+
+	/**
+	 * Changes the bounds of this cache. Entries exceeding the new bounds are evicted.
+	 *
+	 * @param maxEntries the maximum number of cached ASTs, <code>0</code> to disable the cache
+	 * @param maxMemory the estimated number of bytes cached ASTs may occupy
+	 */
+	public synchronized void setBounds(int maxEntries, long maxMemory) {
+		fMaxEntries= maxEntries;
+		fMaxMemory= maxMemory;
+		evict();
+	}
+
+	/**
+	 * Returns the number of cached ASTs.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return fEntries.size();
+	}
+
+	/**
+	 * Returns the number of lookups which returned an up to date AST.
+	 *
+	 * @return the number of cache hits
+	 */
+	public synchronized int getHits() {
+		return fHits;
+	}
+
+	/**
+	 * Returns the number of lookups which did not find an entry or found an outdated one.
+	 *
+	 * @return the number of cache misses
+	 */
+	public synchronized int getMisses() {
+		return fMisses;
+	}
+
+	/**
+	 * Returns the number of entries removed to stay within the bounds of the cache.
+	 *
+	 * @return the number of evictions
+	 */
+	public synchronized int getEvictions() {
+		return fEvictions;
+	}
+
+	/**
+	 * Returns the number of entries removed because their type root or its buffer changed.
+	 *
+	 * @return the number of invalidations
+	 */
+	public synchronized int getInvalidations() {
+		return fInvalidations;
+	}
+
+	/**
+	 * Returns a summary of the cache statistics used for debugging.
+	 *
+	 * @return a string describing the cache statistics
+	 */
+	public synchronized String getStatistics() {
+		int requests= fHits + fMisses;
+		int hitRate= requests == 0 ? 0 : fHits * 100 / requests;
+		return "entries: " + fEntries.size() + ", estimated size: " + (fUsedMemory / 1024) + "K, hits: " + fHits + ", misses: " + fMisses //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ " (" + hitRate + "%), evictions: " + fEvictions + ", invalidations: " + fInvalidations; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private void evict() {
+		Iterator<Entry> iter= fEntries.values().iterator();
+		while (iter.hasNext() && (fEntries.size() > fMaxEntries || fUsedMemory > fMaxMemory)) {
+			Entry eldest= iter.next();
+			iter.remove();
+			eldest.dispose();
+			fUsedMemory-= eldest.fEstimatedSize;
+			fEvictions++;
+		}
+	}
+
+	private boolean removeEntry(ITypeRoot input) {
+		Entry entry= fEntries.remove(input);
+		if (entry == null)
+			return false;
+		entry.dispose();
+		fUsedMemory-= entry.fEstimatedSize;
+		return true;
+	}
+
+	private synchronized void processDelta(IJavaElementDelta delta) {
+		if (fEntries.isEmpty())
+			return;
+		IJavaElement element= delta.getElement();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() == IJavaElementDelta.REMOVED) {
+					invalidateChildren(element);
+					return;
+				}
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (delta.getKind() == IJavaElementDelta.REMOVED || (flags & (IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+					invalidateChildren(element);
+					return;
+				}
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+			case IJavaElement.CLASS_FILE:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (flags & ~IJavaElementDelta.F_AST_AFFECTED) != 0)
+					invalidate((ITypeRoot) element);
+				return;
+			default:
+				return;
+		}
+		for (IJavaElementDelta child : delta.getAffectedChildren())
+			processDelta(child);
+	}
+
+	/**
+	 * Removes the entries of all type roots inside the given element.
+	 *
+	 * @param parent the removed or changed element
+	 */
+	private void invalidateChildren(IJavaElement parent) {
+		for (Iterator<Map.Entry<ITypeRoot, Entry>> iter= fEntries.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<ITypeRoot, Entry> mapEntry= iter.next();
+			if (isInside(mapEntry.getKey(), parent)) {
+				Entry entry= mapEntry.getValue();
+				entry.dispose();
+				fUsedMemory-= entry.fEstimatedSize;
+				iter.remove();
+				fInvalidations++;
+			}
+		}
+	}
+
+	private static boolean isInside(IJavaElement element, IJavaElement container) {
+		for (IJavaElement current= element; current != null; current= current.getParent()) {
+			if (current.equals(container))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the open buffer of the given type root.
+	 *
+	 * @param input the type root
+	 * @return the buffer or <code>null</code> if the type root has no open buffer
+	 */
+	private static IBuffer getBuffer(ITypeRoot input) {
+		try {
+			IBuffer buffer= input.getBuffer();
+			if (buffer == null || buffer.isClosed())
+				return null;
+			return buffer;
+		} catch (JavaModelException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ASTCache [" + getStatistics() + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -31,4 +31,5 @@ public class JavaManipulationMessages extends NLS {
 	public static String JavaModelUtil_applyedit_operation;
 	public static String Resources_fileModified;
 	public static String Resources_modifiedResources;
+	public static String SuperTypeHierarchyCache_prefetch_job_name;
 }
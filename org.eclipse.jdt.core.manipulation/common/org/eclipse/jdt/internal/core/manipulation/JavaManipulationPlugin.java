@@ -20,6 +20,7 @@ import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.jdt.core.manipulation.CoreASTProvider;
 import org.eclipse.jdt.core.manipulation.JavaManipulation;
 
 /**
@@ -29,6 +30,8 @@ public class JavaManipulationPlugin extends Plugin implements DebugOptionsListen
 
 	public static boolean DEBUG_AST_PROVIDER;
 
+	public static boolean DEBUG_TYPE_HIERARCHY_CACHE;
+
 	//The shared instance.
 	private static JavaManipulationPlugin fgDefault;
 
@@ -46,6 +49,7 @@ public class JavaManipulationPlugin extends Plugin implements DebugOptionsListen
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		CoreASTProvider.getInstance().getASTCache().dispose();
 		super.stop(context);
 		fgDefault = null;
 	}
@@ -88,5 +92,6 @@ public class JavaManipulationPlugin extends Plugin implements DebugOptionsListen
 	@Override
 	public void optionsChanged(DebugOptions options) {
 		DEBUG_AST_PROVIDER= options.getBooleanOption("org.eclipse.jdt.core.manipulation/debug/ASTProvider", false); //$NON-NLS-1$
+		DEBUG_TYPE_HIERARCHY_CACHE= options.getBooleanOption("org.eclipse.jdt.core.manipulation/debug/TypeHierarchyCache", false); //$NON-NLS-1$
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,28 +12,59 @@ package org.eclipse.jdt.internal.corext.util;
 
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
 import org.eclipse.jdt.core.JavaModelException;
 
+import org.eclipse.jdt.internal.core.manipulation.JavaManipulationMessages;
+import org.eclipse.jdt.internal.core.manipulation.JavaManipulationPlugin;
+
 /**
  * A thread-safe cache for super type hierarchies.
+ * <p>
+ * Every type of a cached hierarchy is indexed in a concurrent map, together with the other
+ * cached hierarchies which contain it, so that lookups neither scan the cache nor block each
+ * other. The cache is bounded by a number of hierarchies and by the total number of types in
+ * the hierarchies, which approximates their memory. Both can be configured with the system
+ * properties <code>org.eclipse.jdt.core.manipulation.typeHierarchyCacheSize</code> and
+ * <code>org.eclipse.jdt.core.manipulation.typeHierarchyCacheTypes</code>. When a budget is
+ * exceeded, hierarchies which no longer exist or are covered by the new hierarchy are evicted
+ * first, then the least recently accessed ones.
+ * </p>
+ * <p>
+ * Hits, misses and evictions are traced with the
+ * <code>org.eclipse.jdt.core.manipulation/debug/TypeHierarchyCache</code> option.
+ * </p>
  */
 // @see JDTUIHelperClasses
 public class SuperTypeHierarchyCache {
 
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
-		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private volatile ITypeHierarchy fTypeHierarchy;
+		private final IType fType;
+		private final IType[] fTypes;
+		private volatile long fLastAccess;
+		private final ConcurrentHashMap<IType, MethodOverrideTester> fMethodOverrideTesters= new ConcurrentHashMap<>(4);
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
+			fType= hierarchy.getType();
+			fTypes= hierarchy.getAllTypes();
 			fTypeHierarchy.addTypeHierarchyChangedListener(this);
 			markAsAccessed();
 		}
@@ -47,8 +78,36 @@ public class SuperTypeHierarchyCache {
 			return fTypeHierarchy;
 		}
 
+		public IType getType() {
+			return fType;
+		}
+
+		public IType[] getTypes() {
+			return fTypes;
+		}
+
+		/**
+		 * Returns the method override tester of a type in this hierarchy.
+		 *
+		 * @param type the type
+		 * @return the tester, or <code>null</code> if this entry has been disposed
+		 */
+		public MethodOverrideTester getMethodOverrideTester(IType type) {
+			MethodOverrideTester test= fMethodOverrideTesters.get(type);
+			if (test == null) {
+				ITypeHierarchy hierarchy= fTypeHierarchy;
+				if (hierarchy == null)
+					return null;
+				test= new MethodOverrideTester(type, hierarchy);
+				MethodOverrideTester existing= fMethodOverrideTesters.putIfAbsent(type, test);
+				if (existing != null)
+					test= existing;
+			}
+			return test;
+		}
+
 		public void markAsAccessed() {
-			fLastAccess= System.currentTimeMillis();
+			fLastAccess= fgAccessCounter.incrementAndGet();
 		}
 
 		public long getLastAccess() {
@@ -56,27 +115,108 @@ public class SuperTypeHierarchyCache {
 		}
 
 		public void dispose() {
-			if (fTypeHierarchy != null) {
-				fTypeHierarchy.removeTypeHierarchyChangedListener(this);
+			ITypeHierarchy hierarchy;
+			synchronized (this) {
+				hierarchy= fTypeHierarchy;
 				fTypeHierarchy= null;
 			}
+			// don't hold a lock while calling into the Java model
+			if (hierarchy != null)
+				hierarchy.removeTypeHierarchyChangedListener(this);
 		}
 
 		@Override
 		public String toString() {
-			return "Super hierarchy of: " + fTypeHierarchy.getType().getElementName(); //$NON-NLS-1$
+			return "Super hierarchy of: " + fType.getElementName(); //$NON-NLS-1$
+		}
+
+	}
+
+	/**
+	 * Computes the hierarchies of the compilation units of the opened editors in the background.
+	 */
+	private static class PrefetchJob extends Job {
+
+		private final Set<ICompilationUnit> fUnits= new LinkedHashSet<>();
+
+		public PrefetchJob() {
+			super(JavaManipulationMessages.SuperTypeHierarchyCache_prefetch_job_name);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		public void add(ICompilationUnit unit) {
+			synchronized (fUnits) {
+				fUnits.add(unit);
+			}
+			schedule();
+		}
+
+		private ICompilationUnit next() {
+			synchronized (fUnits) {
+				Iterator<ICompilationUnit> iter= fUnits.iterator();
+				if (!iter.hasNext())
+					return null;
+				ICompilationUnit unit= iter.next();
+				iter.remove();
+				return unit;
+			}
 		}
 
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			ICompilationUnit unit;
+			while ((unit= next()) != null) {
+				try {
+					if (!unit.exists())
+						continue;
+					// only the top level types, leave most of the cache to the hierarchies which are actually used
+					IType[] types= unit.getTypes();
+					int count= Math.min(types.length, MAX_PREFETCH);
+					for (int i= 0; i < count; i++) {
+						if (monitor.isCanceled())
+							return Status.CANCEL_STATUS;
+						if (findTypeHierarchyInCache(types[i]) == null)
+							addTypeHierarchyToCache(types[i].newSupertypeHierarchy(monitor));
+					}
+				} catch (JavaModelException e) {
+					// the compilation unit has been deleted or is broken, the hierarchies are computed on demand
+				}
+			}
+			return Status.OK_STATUS;
+		}
 	}
 
 
-	private static final int CACHE_SIZE= 8;
+	/** The default maximum number of cached hierarchies. */
+	private static final int CACHE_SIZE= Integer.getInteger("org.eclipse.jdt.core.manipulation.typeHierarchyCacheSize", 64).intValue(); //$NON-NLS-1$
+
+	/** The default maximum number of types in all cached hierarchies. */
+	private static final int CACHE_TYPES= Integer.getInteger("org.eclipse.jdt.core.manipulation.typeHierarchyCacheTypes", 20000).intValue(); //$NON-NLS-1$
+
+	/** The maximum number of hierarchies prefetched for a compilation unit. */
+	private static final int MAX_PREFETCH= 4;
+
+	private static volatile int fgMaxHierarchies= CACHE_SIZE;
+	private static volatile int fgMaxTypes= CACHE_TYPES;
+
+	/** Type to the cached hierarchies which contain it, the most recently cached first. */
+	private static final ConcurrentHashMap<IType, HierarchyCacheEntry[]> fgTypeIndex= new ConcurrentHashMap<>();
+
+	private static final Set<HierarchyCacheEntry> fgHierarchyCache= ConcurrentHashMap.newKeySet();
 
-	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>(CACHE_SIZE);
-	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<>(CACHE_SIZE);
+	/** Guards the eviction of entries. */
+	private static final Object fgEvictionLock= new Object();
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+	private static final AtomicInteger fgCachedTypes= new AtomicInteger();
+
+	private static final AtomicLong fgAccessCounter= new AtomicLong();
+
+	private static final AtomicInteger fgCacheHits= new AtomicInteger();
+	private static final AtomicInteger fgCacheMisses= new AtomicInteger();
+	private static final AtomicInteger fgCacheEvictions= new AtomicInteger();
+
+	private static final PrefetchJob fgPrefetchJob= new PrefetchJob();
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -94,34 +234,19 @@ public class SuperTypeHierarchyCache {
 	}
 
 	public static MethodOverrideTester getMethodOverrideTester(IType type) throws JavaModelException {
-		MethodOverrideTester test= null;
-		synchronized (fgMethodOverrideTesterCache) {
-			test= fgMethodOverrideTesterCache.get(type);
-		}
-		if (test == null) {
-			ITypeHierarchy hierarchy= getTypeHierarchy(type); // don't nest the locks
-			synchronized (fgMethodOverrideTesterCache) {
-				test= fgMethodOverrideTesterCache.get(type); // test again after waiting a long time for 'getTypeHierarchy'
-				if (test == null) {
-					test= new MethodOverrideTester(type, hierarchy);
-					fgMethodOverrideTesterCache.put(type, test);
-				}
-			}
+		HierarchyCacheEntry entry= findEntryInCache(type);
+		if (entry == null) {
+			fgCacheMisses.incrementAndGet();
+			entry= addTypeHierarchyToCache(type.newSupertypeHierarchy(null));
+		} else {
+			fgCacheHits.incrementAndGet();
 		}
+		MethodOverrideTester test= entry.getMethodOverrideTester(type);
+		if (test == null) // the hierarchy has changed in the meantime
+			test= new MethodOverrideTester(type, type.newSupertypeHierarchy(null));
 		return test;
 	}
 
-	private static void removeMethodOverrideTester(ITypeHierarchy hierarchy) {
-		synchronized (fgMethodOverrideTesterCache) {
-			for (Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator(); iter.hasNext();) {
-				MethodOverrideTester curr= iter.next();
-				if (curr.getTypeHierarchy().equals(hierarchy)) {
-					iter.remove();
-				}
-			}
-		}
-	}
-
 	/**
 	 * Returns a super type hierarchy that contains the given type.
 	 * The returned hierarchy may actually be based on a subtype of the
@@ -137,44 +262,61 @@ public class SuperTypeHierarchyCache {
 	public static ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
 		ITypeHierarchy hierarchy= findTypeHierarchyInCache(type);
 		if (hierarchy == null) {
-			fgCacheMisses++;
+			fgCacheMisses.incrementAndGet();
 			hierarchy= type.newSupertypeHierarchy(progressMonitor);
 			addTypeHierarchyToCache(hierarchy);
 		} else {
-			fgCacheHits++;
+			fgCacheHits.incrementAndGet();
 		}
 		return hierarchy;
 	}
 
-	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
-		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
-				// find obsolete entries or remove entry that was least recently accessed
-				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
-					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
+	/**
+	 * Computes the super type hierarchies of the top level types in the given compilation unit in
+	 * the background, for example when the compilation unit is opened in an editor.
+	 *
+	 * @param unit the compilation unit
+	 * @since 1.10
+	 */
+	public static void prefetch(ICompilationUnit unit) {
+		if (unit != null)
+			fgPrefetchJob.add(unit);
+	}
+
+	private static HierarchyCacheEntry addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
+		HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+		IType[] types= newEntry.getTypes();
+		synchronized (fgEvictionLock) {
+			int maxHierarchies= fgMaxHierarchies;
+			int maxTypes= fgMaxTypes;
+			if (fgHierarchyCache.size() >= maxHierarchies || fgCachedTypes.get() + types.length > maxTypes) {
+				// find obsolete entries first
+				List<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>();
+				for (HierarchyCacheEntry entry : fgHierarchyCache) {
 					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
+					if (curr == null || !curr.exists() || hierarchy.contains(entry.getType()))
 						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
-					}
 				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
+				for (int i= 0; i < obsoleteHierarchies.size(); i++)
+					evict(obsoleteHierarchies.get(i));
+				// then entries that were least recently accessed
+				while (!fgHierarchyCache.isEmpty() && (fgHierarchyCache.size() >= maxHierarchies || fgCachedTypes.get() + types.length > maxTypes)) {
+					HierarchyCacheEntry oldest= null;
+					for (HierarchyCacheEntry entry : fgHierarchyCache) {
+						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess())
+							oldest= entry;
 					}
-				} else if (oldest != null) {
-					removeHierarchyEntryFromCache(oldest);
+					evict(oldest);
 				}
 			}
-			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
 			fgHierarchyCache.add(newEntry);
+			fgCachedTypes.addAndGet(types.length);
 		}
+		for (int i= 0; i < types.length; i++)
+			fgTypeIndex.compute(types[i], (type, entries) -> add(entries, newEntry));
+		if (newEntry.getTypeHierarchy() == null) // changed in the meantime
+			removeHierarchyEntryFromCache(newEntry);
+		return newEntry;
 	}
 
 
@@ -189,38 +331,79 @@ public class SuperTypeHierarchyCache {
 
 
 	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
-		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
-				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
-					}
-				}
+		HierarchyCacheEntry entry= findEntryInCache(type);
+		return entry != null ? entry.getTypeHierarchy() : null;
+	}
+
+	private static HierarchyCacheEntry findEntryInCache(IType type) {
+		HierarchyCacheEntry[] entries= fgTypeIndex.get(type);
+		if (entries == null)
+			return null;
+		for (int i= 0; i < entries.length; i++) {
+			HierarchyCacheEntry entry= entries[i];
+			ITypeHierarchy hierarchy= entry.getTypeHierarchy();
+			if (hierarchy == null || !hierarchy.exists()) {
+				removeHierarchyEntryFromCache(entry);
+			} else {
+				entry.markAsAccessed();
+				return entry;
 			}
 		}
 		return null;
 	}
 
-	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
-		synchronized (fgHierarchyCache) {
-			removeMethodOverrideTester(entry.getTypeHierarchy());
-			entry.dispose();
-			fgHierarchyCache.remove(entry);
+	private static HierarchyCacheEntry[] add(HierarchyCacheEntry[] entries, HierarchyCacheEntry entry) {
+		if (entries == null)
+			return new HierarchyCacheEntry[] { entry };
+		HierarchyCacheEntry[] result= new HierarchyCacheEntry[entries.length + 1];
+		result[0]= entry;
+		System.arraycopy(entries, 0, result, 1, entries.length);
+		return result;
+	}
+
+	private static HierarchyCacheEntry[] remove(HierarchyCacheEntry[] entries, HierarchyCacheEntry entry) {
+		for (int i= 0; i < entries.length; i++) {
+			if (entries[i] == entry) {
+				if (entries.length == 1)
+					return null; // removes the type from the index
+				HierarchyCacheEntry[] result= new HierarchyCacheEntry[entries.length - 1];
+				System.arraycopy(entries, 0, result, 0, i);
+				System.arraycopy(entries, i + 1, result, i, result.length - i);
+				return result;
+			}
+		}
+		return entries;
+	}
+
+	private static void evict(HierarchyCacheEntry entry) {
+		if (removeHierarchyEntryFromCache(entry)) {
+			int evictions= fgCacheEvictions.incrementAndGet();
+			if (JavaManipulationPlugin.DEBUG_TYPE_HIERARCHY_CACHE) {
+				System.out.println("SuperTypeHierarchyCache > evicted: " + entry //$NON-NLS-1$
+						+ ", hits: " + fgCacheHits.get() + ", misses: " + fgCacheMisses.get() + ", evictions: " + evictions //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						+ ", hierarchies: " + fgHierarchyCache.size() + ", types: " + fgCachedTypes.get()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
 		}
 	}
 
+	private static boolean removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
+		entry.dispose();
+		IType[] types= entry.getTypes();
+		for (int i= 0; i < types.length; i++)
+			fgTypeIndex.computeIfPresent(types[i], (type, entries) -> remove(entries, entry));
+		if (!fgHierarchyCache.remove(entry))
+			return false;
+		fgCachedTypes.addAndGet(-types.length);
+		return true;
+	}
+
 
 	/**
 	 * Gets the number of times the hierarchy could be taken from the hierarchy.
 	 * @return Returns a int
 	 */
 	public static int getCacheHits() {
-		return fgCacheHits;
+		return fgCacheHits.get();
 	}
 
 	/**
@@ -228,6 +411,51 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheMisses() {
-		return fgCacheMisses;
+		return fgCacheMisses.get();
+	}
+
+	/**
+	 * Sets the budget of the cache. Used for testing.
+	 *
+	 * @param maxHierarchies the maximum number of cached hierarchies, or <code>0</code> for the
+	 *            default
+	 * @param maxTypes the maximum number of types in all cached hierarchies, or <code>0</code> for
+	 *            the default
+	 * @since 1.10
+	 */
+	public static void setCacheBudget(int maxHierarchies, int maxTypes) {
+		fgMaxHierarchies= maxHierarchies > 0 ? maxHierarchies : CACHE_SIZE;
+		fgMaxTypes= maxTypes > 0 ? maxTypes : CACHE_TYPES;
+	}
+
+	/**
+	 * Gets the maximum number of cached hierarchies. Used for testing.
+	 *
+	 * @return the maximum number of hierarchies
+	 * @since 1.10
+	 */
+	public static int getMaxHierarchies() {
+		return fgMaxHierarchies;
+	}
+
+	/**
+	 * Gets the maximum number of types in all cached hierarchies. Used for testing.
+	 *
+	 * @return the maximum number of types
+	 * @since 1.10
+	 */
+	public static int getMaxTypes() {
+		return fgMaxTypes;
+	}
+
+	/**
+	 * Gets the number of hierarchies which have been evicted to stay within the budget of the
+	 * cache.
+	 *
+	 * @return the number of evictions
+	 * @since 1.10
+	 */
+	public static int getCacheEvictions() {
+		return fgCacheEvictions.get();
 	}
 }
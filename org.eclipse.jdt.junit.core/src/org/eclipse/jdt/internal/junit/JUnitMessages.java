@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -61,6 +61,8 @@ public final class JUnitMessages extends NLS {
 
 	public static String TestSearchEngine_message_searching;
 
+	public static String TestDiscoveryIndex_save_job;
+
 	static {
 		NLS.initializeMessages(BUNDLE_NAME, JUnitMessages.class);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -60,6 +60,26 @@ public class JUnitPreferencesConstants {
 	 */
 	public static final String MAX_TEST_RUNS= JUnitCorePlugin.PLUGIN_ID + ".max_test_runs"; //$NON-NLS-1$
 
+	/**
+	 * Boolean preference controlling whether the test runner may send its messages in the compact
+	 * binary protocol. Test runners that don't support it always use the text protocol. Disabled
+	 * by default.
+	 */
+	public static final String BINARY_PROTOCOL= JUnitCorePlugin.PLUGIN_ID + ".binary_protocol"; //$NON-NLS-1$
+
+	/**
+	 * Boolean preference controlling whether test runs are swapped to disk in the compact swap
+	 * format that is read on demand, instead of the JUnit XML format. Disabled by default.
+	 */
+	public static final String COMPACT_SWAP_FILES= JUnitCorePlugin.PLUGIN_ID + ".compact_swap_files"; //$NON-NLS-1$
+
+	/**
+	 * Boolean preference controlling whether the tests in source containers are found with the
+	 * help of the persistent test discovery index, which only resolves compilation units that
+	 * changed since the last search.
+	 */
+	public static final String TEST_DISCOVERY_INDEX= JUnitCorePlugin.PLUGIN_ID + ".test_discovery_index"; //$NON-NLS-1$
+
 	/**
 	 * Javadoc location for JUnit 3
 	 */
@@ -207,6 +227,18 @@ public class JUnitPreferencesConstants {
 		return Platform.getPreferencesService().getBoolean(JUnitCorePlugin.CORE_PLUGIN_ID, DO_FILTER_STACK, true, null);
 	}
 
+	public static boolean getBinaryProtocol() {
+		return Platform.getPreferencesService().getBoolean(JUnitCorePlugin.CORE_PLUGIN_ID, BINARY_PROTOCOL, false, null);
+	}
+
+	public static boolean getCompactSwapFiles() {
+		return Platform.getPreferencesService().getBoolean(JUnitCorePlugin.CORE_PLUGIN_ID, COMPACT_SWAP_FILES, false, null);
+	}
+
+	public static boolean getTestDiscoveryIndex() {
+		return Platform.getPreferencesService().getBoolean(JUnitCorePlugin.CORE_PLUGIN_ID, TEST_DISCOVERY_INDEX, true, null);
+	}
+
 	public static void setFilterStack(boolean filter) {
 		InstanceScope.INSTANCE.getNode(JUnitCorePlugin.CORE_PLUGIN_ID).putBoolean(DO_FILTER_STACK, filter);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,12 +27,14 @@ import org.eclipse.jdt.core.IRegion;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.Modifier;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
 import org.eclipse.jdt.internal.junit.JUnitMessages;
 import org.eclipse.jdt.internal.junit.util.CoreTestSearchEngine;
 
-public class JUnit3TestFinder implements ITestFinder {
+public class JUnit3TestFinder implements ITestFinder, TestDiscoveryIndex.ITestEvaluator {
 
 	@Override
 	public void findTestsInContainer(IJavaElement element, Set<IType> result, IProgressMonitor pm) throws CoreException {
@@ -40,6 +42,10 @@ public class JUnit3TestFinder implements ITestFinder {
 			throw new IllegalArgumentException();
 		}
 
+		if (!(element instanceof IType) && JUnitCorePlugin.getTestDiscoveryIndex().findTestsInContainer(element, this, result, pm)) {
+			return;
+		}
+
 		if (pm == null)
 			pm= new NullProgressMonitor();
 
@@ -89,6 +95,17 @@ public class JUnit3TestFinder implements ITestFinder {
 		return CoreTestSearchEngine.isAccessibleClass(type) && (CoreTestSearchEngine.hasSuiteMethod(type) || isTestImplementor(type));
 	}
 
+	@Override
+	public String getTestKindId() {
+		return TestKindRegistry.JUNIT3_TEST_KIND_ID;
+	}
+
+	@Override
+	public boolean isTest(IType type, ITypeBinding binding) throws JavaModelException {
+		return CoreTestSearchEngine.isAccessibleClass(type)
+				&& (CoreTestSearchEngine.hasSuiteMethod(type) || (!Modifier.isAbstract(binding.getModifiers()) && CoreTestSearchEngine.isTestImplementor(binding)));
+	}
+
 	private static boolean isTestImplementor(IType type) throws JavaModelException {
 		if (!Flags.isAbstract(type.getFlags()) && CoreTestSearchEngine.isTestImplementor(type)) {
 			return true;
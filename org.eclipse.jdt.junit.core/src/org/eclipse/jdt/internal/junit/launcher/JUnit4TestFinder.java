@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2017 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -54,7 +54,7 @@ import org.eclipse.jdt.internal.junit.JUnitMessages;
 import org.eclipse.jdt.internal.junit.util.CoreTestSearchEngine;
 
 
-public class JUnit4TestFinder implements ITestFinder {
+public class JUnit4TestFinder implements ITestFinder, TestDiscoveryIndex.ITestEvaluator {
 
 	private static class Annotation {
 
@@ -119,6 +119,10 @@ public class JUnit4TestFinder implements ITestFinder {
 			}
 		}
 
+		if (JUnitCorePlugin.getTestDiscoveryIndex().findTestsInContainer(element, this, result, pm)) {
+			return;
+		}
+
 		if (pm == null)
 			pm= new NullProgressMonitor();
 
@@ -200,6 +204,16 @@ public class JUnit4TestFinder implements ITestFinder {
 		return internalIsTest(type, null);
 	}
 
+	@Override
+	public String getTestKindId() {
+		return TestKindRegistry.JUNIT4_TEST_KIND_ID;
+	}
+
+	@Override
+	public boolean isTest(IType type, ITypeBinding binding) throws JavaModelException {
+		return CoreTestSearchEngine.isAccessibleClass(type) && (CoreTestSearchEngine.hasSuiteMethod(type) || isTest(binding));
+	}
+
 	private boolean internalIsTest(IType type, IProgressMonitor monitor) throws JavaModelException {
 		if (CoreTestSearchEngine.isAccessibleClass(type)) {
 			if (CoreTestSearchEngine.hasSuiteMethod(type)) { // since JUnit 4.3.1
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.runner.TestDurations;
 
 import org.eclipse.jdt.launching.IJavaLaunchConfigurationConstants;
 
@@ -75,6 +76,29 @@ public class JUnitLaunchConfigurationConstants {
 	 */
 	public static final String ATTR_TEST_UNIQUE_ID= JUnitCorePlugin.PLUGIN_ID + ".TEST_UNIQUE_ID"; //$NON-NLS-1$
 
+	/**
+	 * The order of the tests based on the durations and outcomes of their last runs, one of
+	 * {@link TestDurations#ORDER_FAIL_FAST} and {@link TestDurations#ORDER_SHORTEST}, or "" to keep
+	 * the order of the test loader.
+	 */
+	public static final String ATTR_TEST_ORDER= JUnitCorePlugin.PLUGIN_ID + ".TEST_ORDER"; //$NON-NLS-1$
+
+	/**
+	 * The number of shards the test classes are split into, 1 to run all test classes.
+	 */
+	public static final String ATTR_SHARD_COUNT= JUnitCorePlugin.PLUGIN_ID + ".SHARD_COUNT"; //$NON-NLS-1$
+
+	/**
+	 * The index of the shard of the test classes to run, from 0 to {@link #ATTR_SHARD_COUNT} - 1.
+	 */
+	public static final String ATTR_SHARD_INDEX= JUnitCorePlugin.PLUGIN_ID + ".SHARD_INDEX"; //$NON-NLS-1$
+
+	/**
+	 * The id of the run shared by the launch configurations of all shards of a run, or "" if none.
+	 * All shards of a run compute their part of the partition from the durations pinned for the run.
+	 */
+	public static final String ATTR_SHARD_RUN_ID= JUnitCorePlugin.PLUGIN_ID + ".SHARD_RUN_ID"; //$NON-NLS-1$
+
 	public static ITestKind getTestRunnerKind(ILaunchConfiguration launchConfiguration) {
 		try {
 			String loaderId = launchConfiguration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_RUNNER_KIND, (String) null);
@@ -0,0 +1,809 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.launcher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IAnnotationBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.JUnitMessages;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
+
+/**
+ * Persistent per-project index of the tests found in source containers.
+ * <p>
+ * For every compilation unit that has been searched, the index remembers for each test kind which
+ * of its types are tests. It also remembers the compilation units declaring the source types and
+ * annotations that the evaluation of its types depended on, e.g. their super types. Dependencies are
+ * kept by compilation unit, so that a change of a unit also invalidates the dependents of its member
+ * and secondary types.
+ * </p>
+ * <p>
+ * Entries are removed when Java element deltas report a change of their compilation unit, of a unit
+ * they depend on, or of the class path of their project. Entries whose compilation unit has a
+ * different modification stamp or unsaved changes are treated as stale. A search in a container only
+ * resolves the stale compilation units and takes the results of all others from the index.
+ * </p>
+ * <p>
+ * The index of a project is loaded on first use from the plug-in state location. It is saved there
+ * shortly after it has changed and when the plug-in is stopped.
+ * </p>
+ */
+public final class TestDiscoveryIndex implements IElementChangedListener {
+
+	/**
+	 * Evaluates the types of a compilation unit for the index. Implemented by the
+	 * {@link ITestFinder}s that use the index.
+	 */
+	public interface ITestEvaluator {
+
+		/**
+		 * @return the id of the test kind, used to keep the results of different finders apart
+		 */
+		String getTestKindId();
+
+		/**
+		 * @param type the type
+		 * @param binding the resolved binding of the type
+		 * @return <code>true</code> if the type is a test
+		 * @throws JavaModelException if the type cannot be accessed
+		 */
+		boolean isTest(IType type, ITypeBinding binding) throws JavaModelException;
+	}
+
+	private static final String INDEX_DIR_NAME= "testDiscovery"; //$NON-NLS-1$
+
+	private static final String INDEX_FILE_EXTENSION= ".index"; //$NON-NLS-1$
+
+	private static final int FORMAT_VERSION= 2;
+
+	/** Delay in milliseconds after which a changed index is saved */
+	private static final long SAVE_DELAY= 30000;
+
+	private static final class TypeEntry {
+		private final String fHandle;
+		/** the ids of the test kinds for which the type is a test */
+		private final Set<String> fTestKinds;
+
+		TypeEntry(String handle, Set<String> testKinds) {
+			fHandle= handle;
+			fTestKinds= testKinds;
+		}
+	}
+
+	private static final class UnitEntry {
+		private final long fStamp;
+		private final Set<String> fKinds;
+		/** handle identifiers of the compilation units that the evaluation of the types depended on */
+		private final String[] fDependencies;
+		private final List<TypeEntry> fTypes;
+
+		UnitEntry(long stamp, Set<String> kinds, String[] dependencies, List<TypeEntry> types) {
+			fStamp= stamp;
+			fKinds= kinds;
+			fDependencies= dependencies;
+			fTypes= types;
+		}
+
+		TypeEntry getType(String handle) {
+			for (TypeEntry type : fTypes) {
+				if (type.fHandle.equals(handle))
+					return type;
+			}
+			return null;
+		}
+	}
+
+	private static final class ProjectIndex {
+		private final String fName;
+		private final long fClasspathStamp;
+		/** compilation unit handle identifier -&gt; entry */
+		private final Map<String, UnitEntry> fUnits= new HashMap<>();
+		/** compilation unit handle identifier -&gt; handle identifiers of the compilation units that depend on it */
+		private final Map<String, Set<String>> fDependents= new HashMap<>();
+		private boolean fDirty;
+
+		ProjectIndex(String name, long classpathStamp) {
+			fName= name;
+			fClasspathStamp= classpathStamp;
+		}
+
+		void put(String unit, UnitEntry entry) {
+			remove(unit);
+			fUnits.put(unit, entry);
+			for (String dependency : entry.fDependencies) {
+				Set<String> dependents= fDependents.get(dependency);
+				if (dependents == null) {
+					dependents= new HashSet<>();
+					fDependents.put(dependency, dependents);
+				}
+				dependents.add(unit);
+			}
+			fDirty= true;
+		}
+
+		UnitEntry remove(String unit) {
+			UnitEntry entry= fUnits.remove(unit);
+			if (entry != null) {
+				for (String dependency : entry.fDependencies) {
+					Set<String> dependents= fDependents.get(dependency);
+					if (dependents != null && dependents.remove(unit) && dependents.isEmpty())
+						fDependents.remove(dependency);
+				}
+				fDirty= true;
+			}
+			return entry;
+		}
+
+		void removeDependents(Collection<String> units) {
+			for (String unit : units) {
+				Set<String> dependents= fDependents.get(unit);
+				if (dependents != null) {
+					for (String dependent : new ArrayList<>(dependents))
+						remove(dependent);
+				}
+			}
+		}
+
+		/**
+		 * Adds the handle identifiers of the indexed units and of the units depended on that are
+		 * inside the given container.
+		 *
+		 * @param container the container
+		 * @param result the collection to add the handle identifiers to
+		 */
+		void collectUnits(IJavaElement container, Collection<String> result) {
+			for (String unit : fUnits.keySet()) {
+				if (isInside(unit, container))
+					result.add(unit);
+			}
+			for (String unit : fDependents.keySet()) {
+				if (isInside(unit, container))
+					result.add(unit);
+			}
+		}
+	}
+
+	/** project name -&gt; index */
+	private final Map<String, ProjectIndex> fProjects= new HashMap<>();
+
+	/**
+	 * Handle identifiers of the units that were found to be stale when an index was loaded. Entries
+	 * of indexes loaded later that depend on these units are stale as well.
+	 */
+	private final Set<String> fStaleUnits= new HashSet<>();
+
+	/**
+	 * Handle identifiers of the units that changed while searches are running. Results of a search
+	 * that depend on a unit that changed after the search started are not stored.
+	 */
+	private final List<String> fChangedUnits= new ArrayList<>();
+
+	private int fRunningSearches;
+
+	/**
+	 * Incremented whenever the index of a project is discarded, so that an index that is loaded
+	 * concurrently is not used.
+	 */
+	private int fDiscardCount;
+
+	private final Job fSaveJob= new Job(JUnitMessages.TestDiscoveryIndex_save_job) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			saveDirtyIndexes();
+			return Status.OK_STATUS;
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == TestDiscoveryIndex.this;
+		}
+	};
+
+	public TestDiscoveryIndex() {
+		fSaveJob.setSystem(true);
+	}
+
+	public void start() {
+		JavaCore.addElementChangedListener(this, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	public void stop() {
+		JavaCore.removeElementChangedListener(this);
+		fSaveJob.cancel();
+		synchronized (this) {
+			saveDirtyIndexes();
+			fProjects.clear();
+		}
+	}
+
+	private synchronized void saveDirtyIndexes() {
+		for (ProjectIndex index : fProjects.values()) {
+			if (index.fDirty) {
+				try {
+					save(index);
+				} catch (IOException e) {
+					JUnitCorePlugin.log(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schedules the save job if an index has changed, so that the changes are not lost if the
+	 * workspace is not shut down properly. Must be called while holding the lock of this index.
+	 */
+	private void scheduleSave() {
+		for (ProjectIndex index : fProjects.values()) {
+			if (index.fDirty) {
+				fSaveJob.schedule(SAVE_DELAY);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Finds the tests in a source container. Only compilation units whose entries are missing or
+	 * stale are resolved, the tests of all other units are taken from the index.
+	 *
+	 * @param element the container to search
+	 * @param evaluator the evaluator of the test kind
+	 * @param result the set to add the tests to
+	 * @param pm the progress monitor, can be <code>null</code>
+	 * @return <code>true</code> if the container has been searched, <code>false</code> if the
+	 *         index is disabled or cannot be used for this kind of container
+	 * @throws CoreException if the container cannot be searched
+	 */
+	public boolean findTestsInContainer(IJavaElement element, ITestEvaluator evaluator, Set<IType> result, IProgressMonitor pm) throws CoreException {
+		if (!JUnitPreferencesConstants.getTestDiscoveryIndex())
+			return false;
+		List<ICompilationUnit> units= getCompilationUnits(element);
+		if (units == null)
+			return false;
+
+		SubMonitor subMonitor= SubMonitor.convert(pm, JUnitMessages.TestSearchEngine_message_searching, 10);
+		IJavaProject javaProject= element.getJavaProject();
+		String kind= evaluator.getTestKindId();
+		int changeLogStart;
+		synchronized (this) {
+			fRunningSearches++;
+			changeLogStart= fChangedUnits.size();
+		}
+		try {
+			ProjectIndex index= getProjectIndex(javaProject, new HashSet<String>(), changeLogStart);
+			Map<ICompilationUnit, Long> stamps= new HashMap<>();
+			for (ICompilationUnit unit : units)
+				stamps.put(unit, Long.valueOf(getStamp(unit)));
+
+			List<ICompilationUnit> staleUnits= new ArrayList<>();
+			synchronized (this) {
+				boolean discarded= fProjects.get(javaProject.getElementName()) != index;
+				for (ICompilationUnit unit : units) {
+					UnitEntry entry= discarded ? null : index.fUnits.get(unit.getHandleIdentifier());
+					if (entry != null && entry.fKinds.contains(kind) && entry.fStamp == stamps.get(unit).longValue()) {
+						addTests(entry, kind, result);
+					} else {
+						staleUnits.add(unit);
+					}
+				}
+			}
+			subMonitor.worked(1);
+			if (!staleUnits.isEmpty())
+				indexUnits(javaProject, index, staleUnits, stamps, evaluator, changeLogStart, result, subMonitor.split(9));
+			return true;
+		} finally {
+			synchronized (this) {
+				if (--fRunningSearches == 0)
+					fChangedUnits.clear();
+				scheduleSave();
+			}
+		}
+	}
+
+	private static List<ICompilationUnit> getCompilationUnits(IJavaElement element) throws JavaModelException {
+		List<ICompilationUnit> result= new ArrayList<>();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_PROJECT:
+				for (IPackageFragmentRoot root : ((IJavaProject) element).getPackageFragmentRoots()) {
+					if (root.getKind() == IPackageFragmentRoot.K_SOURCE)
+						addCompilationUnits(root, result);
+				}
+				return result;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				IPackageFragmentRoot root= (IPackageFragmentRoot) element;
+				if (root.getKind() != IPackageFragmentRoot.K_SOURCE)
+					return null;
+				addCompilationUnits(root, result);
+				return result;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				IPackageFragment fragment= (IPackageFragment) element;
+				if (fragment.getKind() != IPackageFragmentRoot.K_SOURCE)
+					return null;
+				for (ICompilationUnit unit : fragment.getCompilationUnits())
+					result.add(unit);
+				return result;
+			case IJavaElement.COMPILATION_UNIT:
+				result.add((ICompilationUnit) element);
+				return result;
+			default:
+				return null;
+		}
+	}
+
+	private static void addCompilationUnits(IPackageFragmentRoot root, List<ICompilationUnit> result) throws JavaModelException {
+		for (IJavaElement child : root.getChildren()) {
+			for (ICompilationUnit unit : ((IPackageFragment) child).getCompilationUnits())
+				result.add(unit);
+		}
+	}
+
+	/**
+	 * @param unit the compilation unit
+	 * @return the modification stamp of the unit, or {@link IResource#NULL_STAMP} if the unit has
+	 *         unsaved changes and must not be indexed
+	 * @throws JavaModelException if the unit cannot be accessed
+	 */
+	private static long getStamp(ICompilationUnit unit) throws JavaModelException {
+		IResource resource= unit.getResource();
+		if (resource == null || unit.hasUnsavedChanges())
+			return IResource.NULL_STAMP;
+		return resource.getModificationStamp();
+	}
+
+	private static void addTests(UnitEntry entry, String kind, Set<IType> result) {
+		for (TypeEntry type : entry.fTypes) {
+			if (type.fTestKinds.contains(kind)) {
+				IJavaElement element= JavaCore.create(type.fHandle);
+				if (element instanceof IType)
+					result.add((IType) element);
+			}
+		}
+	}
+
+	private static boolean isInside(String handle, IJavaElement container) {
+		for (IJavaElement element= JavaCore.create(handle); element != null; element= element.getParent()) {
+			if (element.equals(container))
+				return true;
+		}
+		return false;
+	}
+
+	private void indexUnits(IJavaProject javaProject, final ProjectIndex index, List<ICompilationUnit> units, final Map<ICompilationUnit, Long> stamps, final ITestEvaluator evaluator, final int changeLogStart, final Set<IType> result, IProgressMonitor pm) throws CoreException {
+		final CoreException[] exception= new CoreException[1];
+		ASTParser parser= ASTParser.newParser(AST.JLS9);
+		parser.setProject(javaProject);
+		parser.setResolveBindings(true);
+		parser.setIgnoreMethodBodies(true);
+		parser.createASTs(units.toArray(new ICompilationUnit[units.size()]), new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				if (exception[0] != null)
+					return;
+				try {
+					indexUnit(index, source, ast, stamps.get(source).longValue(), evaluator, changeLogStart, result);
+				} catch (CoreException e) {
+					exception[0]= e;
+				}
+			}
+		}, pm);
+		if (exception[0] != null)
+			throw exception[0];
+	}
+
+	private void indexUnit(ProjectIndex index, ICompilationUnit unit, CompilationUnit ast, long stamp, ITestEvaluator evaluator, int changeLogStart, Set<IType> result) throws CoreException {
+		String kind= evaluator.getTestKindId();
+		String handle= unit.getHandleIdentifier();
+		UnitEntry oldEntry;
+		synchronized (this) {
+			oldEntry= index.fUnits.get(handle);
+			if (oldEntry != null && oldEntry.fStamp != stamp)
+				oldEntry= null;
+		}
+
+		List<TypeEntry> types= new ArrayList<>();
+		Set<String> dependencies= new HashSet<>();
+		Set<ITypeBinding> visited= new HashSet<>();
+		for (IType type : unit.getAllTypes()) {
+			ASTNode node= ast.findDeclaringNode(type.getKey());
+			if (!(node instanceof AbstractTypeDeclaration))
+				continue;
+			ITypeBinding binding= ((AbstractTypeDeclaration) node).resolveBinding();
+			if (binding == null)
+				continue;
+
+			String typeHandle= type.getHandleIdentifier();
+			TypeEntry oldType= oldEntry != null ? oldEntry.getType(typeHandle) : null;
+			Set<String> testKinds= oldType != null ? new HashSet<>(oldType.fTestKinds) : new HashSet<String>();
+			testKinds.remove(kind);
+			if (evaluator.isTest(type, binding)) {
+				result.add(type);
+				testKinds.add(kind);
+			}
+			collectDependencies(binding, visited, dependencies);
+			types.add(new TypeEntry(typeHandle, testKinds));
+		}
+
+		if (stamp == IResource.NULL_STAMP || hasErrors(ast))
+			return; // the result may change without a delta that invalidates it
+		Set<String> kinds= new HashSet<>();
+		if (oldEntry != null)
+			kinds.addAll(oldEntry.fKinds);
+		kinds.add(kind);
+		synchronized (this) {
+			if (fProjects.get(index.fName) == index && !dependsOnChangedUnits(handle, dependencies, changeLogStart))
+				index.put(handle, new UnitEntry(stamp, kinds, dependencies.toArray(new String[dependencies.size()]), types));
+		}
+	}
+
+	private boolean dependsOnChangedUnits(String unit, Set<String> dependencies, int changeLogStart) {
+		if (changeLogStart == fChangedUnits.size())
+			return false;
+		for (String changed : fChangedUnits.subList(changeLogStart, fChangedUnits.size())) {
+			if (changed.equals(unit) || dependencies.contains(changed))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Units with errors in declarations are not indexed, since e.g. an unresolved super type does
+	 * not show up in the dependencies of a type.
+	 *
+	 * @param ast the AST of the unit
+	 * @return <code>true</code> if the AST has errors
+	 */
+	private static boolean hasErrors(CompilationUnit ast) {
+		for (IProblem problem : ast.getProblems()) {
+			if (problem.isError())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the compilation units of the given source type, its source super types and the source
+	 * annotations on them, their methods and member types.
+	 *
+	 * @param type the type binding
+	 * @param visited the types that have already been visited
+	 * @param result the set of compilation unit handle identifiers
+	 */
+	private static void collectDependencies(ITypeBinding type, Set<ITypeBinding> visited, Set<String> result) {
+		if (type == null || !type.isFromSource())
+			return;
+		if (!visited.add(type.getErasure()))
+			return;
+		addCompilationUnit(type, result);
+		collectDependencies(type.getAnnotations(), visited, result);
+		for (IMethodBinding method : type.getDeclaredMethods())
+			collectDependencies(method.getAnnotations(), visited, result);
+		for (ITypeBinding member : type.getDeclaredTypes())
+			collectDependencies(member.getAnnotations(), visited, result);
+		collectDependencies(type.getSuperclass(), visited, result);
+		for (ITypeBinding superInterface : type.getInterfaces())
+			collectDependencies(superInterface, visited, result);
+	}
+
+	private static void collectDependencies(IAnnotationBinding[] annotations, Set<ITypeBinding> visited, Set<String> result) {
+		for (IAnnotationBinding annotation : annotations) {
+			ITypeBinding annotationType= annotation != null ? annotation.getAnnotationType() : null;
+			if (annotationType != null && annotationType.isFromSource() && visited.add(annotationType)) {
+				addCompilationUnit(annotationType, result);
+				collectDependencies(annotationType.getAnnotations(), visited, result);
+			}
+		}
+	}
+
+	private static void addCompilationUnit(ITypeBinding type, Set<String> result) {
+		IJavaElement element= type.getErasure().getJavaElement();
+		ICompilationUnit unit= element instanceof IType ? ((IType) element).getCompilationUnit() : null;
+		if (unit != null)
+			result.add(unit.getPrimary().getHandleIdentifier());
+	}
+
+	@Override
+	public void elementChanged(ElementChangedEvent event) {
+		synchronized (this) {
+			if (fProjects.isEmpty() && fRunningSearches == 0)
+				return;
+			Set<String> changedUnits= new HashSet<>();
+			processDelta(event.getDelta(), changedUnits);
+			if (!changedUnits.isEmpty()) {
+				for (ProjectIndex index : fProjects.values())
+					index.removeDependents(changedUnits);
+				if (fRunningSearches > 0)
+					fChangedUnits.addAll(changedUnits);
+				scheduleSave();
+			}
+		}
+	}
+
+	/**
+	 * Removes the entries of the changed compilation units and collects the handle identifiers of
+	 * all units whose dependents must be removed.
+	 *
+	 * @param delta the delta
+	 * @param changedUnits the set to add the handle identifiers of the changed units to
+	 */
+	private void processDelta(IJavaElementDelta delta, Set<String> changedUnits) {
+		IJavaElement element= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (kind == IJavaElementDelta.REMOVED
+						|| (flags & (IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+					discard(element.getJavaProject(), changedUnits);
+					return;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED
+						|| (flags & (IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_REORDER)) != 0) {
+					discard(element.getJavaProject(), changedUnits);
+					return;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind == IJavaElementDelta.REMOVED) {
+					removeUnits(element, changedUnits);
+					return;
+				}
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				String unit= ((ICompilationUnit) element).getPrimary().getHandleIdentifier();
+				changedUnits.add(unit);
+				ProjectIndex index= fProjects.get(element.getJavaProject().getElementName());
+				if (index != null)
+					index.remove(unit);
+				return;
+			default:
+				return;
+		}
+		for (IJavaElementDelta child : delta.getAffectedChildren())
+			processDelta(child, changedUnits);
+	}
+
+	/**
+	 * Removes the entries of the units in a container, and collects these units and all units in
+	 * the container that other entries depend on.
+	 *
+	 * @param container the removed container
+	 * @param changedUnits the set to add the handle identifiers of the removed units to
+	 */
+	private void removeUnits(IJavaElement container, Set<String> changedUnits) {
+		List<String> units= new ArrayList<>();
+		for (ProjectIndex index : fProjects.values())
+			index.collectUnits(container, units);
+		ProjectIndex index= fProjects.get(container.getJavaProject().getElementName());
+		if (index != null) {
+			for (String unit : units)
+				index.remove(unit);
+		}
+		changedUnits.addAll(units);
+	}
+
+	private void discard(IJavaProject javaProject, Set<String> changedUnits) {
+		fDiscardCount++;
+		for (ProjectIndex index : fProjects.values())
+			index.collectUnits(javaProject, changedUnits);
+		fProjects.remove(javaProject.getElementName());
+		File file= getIndexFile(javaProject.getElementName());
+		if (file.exists())
+			file.delete();
+	}
+
+	private ProjectIndex getProjectIndex(IJavaProject javaProject, Set<String> visited, int changeLogStart) throws JavaModelException {
+		String name= javaProject.getElementName();
+		visited.add(name);
+		int discardCount;
+		synchronized (this) {
+			ProjectIndex index= fProjects.get(name);
+			if (index != null)
+				return index;
+			discardCount= fDiscardCount;
+		}
+
+		// load the indexes of required projects first, so that their stale types are known
+		for (String requiredProject : javaProject.getRequiredProjectNames()) {
+			IJavaProject required= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot().getProject(requiredProject));
+			if (!visited.contains(requiredProject) && required.exists())
+				getProjectIndex(required, visited, changeLogStart);
+		}
+
+		// read the file outside of the lock, since validating the entries accesses the Java model
+		long classpathStamp= computeClasspathStamp(javaProject);
+		File file= getIndexFile(name);
+		ProjectIndex loaded= null;
+		Set<String> staleUnits= new HashSet<>();
+		if (file.exists()) {
+			try {
+				loaded= load(name, file, classpathStamp);
+			} catch (IOException e) {
+				JUnitCorePlugin.log(e);
+			}
+			if (loaded != null)
+				removeStaleUnits(loaded, staleUnits);
+			else
+				file.delete();
+		}
+
+		synchronized (this) {
+			ProjectIndex index= fProjects.get(name);
+			if (index != null)
+				return index;
+			if (loaded == null || discardCount != fDiscardCount) {
+				index= new ProjectIndex(name, classpathStamp);
+			} else {
+				index= loaded;
+				fStaleUnits.addAll(staleUnits);
+				index.removeDependents(fStaleUnits);
+				index.removeDependents(fChangedUnits.subList(changeLogStart, fChangedUnits.size()));
+				for (ProjectIndex other : fProjects.values())
+					other.removeDependents(staleUnits);
+			}
+			fProjects.put(name, index);
+			return index;
+		}
+	}
+
+	/**
+	 * Removes the entries of a loaded index whose units changed while the index was not loaded.
+	 *
+	 * @param index the loaded index
+	 * @param staleUnits the set to add the handle identifiers of the removed units to
+	 * @throws JavaModelException if a unit cannot be accessed
+	 */
+	private static void removeStaleUnits(ProjectIndex index, Set<String> staleUnits) throws JavaModelException {
+		for (String handle : new ArrayList<>(index.fUnits.keySet())) {
+			IJavaElement element= JavaCore.create(handle);
+			UnitEntry entry= index.fUnits.get(handle);
+			if (!(element instanceof ICompilationUnit) || !element.exists() || entry.fStamp != getStamp((ICompilationUnit) element)) {
+				index.remove(handle);
+				staleUnits.add(handle);
+			}
+		}
+	}
+
+	private static long computeClasspathStamp(IJavaProject javaProject) throws JavaModelException {
+		long stamp= 1;
+		for (IClasspathEntry entry : javaProject.getResolvedClasspath(true)) {
+			IPath path= entry.getPath();
+			stamp= 31 * stamp + entry.getEntryKind();
+			stamp= 31 * stamp + path.hashCode();
+			if (entry.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
+				IResource resource= ResourcesPlugin.getWorkspace().getRoot().findMember(path);
+				IPath location= resource != null ? resource.getLocation() : path;
+				if (location != null)
+					stamp= 31 * stamp + location.toFile().lastModified();
+			}
+		}
+		return stamp;
+	}
+
+	private static File getIndexFile(String projectName) {
+		File directory= JUnitCorePlugin.getDefault().getStateLocation().append(INDEX_DIR_NAME).toFile();
+		return new File(directory, projectName + INDEX_FILE_EXTENSION);
+	}
+
+	private static ProjectIndex load(String name, File file, long classpathStamp) throws IOException {
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != FORMAT_VERSION || in.readLong() != classpathStamp)
+				return null;
+			ProjectIndex index= new ProjectIndex(name, classpathStamp);
+			int unitCount= in.readInt();
+			for (int i= 0; i < unitCount; i++) {
+				String handle= in.readUTF();
+				long stamp= in.readLong();
+				Set<String> kinds= new HashSet<>();
+				readStrings(in, kinds);
+				List<String> dependencies= new ArrayList<>();
+				readStrings(in, dependencies);
+				int typeCount= in.readInt();
+				List<TypeEntry> types= new ArrayList<>(typeCount);
+				for (int j= 0; j < typeCount; j++) {
+					String typeHandle= in.readUTF();
+					Set<String> testKinds= new HashSet<>();
+					readStrings(in, testKinds);
+					types.add(new TypeEntry(typeHandle, testKinds));
+				}
+				index.put(handle, new UnitEntry(stamp, kinds, dependencies.toArray(new String[dependencies.size()]), types));
+			}
+			index.fDirty= false;
+			return index;
+		}
+	}
+
+	private static void save(ProjectIndex index) throws IOException {
+		File file= getIndexFile(index.fName);
+		file.getParentFile().mkdirs();
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(index.fClasspathStamp);
+			out.writeInt(index.fUnits.size());
+			for (Map.Entry<String, UnitEntry> unit : index.fUnits.entrySet()) {
+				UnitEntry entry= unit.getValue();
+				out.writeUTF(unit.getKey());
+				out.writeLong(entry.fStamp);
+				writeStrings(out, entry.fKinds);
+				writeStrings(out, Arrays.asList(entry.fDependencies));
+				out.writeInt(entry.fTypes.size());
+				for (TypeEntry type : entry.fTypes) {
+					out.writeUTF(type.fHandle);
+					writeStrings(out, type.fTestKinds);
+				}
+			}
+		}
+		index.fDirty= false;
+	}
+
+	private static void readStrings(DataInputStream in, Collection<String> result) throws IOException {
+		int count= in.readInt();
+		for (int i= 0; i < count; i++)
+			result.add(in.readUTF());
+	}
+
+	private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String string : strings)
+			out.writeUTF(string);
+	}
+}
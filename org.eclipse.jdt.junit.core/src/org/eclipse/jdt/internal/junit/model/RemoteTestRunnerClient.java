@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,13 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -22,11 +27,16 @@ import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
 import org.eclipse.jdt.internal.junit.runner.MessageIds;
 import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
 
@@ -70,19 +80,7 @@ public class RemoteTestRunnerClient {
 	        }
 	        String arg= message.substring(MessageIds.MSG_HEADER_LENGTH);
 	        if (message.startsWith(MessageIds.TEST_RUN_START)) {
-	            // version < 2 format: count
-	            // version >= 2 format: count+" "+version
-	            int count= 0;
-	            int v= arg.indexOf(' ');
-	            if (v == -1) {
-	                fVersion= "v1"; //$NON-NLS-1$
-	                count= Integer.parseInt(arg);
-	            } else {
-	                fVersion= arg.substring(v+1);
-	                String sc= arg.substring(0, v);
-	                count= Integer.parseInt(sc);
-	            }
-	            notifyTestRunStarted(count);
+	            testRunStarted(arg);
 	            return this;
 	        }
 	        if (message.startsWith(MessageIds.TEST_START)) {
@@ -225,6 +223,10 @@ public class RemoteTestRunnerClient {
 	private int fPort= -1;
 	private PrintWriter fWriter;
 	private PushbackReader fPushbackReader;
+	/**
+	 * The input stream if the binary protocol is used
+	 */
+	private DataInputStream fBinaryInput;
 	private String fLastLineDelimiter;
 	/**
 	 * The protocol version
@@ -263,19 +265,39 @@ public class RemoteTestRunnerClient {
 					System.out.println("Creating server socket "+fServerPort); //$NON-NLS-1$
 				fServerSocket= new ServerSocket(fServerPort);
 				fSocket= fServerSocket.accept();
-				try {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream(), "UTF-8"))); //$NON-NLS-1$
-				} catch (UnsupportedEncodingException e) {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream())));
-				}
+				InputStream in= new BufferedInputStream(fSocket.getInputStream());
 				try {
 				    fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), "UTF-8"), true); //$NON-NLS-1$
 	            } catch (UnsupportedEncodingException e1) {
 	                fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream()), true);
 	            }
-				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
-					receiveMessage(message);
+				// the runner announces the binary protocol in the first line
+				String firstLine= readFirstLine(in);
+				if (firstLine != null && firstLine.startsWith(MessageIds.BINARY_PROTOCOL)) {
+					String version= firstLine.substring(MessageIds.BINARY_PROTOCOL.length());
+					if (isSupportedBinaryVersion(version)) {
+						fBinaryInput= new DataInputStream(in);
+						while (fBinaryInput != null && readFrame(fBinaryInput)) {
+							// continue with the next frame
+						}
+					} else {
+						// the stream cannot be read as text either
+						JUnitCorePlugin.log(new Status(IStatus.ERROR, JUnitCorePlugin.getPluginId(), IStatus.ERROR,
+								"Unsupported version of the binary test runner protocol: " + version, null)); //$NON-NLS-1$
+						notifyTestRunTerminated();
+					}
+				} else {
+					try {
+					    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(in, "UTF-8"))); //$NON-NLS-1$
+					} catch (UnsupportedEncodingException e) {
+					    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(in)));
+					}
+					if (firstLine != null)
+						receiveMessage(firstLine);
+					String message;
+					while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
+						receiveMessage(message);
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
 			} catch (IOException e) {
@@ -331,6 +353,13 @@ public class RemoteTestRunnerClient {
 			}
 		} catch(IOException e) {
 		}
+		try {
+			if (fBinaryInput != null) {
+				fBinaryInput.close();
+				fBinaryInput= null;
+			}
+		} catch(IOException e) {
+		}
 		try {
 			if (fSocket != null) {
 				fSocket.close();
@@ -377,10 +406,167 @@ public class RemoteTestRunnerClient {
 		return buf.toString();
 	}
 
+	/**
+	 * Tells whether a version of the binary protocol announced by the runner can be read. The runner
+	 * announces the lower of its own version and the version passed by the launch.
+	 *
+	 * @param version the announced version
+	 * @return <code>true</code> if the version is supported
+	 */
+	private static boolean isSupportedBinaryVersion(String version) {
+		try {
+			int v= Integer.parseInt(version.trim());
+			return v >= BinaryMessageWriter.MIN_VERSION && v <= BinaryMessageWriter.VERSION;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the first line of the stream. The line is read byte by byte, so
+	 * that the stream can be continued in the binary protocol.
+	 *
+	 * @param in the stream
+	 * @return the first line without line delimiter, or <code>null</code> if the stream is empty
+	 * @throws IOException if reading fails
+	 */
+	private String readFirstLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line= new ByteArrayOutputStream(128);
+		int b;
+		while ((b= in.read()) != -1 && b != '\n')
+			line.write(b);
+		if (b == -1 && line.size() == 0)
+			return null;
+		String result= new String(line.toByteArray(), StandardCharsets.UTF_8);
+		if (b == -1) {
+			fLastLineDelimiter= null;
+		} else if (result.endsWith("\r")) { //$NON-NLS-1$
+			fLastLineDelimiter= "\r\n"; //$NON-NLS-1$
+			result= result.substring(0, result.length() - 1);
+		} else {
+			fLastLineDelimiter= "\n"; //$NON-NLS-1$
+		}
+		return result;
+	}
+
+	/**
+	 * Reads and processes a frame of the binary protocol.
+	 *
+	 * @param in the stream
+	 * @return <code>true</code> if more frames can be read
+	 * @throws IOException if reading fails
+	 * @see BinaryMessageWriter
+	 */
+	private boolean readFrame(DataInputStream in) throws IOException {
+		byte[] frame;
+		try {
+			frame= new byte[in.readInt()];
+		} catch (EOFException e) {
+			return false;
+		}
+		in.readFully(frame);
+		ByteBuffer buffer= ByteBuffer.wrap(frame);
+		while (buffer.hasRemaining()) {
+			byte kind= buffer.get();
+			int length= buffer.getInt();
+			String arg= new String(frame, buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+			receiveMessage(kind, arg);
+			if (fBinaryInput == null)
+				return false; // shut down
+		}
+		return true;
+	}
+
 	private void receiveMessage(String message) {
 	    fCurrentState= fCurrentState.readMessage(message);
 	}
 
+	/**
+	 * Processes a record of the binary protocol. The blocks are received as a
+	 * whole, so the processing states of the text protocol are not needed.
+	 *
+	 * @param kind the message kind
+	 * @param arg the message argument
+	 */
+	private void receiveMessage(byte kind, String arg) {
+		switch (kind) {
+			case BinaryMessageWriter.TEST_RUN_START:
+				testRunStarted(arg);
+				break;
+			case BinaryMessageWriter.TEST_START:
+				notifyTestStarted(arg);
+				break;
+			case BinaryMessageWriter.TEST_END:
+				notifyTestEnded(arg);
+				break;
+			case BinaryMessageWriter.TEST_ERROR:
+				extractFailure(arg, ITestRunListener2.STATUS_ERROR);
+				break;
+			case BinaryMessageWriter.TEST_FAILED:
+				extractFailure(arg, ITestRunListener2.STATUS_FAILURE);
+				break;
+			case BinaryMessageWriter.TEST_RUN_END:
+				testRunEnded(Long.parseLong(arg));
+				break;
+			case BinaryMessageWriter.TEST_STOPPED:
+				notifyTestRunStopped(Long.parseLong(arg));
+				shutDown();
+				break;
+			case BinaryMessageWriter.TEST_RERAN:
+				if (hasTestId())
+					scanReranMessage(arg);
+				else
+					scanOldReranMessage(arg);
+				break;
+			case BinaryMessageWriter.TEST_TREE:
+				notifyTestTreeEntry(arg);
+				break;
+			case BinaryMessageWriter.TRACE:
+				fFailedTrace.setLength(0);
+				fFailedTrace.append(arg);
+				notifyTestFailed();
+				fFailedTrace.setLength(0);
+				fActualResult.setLength(0);
+				fExpectedResult.setLength(0);
+				break;
+			case BinaryMessageWriter.EXPECTED:
+				fExpectedResult.setLength(0);
+				fExpectedResult.append(arg);
+				break;
+			case BinaryMessageWriter.ACTUAL:
+				fActualResult.setLength(0);
+				fActualResult.append(arg);
+				break;
+			case BinaryMessageWriter.RTRACE:
+				fFailedRerunTrace.setLength(0);
+				fFailedRerunTrace.append(arg);
+				break;
+			case BinaryMessageWriter.TEXT:
+				receiveMessage(arg);
+				break;
+			default:
+				// unknown kind, ignore like unknown text messages
+				break;
+		}
+	}
+
+	private void testRunStarted(String arg) {
+		// version < 2 format: count
+		// version >= 2 format: count+" "+version
+		int count= 0;
+		int v= arg.indexOf(' ');
+		if (v == -1) {
+			fVersion= "v1"; //$NON-NLS-1$
+			count= Integer.parseInt(arg);
+		} else {
+			fVersion= arg.substring(v+1);
+			String sc= arg.substring(0, v);
+			count= Integer.parseInt(sc);
+		}
+		notifyTestRunStarted(count);
+	}
+
 	private void scanOldReranMessage(String arg) {
 		// OLD V1 format
 		// format: className" "testName" "status
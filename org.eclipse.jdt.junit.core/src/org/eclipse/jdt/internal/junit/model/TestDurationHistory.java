@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.jdt.core.IJavaProject;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.runner.TestDurations;
+
+/**
+ * Persists the durations and outcomes of the tests of a project, so that the next launches can
+ * order the tests and split them into balanced shards. The durations file of a project is in the
+ * format read by {@link TestDurations}.
+ * <p>
+ * Each shard is launched separately and computes its part of the partition from the durations it
+ * gets. All shards of a run therefore get the same copy of the durations, which is pinned under the
+ * run id shared by their launch configurations when the first shard of the run is launched.
+ * </p>
+ */
+public class TestDurationHistory {
+
+	private static final String DURATIONS_DIR_NAME= "testDurations"; //$NON-NLS-1$
+	private static final String PINNED_DIR_NAME= "pinned"; //$NON-NLS-1$
+	private static final String EXTENSION= ".txt"; //$NON-NLS-1$
+
+	/**
+	 * The maximal number of tests per project, the tests that did not run for the longest time are
+	 * forgotten first.
+	 */
+	private static final int MAX_ENTRIES= 20000;
+
+	/**
+	 * The time in milliseconds after which the pinned durations of a run are deleted.
+	 */
+	private static final long PINNED_MAX_AGE= 24 * 60 * 60 * 1000L;
+
+	private static final Object fgLock= new Object();
+
+	private static class Entry {
+		long fMillis;
+		boolean fFailed;
+
+		Entry(long millis, boolean failed) {
+			fMillis= millis;
+			fFailed= failed;
+		}
+	}
+
+	private TestDurationHistory() {
+	}
+
+	/**
+	 * Records the durations and outcomes of the tests that ran in the given session. The
+	 * previous duration of a test is averaged with the new one to smooth out outliers.
+	 *
+	 * @param session the test run session
+	 */
+	public static void record(TestRunSession session) {
+		IJavaProject project= session.getLaunchedProject();
+		if (project == null || session.getLaunch() == null)
+			return;
+		Map<String, Entry> ran= new LinkedHashMap<>();
+		collect(session.getTestRoot(), ran);
+		record(project, ran);
+	}
+
+	/**
+	 * Records the durations and outcomes of tests that ran in the given project. Used for testing.
+	 *
+	 * @param project the project
+	 * @param millis test name -&gt; duration of the test in milliseconds
+	 * @param failures the names of the tests that failed
+	 */
+	public static void record(IJavaProject project, Map<String, Long> millis, Set<String> failures) {
+		Map<String, Entry> ran= new LinkedHashMap<>();
+		for (Map.Entry<String, Long> e : millis.entrySet()) {
+			ran.put(e.getKey(), new Entry(e.getValue().longValue(), failures.contains(e.getKey())));
+		}
+		record(project, ran);
+	}
+
+	private static void record(IJavaProject project, Map<String, Entry> ran) {
+		if (ran.isEmpty())
+			return;
+
+		synchronized (fgLock) {
+			try {
+				File file= getFile(project);
+				Map<String, Entry> entries= read(file);
+				for (Map.Entry<String, Entry> e : ran.entrySet()) {
+					Entry entry= e.getValue();
+					Entry old= entries.remove(e.getKey());
+					if (old != null)
+						entry.fMillis= (old.fMillis + entry.fMillis) / 2;
+					entries.put(e.getKey(), entry);
+				}
+				write(entries, file);
+			} catch (IOException e) {
+				JUnitCorePlugin.log(e);
+			}
+		}
+	}
+
+	/**
+	 * Creates a snapshot of the recorded durations for a launch. The caller has to delete the
+	 * snapshot when the launch has terminated.
+	 * <p>
+	 * A sharded launch gets a copy of the durations pinned for its run, so that all shards of the
+	 * run compute the same partition even if the durations are recorded between their launches. A
+	 * relaunched shard of a run gets the same durations as the other shards of the run. A sharded
+	 * launch without a run id gets no durations, so that its shards split the test classes
+	 * independently of the durations.
+	 * </p>
+	 *
+	 * @param project the launched project, can be <code>null</code>
+	 * @param runId the id of the run shared by all shards of the run, or "" if none
+	 * @param shardCount the number of shards, 1 if the launch is not sharded
+	 * @return the snapshot, or <code>null</code> if no durations are recorded
+	 * @throws CoreException if the snapshot cannot be written
+	 */
+	public static File createDurationsFile(IJavaProject project, String runId, int shardCount) throws CoreException {
+		if (project == null || (shardCount > 1 && runId.length() == 0))
+			return null;
+		synchronized (fgLock) {
+			try {
+				File file= getFile(project);
+				if (shardCount > 1)
+					file= getPinnedFile(project, file, runId);
+				if (!file.isFile() || file.length() == 0)
+					return null;
+				File snapshot= File.createTempFile("testDurations", EXTENSION); //$NON-NLS-1$
+				Files.copy(file.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				return snapshot;
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR, JUnitCorePlugin.CORE_PLUGIN_ID, IStatus.ERROR, "", e)); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Returns the durations pinned for the given run. The current durations are pinned when the
+	 * first shard of the run is launched. The pinned durations of older runs are deleted.
+	 *
+	 * @param project the launched project
+	 * @param file the durations file of the project
+	 * @param runId the id of the run
+	 * @return the pinned durations, empty if no durations were recorded when they were pinned
+	 * @throws IOException if the durations cannot be pinned
+	 */
+	private static File getPinnedFile(IJavaProject project, File file, String runId) throws IOException {
+		File dir= new File(new File(file.getParentFile(), PINNED_DIR_NAME), project.getElementName());
+		File pinned= new File(dir, encode(runId) + EXTENSION);
+		if (pinned.isFile())
+			return pinned;
+
+		if (!dir.isDirectory()) {
+			dir.mkdirs();
+		}
+		File[] files= dir.listFiles();
+		long expired= System.currentTimeMillis() - PINNED_MAX_AGE;
+		for (int i= 0; files != null && i < files.length; i++) {
+			if (files[i].lastModified() < expired)
+				files[i].delete();
+		}
+		if (file.isFile()) {
+			Files.copy(file.toPath(), pinned.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} else {
+			new FileOutputStream(pinned).close();
+		}
+		return pinned;
+	}
+
+	private static String encode(String runId) throws UnsupportedEncodingException {
+		// '*' is not encoded, but is not allowed in file names on all platforms
+		return URLEncoder.encode(runId, StandardCharsets.UTF_8.name()).replace("*", "%2A"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static void collect(ITestElement element, Map<String, Entry> ran) {
+		if (element instanceof TestSuiteElement) {
+			for (ITestElement child : ((TestSuiteElement) element).getChildren()) {
+				collect(child, ran);
+			}
+		} else if (element instanceof TestCaseElement) {
+			TestCaseElement testCase= (TestCaseElement) element;
+			TestElement.Status status= testCase.getStatus();
+			double seconds= testCase.getElapsedTimeInSeconds();
+			if (testCase.isIgnored() || Double.isNaN(seconds) || !(status.isOK() || status.isErrorOrFailure()))
+				return;
+			long millis= Math.round(seconds * 1000);
+			boolean failed= status.isErrorOrFailure();
+			Entry entry= ran.get(testCase.getTestName());
+			if (entry == null) {
+				ran.put(testCase.getTestName(), new Entry(millis, failed));
+			} else { // e.g. the invocations of a parameterized test
+				entry.fMillis+= millis;
+				entry.fFailed|= failed;
+			}
+		}
+	}
+
+	private static File getFile(IJavaProject project) {
+		File dir= JUnitCorePlugin.getDefault().getStateLocation().append(DURATIONS_DIR_NAME).toFile();
+		if (!dir.isDirectory()) {
+			dir.mkdir();
+		}
+		return new File(dir, project.getElementName() + EXTENSION);
+	}
+
+	private static Map<String, Entry> read(File file) throws IOException {
+		Map<String, Entry> entries= new LinkedHashMap<>();
+		if (!file.isFile())
+			return entries;
+		try (BufferedReader br= new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line= br.readLine()) != null) {
+				int first= line.indexOf(TestDurations.SEPARATOR);
+				int second= first + 2;
+				if (first <= 0 || second >= line.length() || line.charAt(second) != TestDurations.SEPARATOR)
+					continue;
+				try {
+					long millis= Long.parseLong(line.substring(0, first));
+					entries.put(line.substring(second + 1), new Entry(millis, line.charAt(first + 1) == TestDurations.FAILED));
+				} catch (NumberFormatException e) {
+					// skip the corrupt line
+				}
+			}
+		}
+		return entries;
+	}
+
+	private static void write(Map<String, Entry> entries, File file) throws IOException {
+		int skip= Math.max(entries.size() - MAX_ENTRIES, 0);
+		File tmp= new File(file.getParentFile(), file.getName() + ".tmp"); //$NON-NLS-1$
+		try (BufferedWriter bw= new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+			for (Map.Entry<String, Entry> e : entries.entrySet()) {
+				if (skip > 0) {
+					skip--;
+					continue;
+				}
+				Entry entry= e.getValue();
+				bw.write(Long.toString(entry.fMillis));
+				bw.write(TestDurations.SEPARATOR);
+				bw.write(entry.fFailed ? TestDurations.FAILED : TestDurations.PASSED);
+				bw.write(TestDurations.SEPARATOR);
+				bw.write(e.getKey());
+				bw.newLine();
+			}
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -194,6 +194,12 @@ public abstract class TestElement implements ITestElement {
 
 	private boolean fAssumptionFailed;
 
+	/**
+	 * The failure trace that has not been read from the swap file yet, or <code>null</code> if the
+	 * trace is in memory.
+	 */
+	private TestRunSessionSwapFile.Failure fSwappedFailure;
+
 	/**
 	 * Running time in seconds. Contents depend on the current {@link #getProgressState()}:
 	 * <ul>
@@ -260,7 +266,8 @@ public abstract class TestElement implements ITestElement {
 	public FailureTrace getFailureTrace() {
 		Result testResult= getTestResult(false);
 		if (testResult == Result.ERROR || testResult == Result.FAILURE
-				|| (testResult == Result.IGNORED && fTrace != null)) {
+				|| (testResult == Result.IGNORED && (fTrace != null || fSwappedFailure != null))) {
+			loadSwappedFailure();
 			return new FailureTrace(fTrace, fExpected, fActual);
 		}
 		return null;
@@ -302,6 +309,7 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public void setStatus(Status status, String trace, String expected, String actual) {
+		loadSwappedFailure();
 		if (trace != null && fTrace != null) {
 			//don't overwrite first trace if same test run logs multiple errors
 			fTrace= fTrace + trace;
@@ -318,21 +326,60 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public String getTrace() {
+		loadSwappedFailure();
 		return fTrace;
 	}
 
 	public String getExpected() {
+		loadSwappedFailure();
 		return fExpected;
 	}
 
 	public String getActual() {
+		loadSwappedFailure();
 		return fActual;
 	}
 
 	public boolean isComparisonFailure() {
+		TestRunSessionSwapFile.Failure swappedFailure= fSwappedFailure;
+		if (swappedFailure != null)
+			return swappedFailure.isComparisonFailure();
 		return fExpected != null && fActual != null;
 	}
 
+	/**
+	 * Sets the failure trace that is read from the swap file when it is accessed.
+	 *
+	 * @param failure the failure in the swap file
+	 */
+	void setSwappedFailure(TestRunSessionSwapFile.Failure failure) {
+		fSwappedFailure= failure;
+	}
+
+	private synchronized void loadSwappedFailure() {
+		if (fSwappedFailure == null)
+			return;
+		String[] failure= fSwappedFailure.load();
+		fTrace= failure[0];
+		fExpected= failure[1];
+		fActual= failure[2];
+		fSwappedFailure= null;
+	}
+
+	/**
+	 * Restores the state of an element that is read from a swap file. Unlike
+	 * {@link #setStatus(Status)}, the parent is not notified.
+	 *
+	 * @param status the status
+	 * @param time the running time in seconds
+	 * @param assumptionFailed whether an assumption failed
+	 */
+	void restoreState(Status status, double time, boolean assumptionFailed) {
+		fStatus= status;
+		fTime= time;
+		fAssumptionFailed= assumptionFailed;
+	}
+
 	/**
 	 * @return return the class name
 	 * @see org.eclipse.jdt.internal.junit.runner.ITestIdentifier#getName()
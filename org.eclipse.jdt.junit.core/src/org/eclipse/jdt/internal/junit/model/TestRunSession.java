@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -39,6 +39,7 @@ import org.eclipse.jdt.core.IJavaProject;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
 import org.eclipse.jdt.internal.junit.JUnitMessages;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
 import org.eclipse.jdt.internal.junit.launcher.ITestKind;
 import org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants;
 import org.eclipse.jdt.internal.junit.model.TestElement.Status;
@@ -80,11 +81,24 @@ public class TestRunSession implements ITestRunSession {
 	 */
 	private Result fTestResult;
 
+	/**
+	 * The swap file that contains the current test tree, or <code>null</code> if the tree has not
+	 * been swapped to disk since it has been changed.
+	 */
+	private File fSwapFile;
+
 	/**
 	 * Map from testId to testElement.
 	 */
 	private HashMap<String, TestElement> fIdToTest;
 
+	/**
+	 * The ids of the elements in the compact swap file the tree has been swapped in from, or
+	 * <code>null</code>. Elements whose records have not been read yet are read when they are
+	 * looked up by id.
+	 */
+	private TestRunSessionSwapFile.SwappedIds fSwappedIds;
+
 	/**
 	 * The TestSuites for which additional children are expected.
 	 */
@@ -236,6 +250,8 @@ public class TestRunSession implements ITestRunSession {
 		fTestRoot= new TestRoot(this);
 		fTestResult= null;
 		fIdToTest= new HashMap<>();
+		fSwappedIds= null;
+		fSwapFile= null;
 	}
 
 	@Override
@@ -365,13 +381,21 @@ public class TestRunSession implements ITestRunSession {
 		}
 
 		try {
-			File swapFile= getSwapFile();
-
-			JUnitModel.exportTestRunSession(this, swapFile);
+			if (fSwapFile == null || ! fSwapFile.exists()) {
+				// the tree has not been swapped in from an up-to-date swap file
+				boolean compact= JUnitPreferencesConstants.getCompactSwapFiles();
+				File swapFile= getSwapFile(compact);
+				if (compact)
+					new TestRunSessionSwapFile(swapFile, this).write(fTestRoot);
+				else
+					JUnitModel.exportTestRunSession(this, swapFile);
+				fSwapFile= swapFile;
+			}
 			fTestResult= fTestRoot.getTestResult(true);
 			fTestRoot= null;
 			fTestRunnerClient= null;
 			fIdToTest= new HashMap<>();
+			fSwappedIds= null;
 			fIncompleteTestSuites= null;
 			fFactoryTestSuites= null;
 			fUnrootedSuite= null;
@@ -389,15 +413,21 @@ public class TestRunSession implements ITestRunSession {
 
 
 	public void removeSwapFile() {
-		File swapFile= getSwapFile();
-		if (swapFile.exists())
+		File swapFile= fSwapFile;
+		if (swapFile != null && swapFile.exists())
 			swapFile.delete();
 	}
 
-	private File getSwapFile() throws IllegalStateException {
+	/**
+	 * @param compact <code>true</code> for a {@link TestRunSessionSwapFile}, <code>false</code>
+	 *            for a JUnit XML file
+	 * @return the swap file
+	 * @throws IllegalStateException if the history directory is not available
+	 */
+	private File getSwapFile(boolean compact) throws IllegalStateException {
 		File historyDir= JUnitCorePlugin.getHistoryDirectory();
 		String isoTime= new SimpleDateFormat("yyyyMMdd-HHmmss.SSS").format(new Date(getStartTime())); //$NON-NLS-1$
-		String swapFileName= isoTime + ".xml"; //$NON-NLS-1$
+		String swapFileName= isoTime + (compact ? "." + TestRunSessionSwapFile.EXTENSION : ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
 		return new File(historyDir, swapFileName);
 	}
 
@@ -406,16 +436,29 @@ public class TestRunSession implements ITestRunSession {
 		if (fTestRoot != null)
 			return;
 
+		File swapFile= fSwapFile;
 		try {
-			JUnitModel.importIntoTestRunSession(getSwapFile(), this);
+			if (swapFile == null)
+				throw new IllegalStateException("No swap file for " + fTestRunName); //$NON-NLS-1$
+			if (swapFile.getName().endsWith(TestRunSessionSwapFile.EXTENSION)) {
+				// children and failure traces are read on demand
+				fTestRoot= new TestRunSessionSwapFile(swapFile, this).read();
+				fTestResult= null;
+			} else {
+				JUnitModel.importIntoTestRunSession(swapFile, this);
+			}
+			// the tree is not changed after swap in, so the swap file stays valid
+			fSwapFile= swapFile;
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
 			fTestResult= null;
+			fSwapFile= null;
 		} catch (CoreException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
 			fTestResult= null;
+			fSwapFile= null;
 		}
 	}
 
@@ -477,9 +520,39 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 	public TestElement getTestElement(String id) {
+		TestElement element= fIdToTest.get(id);
+		TestRunSessionSwapFile.SwappedIds swappedIds= fSwappedIds;
+		if (element == null && swappedIds != null)
+			element= swappedIds.load(id);
+		return element;
+	}
+
+	/**
+	 * @param id the id of an element
+	 * @return the element or <code>null</code> if its record has not been read from the swap file
+	 */
+	TestElement getLoadedTestElement(String id) {
 		return fIdToTest.get(id);
 	}
 
+	/**
+	 * Sets the ids of the elements in the compact swap file the tree has been read from.
+	 *
+	 * @param swappedIds the ids
+	 */
+	void setSwappedIds(TestRunSessionSwapFile.SwappedIds swappedIds) {
+		fSwappedIds= swappedIds;
+	}
+
+	/**
+	 * Registers an element that has been read from a swap file.
+	 *
+	 * @param testElement the element
+	 */
+	void putTestElement(TestElement testElement) {
+		fIdToTest.put(testElement.getId(), testElement);
+	}
+
 	private TestElement addTreeEntry(String treeEntry) {
 		// format: testId","testName","isSuite","testcount","isDynamicTest","parentId","displayName","parameterTypes
 		int index0= treeEntry.indexOf(',');
@@ -651,6 +724,7 @@ public class TestRunSession implements ITestRunSession {
 		@Override
 		public void testRunEnded(long elapsedTime) {
 			fIsRunning= false;
+			TestDurationHistory.record(TestRunSession.this);
 
 			for (ITestSessionListener listener : fSessionListeners) {
 				listener.sessionEnded(elapsedTime);
@@ -661,6 +735,7 @@ public class TestRunSession implements ITestRunSession {
 		public void testRunStopped(long elapsedTime) {
 			fIsRunning= false;
 			fIsStopped= true;
+			TestDurationHistory.record(TestRunSession.this);
 
 			for (ITestSessionListener listener : fSessionListeners) {
 				listener.sessionStopped(elapsedTime);
@@ -0,0 +1,512 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+
+/**
+ * The compact swap file of a {@link TestRunSession}. In contrast to the JUnit XML format, the
+ * children of a suite and the failure traces of a test are stored in separately compressed blocks
+ * that are only read when they are accessed.
+ * <p>
+ * Layout of the file:
+ * <ul>
+ * <li>header: the int {@link #MAGIC} and the int {@link #VERSION}</li>
+ * <li>blocks: an int length followed by the deflated content of the block</li>
+ * <li>trailer: the long offset of the id block and the long offset of the root block</li>
+ * </ul>
+ * A children block contains the int number of elements and a record per element. The root block
+ * is a children block with the record of the {@link TestRoot}. A failure block contains the trace,
+ * the expected and the actual string of an element. The blocks of the children and the failures of
+ * an element are written before the block with the record of the element, so that the record can
+ * refer to them by their file offsets. The id block contains the int number of elements and the id
+ * of every element below the root followed by the id of its parent, <code>null</code> for the
+ * children of the root. It is read with the root, so that elements can be looked up by id before
+ * their records have been read.
+ * </p>
+ */
+public class TestRunSessionSwapFile {
+
+	/**
+	 * The children of a suite that are still in the swap file.
+	 */
+	final class Children {
+		private final long fOffset;
+
+		Children(long offset) {
+			fOffset= offset;
+		}
+
+		/**
+		 * Reads the children and adds them to the given suite.
+		 *
+		 * @param suite the suite
+		 */
+		void load(TestSuiteElement suite) {
+			try {
+				readChildren(fOffset, suite);
+			} catch (IOException e) {
+				logReadError(e);
+			}
+		}
+	}
+
+	/**
+	 * The failure trace of an element that is still in the swap file.
+	 */
+	final class Failure {
+		private final long fOffset;
+		private final boolean fComparisonFailure;
+
+		Failure(long offset, boolean comparisonFailure) {
+			fOffset= offset;
+			fComparisonFailure= comparisonFailure;
+		}
+
+		boolean isComparisonFailure() {
+			return fComparisonFailure;
+		}
+
+		/**
+		 * Reads the failure.
+		 *
+		 * @return the trace, the expected and the actual string, each can be <code>null</code>
+		 */
+		String[] load() {
+			try {
+				DataInputStream in= readBlock(fOffset);
+				return new String[] { readString(in), readString(in), readString(in) };
+			} catch (IOException e) {
+				logReadError(e);
+				return new String[3];
+			}
+		}
+	}
+
+	/**
+	 * The ids of the elements in the swap file, which are read with the root.
+	 */
+	final class SwappedIds {
+		private final TestRoot fRoot;
+		/**
+		 * The ids of the parents by the ids of the elements, <code>null</code> for the children of
+		 * the root.
+		 */
+		private final Map<String, String> fParentIds;
+
+		SwappedIds(TestRoot root, Map<String, String> parentIds) {
+			fRoot= root;
+			fParentIds= parentIds;
+		}
+
+		/**
+		 * Reads the children of the suites on the path from the root to the element with the given
+		 * id.
+		 *
+		 * @param id the id of the element
+		 * @return the element or <code>null</code> if the swap file contains no element with the id
+		 */
+		TestElement load(String id) {
+			if (!fParentIds.containsKey(id))
+				return null;
+			String parentId= fParentIds.get(id);
+			TestElement parent= parentId == null ? fRoot : fSession.getTestElement(parentId);
+			if (parent instanceof TestSuiteElement)
+				((TestSuiteElement) parent).getChildren();
+			return fSession.getLoadedTestElement(id);
+		}
+	}
+
+	/**
+	 * The swap file extension.
+	 */
+	public static final String EXTENSION= "swap"; //$NON-NLS-1$
+
+	private static final int MAGIC= 0x4A555357;
+	private static final int VERSION= 2;
+
+	private static final byte KIND_SUITE= 0;
+	private static final byte KIND_CASE= 1;
+
+	private static final int FLAG_ASSUMPTION_FAILED= 1;
+	private static final int FLAG_IGNORED= 2;
+	private static final int FLAG_DYNAMIC= 4;
+	private static final int FLAG_COMPARISON_FAILURE= 8;
+
+	/**
+	 * The statuses, indexed by their code in the swap file.
+	 */
+	private static final Status[] STATUS= {
+		Status.OK,
+		Status.ERROR,
+		Status.FAILURE,
+		Status.RUNNING,
+		Status.NOT_RUN,
+		Status.RUNNING_ERROR,
+		Status.RUNNING_FAILURE,
+	};
+
+	private final File fFile;
+	private final TestRunSession fSession;
+
+	private DataOutputStream fOut;
+	private long fPosition;
+	private Deflater fDeflater;
+	/**
+	 * The ids of the written elements, each followed by the id of its parent.
+	 */
+	private List<String> fIds;
+
+	/**
+	 * @param file the swap file
+	 * @param session the session whose tree is swapped
+	 */
+	public TestRunSessionSwapFile(File file, TestRunSession session) {
+		fFile= file;
+		fSession= session;
+	}
+
+	public File getFile() {
+		return fFile;
+	}
+
+	/**
+	 * Writes the tree of the session to the swap file. Elements that have been read lazily from
+	 * another swap file are read completely.
+	 *
+	 * @param root the root of the tree
+	 * @throws CoreException if the file could not be written
+	 */
+	public void write(TestRoot root) throws CoreException {
+		fDeflater= new Deflater(Deflater.BEST_SPEED);
+		fIds= new ArrayList<>();
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fFile), 64 * 1024))) {
+			fOut= out;
+			fPosition= 0;
+			fOut.writeInt(MAGIC);
+			fOut.writeInt(VERSION);
+			fPosition+= 8;
+			long rootOffset= writeChildren(new TestElement[] { root }, null);
+			long idsOffset= writeIds();
+			fOut.writeLong(idsOffset);
+			fOut.writeLong(rootOffset);
+		} catch (IOException e) {
+			JUnitModel.throwExportError(fFile, e);
+		} finally {
+			fOut= null;
+			fDeflater.end();
+			fDeflater= null;
+			fIds= null;
+		}
+	}
+
+	/**
+	 * Reads the root of the tree and the ids of all elements from the swap file. The children of
+	 * the root and the failure traces are read when they are accessed or when an element is looked
+	 * up by its id.
+	 *
+	 * @return the new root of the session
+	 * @throws CoreException if the file could not be read
+	 */
+	public TestRoot read() throws CoreException {
+		try (RandomAccessFile file= new RandomAccessFile(fFile, "r")) { //$NON-NLS-1$
+			if (file.length() < 24 || file.readInt() != MAGIC || file.readInt() != VERSION)
+				throw new IOException("Not a test run swap file"); //$NON-NLS-1$
+			file.seek(file.length() - 16);
+			long idsOffset= file.readLong();
+			long rootOffset= file.readLong();
+
+			TestRoot root= new TestRoot(fSession);
+			DataInputStream in= readBlock(file, rootOffset);
+			in.readInt();
+			readElement(in, null, root);
+			fSession.setSwappedIds(new SwappedIds(root, readIds(file, idsOffset)));
+			return root;
+		} catch (IOException e) {
+			JUnitModel.throwImportError(fFile, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the blocks of the given elements and of their children.
+	 *
+	 * @param children the elements
+	 * @param parentId the id of the parent of the elements, <code>null</code> for the root and
+	 *            for the children of the root
+	 * @return the offset of the children block
+	 * @throws IOException if the file could not be written
+	 */
+	private long writeChildren(ITestElement[] children, String parentId) throws IOException {
+		long[] failureOffsets= new long[children.length];
+		long[] childrenOffsets= new long[children.length];
+		int[] childrenCounts= new int[children.length];
+		for (int i= 0; i < children.length; i++) {
+			TestElement child= (TestElement) children[i];
+			boolean isRoot= child instanceof TestRoot;
+			if (!isRoot) {
+				fIds.add(child.getId());
+				fIds.add(parentId);
+			}
+			failureOffsets[i]= hasFailure(child) ? writeFailure(child) : -1;
+			childrenOffsets[i]= -1;
+			if (child instanceof TestSuiteElement) {
+				ITestElement[] grandChildren= ((TestSuiteElement) child).getChildren();
+				childrenCounts[i]= grandChildren.length;
+				if (grandChildren.length > 0)
+					childrenOffsets[i]= writeChildren(grandChildren, isRoot ? null : child.getId());
+			}
+		}
+
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		DataOutputStream out= new DataOutputStream(bytes);
+		out.writeInt(children.length);
+		for (int i= 0; i < children.length; i++) {
+			writeElement(out, (TestElement) children[i], failureOffsets[i], childrenOffsets[i], childrenCounts[i]);
+		}
+		out.flush();
+		return writeBlock(bytes.toByteArray());
+	}
+
+	private long writeIds() throws IOException {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		DataOutputStream out= new DataOutputStream(bytes);
+		out.writeInt(fIds.size() / 2);
+		for (String id : fIds) {
+			writeString(out, id);
+		}
+		out.flush();
+		return writeBlock(bytes.toByteArray());
+	}
+
+	private static Map<String, String> readIds(RandomAccessFile file, long offset) throws IOException {
+		DataInputStream in= readBlock(file, offset);
+		int count= in.readInt();
+		Map<String, String> parentIds= new HashMap<>(count * 4 / 3 + 1);
+		for (int i= 0; i < count; i++) {
+			String id= readString(in);
+			parentIds.put(id, readString(in));
+		}
+		return parentIds;
+	}
+
+	private static boolean hasFailure(TestElement element) {
+		return element.getTrace() != null || element.getExpected() != null || element.getActual() != null;
+	}
+
+	private long writeFailure(TestElement element) throws IOException {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		DataOutputStream out= new DataOutputStream(bytes);
+		writeString(out, element.getTrace());
+		writeString(out, element.getExpected());
+		writeString(out, element.getActual());
+		out.flush();
+		return writeBlock(bytes.toByteArray());
+	}
+
+	private static void writeElement(DataOutputStream out, TestElement element, long failureOffset, long childrenOffset, int childrenCount) throws IOException {
+		boolean isSuite= element instanceof TestSuiteElement;
+		out.writeByte(isSuite ? KIND_SUITE : KIND_CASE);
+		writeString(out, element.getId());
+		writeString(out, element.getTestName());
+		writeString(out, element.getDisplayName());
+		String[] parameterTypes= element.getParameterTypes();
+		if (parameterTypes == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(parameterTypes.length);
+			for (String parameterType : parameterTypes) {
+				writeString(out, parameterType);
+			}
+		}
+		writeString(out, element.getUniqueId());
+
+		int flags= 0;
+		if (element.isAssumptionFailure())
+			flags|= FLAG_ASSUMPTION_FAILED;
+		if (element.isComparisonFailure())
+			flags|= FLAG_COMPARISON_FAILURE;
+		if (isSuite) {
+			TestSuiteElement suite= (TestSuiteElement) element;
+			out.writeByte(getCode(suite.getSuiteStatus()));
+			Status childrenStatus= suite.getChildrenStatus();
+			out.writeByte(childrenStatus == null ? -1 : getCode(childrenStatus));
+		} else {
+			TestCaseElement testCase= (TestCaseElement) element;
+			if (testCase.isIgnored())
+				flags|= FLAG_IGNORED;
+			if (testCase.isDynamicTest())
+				flags|= FLAG_DYNAMIC;
+			out.writeByte(getCode(testCase.getStatus()));
+		}
+		out.writeByte(flags);
+		out.writeDouble(element.fTime);
+		out.writeLong(failureOffset);
+		if (isSuite) {
+			out.writeInt(childrenCount);
+			out.writeLong(childrenOffset);
+		}
+	}
+
+	private long writeBlock(byte[] content) throws IOException {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream(content.length / 2 + 16);
+		fDeflater.reset();
+		try (DeflaterOutputStream deflater= new DeflaterOutputStream(bytes, fDeflater)) {
+			deflater.write(content);
+		}
+		long offset= fPosition;
+		fOut.writeInt(bytes.size());
+		bytes.writeTo(fOut);
+		fPosition+= 4 + bytes.size();
+		return offset;
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static int getCode(Status status) {
+		for (int i= 0; i < STATUS.length; i++) {
+			if (STATUS[i] == status)
+				return i;
+		}
+		throw new IllegalArgumentException(String.valueOf(status));
+	}
+
+	void readChildren(long offset, TestSuiteElement suite) throws IOException {
+		DataInputStream in= readBlock(offset);
+		int count= in.readInt();
+		for (int i= 0; i < count; i++) {
+			readElement(in, suite, null);
+		}
+	}
+
+	/**
+	 * Reads the record of an element.
+	 *
+	 * @param in the input
+	 * @param parent the parent of the element, or <code>null</code> for the record of the root
+	 * @param root the root whose state is read, or <code>null</code> for the records of children
+	 * @throws IOException if the record could not be read
+	 */
+	private void readElement(DataInputStream in, TestSuiteElement parent, TestRoot root) throws IOException {
+		byte kind= in.readByte();
+		String id= readString(in);
+		String testName= readString(in);
+		String displayName= readString(in);
+		int parameterCount= in.readInt();
+		String[] parameterTypes= null;
+		if (parameterCount >= 0) {
+			parameterTypes= new String[parameterCount];
+			for (int i= 0; i < parameterCount; i++) {
+				parameterTypes[i]= readString(in);
+			}
+		}
+		String uniqueId= readString(in);
+		Status status= STATUS[in.readByte()];
+		byte childrenStatus= kind == KIND_SUITE ? in.readByte() : -1;
+		int flags= in.readByte();
+		double time= in.readDouble();
+		long failureOffset= in.readLong();
+
+		TestElement element;
+		if (kind == KIND_SUITE) {
+			int childrenCount= in.readInt();
+			long childrenOffset= in.readLong();
+			TestSuiteElement suite= root != null ? root : new TestSuiteElement(parent, id, testName, childrenCount, displayName, parameterTypes, uniqueId);
+			if (childrenStatus >= 0)
+				suite.restoreChildrenStatus(STATUS[childrenStatus]);
+			if (childrenOffset >= 0)
+				suite.setSwappedChildren(new Children(childrenOffset));
+			element= suite;
+		} else {
+			TestCaseElement testCase= new TestCaseElement(parent, id, testName, displayName, (flags & FLAG_DYNAMIC) != 0, parameterTypes, uniqueId);
+			testCase.setIgnored((flags & FLAG_IGNORED) != 0);
+			element= testCase;
+		}
+		element.restoreState(status, time, (flags & FLAG_ASSUMPTION_FAILED) != 0);
+		if (failureOffset >= 0)
+			element.setSwappedFailure(new Failure(failureOffset, (flags & FLAG_COMPARISON_FAILURE) != 0));
+		if (root == null)
+			fSession.putTestElement(element);
+	}
+
+	private DataInputStream readBlock(long offset) throws IOException {
+		try (RandomAccessFile file= new RandomAccessFile(fFile, "r")) { //$NON-NLS-1$
+			return readBlock(file, offset);
+		}
+	}
+
+	private static DataInputStream readBlock(RandomAccessFile file, long offset) throws IOException {
+		file.seek(offset);
+		byte[] bytes= new byte[file.readInt()];
+		file.readFully(bytes);
+		Inflater inflater= new Inflater();
+		try (InflaterInputStream in= new InflaterInputStream(new ByteArrayInputStream(bytes), inflater)) {
+			ByteArrayOutputStream content= new ByteArrayOutputStream(bytes.length * 4);
+			byte[] buffer= new byte[8192];
+			int read;
+			while ((read= in.read(buffer)) != -1) {
+				content.write(buffer, 0, read);
+			}
+			return new DataInputStream(new ByteArrayInputStream(content.toByteArray()));
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length= in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes= new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void logReadError(IOException e) {
+		try {
+			JUnitModel.throwImportError(fFile, e);
+		} catch (CoreException ce) {
+			JUnitCorePlugin.log(ce);
+		}
+	}
+}
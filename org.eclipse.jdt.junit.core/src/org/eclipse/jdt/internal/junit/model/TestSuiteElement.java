@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,12 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	private List<TestElement> fChildren;
 	private Status fChildrenStatus;
 
+	/**
+	 * The children that have not been read from the swap file yet, or <code>null</code> if the
+	 * children are in memory.
+	 */
+	private TestRunSessionSwapFile.Children fSwappedChildren;
+
 	public TestSuiteElement(TestSuiteElement parent, String id, String testName, int childrenCount, String displayName, String[] parameterTypes, String uniqueId) {
 		super(parent, id, testName, displayName, parameterTypes, uniqueId);
 		fChildren= new ArrayList<>(childrenCount);
@@ -44,7 +50,26 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 
 	@Override
 	public ITestElement[] getChildren() {
-		return fChildren.toArray(new ITestElement[fChildren.size()]);
+		List<TestElement> children= getChildList();
+		return children.toArray(new ITestElement[children.size()]);
+	}
+
+	/**
+	 * Sets the children that are read from the swap file when they are accessed.
+	 *
+	 * @param children the children in the swap file
+	 */
+	void setSwappedChildren(TestRunSessionSwapFile.Children children) {
+		fSwappedChildren= children;
+	}
+
+	private synchronized List<TestElement> getChildList() {
+		if (fSwappedChildren != null) {
+			TestRunSessionSwapFile.Children swappedChildren= fSwappedChildren;
+			fSwappedChildren= null;
+			swappedChildren.load(this);
+		}
+		return fChildren;
 	}
 
 	public void addChild(TestElement child) {
@@ -52,7 +77,7 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	}
 
 	public void removeChild(TestElement child) {
-		fChildren.remove(child);
+		getChildList().remove(child);
 	}
 
 	@Override
@@ -67,7 +92,8 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	}
 
 	private Status getCumulatedStatus() {
-		TestElement[] children= fChildren.toArray(new TestElement[fChildren.size()]); // copy list to avoid concurreny problems
+		List<TestElement> childList= getChildList();
+		TestElement[] children= childList.toArray(new TestElement[childList.size()]); // copy list to avoid concurreny problems
 		if (children.length == 0)
 			return getSuiteStatus();
 
@@ -88,13 +114,14 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	}
 
 	public void childChangedStatus(TestElement child, Status childStatus) {
-		int childCount= fChildren.size();
-		if (child == fChildren.get(0) && childStatus.isRunning()) {
+		List<TestElement> children= getChildList();
+		int childCount= children.size();
+		if (child == children.get(0) && childStatus.isRunning()) {
 			// is first child, and is running -> copy status
 			internalSetChildrenStatus(childStatus);
 			return;
 		}
-		TestElement lastChild= fChildren.get(childCount - 1);
+		TestElement lastChild= children.get(childCount - 1);
 		if (child == lastChild) {
 			if (childStatus.isDone()) {
 				// all children done, collect cumulative status
@@ -123,6 +150,22 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 		}
 	}
 
+	/**
+	 * @return the combined status of the children, or <code>null</code> if no child has been run
+	 */
+	Status getChildrenStatus() {
+		return fChildrenStatus;
+	}
+
+	/**
+	 * Restores the combined status of the children of a suite that is read from a swap file.
+	 *
+	 * @param status the combined status of the children
+	 */
+	void restoreChildrenStatus(Status status) {
+		fChildrenStatus= status;
+	}
+
 	private void internalSetChildrenStatus(Status status) {
 		if (fChildrenStatus == status)
 			return;
@@ -148,7 +191,7 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 
 	@Override
 	public String toString() {
-		return "TestSuite: " + getTestName() + " : " + super.toString() + " (" + fChildren.size() + ")";   //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		return "TestSuite: " + getTestName() + " : " + super.toString() + " (" + getChildList().size() + ")";   //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 	}
 
 }
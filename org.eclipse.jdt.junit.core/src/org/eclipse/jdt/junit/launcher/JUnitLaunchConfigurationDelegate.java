@@ -46,6 +46,7 @@ import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.debug.core.ILaunchesListener2;
 
 import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.IClasspathEntry;
@@ -61,11 +62,14 @@ import org.eclipse.jdt.core.JavaModelException;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
 import org.eclipse.jdt.internal.junit.JUnitMessages;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
 import org.eclipse.jdt.internal.junit.Messages;
 import org.eclipse.jdt.internal.junit.launcher.ITestKind;
 import org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants;
 import org.eclipse.jdt.internal.junit.launcher.JUnitRuntimeClasspathEntry;
 import org.eclipse.jdt.internal.junit.launcher.TestKindRegistry;
+import org.eclipse.jdt.internal.junit.model.TestDurationHistory;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
 import org.eclipse.jdt.internal.junit.util.CoreTestSearchEngine;
 import org.eclipse.jdt.internal.junit.util.IJUnitStatusConstants;
 
@@ -92,6 +96,12 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 	private int fPort;
 	private IJavaElement[] fTestElements;
 
+	/**
+	 * The temporary files created for the current launch, or <code>null</code> if the files are
+	 * only deleted on exit
+	 */
+	private List<File> fTemporaryFiles;
+
 	private static final String DEFAULT= "<default>"; //$NON-NLS-1$
 
 	@Override
@@ -106,6 +116,7 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 			return;
 		}
 
+		fTemporaryFiles= new ArrayList<>();
 		try {
 			if (mode.equals(JUnitLaunchConfigurationConstants.MODE_RUN_QUIETLY_MODE)) {
 				launch.setAttribute(JUnitLaunchConfigurationConstants.ATTR_NO_DISPLAY, "true"); //$NON-NLS-1$
@@ -134,7 +145,9 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 
 			ITestKind testKind= getTestRunnerKind(configuration);
 			IJavaProject javaProject= getJavaProject(configuration);
-			if (TestKindRegistry.JUNIT3_TEST_KIND_ID.equals(testKind.getId()) || TestKindRegistry.JUNIT4_TEST_KIND_ID.equals(testKind.getId())) {
+			boolean sharded= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_COUNT, 1) > 1;
+			if (sharded || TestKindRegistry.JUNIT3_TEST_KIND_ID.equals(testKind.getId()) || TestKindRegistry.JUNIT4_TEST_KIND_ID.equals(testKind.getId())) {
+				// shards are computed from the test classes, not from packages
 				fTestElements= evaluateTests(configuration, new SubProgressMonitor(monitor, 1));
 			} else {
 				IJavaElement testTarget= getTestTarget(configuration, javaProject);
@@ -225,17 +238,100 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 
 			// Launch the configuration - 1 unit of work
 			runner.run(runConfig, launch, monitor);
+			TemporaryFilesRemover.deleteWhenTerminated(launch, fTemporaryFiles);
+			fTemporaryFiles= null;
 
 			// check for cancellation
 			if (monitor.isCanceled()) {
 				return;
 			}
 		} finally {
+			if (fTemporaryFiles != null) {
+				// the launch did not start
+				for (File file : fTemporaryFiles) {
+					file.delete();
+				}
+				fTemporaryFiles= null;
+			}
 			fTestElements= null;
 			monitor.done();
 		}
 	}
 
+	/**
+	 * Deletes the temporary files of a launch when the launch has terminated or has been removed.
+	 */
+	private static final class TemporaryFilesRemover implements ILaunchesListener2 {
+
+		private final ILaunch fLaunch;
+		private final List<File> fFiles;
+
+		private TemporaryFilesRemover(ILaunch launch, List<File> files) {
+			fLaunch= launch;
+			fFiles= files;
+		}
+
+		static void deleteWhenTerminated(ILaunch launch, List<File> files) {
+			if (files.isEmpty())
+				return;
+			TemporaryFilesRemover remover= new TemporaryFilesRemover(launch, files);
+			DebugPlugin.getDefault().getLaunchManager().addLaunchListener(remover);
+			if (launch.isTerminated()) {
+				remover.delete();
+			}
+		}
+
+		private synchronized void delete() {
+			DebugPlugin.getDefault().getLaunchManager().removeLaunchListener(this);
+			for (File file : fFiles) {
+				file.delete();
+			}
+			fFiles.clear();
+		}
+
+		private void handle(ILaunch[] launches) {
+			for (ILaunch launch : launches) {
+				if (launch == fLaunch) {
+					delete();
+					return;
+				}
+			}
+		}
+
+		@Override
+		public void launchesTerminated(ILaunch[] launches) {
+			handle(launches);
+		}
+
+		@Override
+		public void launchesRemoved(ILaunch[] launches) {
+			handle(launches);
+		}
+
+		@Override
+		public void launchesAdded(ILaunch[] launches) {
+			// not interested
+		}
+
+		@Override
+		public void launchesChanged(ILaunch[] launches) {
+			// not interested
+		}
+	}
+
+	/**
+	 * Registers a temporary file to be deleted when the launch has terminated, or when the VM
+	 * exits if the file has not been created by {@link #launch(ILaunchConfiguration, String, ILaunch, IProgressMonitor)}.
+	 *
+	 * @param file the temporary file
+	 */
+	private void addTemporaryFile(File file) {
+		file.deleteOnExit();
+		if (fTemporaryFiles != null) {
+			fTemporaryFiles.add(file);
+		}
+	}
+
 	private int evaluatePort() throws CoreException {
 		int port= SocketUtil.findFreePort();
 		if (port == -1) {
@@ -376,6 +472,12 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 		programArguments.add("-port"); //$NON-NLS-1$
 		programArguments.add(String.valueOf(fPort));
 
+		if (JUnitPreferencesConstants.getBinaryProtocol()) {
+			// the runner confirms the protocol when it connects, older runners ignore the argument
+			programArguments.add("-binaryProtocol"); //$NON-NLS-1$
+			programArguments.add(String.valueOf(BinaryMessageWriter.VERSION));
+		}
+
 		if (fKeepAlive)
 			programArguments.add(0, "-keepalive"); //$NON-NLS-1$
 
@@ -428,6 +530,29 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 			programArguments.add(testFailureNames);
 		}
 
+		String testOrder= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_ORDER, ""); //$NON-NLS-1$
+		int shardCount= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_COUNT, 1);
+		if (testOrder.length() > 0 || shardCount > 1) {
+			int shardIndex= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_INDEX, 0);
+			String runId= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_RUN_ID, ""); //$NON-NLS-1$
+			File durationsFile= TestDurationHistory.createDurationsFile(getJavaProject(configuration), runId, shardCount);
+			if (durationsFile != null) {
+				addTemporaryFile(durationsFile);
+				programArguments.add("-testdurations"); //$NON-NLS-1$
+				programArguments.add(durationsFile.getAbsolutePath());
+			}
+			if (testOrder.length() > 0) {
+				programArguments.add("-testorder"); //$NON-NLS-1$
+				programArguments.add(testOrder);
+			}
+			if (shardCount > 1) {
+				programArguments.add("-shardindex"); //$NON-NLS-1$
+				programArguments.add(String.valueOf(shardIndex));
+				programArguments.add("-shardcount"); //$NON-NLS-1$
+				programArguments.add(String.valueOf(shardCount));
+			}
+		}
+
 		String uniqueId= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_UNIQUE_ID, ""); //$NON-NLS-1$
 		if (!uniqueId.trim().isEmpty()) {
 			programArguments.add("-uniqueId"); //$NON-NLS-1$
@@ -511,7 +636,7 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 	private String createPackageNamesFile(IJavaElement testContainer, ITestKind testRunnerKind, Set<String> pkgNames) throws CoreException {
 		try {
 			File file= File.createTempFile("packageNames", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
-			file.deleteOnExit();
+			addTemporaryFile(file);
 			try (BufferedWriter bw= new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) { //$NON-NLS-1$) 
 				if (testContainer instanceof IPackageFragment) {
 					pkgNames.add(getPackageName(testContainer.getElementName()));
@@ -561,7 +686,7 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 	private String createTestNamesFile(IJavaElement[] testElements) throws CoreException {
 		try {
 			File file= File.createTempFile("testNames", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
-			file.deleteOnExit();
+			addTemporaryFile(file);
 			BufferedWriter bw= null;
 			try {
 				bw= new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8")); //$NON-NLS-1$
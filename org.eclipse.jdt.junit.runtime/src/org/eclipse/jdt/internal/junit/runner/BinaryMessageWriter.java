@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends the messages of the RemoteTestRunner in the compact binary protocol.
+ * <p>
+ * The protocol is announced to the client by a {@link MessageIds#BINARY_PROTOCOL} text line with
+ * the version used for the session, which is the lower of the versions supported by the client and
+ * the runner.
+ * After that line, the stream consists of frames. A frame is the int length of its content,
+ * followed by a sequence of records. A record is a byte with the message kind, followed by the int
+ * length and the UTF-8 bytes of the message argument (the text message without its header).
+ * </p>
+ * <p>
+ * The lines between the start and the end message of a block (e.g. between
+ * {@link MessageIds#TRACE_START} and {@link MessageIds#TRACE_END}) are sent as a single record of
+ * the block's kind. Messages with an unknown header are sent verbatim as {@link #TEXT} records.
+ * </p>
+ * <p>
+ * Messages are collected in a frame until the frame is larger than {@link #MAX_FRAME_SIZE} or until
+ * {@link #FLUSH_INTERVAL} ms have passed since the last frame has been written. A flusher thread
+ * makes sure that pending messages are not delayed longer than that.
+ * </p>
+ */
+public class BinaryMessageWriter implements MessageSender {
+
+	/**
+	 * The latest version of the binary protocol. The version of a session is sent after the
+	 * {@link MessageIds#BINARY_PROTOCOL} header.
+	 */
+	public static final int VERSION= 1;
+
+	/**
+	 * The first version of the binary protocol.
+	 */
+	public static final int MIN_VERSION= 1;
+
+	/**
+	 * A text message that is passed through verbatim.
+	 */
+	public static final byte TEXT= 0;
+	public static final byte TEST_RUN_START= 1;
+	public static final byte TEST_START= 2;
+	public static final byte TEST_END= 3;
+	public static final byte TEST_ERROR= 4;
+	public static final byte TEST_FAILED= 5;
+	public static final byte TEST_RUN_END= 6;
+	public static final byte TEST_STOPPED= 7;
+	public static final byte TEST_RERAN= 8;
+	public static final byte TEST_TREE= 9;
+	/**
+	 * The lines between {@link MessageIds#TRACE_START} and {@link MessageIds#TRACE_END}.
+	 */
+	public static final byte TRACE= 10;
+	/**
+	 * The lines between {@link MessageIds#EXPECTED_START} and {@link MessageIds#EXPECTED_END}.
+	 */
+	public static final byte EXPECTED= 11;
+	/**
+	 * The lines between {@link MessageIds#ACTUAL_START} and {@link MessageIds#ACTUAL_END}.
+	 */
+	public static final byte ACTUAL= 12;
+	/**
+	 * The lines between {@link MessageIds#RTRACE_START} and {@link MessageIds#RTRACE_END}.
+	 */
+	public static final byte RTRACE= 13;
+
+	/**
+	 * The maximum time in ms a message is kept before it is written.
+	 */
+	public static final int FLUSH_INTERVAL= 100;
+
+	/**
+	 * The frame size in bytes at which a frame is written without waiting for the flush interval.
+	 */
+	public static final int MAX_FRAME_SIZE= 64 * 1024;
+
+	private static final String LINE_SEPARATOR= System.getProperty("line.separator"); //$NON-NLS-1$
+
+	private static final String[] HEADERS= {
+		null,
+		MessageIds.TEST_RUN_START,
+		MessageIds.TEST_START,
+		MessageIds.TEST_END,
+		MessageIds.TEST_ERROR,
+		MessageIds.TEST_FAILED,
+		MessageIds.TEST_RUN_END,
+		MessageIds.TEST_STOPPED,
+		MessageIds.TEST_RERAN,
+		MessageIds.TEST_TREE,
+		MessageIds.TRACE_START,
+		MessageIds.EXPECTED_START,
+		MessageIds.ACTUAL_START,
+		MessageIds.RTRACE_START,
+	};
+
+	/**
+	 * The end headers of the block kinds, indexed by kind.
+	 */
+	private static final String[] BLOCK_ENDS= {
+		null, null, null, null, null, null, null, null, null, null,
+		MessageIds.TRACE_END,
+		MessageIds.EXPECTED_END,
+		MessageIds.ACTUAL_END,
+		MessageIds.RTRACE_END,
+	};
+
+	/**
+	 * Maps headers (String) to message kinds (Byte).
+	 */
+	private static final Map KINDS= new HashMap();
+
+	static {
+		for (byte kind= 1; kind < HEADERS.length; kind++) {
+			KINDS.put(HEADERS[kind], new Byte(kind));
+		}
+	}
+
+	private class Flusher extends Thread {
+		public Flusher() {
+			super("BinaryMessageWriter Flusher"); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		public void run() {
+			synchronized (BinaryMessageWriter.this) {
+				while (!fClosed) {
+					try {
+						BinaryMessageWriter.this.wait(FLUSH_INTERVAL);
+					} catch (InterruptedException e) {
+						// check again
+					}
+					if (!fClosed && fFrame.size() > 0 && System.currentTimeMillis() - fLastWrite >= FLUSH_INTERVAL)
+						writeFrame();
+				}
+			}
+		}
+	}
+
+	private final DataOutputStream fOut;
+
+	private final ByteArrayOutputStream fFrame= new ByteArrayOutputStream(MAX_FRAME_SIZE + 1024);
+	private final DataOutputStream fFrameOut= new DataOutputStream(fFrame);
+
+	/**
+	 * The kind of the block that is currently collected or {@link #TEXT} if not in a block.
+	 */
+	private byte fBlockKind= TEXT;
+	private final StringBuffer fBlock= new StringBuffer();
+
+	private long fLastWrite;
+	private boolean fClosed;
+
+	/**
+	 * Creates a writer that sends frames to the given stream. The
+	 * {@link MessageIds#BINARY_PROTOCOL} line must have been sent before.
+	 *
+	 * @param out the stream to the client
+	 */
+	public BinaryMessageWriter(OutputStream out) {
+		fOut= new DataOutputStream(out);
+		new Flusher().start();
+	}
+
+	/**
+	 * Returns the message kind for the given header.
+	 *
+	 * @param message the text message
+	 * @return the kind or {@link #TEXT} if the header is not known
+	 */
+	private static byte getKind(String message) {
+		if (message.length() < MessageIds.MSG_HEADER_LENGTH)
+			return TEXT;
+		Byte kind= (Byte) KINDS.get(message.substring(0, MessageIds.MSG_HEADER_LENGTH));
+		return kind != null ? kind.byteValue() : TEXT;
+	}
+
+	public synchronized void sendMessage(String msg) {
+		if (fClosed)
+			return;
+		if (fBlockKind != TEXT) {
+			if (msg.startsWith(BLOCK_ENDS[fBlockKind])) {
+				writeRecord(fBlockKind, fBlock.toString());
+				fBlockKind= TEXT;
+				fBlock.setLength(0);
+			} else {
+				// same content as the lines received by the text protocol
+				fBlock.append(msg).append(LINE_SEPARATOR);
+			}
+			return;
+		}
+		byte kind= getKind(msg);
+		if (kind == TEXT) {
+			writeRecord(TEXT, msg);
+		} else if (BLOCK_ENDS[kind] != null) {
+			fBlockKind= kind;
+		} else {
+			writeRecord(kind, msg.substring(MessageIds.MSG_HEADER_LENGTH));
+		}
+	}
+
+	/**
+	 * Writes the pending messages if the flush interval has passed. Otherwise, they are written by
+	 * the flusher thread at the end of the interval.
+	 */
+	public synchronized void flush() {
+		if (!fClosed && fFrame.size() > 0 && System.currentTimeMillis() - fLastWrite >= FLUSH_INTERVAL)
+			writeFrame();
+	}
+
+	/**
+	 * Writes the pending messages and closes the stream.
+	 */
+	public synchronized void close() {
+		if (fClosed)
+			return;
+		if (fFrame.size() > 0)
+			writeFrame();
+		fClosed= true;
+		notifyAll();
+		try {
+			fOut.close();
+		} catch (IOException e) {
+			// like PrintWriter, ignore errors on close
+		}
+	}
+
+	private void writeRecord(byte kind, String arg) {
+		try {
+			byte[] bytes= arg.getBytes("UTF-8"); //$NON-NLS-1$
+			fFrameOut.writeByte(kind);
+			fFrameOut.writeInt(bytes.length);
+			fFrameOut.write(bytes);
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e.getMessage());
+		} catch (IOException e) {
+			// cannot happen for a ByteArrayOutputStream
+			throw new IllegalStateException(e.getMessage());
+		}
+		if (fFrame.size() >= MAX_FRAME_SIZE)
+			writeFrame();
+	}
+
+	private void writeFrame() {
+		try {
+			fOut.writeInt(fFrame.size());
+			fFrame.writeTo(fOut);
+			fOut.flush();
+		} catch (IOException e) {
+			// like PrintWriter, drop the messages if the client has gone away
+			fClosed= true;
+			notifyAll();
+		}
+		fFrame.reset();
+		fLastWrite= System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import junit.extensions.TestDecorator;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Sorts the tests of every suite according to the {@link TestDurations} of their last runs.
+ */
+public class DurationPrioritizer implements ITestPrioritizer {
+
+	/**
+	 * The summed up duration and the outcome of a test or suite.
+	 */
+	private static class Key {
+		long fDuration;
+		boolean fFailed;
+	}
+
+	private final TestDurations fDurations;
+
+	public DurationPrioritizer(TestDurations durations) {
+		fDurations= durations;
+	}
+
+	public Test prioritize(Test suite) {
+		doPrioritize(suite);
+		return suite;
+	}
+
+	private Key doPrioritize(Test test) {
+		Key key= new Key();
+		if (test instanceof TestCase) {
+			String name= test.toString();
+			key.fDuration= Math.max(fDurations.getDuration(name), 0);
+			key.fFailed= fDurations.hasFailed(name);
+		} else if (test instanceof TestSuite) {
+			Vector tests= (Vector) FailuresFirstPrioritizer.getField(test, "fTests"); //$NON-NLS-1$
+			if (tests == null)
+				return key;
+			final Map keys= new IdentityHashMap();
+			for (Enumeration e= tests.elements(); e.hasMoreElements();) {
+				Test child= (Test) e.nextElement();
+				Key childKey= doPrioritize(child);
+				key.fDuration+= childKey.fDuration;
+				key.fFailed|= childKey.fFailed;
+				keys.put(child, childKey);
+			}
+			Vector sorted= (Vector) tests.clone();
+			Collections.sort(sorted, new Comparator() {
+				public int compare(Object o1, Object o2) {
+					Key k1= (Key) keys.get(o1);
+					Key k2= (Key) keys.get(o2);
+					return fDurations.compare(k1.fDuration, k1.fFailed, k2.fDuration, k2.fFailed);
+				}
+			});
+			tests.clear();
+			tests.addAll(sorted);
+		} else if (test instanceof TestDecorator) {
+			return doPrioritize(((TestDecorator) test).getTest());
+		}
+		return key;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -118,6 +118,13 @@ public class MessageIds {
 	 * 
 	 */
 	public static final String TEST_TREE= "%TSTTREE"; //$NON-NLS-1$
+	/**
+	 * Notification that the following messages are sent in the binary protocol.
+	 * BINARY_PROTOCOL + version<br>
+	 * Only sent as the first line of a run if the client supports this version of
+	 * the binary protocol (argument -binaryprotocol version). See: BinaryMessageWriter
+	 */
+	public static final String BINARY_PROTOCOL= "%BINARY "; //$NON-NLS-1$
 	/**
 	 * Request to stop the current test run.
 	 */
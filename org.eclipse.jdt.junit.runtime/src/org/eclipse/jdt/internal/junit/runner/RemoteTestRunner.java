@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -87,6 +87,11 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Print writer for sending messages
 	 */
 	private PrintWriter fWriter;
+	/**
+	 * Writer for sending messages in the binary protocol, or <code>null</code>
+	 * if the text protocol is used
+	 */
+	private BinaryMessageWriter fBinaryWriter;
 	/**
 	 * Reader for incoming messages
 	 */
@@ -108,6 +113,11 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * This allows to rerun tests.
 	 */
 	private boolean fKeepAlive= false;
+	/**
+	 * The version of the binary protocol agreed with the client, or 0 if
+	 * the text protocol is used
+	 */
+	private int fBinaryVersion= 0;
 	/**
 	 * Has the server been stopped
 	 */
@@ -127,6 +137,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 
 	private String[] fFailureNames;
 
+	/**
+	 * The durations of the last test runs, or <code>null</code> if the tests are not ordered
+	 */
+	private TestDurations fTestDurations;
+	private String fTestDurationsFile;
+	private String fTestOrder;
+	private int fShardIndex= 0;
+	private int fShardCount= 1;
+
 	private ITestLoader fLoader;
 
 	private MessageSender fSender;
@@ -197,6 +216,11 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * -host: the host to connect to default local host
 	 * -port: the port to connect to, mandatory argument
 	 * -keepalive: keep the process alive after a test run
+	 * -binaryprotocol: the version of the binary protocol supported by the client
+	 * -testdurations: the name of a file containing the durations of the last test runs
+	 * -testorder: failfast or shortest, the order of the test classes and methods
+	 * -shardindex: the index of the shard of the test classes to run, starting at 0
+	 * -shardcount: the number of shards the test classes are split into
      * </pre>
      */
 	public static void main(String[] args) {
@@ -281,6 +305,24 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 				}
 				i++;
 
+			} else if (args[i].toLowerCase().equals("-testdurations")) { //$NON-NLS-1$
+				fTestDurationsFile= args[i+1];
+				i++;
+
+			} else if (args[i].toLowerCase().equals("-testorder")) { //$NON-NLS-1$
+				fTestOrder= args[i+1];
+				if (!TestDurations.ORDER_FAIL_FAST.equals(fTestOrder) && !TestDurations.ORDER_SHORTEST.equals(fTestOrder))
+					throw new IllegalArgumentException("Unknown test order: " + fTestOrder); //$NON-NLS-1$
+				i++;
+
+			} else if (args[i].toLowerCase().equals("-shardindex")) { //$NON-NLS-1$
+				fShardIndex= Integer.parseInt(args[i+1]);
+				i++;
+
+			} else if (args[i].toLowerCase().equals("-shardcount")) { //$NON-NLS-1$
+				fShardCount= Integer.parseInt(args[i+1]);
+				i++;
+
 			} else if(args[i].toLowerCase().equals("-port")) { //$NON-NLS-1$
 				fPort= Integer.parseInt(args[i+1]);
 				i++;
@@ -296,6 +338,11 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 			else if(args[i].toLowerCase().equals("-keepalive")) { //$NON-NLS-1$
 				fKeepAlive= true;
 			}
+			else if(args[i].toLowerCase().equals("-binaryprotocol")) { //$NON-NLS-1$
+				int version= Math.min(Integer.parseInt(args[i+1]), BinaryMessageWriter.VERSION);
+				fBinaryVersion= version >= BinaryMessageWriter.MIN_VERSION ? version : 0;
+				i++;
+			}
 			else if(args[i].toLowerCase().equals("-debugging") || args[i].toLowerCase().equals("-debug")){ //$NON-NLS-1$ //$NON-NLS-2$
 			    fDebugMode= true;
 
@@ -352,6 +399,42 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 			throw new IllegalArgumentException(JUnitMessages.getString("RemoteTestRunner.error.portmissing")); //$NON-NLS-1$
 		if (fDebugMode)
 			System.out.println("keepalive "+fKeepAlive); //$NON-NLS-1$
+
+		if (fTestOrder != null || fShardCount > 1)
+			orderTestClasses();
+	}
+
+	/**
+	 * Splits the test classes into shards and orders them according to the durations
+	 * of the last test runs. Package based runs and single tests are not split.
+	 */
+	private void orderTestClasses() {
+		if (fShardCount < 1 || fShardIndex < 0 || fShardIndex >= fShardCount)
+			throw new IllegalArgumentException("Invalid shard " + fShardIndex + " of " + fShardCount); //$NON-NLS-1$ //$NON-NLS-2$
+		TestDurations durations;
+		if (fTestDurationsFile != null) {
+			try {
+				durations= TestDurations.read(fTestDurationsFile);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Cannot read testdurations file."); //$NON-NLS-1$
+			}
+		} else {
+			durations= new TestDurations();
+		}
+		if (fShardCount > 1 && fTestName == null && fRerunTest == null) {
+			fTestClassNames= durations.shard(fTestClassNames, fShardIndex, fShardCount);
+			if (fDebugMode) {
+				System.out.println("Shard " + fShardIndex + " of " + fShardCount + ":"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				for (int i= 0; i < fTestClassNames.length; i++) {
+					System.out.println("    "+fTestClassNames[i]); //$NON-NLS-1$
+				}
+			}
+		}
+		if (fTestOrder != null) {
+			durations.setFailFast(TestDurations.ORDER_FAIL_FAST.equals(fTestOrder));
+			fTestClassNames= durations.order(fTestClassNames);
+			fTestDurations= durations;
+		}
 	}
 
 	public void initDefaultLoader() {
@@ -660,6 +743,11 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
                 } catch (UnsupportedEncodingException e1) {
                     fReader= new BufferedReader(new InputStreamReader(fClientSocket.getInputStream()));
                 }
+				if (fBinaryVersion != 0) {
+					fWriter.println(MessageIds.BINARY_PROTOCOL + fBinaryVersion);
+					fWriter.flush();
+					fBinaryWriter= new BinaryMessageWriter(fClientSocket.getOutputStream());
+				}
 				fReaderThread= new ReaderThread();
 				fReaderThread.start();
 				return true;
@@ -679,6 +767,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Shutsdown the connection to the remote test listener.
 	 */
 	private void shutDown() {
+		if (fBinaryWriter != null) {
+			fBinaryWriter.close();
+			fBinaryWriter= null;
+		}
 		if (fWriter != null) {
 			fWriter.close();
 			fWriter= null;
@@ -714,6 +806,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#sendMessage(java.lang.String)
 	 */
 	public void sendMessage(String msg) {
+		if (fBinaryWriter != null) {
+			fBinaryWriter.sendMessage(msg);
+			return;
+		}
 		if(fWriter == null)
 			return;
 		fWriter.println(msg);
@@ -753,6 +849,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	}
 
 	public void flush() {
+		if (fBinaryWriter != null) {
+			fBinaryWriter.flush();
+			return;
+		}
 	    fWriter.flush();
 	}
 
@@ -764,6 +864,14 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 		return fLoader;
 	}
 
+	/**
+	 * @return the durations of the last test runs if the tests should be ordered by them,
+	 *         or <code>null</code> to keep the order of the test loader
+	 */
+	public TestDurations getTestDurations() {
+		return fTestDurations;
+	}
+
 	public Class loadClass(String className, RemoteTestRunner listener) {
 		Class clazz= null;
 		try {
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * The durations and outcomes of the last runs of the tests, as recorded by the client. Used to
+ * order the test classes and to split them into balanced shards.
+ * <p>
+ * The durations file contains a line per test:
+ * <code>&lt;millis&gt;&lt;TAB&gt;&lt;F|.&gt;&lt;TAB&gt;&lt;test name&gt;</code>, where the test
+ * name is formatted like {@link MessageIds#TEST_IDENTIFIER_MESSAGE_FORMAT}.
+ * </p>
+ */
+public class TestDurations {
+
+	/**
+	 * Order that runs the tests which failed in their last run first, then the shortest tests.
+	 */
+	public static final String ORDER_FAIL_FAST= "failfast"; //$NON-NLS-1$
+
+	/**
+	 * Order that runs the shortest tests first.
+	 */
+	public static final String ORDER_SHORTEST= "shortest"; //$NON-NLS-1$
+
+	public static final char SEPARATOR= '\t';
+	public static final char FAILED= 'F';
+	public static final char PASSED= '.';
+
+	private final Map fDurations= new HashMap();
+	private final Set fFailures= new HashSet();
+	private final Map fClassDurations= new HashMap();
+	private final Set fClassFailures= new HashSet();
+	private boolean fFailFast;
+
+	public static TestDurations read(String durationsFile) throws IOException {
+		TestDurations result= new TestDurations();
+		BufferedReader br= new BufferedReader(new InputStreamReader(new FileInputStream(new File(durationsFile)), "UTF-8")); //$NON-NLS-1$
+		try {
+			String line;
+			while ((line= br.readLine()) != null) {
+				int first= line.indexOf(SEPARATOR);
+				int second= first + 2;
+				if (first <= 0 || second >= line.length() || line.charAt(second) != SEPARATOR)
+					continue;
+				try {
+					long millis= Long.parseLong(line.substring(0, first));
+					result.put(line.substring(second + 1), millis, line.charAt(first + 1) == FAILED);
+				} catch (NumberFormatException e) {
+					// skip the corrupt line
+				}
+			}
+		} finally {
+			br.close();
+		}
+		return result;
+	}
+
+	/**
+	 * @param testName the test name, formatted like {@link MessageIds#TEST_IDENTIFIER_MESSAGE_FORMAT}
+	 * @return the class name of the test
+	 */
+	public static String getClassName(String testName) {
+		int index= testName.lastIndexOf('(');
+		if (index < 0)
+			return testName;
+		int end= testName.lastIndexOf(')');
+		return testName.substring(index + 1, end > index ? end : testName.length());
+	}
+
+	public void put(String testName, long millis, boolean failed) {
+		Long old= (Long) fDurations.put(testName, new Long(millis));
+		if (failed)
+			fFailures.add(testName);
+		String className= getClassName(testName);
+		Long classDuration= (Long) fClassDurations.get(className);
+		long sum= classDuration == null ? 0 : classDuration.longValue();
+		if (old != null)
+			sum-= old.longValue();
+		fClassDurations.put(className, new Long(sum + millis));
+		if (failed)
+			fClassFailures.add(className);
+	}
+
+	public boolean isEmpty() {
+		return fDurations.isEmpty();
+	}
+
+	/**
+	 * @param failFast <code>true</code> to run the tests that failed in their last run first
+	 */
+	public void setFailFast(boolean failFast) {
+		fFailFast= failFast;
+	}
+
+	/**
+	 * @param testName the test name
+	 * @return the duration of the last run in milliseconds, or -1 if unknown
+	 */
+	public long getDuration(String testName) {
+		Long duration= (Long) fDurations.get(testName);
+		return duration == null ? -1 : duration.longValue();
+	}
+
+	public boolean hasFailed(String testName) {
+		return fFailures.contains(testName);
+	}
+
+	/**
+	 * @param className the binary name of the test class
+	 * @return the sum of the durations of the tests of the class in milliseconds, or -1 if unknown
+	 */
+	public long getClassDuration(String className) {
+		Long duration= (Long) fClassDurations.get(className);
+		return duration == null ? -1 : duration.longValue();
+	}
+
+	public boolean hasClassFailed(String className) {
+		return fClassFailures.contains(className);
+	}
+
+	/**
+	 * Compares two tests or groups of tests in execution order. Tests with unknown durations are
+	 * considered to be the shortest, so that new tests run early.
+	 *
+	 * @param duration1 the duration of the first test, or -1 if unknown
+	 * @param failed1 whether the first test failed in its last run
+	 * @param duration2 the duration of the second test, or -1 if unknown
+	 * @param failed2 whether the second test failed in its last run
+	 * @return a negative integer, zero, or a positive integer as the first test runs before, with,
+	 *         or after the second test
+	 */
+	public int compare(long duration1, boolean failed1, long duration2, boolean failed2) {
+		if (fFailFast && failed1 != failed2)
+			return failed1 ? -1 : 1;
+		long d1= Math.max(duration1, 0);
+		long d2= Math.max(duration2, 0);
+		return d1 < d2 ? -1 : (d1 == d2 ? 0 : 1);
+	}
+
+	/**
+	 * @param classNames the binary names of the test classes
+	 * @return the test classes in execution order, classes with equal keys keep their order
+	 */
+	public String[] order(String[] classNames) {
+		String[] result= (String[]) classNames.clone();
+		Arrays.sort(result, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				String c1= (String) o1;
+				String c2= (String) o2;
+				return TestDurations.this.compare(getClassDuration(c1), hasClassFailed(c1), getClassDuration(c2), hasClassFailed(c2));
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Splits the test classes into <code>count</code> shards with similar total durations and
+	 * returns the classes of one shard. Every JVM that gets the same classes and durations computes
+	 * the same partition. Classes with unknown durations are estimated with the average duration
+	 * of the known classes.
+	 *
+	 * @param classNames the binary names of the test classes
+	 * @param index the index of the shard, <code>0 &lt;= index &lt; count</code>
+	 * @param count the number of shards
+	 * @return the classes of the shard, in their original order
+	 */
+	public String[] shard(String[] classNames, int index, int count) {
+		final long[] estimates= new long[classNames.length];
+		long known= 0;
+		int knownCount= 0;
+		for (int i= 0; i < classNames.length; i++) {
+			estimates[i]= getClassDuration(classNames[i]);
+			if (estimates[i] >= 0) {
+				known+= estimates[i];
+				knownCount++;
+			}
+		}
+		long average= knownCount == 0 ? 1 : Math.max(known / knownCount, 1);
+		Integer[] indices= new Integer[classNames.length];
+		for (int i= 0; i < classNames.length; i++) {
+			if (estimates[i] < 0)
+				estimates[i]= average;
+			indices[i]= new Integer(i);
+		}
+
+		// longest processing time first: the next longest class goes to the least loaded shard
+		final String[] names= classNames;
+		Arrays.sort(indices, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				int i1= ((Integer) o1).intValue();
+				int i2= ((Integer) o2).intValue();
+				if (estimates[i1] != estimates[i2])
+					return estimates[i1] > estimates[i2] ? -1 : 1;
+				return names[i1].compareTo(names[i2]);
+			}
+		});
+		long[] loads= new long[count];
+		boolean[] selected= new boolean[classNames.length];
+		for (int i= 0; i < indices.length; i++) {
+			int target= 0;
+			for (int j= 1; j < count; j++) {
+				if (loads[j] < loads[target])
+					target= j;
+			}
+			int classIndex= indices[i].intValue();
+			loads[target]+= estimates[classIndex];
+			selected[classIndex]= target == index;
+		}
+
+		Vector result= new Vector();
+		for (int i= 0; i < classNames.length; i++) {
+			if (selected[i])
+				result.add(classNames[i]);
+		}
+		return (String[]) result.toArray(new String[result.size()]);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -165,6 +165,17 @@ public class TestRunnerViewPart extends ViewPart {
 
 	static final int REFRESH_INTERVAL= 200;
 
+	/**
+	 * The maximum refresh interval in ms, see {@link UpdateUIJob}.
+	 */
+	private static final int MAX_REFRESH_INTERVAL= 2000;
+
+	/**
+	 * The refresh interval is at least this factor times the duration of the last refresh, so that
+	 * the UI thread spends at most a fifth of its time on updating the view.
+	 */
+	private static final int REFRESH_LOAD_FACTOR= 4;
+
 	static final int LAYOUT_FLAT= 0;
 	static final int LAYOUT_HIERARCHICAL= 1;
 
@@ -852,10 +863,14 @@ public class TestRunnerViewPart extends ViewPart {
 		}
 		@Override
 		public IStatus runInUIThread(IProgressMonitor monitor) {
+			long elapsed= 0;
 			if (!isDisposed()) {
+				long start= System.currentTimeMillis();
 				processChangesInUI();
+				elapsed= System.currentTimeMillis() - start;
 			}
-			schedule(REFRESH_INTERVAL);
+			// back off when the updates take long, e.g. for a large number of fast tests
+			schedule(Math.min(MAX_REFRESH_INTERVAL, Math.max(REFRESH_INTERVAL, elapsed * REFRESH_LOAD_FACTOR)));
 			return Status.OK_STATUS;
 		}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,9 @@
 
 package org.eclipse.jdt.internal.junit.ui;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.Viewer;
 
@@ -23,6 +26,14 @@ public class TestSessionTreeContentProvider implements ITreeContentProvider {
 
 	private final Object[] NO_CHILDREN= new Object[0];
 
+	/**
+	 * The parents whose children have been requested by the viewer, and the elements that have
+	 * been returned for them. The tree viewer only creates items for these elements. Only accessed
+	 * in the UI thread.
+	 */
+	private final Set<Object> fRealizedParents= new HashSet<>();
+	private final Set<Object> fRealizedElements= new HashSet<>();
+
 	@Override
 	public void dispose() {
 	}
@@ -30,14 +41,61 @@ public class TestSessionTreeContentProvider implements ITreeContentProvider {
 	@Override
 	public Object[] getChildren(Object parentElement) {
 		if (parentElement instanceof TestSuiteElement)
-			return ((TestSuiteElement) parentElement).getChildren();
+			return realized(parentElement, ((TestSuiteElement) parentElement).getChildren());
 		else
 			return NO_CHILDREN;
 	}
 
 	@Override
 	public Object[] getElements(Object inputElement) {
-		return ((TestRoot) inputElement).getChildren();
+		return realized(inputElement, ((TestRoot) inputElement).getChildren());
+	}
+
+	private Object[] realized(Object parent, Object[] children) {
+		fRealizedParents.add(parent);
+		for (int i= 0; i < children.length; i++) {
+			fRealizedElements.add(children[i]);
+		}
+		return children;
+	}
+
+	/**
+	 * Tells whether the viewer may have created an item for the element. Elements in suites that
+	 * have never been expanded have no item.
+	 *
+	 * @param element the element
+	 * @return <code>false</code> if the viewer has not created an item for the element
+	 */
+	public boolean isRealized(Object element) {
+		return fRealizedElements.contains(element);
+	}
+
+	/**
+	 * Tells whether the viewer may have created the items for the children of the element.
+	 *
+	 * @param parent the parent element or the input
+	 * @return <code>false</code> if the viewer has not created items for the children
+	 */
+	public boolean hasRealizedChildren(Object parent) {
+		return fRealizedParents.contains(parent);
+	}
+
+	/**
+	 * Records that children have been added to a parent in the viewer. A collapsed parent discards
+	 * its child items when children are added, they are requested again when it is expanded.
+	 *
+	 * @param parent the parent element or the input
+	 * @param children the added children
+	 * @param expanded <code>true</code> if the parent is expanded
+	 */
+	public void childrenAdded(Object parent, Object[] children, boolean expanded) {
+		if (!expanded) {
+			fRealizedParents.remove(parent);
+		} else if (fRealizedParents.contains(parent)) {
+			for (int i= 0; i < children.length; i++) {
+				fRealizedElements.add(children[i]);
+			}
+		}
 	}
 
 	@Override
@@ -55,5 +113,7 @@ public class TestSessionTreeContentProvider implements ITreeContentProvider {
 
 	@Override
 	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		fRealizedParents.clear();
+		fRealizedElements.clear();
 	}
 }
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.ui;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.jface.viewers.TreeViewer;
+
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestRoot;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+
+/**
+ * Applies the changes of a test run to an unfiltered tree viewer with a
+ * {@link TestSessionTreeContentProvider}.
+ * <p>
+ * The tree viewer only creates items for the children of expanded suites. The changes of a refresh
+ * interval are coalesced, so that every changed element and each of its parent suites is updated at
+ * most once, and only elements that have an item in the tree are updated at all. Elements in
+ * collapsed suites are read from the model when the suite is expanded. Which elements have an item
+ * is tracked by the content provider.
+ * </p>
+ * <p>
+ * The status shown for a suite is aggregated from its children by the model, see
+ * {@link TestSuiteElement#childChangedStatus(TestElement, TestElement.Status)}.
+ * </p>
+ */
+public class TestSessionTreeUpdater {
+
+	private final TreeViewer fTreeViewer;
+	private final TestSessionTreeContentProvider fContentProvider;
+
+	private int fUpdateCount;
+
+	/**
+	 * @param treeViewer the tree viewer, must use hash lookup
+	 * @param contentProvider the content provider of the tree viewer
+	 */
+	public TestSessionTreeUpdater(TreeViewer treeViewer, TestSessionTreeContentProvider contentProvider) {
+		fTreeViewer= treeViewer;
+		fContentProvider= contentProvider;
+	}
+
+	/**
+	 * Updates the tree.
+	 *
+	 * @param changed the elements whose status has changed
+	 * @param added the elements that have been added to the model
+	 */
+	public void update(Object[] changed, Object[] added) {
+		fUpdateCount= 0;
+		if (added.length > 0)
+			addElements(added);
+		if (changed.length > 0)
+			updateElements(changed);
+	}
+
+	/**
+	 * @return the number of tree items that have been updated or added by the last
+	 *         {@link #update(Object[], Object[])}
+	 */
+	public int getUpdateCount() {
+		return fUpdateCount;
+	}
+
+	private void updateElements(Object[] changed) {
+		LinkedHashSet<TestElement> toUpdate= new LinkedHashSet<>();
+		for (Object element : changed) {
+			TestElement current= (TestElement) element;
+			// stop at the first parent that is already known, its parents have been added with it
+			while (current != null && !(current instanceof TestRoot) && toUpdate.add(current)) {
+				current= current.getParent();
+			}
+		}
+
+		List<TestElement> shown= new ArrayList<>(toUpdate.size());
+		for (TestElement element : toUpdate) {
+			if (fContentProvider.isRealized(element))
+				shown.add(element);
+		}
+		if (!shown.isEmpty()) {
+			fTreeViewer.update(shown.toArray(), null);
+			fUpdateCount+= shown.size();
+		}
+	}
+
+	private void addElements(Object[] added) {
+		Map<TestSuiteElement, List<TestElement>> byParent= new LinkedHashMap<>();
+		for (Object element : added) {
+			TestElement testElement= (TestElement) element;
+			TestSuiteElement parent= testElement.getParent();
+			if (parent == null)
+				continue;
+			List<TestElement> children= byParent.get(parent);
+			if (children == null) {
+				children= new ArrayList<>();
+				byParent.put(parent, children);
+			}
+			children.add(testElement);
+		}
+
+		for (Entry<TestSuiteElement, List<TestElement>> entry : byParent.entrySet()) {
+			TestSuiteElement parent= entry.getKey();
+			if (!(parent instanceof TestRoot) && !fContentProvider.isRealized(parent))
+				continue; // children are created when the parent is shown
+
+			List<TestElement> missing= new ArrayList<>(entry.getValue().size());
+			boolean realizedChildren= fContentProvider.hasRealizedChildren(parent);
+			for (TestElement child : entry.getValue()) {
+				// the child may already have been created from the content provider
+				if (!realizedChildren || !fContentProvider.isRealized(child))
+					missing.add(child);
+			}
+			if (!missing.isEmpty()) {
+				// only creates items if the parent is expanded
+				Object[] children= missing.toArray();
+				fTreeViewer.add(parent, children);
+				fContentProvider.childrenAdded(parent, children, parent instanceof TestRoot || fTreeViewer.getExpandedState(parent));
+				fUpdateCount+= missing.size();
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -184,6 +184,7 @@ public class TestViewer {
 	private PageBook fViewerbook;
 	private TreeViewer fTreeViewer;
 	private TestSessionTreeContentProvider fTreeContentProvider;
+	private TestSessionTreeUpdater fTreeUpdater;
 	private TestSessionLabelProvider fTreeLabelProvider;
 	private TableViewer fTableViewer;
 	private TestSessionTableContentProvider fTableContentProvider;
@@ -199,6 +200,7 @@ public class TestViewer {
 	private boolean fTreeNeedsRefresh;
 	private boolean fTableNeedsRefresh;
 	private HashSet<TestElement> fNeedUpdate;
+	private HashSet<TestElement> fNeedAdd;
 	private TestCaseElement fAutoScrollTarget;
 
 	private LinkedList<TestSuiteElement> fAutoClose;
@@ -227,6 +229,7 @@ public class TestViewer {
 		fTreeViewer.setContentProvider(fTreeContentProvider);
 		fTreeLabelProvider= new TestSessionLabelProvider(fTestRunnerPart, TestRunnerViewPart.LAYOUT_HIERARCHICAL);
 		fTreeViewer.setLabelProvider(new ColoringLabelProvider(fTreeLabelProvider));
+		fTreeUpdater= new TestSessionTreeUpdater(fTreeViewer, fTreeContentProvider);
 
 		fTableViewer= new TableViewer(fViewerbook, SWT.V_SCROLL | SWT.H_SCROLL | SWT.SINGLE);
 		fTableViewer.setUseHashlookup(true);
@@ -608,25 +611,21 @@ public class TestViewer {
 
 		} else {
 			Object[] toUpdate;
+			Object[] toAdd;
 			synchronized (this) {
 				toUpdate= fNeedUpdate.toArray();
 				fNeedUpdate.clear();
+				toAdd= fNeedAdd.toArray();
+				fNeedAdd.clear();
 			}
-			if (! fTreeNeedsRefresh && toUpdate.length > 0) {
-				if (fTreeHasFilter)
+			if (! fTreeNeedsRefresh && (toUpdate.length > 0 || toAdd.length > 0)) {
+				if (fTreeHasFilter) {
+					for (Object element : toAdd)
+						updateElementInTree((TestElement) element);
 					for (Object element : toUpdate)
 						updateElementInTree((TestElement) element);
-				else {
-					HashSet<Object> toUpdateWithParents= new HashSet<>();
-					toUpdateWithParents.addAll(Arrays.asList(toUpdate));
-					for (Object element : toUpdate) {
-						TestElement parent= ((TestElement) element).getParent();
-						while (parent != null) {
-							toUpdateWithParents.add(parent);
-							parent= parent.getParent();
-						}
-					}
-					fTreeViewer.update(toUpdateWithParents.toArray(), null);
+				} else {
+					fTreeUpdater.update(toUpdate, toAdd);
 				}
 			}
 			if (! fTableNeedsRefresh && toUpdate.length > 0) {
@@ -828,6 +827,7 @@ public class TestViewer {
 
 	private void clearUpdateAndExpansion() {
 		fNeedUpdate= new LinkedHashSet<>();
+		fNeedAdd= new LinkedHashSet<>();
 		fAutoClose= new LinkedList<>();
 		fAutoExpand= new HashSet<>();
 	}
@@ -836,8 +836,12 @@ public class TestViewer {
 	 * @param testElement the added test
 	 */
 	public synchronized void registerTestAdded(TestElement testElement) {
-		//TODO: performance: would only need to refresh parent of added element
-		fTreeNeedsRefresh= true;
+		// an unfiltered tree only needs to add the element to its parent,
+		// the table shows the test cases in the order of the tree and is refreshed
+		if (fTreeHasFilter)
+			fTreeNeedsRefresh= true;
+		else if (! fTreeNeedsRefresh)
+			fNeedAdd.add(testElement);
 		fTableNeedsRefresh= true;
 	}
 
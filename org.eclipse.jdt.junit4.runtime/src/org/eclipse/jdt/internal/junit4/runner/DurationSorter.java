@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.junit4.runner;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.runner.Description;
+
+import org.eclipse.jdt.internal.junit.runner.TestDurations;
+
+/**
+ * Comparator for descriptions to sort according to the {@link TestDurations} of the last runs.
+ * The duration of a description is the sum of the durations of its transitive children, a
+ * description has failed if one of its transitive children has failed.
+ * <p>
+ * If a primary comparator is given, the durations are only compared if the primary comparator
+ * considers the descriptions as equal.
+ * </p>
+ */
+public class DurationSorter implements Comparator<Description> {
+
+	private final TestDurations fDurations;
+	private final Comparator<Description> fPrimary;
+	private final Map<Description, long[]> fKeys= new HashMap<Description, long[]>();
+
+	/**
+	 * Creates a sorter.
+	 *
+	 * @param durations the durations of the last runs
+	 * @param primary the comparator that takes precedence, or <code>null</code>
+	 */
+	public DurationSorter(TestDurations durations, Comparator<Description> primary) {
+		fDurations= durations;
+		fPrimary= primary;
+	}
+
+	public int compare(Description d1, Description d2) {
+		if (fPrimary != null) {
+			int result= fPrimary.compare(d1, d2);
+			if (result != 0)
+				return result;
+		}
+		long[] k1= getKey(d1);
+		long[] k2= getKey(d2);
+		return fDurations.compare(k1[0], k1[1] != 0, k2[0], k2[1] != 0);
+	}
+
+	/**
+	 * @param d the description
+	 * @return the duration and 1 if failed, 0 otherwise
+	 */
+	private long[] getKey(Description d) {
+		long[] key= fKeys.get(d);
+		if (key == null) {
+			key= new long[2];
+			if (d.isTest()) {
+				key[0]= Math.max(fDurations.getDuration(d.getDisplayName()), 0);
+				key[1]= fDurations.hasFailed(d.getDisplayName()) ? 1 : 0;
+			} else {
+				for (Description child : d.getChildren()) {
+					long[] childKey= getKey(child);
+					key[0]+= childKey[0];
+					key[1]|= childKey[1];
+				}
+			}
+			fKeys.put(d, key);
+		}
+		return key;
+	}
+}
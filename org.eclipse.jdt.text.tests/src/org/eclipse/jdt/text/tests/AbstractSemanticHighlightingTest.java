@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -104,6 +104,14 @@ public class AbstractSemanticHighlightingTest extends TestCase {
 		disableAllSemanticHighlightings();
 	}
 
+	protected static JavaEditor getEditor() {
+		return fEditor;
+	}
+
+	protected static SourceViewer getSourceViewer() {
+		return fSourceViewer;
+	}
+
 	protected void assertEqualPositions(Position[] expected, Position[] actual) {
 		assertEquals(expected.length, actual.length);
 		for (int i= 0, n= expected.length; i < n; i++) {
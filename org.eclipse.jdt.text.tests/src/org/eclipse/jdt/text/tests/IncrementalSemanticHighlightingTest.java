@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.ui.SharedASTProvider;
+
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingManager;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingReconciler;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightings;
+
+/**
+ * Tests that reconciling the semantic highlighting of a changed method body results in the same
+ * positions as reconciling the whole compilation unit.
+ *
+ * @since 3.14
+ */
+public class IncrementalSemanticHighlightingTest extends AbstractSemanticHighlightingTest {
+
+	private static final Class<IncrementalSemanticHighlightingTest> THIS= IncrementalSemanticHighlightingTest.class;
+
+	private static final String[] HIGHLIGHTINGS= {
+			SemanticHighlightings.FIELD,
+			SemanticHighlightings.STATIC_FIELD,
+			SemanticHighlightings.LOCAL_VARIABLE_DECLARATION,
+			SemanticHighlightings.LOCAL_VARIABLE,
+			SemanticHighlightings.PARAMETER_VARIABLE,
+			SemanticHighlightings.METHOD,
+			SemanticHighlightings.NUMBER,
+	};
+
+	public static Test suite() {
+		return new SemanticHighlightingTestSetup(new TestSuite(THIS), "/SHTest/src/SHTest.java");
+	}
+
+	private SemanticHighlightingReconciler getReconciler() {
+		SemanticHighlightingManager manager= (SemanticHighlightingManager) new Accessor(getEditor(), JavaEditor.class).get("fSemanticManager");
+		return (SemanticHighlightingReconciler) new Accessor(manager, SemanticHighlightingManager.class).get("fReconciler");
+	}
+
+	private int getIncrementalReconcileCount() {
+		return ((Integer) new Accessor(getReconciler(), SemanticHighlightingReconciler.class).get("fIncrementalReconcileCount")).intValue();
+	}
+
+	private void replace(int offset, int length, String text) throws Exception {
+		getSourceViewer().getDocument().replace(offset, length, text);
+		assertTrue(EditorTestHelper.joinReconciler(getSourceViewer(), 0, 10000, 100));
+		EditorTestHelper.runEventQueue(100);
+	}
+
+	private void assertSameAsFullReconcile() throws Exception {
+		Position[] incremental= getSemanticHighlightingPositions();
+
+		CompilationUnit ast= SharedASTProvider.getAST(getEditor().getInputJavaElement(), SharedASTProvider.WAIT_YES, null);
+		getReconciler().reconciled(ast, true, new NullProgressMonitor());
+		EditorTestHelper.runEventQueue(100);
+		Position[] full= getSemanticHighlightingPositions();
+
+		assertEqualPositions(full, incremental);
+		for (int i= 0; i < full.length; i++) {
+			Object expected= new Accessor(full[i], full[i].getClass()).get("fStyle");
+			Object actual= new Accessor(incremental[i], incremental[i].getClass()).get("fStyle");
+			assertSame(expected, actual);
+		}
+	}
+
+	public void testChangeInMethodBody() throws Exception {
+		for (int i= 0; i < HIGHLIGHTINGS.length; i++)
+			setUpSemanticHighlighting(HIGHLIGHTINGS[i]);
+
+		IDocument document= getSourceViewer().getDocument();
+		String statement= "\t\tlocal++;\n";
+		int offset= document.get().indexOf(statement) + statement.length();
+		String inserted= "\t\tint added= local + field + staticField + 1;\n\t\tadded++;\n";
+		int count= getIncrementalReconcileCount();
+		try {
+			replace(offset, 0, inserted);
+			assertEquals(count + 1, getIncrementalReconcileCount());
+			assertSameAsFullReconcile();
+
+			replace(offset, inserted.length(), "");
+			assertEquals(count + 2, getIncrementalReconcileCount());
+			assertSameAsFullReconcile();
+		} finally {
+			EditorTestHelper.revertEditor(getEditor(), true);
+		}
+	}
+
+	public void testChangeOutsideMethodBody() throws Exception {
+		for (int i= 0; i < HIGHLIGHTINGS.length; i++)
+			setUpSemanticHighlighting(HIGHLIGHTINGS[i]);
+
+		IDocument document= getSourceViewer().getDocument();
+		String declaration= "\tint field;\n";
+		int offset= document.get().indexOf(declaration) + declaration.length();
+		int count= getIncrementalReconcileCount();
+		try {
+			replace(offset, 0, "\tint otherField;\n");
+			assertEquals(count, getIncrementalReconcileCount());
+			assertSameAsFullReconcile();
+		} finally {
+			EditorTestHelper.revertEditor(getEditor(), true);
+		}
+	}
+}
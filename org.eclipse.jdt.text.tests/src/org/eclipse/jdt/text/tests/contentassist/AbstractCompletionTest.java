@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -323,6 +323,29 @@ public class AbstractCompletionTest extends TestCase {
 		assertNoProposal(selector, contents, preSelection);
 	}
 
+	/**
+	 * Creates a CU with a method containing <code>before</code>, then runs code assist and asserts
+	 * that there is a proposal starting with selector.
+	 *
+	 * @param before the contents of the method body line before code completion is run
+	 * @param selector the prefix to match a proposal with
+	 * @throws CoreException if a failure happened during assertion
+	 * @since 3.14
+	 */
+	protected void assertMethodBodyHasProposal(String before, String selector) throws CoreException {
+		StringBuffer contents= new StringBuffer();
+		IRegion preSelection= assembleMethodBodyTestCUExtractSelection(contents, before, fBeforeImports);
+
+		fCU= createCU(getAnonymousTestPackage(), contents.toString());
+		fEditor= (JavaEditor) EditorUtility.openInEditor(fCU);
+		try {
+			findNonNullProposal(selector, preSelection);
+		} finally {
+			EditorTestHelper.closeEditor(fEditor);
+			fEditor= null;
+		}
+	}
+
 	private void assertProposal(String selector, StringBuffer contents, IRegion preSelection, StringBuffer result, IRegion expectedSelection) throws CoreException {
 		fCU= createCU(getAnonymousTestPackage(), contents.toString());
 		fEditor= (JavaEditor) EditorUtility.openInEditor(fCU);
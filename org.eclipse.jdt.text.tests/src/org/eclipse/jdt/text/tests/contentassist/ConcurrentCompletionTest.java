@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.text.tests.JdtTextTestPlugin;
+
+import org.eclipse.core.runtime.ContributorFactoryOSGi;
+import org.eclipse.core.runtime.IContributor;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.Platform;
+
+import org.eclipse.core.internal.registry.ExtensionRegistry;
+
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerRegistry;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that thread-safe proposal computers run in the background with their own invocation
+ * context, see {@link RecordingProposalComputer}.
+ * <p>
+ * The recording computers are contributed only while the test runs, so that the other completion
+ * tests do not run a thread-safe computer.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class ConcurrentCompletionTest extends AbstractCompletionTest {
+	private static final Class<ConcurrentCompletionTest> THIS= ConcurrentCompletionTest.class;
+
+	private static final String EXTENSION_POINT= "org.eclipse.jdt.ui.javaCompletionProposalComputer";
+
+	private static final String CONTRIBUTION= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<plugin>\n"
+			+ "   <extension point=\"" + EXTENSION_POINT + "\" id=\"recordingProposalCategory\" name=\"Recording Proposals\">\n"
+			+ "      <proposalCategory/>\n"
+			+ "   </extension>\n"
+			+ "   <extension point=\"" + EXTENSION_POINT + "\" id=\"ThreadSafeRecordingProposalComputer\">\n"
+			+ "      <javaCompletionProposalComputer\n"
+			+ "            class=\"" + RecordingProposalComputer.ThreadSafe.class.getName() + "\"\n"
+			+ "            categoryId=\"" + JdtTextTestPlugin.PLUGIN_ID + ".recordingProposalCategory\"\n"
+			+ "            threadSafe=\"true\">\n"
+			+ "         <partition type=\"__dftl_partition_content_type\"/>\n"
+			+ "      </javaCompletionProposalComputer>\n"
+			+ "   </extension>\n"
+			+ "   <extension point=\"" + EXTENSION_POINT + "\" id=\"InvokingThreadRecordingProposalComputer\">\n"
+			+ "      <javaCompletionProposalComputer\n"
+			+ "            class=\"" + RecordingProposalComputer.InvokingThread.class.getName() + "\"\n"
+			+ "            categoryId=\"" + JdtTextTestPlugin.PLUGIN_ID + ".recordingProposalCategory\">\n"
+			+ "         <partition type=\"__dftl_partition_content_type\"/>\n"
+			+ "      </javaCompletionProposalComputer>\n"
+			+ "   </extension>\n"
+			+ "</plugin>\n";
+
+	private static final int PARALLELISM= Integer.getInteger("org.eclipse.jdt.ui.codeAssistParallelism", Math.min(4, Runtime.getRuntime().availableProcessors())).intValue();
+
+	public static Test setUpTest(Test test) {
+		return new CompletionTestSetup(test);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS, suiteName(THIS)));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		RecordingProposalComputer.reset();
+		// read the built-in computers first, the registry remembers their number
+		CompletionProposalComputerRegistry.getDefault().getProposalCategories();
+		IExtensionRegistry registry= Platform.getExtensionRegistry();
+		IContributor contributor= ContributorFactoryOSGi.createContributor(JdtTextTestPlugin.getDefault().getBundle());
+		registry.addContribution(new ByteArrayInputStream(CONTRIBUTION.getBytes(StandardCharsets.UTF_8)), contributor, false, null, null, getRegistryToken());
+		CompletionProposalComputerRegistry.getDefault().reload();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		IExtensionRegistry registry= Platform.getExtensionRegistry();
+		for (IExtension extension : registry.getExtensions(EXTENSION_POINT)) {
+			if (JdtTextTestPlugin.PLUGIN_ID.equals(extension.getContributor().getName()))
+				registry.removeExtension(extension, getRegistryToken());
+		}
+		CompletionProposalComputerRegistry.getDefault().reload();
+		RecordingProposalComputer.reset();
+		super.tearDown();
+	}
+
+	private static Object getRegistryToken() {
+		return ((ExtensionRegistry) Platform.getExtensionRegistry()).getTemporaryUserToken();
+	}
+
+	public void testProposalsOfBothComputers() throws Exception {
+		assertMethodBodyHasProposal("|", "threadSafeProposal");
+		assertMethodBodyHasProposal("|", "invokingThreadProposal");
+	}
+
+	public void testOwnContext() throws Exception {
+		assertMethodBodyHasProposal("|", "threadSafeProposal");
+
+		assertNotNull(RecordingProposalComputer.ThreadSafe.fgContext);
+		assertNotNull(RecordingProposalComputer.InvokingThread.fgContext);
+		assertNotSame(RecordingProposalComputer.InvokingThread.fgContext, RecordingProposalComputer.ThreadSafe.fgContext);
+		assertEquals(RecordingProposalComputer.InvokingThread.fgContext.getInvocationOffset(), RecordingProposalComputer.ThreadSafe.fgContext.getInvocationOffset());
+		assertNotNull(RecordingProposalComputer.ThreadSafe.fgCoreContext);
+	}
+
+	public void testBackgroundThread() throws Exception {
+		assertMethodBodyHasProposal("|", "threadSafeProposal");
+
+		assertSame(Thread.currentThread(), RecordingProposalComputer.InvokingThread.fgThread);
+		if (PARALLELISM > 1)
+			assertNotSame(Thread.currentThread(), RecordingProposalComputer.ThreadSafe.fgThread);
+		else
+			assertSame(Thread.currentThread(), RecordingProposalComputer.ThreadSafe.fgThread);
+	}
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jface.text.contentassist.CompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+
+import org.eclipse.jdt.core.CompletionContext;
+
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposalComputer;
+import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
+
+/**
+ * A proposal computer which records the context and the thread it has been invoked with. It is
+ * contributed by {@link ConcurrentCompletionTest} once as thread-safe computer and once as ordinary
+ * computer, only while the test runs.
+ *
+ * @since 3.14
+ */
+public class RecordingProposalComputer implements IJavaCompletionProposalComputer {
+
+	/**
+	 * The computer contributed with <code>threadSafe="true"</code>.
+	 */
+	public static class ThreadSafe extends RecordingProposalComputer {
+		static volatile ContentAssistInvocationContext fgContext;
+		static volatile Thread fgThread;
+		static volatile CompletionContext fgCoreContext;
+
+		public ThreadSafe() {
+			super("threadSafeProposal");
+		}
+
+		@Override
+		protected void record(ContentAssistInvocationContext context) {
+			fgContext= context;
+			fgThread= Thread.currentThread();
+			fgCoreContext= ((JavaContentAssistInvocationContext) context).getCoreContext();
+		}
+	}
+
+	/**
+	 * The computer contributed without the <code>threadSafe</code> flag.
+	 */
+	public static class InvokingThread extends RecordingProposalComputer {
+		static volatile ContentAssistInvocationContext fgContext;
+		static volatile Thread fgThread;
+
+		public InvokingThread() {
+			super("invokingThreadProposal");
+		}
+
+		@Override
+		protected void record(ContentAssistInvocationContext context) {
+			fgContext= context;
+			fgThread= Thread.currentThread();
+		}
+	}
+
+	private final String fProposal;
+
+	RecordingProposalComputer(String proposal) {
+		fProposal= proposal;
+	}
+
+	static void reset() {
+		ThreadSafe.fgContext= null;
+		ThreadSafe.fgThread= null;
+		ThreadSafe.fgCoreContext= null;
+		InvokingThread.fgContext= null;
+		InvokingThread.fgThread= null;
+	}
+
+	protected void record(ContentAssistInvocationContext context) {
+	}
+
+	@Override
+	public void sessionStarted() {
+	}
+
+	@Override
+	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		record(context);
+		int offset= context.getInvocationOffset();
+		return Collections.<ICompletionProposal> singletonList(new CompletionProposal(fProposal, offset, 0, fProposal.length()));
+	}
+
+	@Override
+	public List<IContextInformation> computeContextInformation(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public String getErrorMessage() {
+		return null;
+	}
+
+	@Override
+	public void sessionEnded() {
+	}
+}
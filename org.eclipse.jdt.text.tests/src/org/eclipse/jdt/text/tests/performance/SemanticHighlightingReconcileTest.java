@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+
+import org.eclipse.jdt.ui.SharedASTProvider;
+
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+
+import org.eclipse.jdt.internal.ui.javaeditor.CompilationUnitEditor;
+import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingManager;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingReconciler;
+import org.eclipse.jdt.internal.ui.text.java.IJavaReconcilingListener;
+
+/**
+ * Measures the time to reconcile the semantic highlighting of a large file in the Java editor,
+ * once for the whole file and once after a change in the body of its largest method.
+ *
+ * @since 3.14
+ */
+public class SemanticHighlightingReconcileTest extends TextPerformanceTestCase {
+
+	private static final Class<SemanticHighlightingReconcileTest> THIS= SemanticHighlightingReconcileTest.class;
+
+	private static final String FILE= PerformanceTestSetup.STYLED_TEXT;
+
+	private static final int WARM_UP_RUNS= 3;
+
+	private static final int MEASURED_RUNS= 10;
+
+	private CompilationUnitEditor fEditor;
+
+	private SemanticHighlightingReconciler fReconciler;
+
+	private ITypeRoot fTypeRoot;
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fEditor= (CompilationUnitEditor) EditorTestHelper.openInEditor(ResourceTestHelper.findFile(FILE), true);
+		EditorTestHelper.joinBackgroundActivities(fEditor);
+		fTypeRoot= EditorUtility.getEditorInputJavaElement(fEditor, false);
+
+		// reconcile the semantic highlighting only when measuring
+		SemanticHighlightingManager manager= (SemanticHighlightingManager) new Accessor(fEditor, JavaEditor.class).get("fSemanticManager");
+		fReconciler= (SemanticHighlightingReconciler) new Accessor(manager, SemanticHighlightingManager.class).get("fReconciler");
+		removeReconcileListener(fReconciler);
+
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		EditorTestHelper.revertEditor(fEditor, true);
+		EditorTestHelper.closeAllEditors();
+	}
+
+	private void removeReconcileListener(IJavaReconcilingListener listener) {
+		new Accessor(fEditor, CompilationUnitEditor.class).invoke("removeReconcileListener", new Class[] { IJavaReconcilingListener.class }, new Object[] { listener });
+	}
+
+	/**
+	 * Measures the time to reconcile the semantic highlighting of the whole file.
+	 *
+	 * @throws Exception
+	 */
+	public void testFullReconcile() throws Exception {
+		measureFullReconcile(getNullPerformanceMeter(), getWarmUpRuns());
+		measureFullReconcile(createPerformanceMeter(), getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	/**
+	 * Measures the time to reconcile the semantic highlighting after a change in the body of the
+	 * largest method of the file.
+	 *
+	 * @throws Exception
+	 */
+	public void testIncrementalReconcile() throws Exception {
+		measureIncrementalReconcile(getNullPerformanceMeter(), getWarmUpRuns());
+		measureIncrementalReconcile(createPerformanceMeter(), getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measureFullReconcile(PerformanceMeter performanceMeter, int runs) throws Exception {
+		for (int i= 0; i < runs; i++) {
+			CompilationUnit ast= SharedASTProvider.getAST(fTypeRoot, SharedASTProvider.WAIT_YES, null);
+			performanceMeter.start();
+			fReconciler.reconciled(ast, true, new NullProgressMonitor());
+			performanceMeter.stop();
+			EditorTestHelper.runEventQueue(fEditor);
+		}
+	}
+
+	private void measureIncrementalReconcile(PerformanceMeter performanceMeter, int runs) throws Exception {
+		IDocument document= EditorTestHelper.getDocument(fEditor);
+		CompilationUnit ast= SharedASTProvider.getAST(fTypeRoot, SharedASTProvider.WAIT_YES, null);
+		fReconciler.reconciled(ast, true, new NullProgressMonitor());
+		EditorTestHelper.runEventQueue(fEditor);
+
+		Accessor reconciler= new Accessor(fReconciler, SemanticHighlightingReconciler.class);
+		int incrementalReconciles= ((Integer) reconciler.get("fIncrementalReconcileCount")).intValue();
+		int offset= getLargestMethodBody(ast).getStartPosition() + 1;
+		for (int i= 0; i < runs; i++) {
+			if (i % 2 == 0)
+				document.replace(offset, 0, " ");
+			else
+				document.replace(offset, 1, "");
+			// the shared AST may not yet reflect the change
+			ast= createAST();
+			performanceMeter.start();
+			fReconciler.reconciled(ast, false, new NullProgressMonitor());
+			performanceMeter.stop();
+			EditorTestHelper.runEventQueue(fEditor);
+		}
+		assertEquals("incremental reconciles", incrementalReconciles + runs, ((Integer) reconciler.get("fIncrementalReconcileCount")).intValue());
+	}
+
+	private CompilationUnit createAST() {
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setSource(fTypeRoot);
+		parser.setResolveBindings(true);
+		parser.setStatementsRecovery(IASTSharedValues.SHARED_AST_STATEMENT_RECOVERY);
+		parser.setBindingsRecovery(IASTSharedValues.SHARED_BINDING_RECOVERY);
+		return (CompilationUnit) parser.createAST(null);
+	}
+
+	private static Block getLargestMethodBody(CompilationUnit ast) {
+		final Block[] result= new Block[1];
+		ast.accept(new ASTVisitor() {
+			@Override
+			public boolean visit(MethodDeclaration node) {
+				Block body= node.getBody();
+				if (body != null && (result[0] == null || body.getLength() > result[0].getLength()))
+					result[0]= body;
+				return false;
+			}
+		});
+		return result[0];
+	}
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.RankedWordProposal;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the compacted and cached words of an {@link AbstractSpellDictionary}.
+ */
+public class SpellDictionaryTest extends TestCase {
+
+	private static class FileDictionary extends AbstractSpellDictionary {
+
+		private final URL fURL;
+
+		public FileDictionary(URL url) {
+			fURL= url;
+		}
+
+		@Override
+		public boolean acceptsWords() {
+			return true;
+		}
+
+		@Override
+		public void addWord(String word) {
+			hashWord(word);
+		}
+
+		@Override
+		protected URL getURL() throws MalformedURLException {
+			return fURL;
+		}
+
+		@Override
+		protected String getEncoding() {
+			return "UTF-8"; //$NON-NLS-1$
+		}
+	}
+
+	private static final int WORDS= 10000;
+
+	public static Test suite() {
+		return new TestSuite(SpellDictionaryTest.class);
+	}
+
+	private File fFile;
+	private Set<File> fCacheFiles;
+
+	public SpellDictionaryTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fCacheFiles= getCacheFiles();
+		fFile= File.createTempFile("dictionary", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+		try (PrintWriter writer= new PrintWriter(new OutputStreamWriter(new FileOutputStream(fFile), "UTF-8"))) { //$NON-NLS-1$
+			for (int i= 0; i < WORDS; i++)
+				writer.println(getWord(i));
+			writer.println(SpellCheckEngineTestCase.TRUCK);
+			writer.println("lorry"); //$NON-NLS-1$
+			writer.println("Größe"); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+		for (File cacheFile : getNewCacheFiles())
+			cacheFile.delete();
+		super.tearDown();
+	}
+
+	private static Set<File> getCacheFiles() {
+		File[] files= JavaPlugin.getDefault().getStateLocation().append("spelling").toFile().listFiles(); //$NON-NLS-1$
+		return files == null ? new HashSet<File>() : new HashSet<>(Arrays.asList(files));
+	}
+
+	private Set<File> getNewCacheFiles() {
+		Set<File> files= getCacheFiles();
+		files.removeAll(fCacheFiles);
+		return files;
+	}
+
+	/**
+	 * Replaces a word in the word list with a word of the same length, and resets the modification
+	 * time of the file if requested.
+	 *
+	 * @param oldWord the word to replace
+	 * @param newWord the new word
+	 * @param keepStamp <code>true</code> to keep the length and the modification time of the file
+	 * @throws Exception if the file cannot be changed
+	 */
+	private void replaceWord(String oldWord, String newWord, boolean keepStamp) throws Exception {
+		long lastModified= fFile.lastModified();
+		try (RandomAccessFile file= new RandomAccessFile(fFile, "rw")) { //$NON-NLS-1$
+			byte[] contents= new byte[(int) file.length()];
+			file.readFully(contents);
+			String text= new String(contents, StandardCharsets.UTF_8);
+			int offset= text.indexOf(oldWord);
+			assertTrue(offset != -1);
+			file.seek(text.substring(0, offset).getBytes(StandardCharsets.UTF_8).length);
+			file.write(newWord.getBytes(StandardCharsets.UTF_8));
+		}
+		fFile.setLastModified(keepStamp ? lastModified : lastModified + 10000);
+	}
+
+	/**
+	 * Returns a word with letters only, since the dictionary strips other characters.
+	 *
+	 * @param index the index of the word
+	 * @return the word
+	 */
+	private static String getWord(int index) {
+		StringBuilder word= new StringBuilder("word"); //$NON-NLS-1$
+		do {
+			word.append((char) ('a' + index % 26));
+			index/= 26;
+		} while (index > 0);
+		return word.toString();
+	}
+
+	private static boolean contains(Set<RankedWordProposal> proposals, String word) {
+		for (RankedWordProposal proposal : proposals) {
+			if (proposal.getText().equals(word))
+				return true;
+		}
+		return false;
+	}
+
+	private void assertDictionary(FileDictionary dictionary) {
+		assertTrue(dictionary.isCorrect(SpellCheckEngineTestCase.TRUCK));
+		assertTrue(dictionary.isCorrect("lorry")); //$NON-NLS-1$
+		assertTrue(dictionary.isCorrect(SpellCheckEngineTestCase.LORRY));
+		assertTrue(dictionary.isCorrect("Größe")); //$NON-NLS-1$
+		assertTrue(dictionary.isCorrect(getWord(0)));
+		assertTrue(dictionary.isCorrect(getWord(WORDS - 1)));
+		assertFalse(dictionary.isCorrect("Trucks")); //$NON-NLS-1$
+		assertTrue(dictionary.isLoaded());
+
+		assertTrue(contains(dictionary.getProposals("Truk", false), SpellCheckEngineTestCase.TRUCK)); //$NON-NLS-1$
+	}
+
+	public void testLoad() throws Exception {
+		FileDictionary dictionary= new FileDictionary(fFile.toURI().toURL());
+		assertDictionary(dictionary);
+	}
+
+	public void testLoadCached() throws Exception {
+		assertDictionary(new FileDictionary(fFile.toURI().toURL()));
+		assertEquals(1, getNewCacheFiles().size());
+
+		// a change that keeps the stamp of the word list is not noticed, the words are read from the cache
+		replaceWord("lorry", "worry", true); //$NON-NLS-1$ //$NON-NLS-2$
+		FileDictionary dictionary= new FileDictionary(fFile.toURI().toURL());
+		assertDictionary(dictionary);
+		assertFalse(dictionary.isCorrect("worry")); //$NON-NLS-1$
+	}
+
+	public void testCacheReplacedAfterChange() throws Exception {
+		assertDictionary(new FileDictionary(fFile.toURI().toURL()));
+		Set<File> cacheFiles= getNewCacheFiles();
+		assertEquals(1, cacheFiles.size());
+
+		replaceWord("lorry", "worry", false); //$NON-NLS-1$ //$NON-NLS-2$
+		FileDictionary dictionary= new FileDictionary(fFile.toURI().toURL());
+		assertTrue(dictionary.isCorrect("worry")); //$NON-NLS-1$
+		assertFalse(dictionary.isCorrect("lorry")); //$NON-NLS-1$
+		// the cache file of the word list has been replaced
+		assertEquals(cacheFiles, getNewCacheFiles());
+
+		dictionary= new FileDictionary(fFile.toURI().toURL());
+		assertTrue(dictionary.isCorrect("worry")); //$NON-NLS-1$
+		assertFalse(dictionary.isCorrect("lorry")); //$NON-NLS-1$
+	}
+
+	public void testAddWordAfterLoad() throws Exception {
+		FileDictionary dictionary= new FileDictionary(fFile.toURI().toURL());
+		assertDictionary(dictionary);
+
+		dictionary.addWord("Trucks"); //$NON-NLS-1$
+		assertTrue(dictionary.isCorrect("Trucks")); //$NON-NLS-1$
+		Set<RankedWordProposal> proposals= dictionary.getProposals("Trucs", false); //$NON-NLS-1$
+		assertTrue(contains(proposals, "Trucks")); //$NON-NLS-1$
+		assertTrue(dictionary.isCorrect(SpellCheckEngineTestCase.TRUCK));
+	}
+
+	public void testUnload() throws Exception {
+		FileDictionary dictionary= new FileDictionary(fFile.toURI().toURL());
+		assertDictionary(dictionary);
+		dictionary.addWord("Trucks"); //$NON-NLS-1$
+
+		dictionary.unload();
+		assertFalse(dictionary.isLoaded());
+		assertFalse(dictionary.isCorrect("Trucks")); //$NON-NLS-1$
+		assertDictionary(dictionary);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -114,5 +114,25 @@ public class RefactoringScannerTests extends RefactoringTest{
 				new Position(38, 20),
 		});
 	}
-}
 
+	public void testNoName() throws Exception{
+		fScanner.scan("/* Test */ class A { String s= \"Pattern\"; } // TestPatter");
+		assertEquals("results.length", 0, fScanner.getMatches().size());
+	}
+
+	public void testMatchOrder() throws Exception{
+		String text= "/** TestPattern */ class A { String s= \"org.eclipse.TestPattern\"; } // TestPattern";
+		fScanner.scan(text);
+		ArrayList<Integer> matchesList= new ArrayList<>();
+		for (Iterator<TextMatch> iter= fScanner.getMatches().iterator(); iter.hasNext();) {
+			matchesList.add(Integer.valueOf(iter.next().getStartPosition()));
+		}
+		ArrayList<Integer> expected= new ArrayList<>();
+		int index= text.indexOf("TestPattern");
+		while (index != -1) {
+			expected.add(Integer.valueOf(index));
+			index= text.indexOf("TestPattern", index + 1);
+		}
+		assertEquals("results", expected.toString(), matchesList.toString());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
@@ -24,9 +26,12 @@ import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
 import org.eclipse.ltk.core.refactoring.Refactoring;
 import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.TextChange;
 import org.eclipse.ltk.core.refactoring.participants.RenameArguments;
 import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
 
@@ -1097,6 +1102,60 @@ public class RenameTypeTests extends RefactoringTest {
 		helperWithTextual("A", "A", "B", "B", true, true);
 	}
 
+	private Map<String, String> computeTextualMatchesPreview(IType type, String newName, String parallelism) throws Exception {
+		String property= "org.eclipse.jdt.ui.textMatchParallelism";
+		String old= System.getProperty(property);
+		System.setProperty(property, parallelism);
+		try {
+			RenameJavaElementDescriptor descriptor= createRefactoringDescriptor(type, newName);
+			descriptor.setUpdateTextualOccurrences(true);
+			Refactoring refactoring= createRefactoring(descriptor);
+			NullProgressMonitor pm= new NullProgressMonitor();
+			assertTrue(refactoring.checkAllConditions(pm).isOK());
+			Map<String, String> previews= new TreeMap<>();
+			collectPreviews(refactoring.createChange(pm), previews);
+			return previews;
+		} finally {
+			if (old == null)
+				System.clearProperty(property);
+			else
+				System.setProperty(property, old);
+		}
+	}
+
+	private static void collectPreviews(Change change, Map<String, String> previews) throws CoreException {
+		if (change instanceof TextChange) {
+			previews.put(change.getName(), ((TextChange) change).getPreviewContent(new NullProgressMonitor()));
+		} else if (change instanceof CompositeChange) {
+			Change[] children= ((CompositeChange) change).getChildren();
+			for (int i= 0; i < children.length; i++)
+				collectPreviews(children[i], previews);
+		}
+	}
+
+	public void testTextualMatchesConcurrentScan() throws Exception {
+		IPackageFragment pack= getPackageP();
+		ICompilationUnit cu= createCU(pack, "A.java", "package p;\n/** A is renamed, p.A too */\npublic class A {\n\tString s= \"A\";\n}\n");
+		for (int i= 0; i < 20; i++) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package p;\n");
+			buf.append("// A, p.A, AA, and A.A\n");
+			buf.append("class C" + i + " {\n");
+			buf.append("\tA a;\n");
+			buf.append("\t/* " + (i % 3 == 0 ? "no match" : "A " + i) + " */\n");
+			buf.append("\tString s= \"p.A" + i + " A\";\n");
+			buf.append("}\n");
+			createCU(pack, "C" + i + ".java", buf.toString());
+		}
+		IType type= getType(cu, "A");
+
+		Map<String, String> sequential= computeTextualMatchesPreview(type, "B", "1");
+		Map<String, String> concurrent= computeTextualMatchesPreview(type, "B", "4");
+		assertEquals(21, sequential.size());
+		assertEquals(sequential, concurrent);
+		assertTrue(sequential.toString(), sequential.toString().contains("String s= \"p.A1 B\";"));
+	}
+
 	public void test58() throws Exception {
 		//printTestDisabledMessage("bug#16751");
 		helper2("A", "B");
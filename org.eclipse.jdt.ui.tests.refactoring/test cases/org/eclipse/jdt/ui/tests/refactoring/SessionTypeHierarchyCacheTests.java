@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+
+import org.eclipse.jdt.internal.corext.refactoring.rename.RenameVirtualMethodProcessor;
+import org.eclipse.jdt.internal.corext.refactoring.rename.SessionTypeHierarchyCache;
+
+public class SessionTypeHierarchyCacheTests extends RefactoringTest {
+
+	private static final Class<SessionTypeHierarchyCacheTests> clazz= SessionTypeHierarchyCacheTests.class;
+
+	public SessionTypeHierarchyCacheTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new RefactoringTestSetup(new TestSuite(clazz));
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringTestSetup(someTest);
+	}
+
+	public void testSharedHierarchies() throws Exception {
+		IType a= getType(createCU(getPackageP(), "A.java", "package p;\npublic class A {\n}\n"), "A");
+		IType b= getType(createCU(getPackageP(), "B.java", "package p;\npublic class B extends A {\n}\n"), "B");
+
+		SessionTypeHierarchyCache cache= new SessionTypeHierarchyCache();
+		try {
+			ITypeHierarchy hierarchy= cache.getTypeHierarchy(a, null, new NullProgressMonitor());
+			assertSame(hierarchy, cache.getTypeHierarchy(a, null, new NullProgressMonitor()));
+			assertSame(hierarchy, cache.getSubtypeHierarchy(b, null, new NullProgressMonitor()));
+			assertSame(hierarchy, cache.getSupertypeHierarchy(b, null, new NullProgressMonitor()));
+			assertNotSame(hierarchy, cache.getTypeHierarchy(b, null, new NullProgressMonitor()));
+		} finally {
+			cache.dispose();
+		}
+	}
+
+	public void testChangedHierarchy() throws Exception {
+		IType a= getType(createCU(getPackageP(), "A.java", "package p;\npublic class A {\n}\n"), "A");
+		createCU(getPackageP(), "B.java", "package p;\npublic class B extends A {\n}\n");
+
+		SessionTypeHierarchyCache cache= new SessionTypeHierarchyCache();
+		try {
+			ITypeHierarchy hierarchy= cache.getTypeHierarchy(a, null, new NullProgressMonitor());
+			assertEquals(1, hierarchy.getAllSubtypes(a).length);
+
+			IType c= getType(createCU(getPackageP(), "C.java", "package p;\npublic class C extends A {\n}\n"), "C");
+			ITypeHierarchy changed= cache.getTypeHierarchy(a, null, new NullProgressMonitor());
+			assertNotSame(hierarchy, changed);
+			assertEquals(2, changed.getAllSubtypes(a).length);
+			assertTrue(changed.contains(c));
+			assertSame(changed, cache.getTypeHierarchy(a, null, new NullProgressMonitor()));
+		} finally {
+			cache.dispose();
+		}
+	}
+
+	public void testDispose() throws Exception {
+		IType a= getType(createCU(getPackageP(), "A.java", "package p;\npublic class A {\n}\n"), "A");
+
+		SessionTypeHierarchyCache cache= new SessionTypeHierarchyCache();
+		ITypeHierarchy hierarchy= cache.getTypeHierarchy(a, null, new NullProgressMonitor());
+		cache.dispose();
+		ITypeHierarchy created= cache.getTypeHierarchy(a, null, new NullProgressMonitor());
+		cache.dispose();
+		assertNotSame(hierarchy, created);
+	}
+
+	public void testHierarchyChangedBetweenChecks() throws Exception {
+		ICompilationUnit cu= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n\tpublic void m() {\n\t}\n}\n");
+		IType a= getType(cu, "A");
+
+		RenameVirtualMethodProcessor processor= new RenameVirtualMethodProcessor(a.getMethod("m", new String[0]));
+		RenameRefactoring refactoring= new RenameRefactoring(processor);
+		processor.setNewElementName("k");
+		assertTrue(refactoring.checkInitialConditions(new NullProgressMonitor()).isOK());
+
+		// the hierarchy kept from the initial check must not hide the new subtype
+		createCU(getPackageP(), "C.java", "package p;\npublic class C extends A {\n\tpublic void k() {\n\t}\n}\n");
+		RefactoringStatus status= refactoring.checkFinalConditions(new NullProgressMonitor());
+		assertTrue("hierarchy declares the new method name", status.hasError());
+	}
+}
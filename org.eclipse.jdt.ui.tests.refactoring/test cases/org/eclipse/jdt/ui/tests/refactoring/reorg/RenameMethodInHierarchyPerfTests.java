@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.reorg;
+
+import junit.framework.Test;
+
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+
+import org.eclipse.jdt.internal.corext.refactoring.rename.RenameVirtualMethodProcessor;
+
+import org.eclipse.jdt.ui.tests.refactoring.infra.RefactoringPerformanceTestSetup;
+
+/**
+ * Renames an interface method which is implemented by a synthetic hierarchy of classes. Every
+ * class overrides the method, every tenth class also implements a second interface which declares
+ * the method, so that the ripple method finder has to compute the hierarchies of the related and
+ * of the alien types.
+ * <p>
+ * The number of references is the number of direct subclasses of every class.
+ * </p>
+ */
+public class RenameMethodInHierarchyPerfTests extends RepeatingRefactoringPerformanceTestCase {
+
+	public static Test suite() {
+		// we must make sure that cold is executed before warm
+		OrderedTestSuite suite= new OrderedTestSuite(RenameMethodInHierarchyPerfTests.class, new String[] {
+			"testCold_1000_10",
+			"test_1000_10",
+			"test_5000_10",
+		});
+		return new RefactoringPerformanceTestSetup(suite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringPerformanceTestSetup(someTest);
+	}
+
+	public RenameMethodInHierarchyPerfTests(String name) {
+		super(name);
+	}
+
+	public void testCold_1000_10() throws Exception {
+		executeRefactoring(1000, 10, false, 1);
+	}
+
+	public void test_1000_10() throws Exception {
+		executeRefactoring(1000, 10, true, 3);
+	}
+
+	public void test_5000_10() throws Exception {
+		tagAsSummary("Rename method in hierarchy - 5000 types", Dimension.ELAPSED_PROCESS);
+		executeRefactoring(5000, 10, true, 3);
+	}
+
+	@Override
+	protected void doExecuteRefactoring(int numberOfCus, int numberOfRefs, boolean measure) throws Exception {
+		ICompilationUnit cunit= generateSources(numberOfCus, numberOfRefs);
+		IMethod method= cunit.findPrimaryType().getMethod("foo", new String[0]);
+		RenameVirtualMethodProcessor processor= new RenameVirtualMethodProcessor(method);
+		processor.setNewElementName("bar");
+		executeRefactoring(new RenameRefactoring(processor), measure);
+	}
+
+	private ICompilationUnit generateSources(int numberOfTypes, int subclasses) throws Exception {
+		IPackageFragment pack= getTestProject().getSourceFolder().createPackageFragment("hierarchy", false, null);
+		ICompilationUnit result= pack.createCompilationUnit("I.java", "package hierarchy;\npublic interface I {\n    void foo();\n}\n", false, null);
+		pack.createCompilationUnit("J.java", "package hierarchy;\npublic interface J {\n    void foo();\n}\n", false, null);
+		for (int i= 0; i < numberOfTypes; i++) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package hierarchy;\n");
+			buf.append("public class C" + i);
+			if (i == 0)
+				buf.append(" implements I");
+			else
+				buf.append(" extends C" + (i - 1) / subclasses);
+			if (i % 10 == 5)
+				buf.append(" implements J");
+			buf.append(" {\n");
+			buf.append("    public void foo() {\n");
+			buf.append("    }\n");
+			buf.append("}\n");
+			pack.createCompilationUnit("C" + i + ".java", buf.toString(), false, null);
+		}
+		return result;
+	}
+}
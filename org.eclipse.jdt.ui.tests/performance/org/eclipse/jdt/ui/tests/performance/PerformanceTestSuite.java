@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,12 +14,17 @@ package org.eclipse.jdt.ui.tests.performance;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.eclipse.jdt.ui.tests.performance.junit.TestRunnerProtocolPerfTest;
+import org.eclipse.jdt.ui.tests.performance.junit.TestViewerUpdatePerfTest;
 import org.eclipse.jdt.ui.tests.performance.views.TypeHierarchyPerfTest;
 
 public class PerformanceTestSuite {
 	public static Test suite() {
 		TestSuite suite= new TestSuite(PerformanceTestSuite.class.getName());
 		suite.addTest(TypeHierarchyPerfTest.suite());
+		suite.addTest(TestRunnerProtocolPerfTest.suite());
+		suite.addTest(TestViewerUpdatePerfTest.suite());
+		suite.addTest(TypeFilterPerfTest.suite());
 		return suite;
 	}
 }
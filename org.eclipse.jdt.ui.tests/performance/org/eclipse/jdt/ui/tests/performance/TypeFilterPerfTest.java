@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+import org.eclipse.jdt.internal.corext.util.TypeFilterMatcher;
+
+import org.eclipse.jdt.internal.ui.util.StringMatcher;
+
+/**
+ * Compares the {@link StringMatcher}s which were used for the type filters with the
+ * {@link TypeFilterMatcher}, on 50 filter patterns and 100'000 package and type names.
+ */
+public class TypeFilterPerfTest extends JdtPerformanceTestCase {
+
+	private static final int PATTERN_COUNT= 50;
+	private static final int NAME_COUNT= 100000;
+	private static final int ITERATIONS= 20;
+	private static final int RUNS= 10;
+
+	private static final String[] PACKAGES= {
+			"java.lang", "java.util", "java.util.concurrent", "java.awt", "java.awt.event", "javax.swing",
+			"org.eclipse.core.runtime", "org.eclipse.jdt.core", "org.eclipse.jdt.internal.core", "org.eclipse.jdt.internal.ui.text",
+			"org.eclipse.swt.widgets", "org.junit", "com.sun.tools.javac", "sun.misc", "org.apache.commons.lang",
+	};
+
+	private static final String[] TYPES= {
+			"List", "ArrayList", "Map", "Entry", "Object", "String", "Event", "Listener", "Widget", "Button",
+			"Parser", "Lexer", "Scanner", "Assert", "Unsafe", "Manager", "ManagerImpl", "Factory", "Util", "Helper",
+	};
+
+	private static String[] fPatterns;
+	private static char[][] fPackageNames;
+	private static char[][] fTypeNames;
+
+	public static Test suite() {
+		return new TestSuite(TypeFilterPerfTest.class);
+	}
+
+	public TypeFilterPerfTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		if (fPatterns == null) {
+			fPatterns= new String[PATTERN_COUNT];
+			int k= 0;
+			fPatterns[k++]= "java.awt.*";
+			fPatterns[k++]= "*.internal.*";
+			fPatterns[k++]= "*Impl";
+			fPatterns[k++]= "sun.*";
+			fPatterns[k++]= "com.sun.*";
+			fPatterns[k++]= "java.util.L?st";
+			fPatterns[k++]= "org.*.Lex*r";
+			for (int i= 0; k < PATTERN_COUNT; i++) {
+				fPatterns[k++]= "com.example.module" + i + (i % 2 == 0 ? ".*" : ".Type" + i);
+			}
+
+			fPackageNames= new char[NAME_COUNT][];
+			fTypeNames= new char[NAME_COUNT][];
+			for (int i= 0; i < NAME_COUNT; i++) {
+				fPackageNames[i]= PACKAGES[i % PACKAGES.length].toCharArray();
+				fTypeNames[i]= (TYPES[(i / PACKAGES.length) % TYPES.length] + (i / (PACKAGES.length * TYPES.length))).toCharArray();
+			}
+		}
+	}
+
+	private static int filterWithStringMatchers(StringMatcher[] matchers) {
+		int filtered= 0;
+		for (int i= 0; i < NAME_COUNT; i++) {
+			String name= JavaModelUtil.concatenateName(fPackageNames[i], fTypeNames[i]);
+			for (int m= 0; m < matchers.length; m++) {
+				if (matchers[m].match(name)) {
+					filtered++;
+					break;
+				}
+			}
+		}
+		return filtered;
+	}
+
+	private static int filterWithTypeFilterMatcher(TypeFilterMatcher matcher) {
+		int filtered= 0;
+		for (int i= 0; i < NAME_COUNT; i++) {
+			if (matcher.matches(fPackageNames[i], fTypeNames[i]))
+				filtered++;
+		}
+		return filtered;
+	}
+
+	public void testStringMatchers() throws Exception {
+		tagAsSummary("Type filter with string matchers - 50 patterns", Dimension.ELAPSED_PROCESS);
+		StringMatcher[] matchers= new StringMatcher[fPatterns.length];
+		for (int i= 0; i < fPatterns.length; i++) {
+			matchers[i]= new StringMatcher(fPatterns[i], false, false);
+		}
+		int expected= filterWithTypeFilterMatcher(new TypeFilterMatcher(fPatterns));
+
+		// warm up
+		assertEquals(expected, filterWithStringMatchers(matchers));
+
+		for (int i= 0; i < RUNS; i++) {
+			startMeasuring();
+			for (int k= 0; k < ITERATIONS; k++) {
+				filterWithStringMatchers(matchers);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
+	}
+
+	public void testTypeFilterMatcher() throws Exception {
+		tagAsSummary("Type filter with compiled matcher - 50 patterns", Dimension.ELAPSED_PROCESS);
+		TypeFilterMatcher matcher= new TypeFilterMatcher(fPatterns);
+
+		// warm up
+		assertTrue(filterWithTypeFilterMatcher(matcher) > 0);
+
+		for (int i= 0; i < RUNS; i++) {
+			startMeasuring();
+			for (int k= 0; k < ITERATIONS; k++) {
+				filterWithTypeFilterMatcher(matcher);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
+	}
+}
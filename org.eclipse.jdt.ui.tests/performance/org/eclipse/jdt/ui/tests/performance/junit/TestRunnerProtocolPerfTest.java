@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance.junit;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.junit.tests.TestRunnerProtocolTest;
+import org.eclipse.jdt.junit.tests.TestRunnerProtocolTest.RecordingListener;
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+/**
+ * Compares the text and the binary protocol between the RemoteTestRunner and the
+ * RemoteTestRunnerClient on a synthetic run with 100'000 parameterized tests.
+ */
+public class TestRunnerProtocolPerfTest extends JdtPerformanceTestCase {
+
+	private static final int TEST_COUNT= 100000;
+	private static final int FAILURE_INTERVAL= 100;
+	private static final int TRACE_DEPTH= 40;
+	private static final int RUNS= 5;
+
+	public static Test suite() {
+		return new TestSuite(TestRunnerProtocolPerfTest.class);
+	}
+
+	public TestRunnerProtocolPerfTest(String name) {
+		super(name);
+	}
+
+	private void measureRuns(boolean binary) throws Exception {
+		// warm up
+		TestRunnerProtocolTest.run(binary, new RecordingListener(false), TEST_COUNT, FAILURE_INTERVAL, TRACE_DEPTH);
+
+		for (int i= 0; i < RUNS; i++) {
+			startMeasuring();
+			TestRunnerProtocolTest.run(binary, new RecordingListener(false), TEST_COUNT, FAILURE_INTERVAL, TRACE_DEPTH);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
+	}
+
+	public void testTextProtocol() throws Exception {
+		tagAsSummary("Test runner text protocol - 100'000 tests", Dimension.ELAPSED_PROCESS);
+		measureRuns(false);
+	}
+
+	public void testBinaryProtocol() throws Exception {
+		tagAsSummary("Test runner binary protocol - 100'000 tests", Dimension.ELAPSED_PROCESS);
+		measureRuns(true);
+	}
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance.junit;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestRoot;
+import org.eclipse.jdt.internal.junit.model.TestRunSession;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+import org.eclipse.jdt.internal.junit.ui.TestSessionTreeContentProvider;
+import org.eclipse.jdt.internal.junit.ui.TestSessionTreeUpdater;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+/**
+ * Replays a test run with 50'000 fast tests through a tree viewer with a
+ * {@link TestSessionTreeContentProvider}, and compares updating all changed elements with their
+ * parents to the coalescing {@link TestSessionTreeUpdater}.
+ */
+public class TestViewerUpdatePerfTest extends JdtPerformanceTestCase {
+
+	private static final int SUITES= 500;
+	private static final int TESTS_PER_SUITE= 100;
+	private static final int FAILURE_INTERVAL= 97;
+	/**
+	 * The number of test events between two refreshes of the viewer.
+	 */
+	private static final int EVENTS_PER_REFRESH= 1000;
+	private static final int RUNS= 5;
+
+	private interface Refresher {
+		void refresh(TreeViewer viewer, Object[] changed);
+	}
+
+	private static class LabelProviderStub extends LabelProvider {
+		@Override
+		public String getText(Object element) {
+			TestElement testElement= (TestElement) element;
+			return testElement.getTestName() + " - " + testElement.getStatus();
+		}
+	}
+
+	private Shell fShell;
+
+	public static Test suite() {
+		return new TestSuite(TestViewerUpdatePerfTest.class);
+	}
+
+	public TestViewerUpdatePerfTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fShell= new Shell(Display.getCurrent());
+		fShell.setLayout(new FillLayout());
+		fShell.setSize(400, 800);
+		fShell.open();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fShell.dispose();
+		super.tearDown();
+	}
+
+	private static TestRunSession createSession() {
+		TestRunSession session= new TestRunSession("TestViewerUpdatePerfTest", null);
+		TestRoot root= session.getTestRoot();
+		int id= 0;
+		for (int s= 0; s < SUITES; s++) {
+			TestSuiteElement suite= (TestSuiteElement) session.createTestElement(root, String.valueOf(id++), "p.Suite" + s, true, 0, false, null, null, null);
+			for (int t= 0; t < TESTS_PER_SUITE; t++) {
+				session.createTestElement(suite, String.valueOf(id++), "test" + t + "(p.Suite" + s + ")", false, 0, false, null, null, null);
+			}
+		}
+		return session;
+	}
+
+	private TreeViewer createViewer(TestRunSession session) {
+		TreeViewer viewer= new TreeViewer(fShell, SWT.V_SCROLL | SWT.SINGLE);
+		viewer.setUseHashlookup(true);
+		viewer.setContentProvider(new TestSessionTreeContentProvider());
+		viewer.setLabelProvider(new LabelProviderStub());
+		viewer.setInput(session.getTestRoot());
+		// like the JUnit view with auto scroll, the first suites are expanded
+		viewer.expandToLevel(2);
+		for (int s= 0; s < 10; s++) {
+			viewer.setExpandedState(session.getTestRoot().getChildren()[s], true);
+		}
+		fShell.layout();
+		return viewer;
+	}
+
+	/**
+	 * Replays the events of the test run.
+	 *
+	 * @param session the session
+	 * @param viewer the viewer
+	 * @param refresher the refresher to call every {@link #EVENTS_PER_REFRESH} events
+	 */
+	private static void replay(TestRunSession session, TreeViewer viewer, Refresher refresher) {
+		Display display= viewer.getControl().getDisplay();
+		LinkedHashSet<TestElement> changed= new LinkedHashSet<>();
+		int events= 0;
+		for (Object suite : session.getTestRoot().getChildren()) {
+			for (Object test : ((TestSuiteElement) suite).getChildren()) {
+				TestCaseElement testCase= (TestCaseElement) test;
+				testCase.setStatus(Status.RUNNING);
+				changed.add(testCase);
+				if (Integer.parseInt(testCase.getId()) % FAILURE_INTERVAL == 0)
+					session.registerTestFailureStatus(testCase, Status.FAILURE, "junit.framework.AssertionFailedError", null, null);
+				session.registerTestEnded(testCase, true);
+				events+= 2;
+				if (events >= EVENTS_PER_REFRESH) {
+					refresher.refresh(viewer, changed.toArray());
+					changed.clear();
+					events= 0;
+					while (display.readAndDispatch()) {
+						// process paint events
+					}
+				}
+			}
+		}
+		refresher.refresh(viewer, changed.toArray());
+	}
+
+	private void measureReplay(Refresher refresher) {
+		for (int i= 0; i < RUNS + 1; i++) {
+			TestRunSession session= createSession();
+			TreeViewer viewer= createViewer(session);
+			try {
+				if (i > 0) // first run is warm up
+					startMeasuring();
+				replay(session, viewer, refresher);
+				if (i > 0)
+					stopMeasuring();
+			} finally {
+				viewer.getControl().dispose();
+			}
+		}
+		commitMeasurements();
+		assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
+	}
+
+	public void testUpdateWithParents() throws Exception {
+		tagAsSummary("JUnit view - update all changed tests with parents", Dimension.ELAPSED_PROCESS);
+		measureReplay(new Refresher() {
+			@Override
+			public void refresh(TreeViewer viewer, Object[] changed) {
+				HashSet<Object> toUpdateWithParents= new HashSet<>();
+				for (Object element : changed) {
+					TestElement current= (TestElement) element;
+					while (current != null) {
+						toUpdateWithParents.add(current);
+						current= current.getParent();
+					}
+				}
+				viewer.update(toUpdateWithParents.toArray(), null);
+			}
+		});
+	}
+
+	public void testCoalescingUpdater() throws Exception {
+		tagAsSummary("JUnit view - coalescing tree updater", Dimension.ELAPSED_PROCESS);
+		measureReplay(new Refresher() {
+			private TestSessionTreeUpdater fUpdater;
+			private TreeViewer fViewer;
+
+			@Override
+			public void refresh(TreeViewer viewer, Object[] changed) {
+				if (viewer != fViewer) {
+					fViewer= viewer;
+					fUpdater= new TestSessionTreeUpdater(viewer, (TestSessionTreeContentProvider) viewer.getContentProvider());
+				}
+				fUpdater.update(changed, new Object[0]);
+			}
+		});
+	}
+}
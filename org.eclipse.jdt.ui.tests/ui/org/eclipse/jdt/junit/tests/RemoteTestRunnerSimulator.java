@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+import org.eclipse.jdt.internal.junit.runner.MessageSender;
+import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
+
+/**
+ * Sends the messages of a synthetic test run to a RemoteTestRunnerClient, in the same way as the
+ * RemoteTestRunner does in the text or in the binary protocol.
+ */
+public class RemoteTestRunnerSimulator implements MessageSender {
+
+	private final boolean fBinary;
+	private final int fBinaryVersion;
+
+	private Socket fSocket;
+	private PrintWriter fWriter;
+	private BinaryMessageWriter fBinaryWriter;
+
+	public RemoteTestRunnerSimulator(boolean binary) {
+		this(binary, BinaryMessageWriter.VERSION);
+	}
+
+	/**
+	 * @param binary <code>true</code> to use the binary protocol
+	 * @param binaryVersion the version of the binary protocol to announce
+	 */
+	public RemoteTestRunnerSimulator(boolean binary, int binaryVersion) {
+		fBinary= binary;
+		fBinaryVersion= binaryVersion;
+	}
+
+	/**
+	 * Connects to the client. Retries until the client listens on the port.
+	 *
+	 * @param port the port of the client
+	 * @throws Exception if the connection fails
+	 */
+	public void connect(int port) throws Exception {
+		IOException exception= null;
+		for (int i= 0; i < 50; i++) {
+			try {
+				fSocket= new Socket("localhost", port);
+				fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fSocket.getOutputStream(), "UTF-8")), false);
+				if (fBinary) {
+					fWriter.println(MessageIds.BINARY_PROTOCOL + fBinaryVersion);
+					fWriter.flush();
+					fBinaryWriter= new BinaryMessageWriter(fSocket.getOutputStream());
+				}
+				return;
+			} catch (IOException e) {
+				exception= e;
+			}
+			Thread.sleep(100);
+		}
+		throw exception;
+	}
+
+	@Override
+	public void sendMessage(String msg) {
+		if (fBinaryWriter != null)
+			fBinaryWriter.sendMessage(msg);
+		else
+			fWriter.println(msg);
+	}
+
+	@Override
+	public void flush() {
+		if (fBinaryWriter != null)
+			fBinaryWriter.flush();
+		else
+			fWriter.flush();
+	}
+
+	public void close() throws IOException {
+		if (fBinaryWriter != null)
+			fBinaryWriter.close();
+		fWriter.close();
+		fSocket.close();
+	}
+
+	/**
+	 * Sends a run of a suite with parameterized tests. Every <code>failureInterval</code>-th test
+	 * fails with a comparison failure and a stack trace.
+	 *
+	 * @param testCount the number of tests
+	 * @param failureInterval the interval of failing tests
+	 * @param traceDepth the number of stack frames of a failure trace
+	 */
+	public void sendRun(int testCount, int failureInterval, int traceDepth) {
+		sendMessage(MessageIds.TEST_RUN_START + testCount + " v2");
+		sendMessage(MessageIds.TEST_TREE + "1," + RemoteTestRunner.escapeText("p.ParameterizedTest") + ",true," + testCount + ",false,-1,ParameterizedTest,,[engine:junit]/[class:p.ParameterizedTest]");
+		for (int i= 0; i < testCount; i++) {
+			sendMessage(MessageIds.TEST_TREE + getTestId(i) + ',' + getTestName(i) + ",false,1,false,1," + RemoteTestRunner.escapeText("test[" + i + "]") + ",,");
+		}
+
+		StringBuffer trace= new StringBuffer("junit.framework.ComparisonFailure: expected:<a> but was:<b>");
+		for (int i= 0; i < traceDepth; i++) {
+			trace.append("\n\tat p.ParameterizedTest.method").append(i).append("(ParameterizedTest.java:").append(i + 10).append(')');
+		}
+		for (int i= 0; i < testCount; i++) {
+			String test= getTestId(i) + ',' + getTestName(i);
+			sendMessage(MessageIds.TEST_START + test);
+			flush();
+			if (failureInterval > 0 && i % failureInterval == 0) {
+				sendMessage(MessageIds.TEST_FAILED + test);
+				sendMessage(MessageIds.EXPECTED_START);
+				sendMessage("a\nline " + i);
+				sendMessage(MessageIds.EXPECTED_END);
+				sendMessage(MessageIds.ACTUAL_START);
+				sendMessage("b\nline " + i);
+				sendMessage(MessageIds.ACTUAL_END);
+				sendMessage(MessageIds.TRACE_START);
+				sendMessage(trace.toString());
+				sendMessage(MessageIds.TRACE_END);
+				flush();
+			}
+			sendMessage(MessageIds.TEST_END + test);
+		}
+		sendMessage(MessageIds.TEST_RUN_END + 42);
+		flush();
+	}
+
+	public static String getTestId(int i) {
+		return String.valueOf(i + 2);
+	}
+
+	public static String getTestName(int i) {
+		return RemoteTestRunner.escapeText("test[" + i + "](p.ParameterizedTest)");
+	}
+}
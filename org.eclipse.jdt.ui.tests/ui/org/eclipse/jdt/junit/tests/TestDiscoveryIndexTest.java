@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.junit.JUnitCore;
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.StringAsserts;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
+import org.eclipse.jdt.internal.junit.launcher.TestDiscoveryIndex;
+
+/**
+ * Tests the test discovery index used by the JUnit test finders.
+ */
+public class TestDiscoveryIndexTest extends TestCase {
+
+	private IJavaProject fProject;
+	private IPackageFragmentRoot fRoot;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject= JavaProjectHelper.createJavaProject("TestProject", "bin");
+		JavaProjectHelper.addRTJar(fProject);
+		IClasspathEntry cpe= JavaCore.newContainerEntry(JUnitCore.JUNIT4_CONTAINER_PATH);
+		JavaProjectHelper.addToClasspath(fProject, cpe);
+		JavaProjectHelper.set15CompilerOptions(fProject);
+
+		fRoot= JavaProjectHelper.addSourceContainer(fProject, "src");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		InstanceScope.INSTANCE.getNode(JUnitCorePlugin.CORE_PLUGIN_ID).remove(JUnitPreferencesConstants.TEST_DISCOVERY_INDEX);
+		JavaProjectHelper.delete(fProject);
+		super.tearDown();
+	}
+
+	public void testSameResultAsFullSearch() throws Exception {
+		IPackageFragment p= fRoot.createPackageFragment("p", true, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("import org.junit.Test;\n");
+		buf.append("public class AnnotatedTest {\n");
+		buf.append("    @Test public void testFoo() {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		p.createCompilationUnit("AnnotatedTest.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class SubTest extends AnnotatedTest {\n");
+		buf.append("}\n");
+		p.createCompilationUnit("SubTest.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("import junit.framework.TestCase;\n");
+		buf.append("public class Outer {\n");
+		buf.append("    public static class InnerTest extends TestCase {\n");
+		buf.append("        public void testFoo() {\n");
+		buf.append("        }\n");
+		buf.append("    }\n");
+		buf.append("    public abstract static class AbstractTest extends TestCase {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		p.createCompilationUnit("Outer.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class NoTest {\n");
+		buf.append("    public void testFoo() {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		p.createCompilationUnit("NoTest.java", buf.toString(), false, null);
+
+		String[] expected= { "p.AnnotatedTest", "p.SubTest", "p.Outer.InnerTest" };
+		IJavaElement[] containers= { p, fRoot, fProject };
+		for (int i= 0; i < containers.length; i++) {
+			setIndexEnabled(false);
+			assertTestsFound(containers[i], expected);
+			setIndexEnabled(true);
+			assertTestsFound(containers[i], expected); // builds the entries
+			assertTestsFound(containers[i], expected); // uses the entries
+		}
+	}
+
+	public void testSuperTypeChange() throws Exception {
+		IPackageFragment p= fRoot.createPackageFragment("p", true, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class Base {\n");
+		buf.append("}\n");
+		p.createCompilationUnit("Base.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class Derived extends Base {\n");
+		buf.append("}\n");
+		p.createCompilationUnit("Derived.java", buf.toString(), false, null);
+
+		assertTestsFound(p, new String[0]);
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("import org.junit.Test;\n");
+		buf.append("public class Base {\n");
+		buf.append("    @Test public void testFoo() {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		p.createCompilationUnit("Base.java", buf.toString(), true, null);
+
+		// the entry of Derived.java depends on Base and must have been removed
+		assertTestsFound(p, new String[] { "p.Base", "p.Derived" });
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class Base {\n");
+		buf.append("}\n");
+		p.createCompilationUnit("Base.java", buf.toString(), true, null);
+
+		assertTestsFound(p, new String[0]);
+	}
+
+	public void testMemberTypeChange() throws Exception {
+		IPackageFragment p= fRoot.createPackageFragment("p", true, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class Outer {\n");
+		buf.append("    public static class Base {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		buf.append("class Secondary {\n");
+		buf.append("}\n");
+		p.createCompilationUnit("Outer.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class MemberDerived extends Outer.Base {\n");
+		buf.append("}\n");
+		p.createCompilationUnit("MemberDerived.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class SecondaryDerived extends Secondary {\n");
+		buf.append("}\n");
+		p.createCompilationUnit("SecondaryDerived.java", buf.toString(), false, null);
+
+		assertTestsFound(p, new String[0]);
+
+		buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("import org.junit.Test;\n");
+		buf.append("public class Outer {\n");
+		buf.append("    public static class Base {\n");
+		buf.append("        @Test public void testFoo() {\n");
+		buf.append("        }\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		buf.append("class Secondary {\n");
+		buf.append("    @Test public void testFoo() {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		p.createCompilationUnit("Outer.java", buf.toString(), true, null);
+
+		// the entries depend on Outer.java, not only on the primary type Outer
+		assertTestsFound(p, new String[] { "p.Outer.Base", "p.MemberDerived", "p.SecondaryDerived" });
+	}
+
+	public void testIndexSaved() throws Exception {
+		IPackageFragment p= fRoot.createPackageFragment("p", true, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("import org.junit.Test;\n");
+		buf.append("public class MyTest {\n");
+		buf.append("    @Test public void testFoo() {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		p.createCompilationUnit("MyTest.java", buf.toString(), false, null);
+
+		File file= JUnitCorePlugin.getDefault().getStateLocation().append("testDiscovery").append(fProject.getElementName() + ".index").toFile();
+		file.delete();
+
+		assertTestsFound(p, new String[] { "p.MyTest" });
+
+		// saved without waiting for the plug-in to stop
+		TestDiscoveryIndex index= JUnitCorePlugin.getTestDiscoveryIndex();
+		Job.getJobManager().wakeUp(index);
+		Job.getJobManager().join(index, null);
+		assertTrue(file.exists());
+	}
+
+	private static void setIndexEnabled(boolean enabled) {
+		InstanceScope.INSTANCE.getNode(JUnitCorePlugin.CORE_PLUGIN_ID).putBoolean(JUnitPreferencesConstants.TEST_DISCOVERY_INDEX, enabled);
+	}
+
+	private static void assertTestsFound(IJavaElement container, String[] expectedTypes) throws Exception {
+		Set<String> namesFound= new HashSet<>();
+		for (IType type : JUnitCore.findTestTypes(container, null)) {
+			namesFound.add(type.getFullyQualifiedName('.'));
+		}
+		String[] actuals= namesFound.toArray(new String[namesFound.size()]);
+		StringAsserts.assertEqualStringsIgnoreOrder(actuals, expectedTypes);
+	}
+}
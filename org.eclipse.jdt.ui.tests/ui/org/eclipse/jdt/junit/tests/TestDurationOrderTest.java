@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.model.TestDurationHistory;
+import org.eclipse.jdt.internal.junit.runner.DurationPrioritizer;
+import org.eclipse.jdt.internal.junit.runner.TestDurations;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the ordering and sharding of tests by the durations of their last runs.
+ */
+public class TestDurationOrderTest extends TestCase {
+
+	private static final String SUITE2= "org.eclipse.jdt.junit.tests.TestPriorizationSuite2";
+
+	public void testOrderShortest() {
+		TestDurations durations= new TestDurations();
+		durations.put("testA(p.Slow)", 300, false);
+		durations.put("testB(p.Slow)", 200, false);
+		durations.put("testA(p.Fast)", 10, false);
+		durations.put("testA(p.Failing)", 100, true);
+
+		String[] order= durations.order(new String[] { "p.Slow", "p.Failing", "p.New", "p.Fast" });
+		assertEquals(Arrays.asList("p.New", "p.Fast", "p.Failing", "p.Slow"), Arrays.asList(order));
+	}
+
+	public void testOrderFailFast() {
+		TestDurations durations= new TestDurations();
+		durations.put("testA(p.Slow)", 300, true);
+		durations.put("testA(p.Fast)", 10, false);
+		durations.put("testA(p.Failing)", 100, true);
+		durations.setFailFast(true);
+
+		String[] order= durations.order(new String[] { "p.Slow", "p.Fast", "p.Failing" });
+		assertEquals(Arrays.asList("p.Failing", "p.Slow", "p.Fast"), Arrays.asList(order));
+	}
+
+	public void testShardsArePartition() {
+		TestDurations durations= new TestDurations();
+		String[] classNames= new String[25];
+		for (int i= 0; i < classNames.length; i++) {
+			classNames[i]= "p.Test" + i;
+			if (i % 3 != 0) // leave some durations unknown
+				durations.put("testA(" + classNames[i] + ")", i * 17 % 50, false);
+		}
+
+		Set<String> all= new HashSet<>();
+		int count= 4;
+		for (int index= 0; index < count; index++) {
+			String[] shard= durations.shard(classNames, index, count);
+			assertTrue(shard.length > 0);
+			for (String className : shard) {
+				assertTrue(className, all.add(className));
+			}
+			assertEquals(Arrays.asList(shard), Arrays.asList(durations.shard(classNames, index, count)));
+		}
+		assertEquals(new HashSet<>(Arrays.asList(classNames)), all);
+	}
+
+	public void testShardsAreBalanced() {
+		TestDurations durations= new TestDurations();
+		long[] millis= { 800, 700, 400, 300, 300, 200, 200, 100 };
+		String[] classNames= new String[millis.length];
+		for (int i= 0; i < millis.length; i++) {
+			classNames[i]= "p.Test" + i;
+			durations.put("testA(" + classNames[i] + ")", millis[i], false);
+		}
+
+		for (int index= 0; index < 3; index++) {
+			long sum= 0;
+			for (String className : durations.shard(classNames, index, 3)) {
+				sum+= durations.getClassDuration(className);
+			}
+			assertEquals(1000, sum);
+		}
+	}
+
+	public void testShardsOfOneRunUseOneSnapshot() throws Exception {
+		IJavaProject project= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot().getProject("TestDurationOrderTest"));
+		String[] classNames= new String[8];
+		Map<String, Long> millis= new HashMap<>();
+		for (int i= 0; i < classNames.length; i++) {
+			classNames[i]= "p.Test" + i;
+			millis.put("testA(" + classNames[i] + ")", Long.valueOf(i == 0 ? 1000 : 10));
+		}
+		try {
+			TestDurationHistory.record(project, millis, Collections.<String> emptySet());
+			TestDurations first= readSnapshot(project, "run1", 2);
+
+			// the first shard has finished before the second one is launched
+			millis.clear();
+			millis.put("testA(p.Test7)", Long.valueOf(5000));
+			TestDurationHistory.record(project, millis, Collections.<String> emptySet());
+			TestDurations second= readSnapshot(project, "run1", 2);
+			assertEquals(10, second.getClassDuration("p.Test7"));
+
+			Set<String> all= new HashSet<>(Arrays.asList(first.shard(classNames, 0, 2)));
+			for (String className : second.shard(classNames, 1, 2)) {
+				assertTrue(className, all.add(className));
+			}
+			assertEquals(new HashSet<>(Arrays.asList(classNames)), all);
+
+			// relaunching a shard of the run keeps its durations, a new run gets the recorded ones
+			assertEquals(10, readSnapshot(project, "run1", 2).getClassDuration("p.Test7"));
+			assertEquals(2505, readSnapshot(project, "run2", 2).getClassDuration("p.Test7"));
+
+			// shards without a run id get no durations
+			assertNull(TestDurationHistory.createDurationsFile(project, "", 2));
+		} finally {
+			File dir= JUnitCorePlugin.getDefault().getStateLocation().append("testDurations").toFile();
+			new File(dir, project.getElementName() + ".txt").delete();
+			File pinned= new File(new File(dir, "pinned"), project.getElementName());
+			File[] files= pinned.listFiles();
+			for (int i= 0; files != null && i < files.length; i++) {
+				files[i].delete();
+			}
+			pinned.delete();
+		}
+	}
+
+	private static TestDurations readSnapshot(IJavaProject project, String runId, int shardCount) throws Exception {
+		File file= TestDurationHistory.createDurationsFile(project, runId, shardCount);
+		assertNotNull(file);
+		try {
+			return TestDurations.read(file.getAbsolutePath());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testPrioritizeSuite() {
+		TestSuite suite= new TestSuite();
+		suite.addTest(new TestPriorizationSuite2("testD"));
+		suite.addTest(new TestPriorizationSuite2("testE"));
+		suite.addTest(new TestPriorizationSuite2("testF"));
+
+		TestDurations durations= new TestDurations();
+		durations.put("testD(" + SUITE2 + ")", 30, false);
+		durations.put("testE(" + SUITE2 + ")", 20, false);
+		durations.put("testF(" + SUITE2 + ")", 100, true);
+		assertOrder(new DurationPrioritizer(durations).prioritize(suite), new String[] { "testE", "testD", "testF" });
+
+		durations.setFailFast(true);
+		assertOrder(new DurationPrioritizer(durations).prioritize(suite), new String[] { "testF", "testE", "testD" });
+	}
+
+	private static void assertOrder(Test test, String[] expected) {
+		List<String> order= new ArrayList<>();
+		collectOrder(test, order);
+		assertEquals(Arrays.asList(expected), order);
+	}
+
+	private static void collectOrder(Test test, List<String> order) {
+		if (test instanceof TestCase) {
+			order.add(((TestCase) test).getName());
+		} else if (test instanceof TestSuite) {
+			for (Enumeration<Test> e= ((TestSuite) test).tests(); e.hasMoreElements();) {
+				collectOrder(e.nextElement(), order);
+			}
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+import org.eclipse.jdt.junit.model.ITestElement.FailureTrace;
+
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
+import org.eclipse.jdt.internal.junit.model.JUnitModel;
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestRoot;
+import org.eclipse.jdt.internal.junit.model.TestRunSession;
+import org.eclipse.jdt.internal.junit.model.TestRunSessionSwapFile;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the compact swap file of test run sessions.
+ */
+public class TestRunSessionSwapFileTest extends TestCase {
+
+	private static final int SUITES= 5;
+	private static final int TESTS= 20;
+
+	private File fFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		fFile= File.createTempFile("testrun", "." + TestRunSessionSwapFile.EXTENSION);
+		InstanceScope.INSTANCE.getNode(JUnitCorePlugin.CORE_PLUGIN_ID).putBoolean(JUnitPreferencesConstants.COMPACT_SWAP_FILES, true);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		InstanceScope.INSTANCE.getNode(JUnitCorePlugin.CORE_PLUGIN_ID).remove(JUnitPreferencesConstants.COMPACT_SWAP_FILES);
+		fFile.delete();
+	}
+
+	/**
+	 * Creates a session with suites of tests. Every third test fails, every seventh test is a
+	 * comparison failure and every fifth test is ignored.
+	 *
+	 * @return the session
+	 */
+	private static TestRunSession createSession() {
+		TestRunSession session= new TestRunSession("SwapFileTest", null);
+		TestRoot root= session.getTestRoot();
+		int id= 0;
+		for (int s= 0; s < SUITES; s++) {
+			TestSuiteElement suite= (TestSuiteElement) session.createTestElement(root, String.valueOf(id++), "p.Suite" + s, true, 0, false, "Suite " + s, null, "[engine:junit]/[class:p.Suite" + s + "]");
+			for (int t= 0; t < TESTS; t++) {
+				String[] parameterTypes= t % 2 == 0 ? new String[] { "int", "java.lang.String" } : null;
+				TestCaseElement test= (TestCaseElement) session.createTestElement(suite, String.valueOf(id++), "test" + t + "(p.Suite" + s + ")", false, 0, t % 4 == 0, null, parameterTypes, null);
+				if (t % 5 == 0) {
+					test.setIgnored(true);
+					session.registerTestEnded(test, false);
+				} else if (t % 7 == 0) {
+					test.setStatus(Status.RUNNING);
+					session.registerTestFailureStatus(test, Status.FAILURE, "junit.framework.ComparisonFailure: " + t + "\n\tat p.Suite" + s + ".test" + t, "expected\n" + t, "actual\n" + t);
+					session.registerTestEnded(test, true);
+				} else if (t % 3 == 0) {
+					test.setStatus(Status.RUNNING);
+					session.registerTestFailureStatus(test, Status.ERROR, "java.lang.IllegalStateException: ä€ " + t, null, null);
+					session.registerTestEnded(test, true);
+				} else {
+					test.setStatus(Status.RUNNING);
+					test.setStatus(Status.OK);
+					session.registerTestEnded(test, true);
+				}
+				test.setElapsedTimeInSeconds(t / 1000d);
+			}
+		}
+		return session;
+	}
+
+	private static void assertEqualElements(TestElement expected, TestElement actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getTestName(), actual.getTestName());
+		assertEquals(expected.getDisplayName(), actual.getDisplayName());
+		assertEquals(expected.getUniqueId(), actual.getUniqueId());
+		String[] expectedTypes= expected.getParameterTypes();
+		String[] actualTypes= actual.getParameterTypes();
+		if (expectedTypes == null) {
+			assertNull(actualTypes);
+		} else {
+			assertEquals(expectedTypes.length, actualTypes.length);
+			for (int i= 0; i < expectedTypes.length; i++) {
+				assertEquals(expectedTypes[i], actualTypes[i]);
+			}
+		}
+		assertEquals(expected.getStatus(), actual.getStatus());
+		assertEquals(expected.getTestResult(true), actual.getTestResult(true));
+		assertEquals(expected.getElapsedTimeInSeconds(), actual.getElapsedTimeInSeconds(), 0);
+		assertEquals(expected.isComparisonFailure(), actual.isComparisonFailure());
+		assertEquals(expected.getTrace(), actual.getTrace());
+		assertEquals(expected.getExpected(), actual.getExpected());
+		assertEquals(expected.getActual(), actual.getActual());
+
+		if (expected instanceof TestCaseElement) {
+			assertEquals(((TestCaseElement) expected).isIgnored(), ((TestCaseElement) actual).isIgnored());
+			assertEquals(((TestCaseElement) expected).isDynamicTest(), ((TestCaseElement) actual).isDynamicTest());
+		} else {
+			ITestElement[] expectedChildren= ((TestSuiteElement) expected).getChildren();
+			ITestElement[] actualChildren= ((TestSuiteElement) actual).getChildren();
+			assertEquals(expectedChildren.length, actualChildren.length);
+			for (int i= 0; i < expectedChildren.length; i++) {
+				assertSame(actual, ((TestElement) actualChildren[i]).getParent());
+				assertEqualElements((TestElement) expectedChildren[i], (TestElement) actualChildren[i]);
+			}
+		}
+	}
+
+	public void testWriteRead() throws Exception {
+		TestRunSession session= createSession();
+		new TestRunSessionSwapFile(fFile, session).write(session.getTestRoot());
+
+		TestRunSession swapped= new TestRunSession("SwapFileTest", null);
+		TestRoot root= new TestRunSessionSwapFile(fFile, swapped).read();
+		assertEqualElements(session.getTestRoot(), root);
+	}
+
+	public void testLazyLoading() throws Exception {
+		TestRunSession session= createSession();
+		new TestRunSessionSwapFile(fFile, session).write(session.getTestRoot());
+
+		TestRunSession swapped= new TestRunSession("SwapFileTest", null);
+		TestRoot root= new TestRunSessionSwapFile(fFile, swapped).read();
+
+		// the status of the root is known before its children are read
+		assertEquals(session.getTestRoot().getStatus(), root.getStatus());
+
+		ITestElement[] suites= root.getChildren();
+		assertEquals(SUITES, suites.length);
+		assertSame(suites[0], swapped.getTestElement("0"));
+
+		ITestElement[] tests= ((TestSuiteElement) suites[0]).getChildren();
+		assertEquals(TESTS, tests.length);
+		TestElement failed= (TestElement) tests[7];
+		assertSame(failed, swapped.getTestElement("8"));
+		assertTrue(failed.isComparisonFailure());
+		FailureTrace failureTrace= failed.getFailureTrace();
+		assertEquals("expected\n7", failureTrace.getExpected());
+		assertEquals("actual\n7", failureTrace.getActual());
+	}
+
+	public void testLookupById() throws Exception {
+		TestRunSession session= createSession();
+		new TestRunSessionSwapFile(fFile, session).write(session.getTestRoot());
+
+		TestRunSession swapped= new TestRunSession("SwapFileTest", null);
+		TestRoot root= new TestRunSessionSwapFile(fFile, swapped).read();
+
+		// the ids are known before the children are read, a lookup reads the path to the element
+		String lastId= String.valueOf(SUITES * (TESTS + 1) - 1);
+		TestElement last= swapped.getTestElement(lastId);
+		assertNotNull(last);
+		assertEquals(session.getTestElement(lastId).getTestName(), last.getTestName());
+		TestSuiteElement lastSuite= (TestSuiteElement) root.getChildren()[SUITES - 1];
+		assertSame(lastSuite, last.getParent());
+		assertSame(last, lastSuite.getChildren()[TESTS - 1]);
+		assertSame(lastSuite, swapped.getTestElement(lastSuite.getId()));
+		assertNull(swapped.getTestElement("unknown"));
+	}
+
+	public void testSwapOutSwapIn() throws Exception {
+		TestRunSession session= createSession();
+		ByteArrayOutputStream before= new ByteArrayOutputStream();
+		JUnitModel.exportTestRunSession(session, before);
+
+		session.swapOut();
+		try {
+			ByteArrayOutputStream after= new ByteArrayOutputStream();
+			JUnitModel.exportTestRunSession(session, after);
+			assertEquals(before.toString("UTF-8"), after.toString("UTF-8"));
+
+			// swapping out a swapped in session reuses the swap file
+			session.swapOut();
+			ByteArrayOutputStream again= new ByteArrayOutputStream();
+			JUnitModel.exportTestRunSession(session, again);
+			assertEquals(before.toString("UTF-8"), again.toString("UTF-8"));
+		} finally {
+			session.removeSwapFile();
+		}
+	}
+}
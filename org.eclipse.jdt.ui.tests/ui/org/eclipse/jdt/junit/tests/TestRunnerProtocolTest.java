@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.launching.SocketUtil;
+
+import org.eclipse.jdt.internal.junit.model.ITestRunListener2;
+import org.eclipse.jdt.internal.junit.model.RemoteTestRunnerClient;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that the binary protocol between the RemoteTestRunner and the RemoteTestRunnerClient
+ * reports the same events as the text protocol.
+ */
+public class TestRunnerProtocolTest extends TestCase {
+
+	/**
+	 * Records the events of a test run.
+	 */
+	public static class RecordingListener implements ITestRunListener2 {
+		private final List<String> fEvents;
+		private final CountDownLatch fDone= new CountDownLatch(1);
+
+		/**
+		 * @param record <code>true</code> to record the events, <code>false</code> to only wait for the end of the run
+		 */
+		public RecordingListener(boolean record) {
+			fEvents= record ? new ArrayList<String>() : null;
+		}
+
+		private void add(String event) {
+			if (fEvents != null)
+				fEvents.add(event);
+		}
+
+		public List<String> getEvents() {
+			return fEvents;
+		}
+
+		public void waitForEnd(long timeout) throws InterruptedException {
+			assertTrue("Test run did not end", fDone.await(timeout, TimeUnit.MILLISECONDS));
+		}
+
+		@Override
+		public void testRunStarted(int testCount) {
+			add("runStarted " + testCount);
+		}
+
+		@Override
+		public void testRunEnded(long elapsedTime) {
+			add("runEnded " + elapsedTime);
+			fDone.countDown();
+		}
+
+		@Override
+		public void testRunStopped(long elapsedTime) {
+			add("runStopped " + elapsedTime);
+			fDone.countDown();
+		}
+
+		@Override
+		public void testRunTerminated() {
+			add("runTerminated");
+			fDone.countDown();
+		}
+
+		@Override
+		public void testStarted(String testId, String testName) {
+			add("started " + testId + " " + testName);
+		}
+
+		@Override
+		public void testEnded(String testId, String testName) {
+			add("ended " + testId + " " + testName);
+		}
+
+		@Override
+		public void testTreeEntry(String description) {
+			add("tree " + description);
+		}
+
+		@Override
+		public void testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+			add("failed " + status + " " + testId + " " + testName + "\n" + trace + "\nexpected: " + expected + "\nactual: " + actual);
+		}
+
+		@Override
+		public void testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+			add("reran " + status + " " + testId + " " + testClass + " " + testName + "\n" + trace + "\nexpected: " + expected + "\nactual: " + actual);
+		}
+	}
+
+	/**
+	 * Runs a synthetic test run through a client.
+	 *
+	 * @param binary <code>true</code> to use the binary protocol
+	 * @param listener the listener of the client
+	 * @param testCount the number of tests
+	 * @param failureInterval the interval of failing tests
+	 * @param traceDepth the number of stack frames of a failure trace
+	 * @throws Exception if the run fails
+	 */
+	public static void run(boolean binary, RecordingListener listener, int testCount, int failureInterval, int traceDepth) throws Exception {
+		int port= SocketUtil.findFreePort();
+		RemoteTestRunnerClient client= new RemoteTestRunnerClient();
+		client.startListening(new ITestRunListener2[] { listener }, port);
+		RemoteTestRunnerSimulator runner= new RemoteTestRunnerSimulator(binary);
+		runner.connect(port);
+		try {
+			runner.sendRun(testCount, failureInterval, traceDepth);
+			listener.waitForEnd(60 * 1000);
+		} finally {
+			runner.close();
+		}
+	}
+
+	private static List<String> run(boolean binary) throws Exception {
+		RecordingListener listener= new RecordingListener(true);
+		run(binary, listener, 100, 7, 20);
+		return listener.getEvents();
+	}
+
+	public void testBinarySameAsText() throws Exception {
+		List<String> text= run(false);
+		List<String> binary= run(true);
+		assertEquals(text.size(), binary.size());
+		for (int i= 0; i < text.size(); i++) {
+			assertEquals(text.get(i), binary.get(i));
+		}
+		assertEquals("runStarted 100", binary.get(0));
+		assertEquals("runEnded 42", binary.get(binary.size() - 1));
+	}
+
+	public void testUnsupportedBinaryVersion() throws Exception {
+		RecordingListener listener= new RecordingListener(true);
+		int port= SocketUtil.findFreePort();
+		RemoteTestRunnerClient client= new RemoteTestRunnerClient();
+		client.startListening(new ITestRunListener2[] { listener }, port);
+		RemoteTestRunnerSimulator runner= new RemoteTestRunnerSimulator(true, BinaryMessageWriter.VERSION + 1);
+		runner.connect(port);
+		try {
+			runner.sendRun(10, 3, 5);
+			listener.waitForEnd(60 * 1000);
+		} finally {
+			runner.close();
+		}
+		// the frames must not be read as text messages
+		assertEquals(Collections.singletonList("runTerminated"), listener.getEvents());
+	}
+
+	public void testFailure() throws Exception {
+		List<String> binary= run(true);
+		String failure= null;
+		for (String event : binary) {
+			if (event.startsWith("failed ")) {
+				failure= event;
+				break;
+			}
+		}
+		assertNotNull(failure);
+		assertTrue(failure, failure.startsWith("failed " + ITestRunListener2.STATUS_FAILURE + " 2 test[0](p.ParameterizedTest)\njunit.framework.ComparisonFailure"));
+		assertTrue(failure, failure.endsWith("\nexpected: a\nline 0\nactual: b\nline 0"));
+	}
+}
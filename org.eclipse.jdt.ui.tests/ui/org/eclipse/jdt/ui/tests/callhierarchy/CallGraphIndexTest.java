@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.callhierarchy;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IMember;
+
+import org.eclipse.jdt.internal.corext.callhierarchy.CallGraphIndex;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
+import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
+
+/**
+ * Tests that the results of the {@link CallGraphIndex} are updated when compilation units change.
+ */
+public class CallGraphIndexTest extends TestCase {
+
+	private static final Class<CallGraphIndexTest> THIS= CallGraphIndexTest.class;
+
+	private CallHierarchyTestHelper helper;
+
+	public CallGraphIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		helper= new CallHierarchyTestHelper();
+		helper.setUp();
+		helper.createSimpleClasses();
+		CallGraphIndex.getDefault().clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		helper.tearDown();
+		helper= null;
+	}
+
+	private static MethodWrapper[] getCallers(IMember member) {
+		MethodWrapper[] roots= CallHierarchy.getDefault().getCallerRoots(new IMember[] { member });
+		return roots[0].getCalls(new NullProgressMonitor());
+	}
+
+	private static MethodWrapper[] getCallees(IMember member) {
+		MethodWrapper[] roots= CallHierarchy.getDefault().getCalleeRoots(new IMember[] { member });
+		return roots[0].getCalls(new NullProgressMonitor());
+	}
+
+	private void changeTypeB(String oldBody, String newBody) throws Exception {
+		ICompilationUnit cu= helper.getType2().getCompilationUnit();
+		IBuffer buffer= cu.getBuffer();
+		String contents= buffer.getContents();
+		int offset= contents.indexOf(oldBody);
+		assertTrue(offset != -1);
+		buffer.replace(offset, oldBody.length(), newBody);
+		cu.save(null, true);
+	}
+
+	public void testCallersAfterChangedUnit() throws Exception {
+		helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, getCallers(helper.getMethod1()));
+		// second query is answered from the index
+		helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, getCallers(helper.getMethod1()));
+
+		changeTypeB("method4() { method3(); }", "method4() { method3(); method1(); }");
+		helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3(), helper.getMethod4() }, getCallers(helper.getMethod1()));
+
+		changeTypeB("method3() { method1(); method2(); }", "method3() { method2(); }");
+		helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod4() }, getCallers(helper.getMethod1()));
+	}
+
+	public void testCalleesAfterChangedUnit() throws Exception {
+		helper.assertCalls(new IMember[] { helper.getMethod1(), helper.getMethod2() }, getCallees(helper.getMethod3()));
+		helper.assertCalls(new IMember[] { helper.getMethod1(), helper.getMethod2() }, getCallees(helper.getMethod3()));
+
+		changeTypeB("method3() { method1(); method2(); }", "method3() { method1(); }");
+		helper.assertCalls(new IMember[] { helper.getMethod1() }, getCallees(helper.getMethod3()));
+	}
+
+	public void testCalleesAfterChangedUnitOnDisk() throws Exception {
+		helper.assertCalls(new IMember[] { helper.getMethod1(), helper.getMethod2() }, getCallees(helper.getMethod3()));
+
+		// the callee's unit changes, the caller's unit stays the same
+		IFile file= (IFile) helper.getType1().getCompilationUnit().getResource();
+		String contents= helper.getType1().getCompilationUnit().getSource();
+		String oldDeclaration= "public void method1() {";
+		int offset= contents.indexOf(oldDeclaration);
+		assertTrue(offset != -1);
+		contents= contents.substring(0, offset) + "public void method1(int... values) {" + contents.substring(offset + oldDeclaration.length());
+		file.setContents(new ByteArrayInputStream(contents.getBytes(file.getCharset())), IResource.FORCE, null);
+
+		IMember method1= helper.getType1().getMethod("method1", new String[] { "[I" });
+		helper.assertCalls(new IMember[] { method1, helper.getMethod2() }, getCallees(helper.getMethod3()));
+	}
+}
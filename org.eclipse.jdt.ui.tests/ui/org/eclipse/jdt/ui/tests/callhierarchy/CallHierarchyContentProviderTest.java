@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.callhierarchy;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -129,6 +134,43 @@ public class CallHierarchyContentProviderTest extends TestCase {
         assertEquals("fourth level hasChildren", true, fProvider.hasChildren(thirdLevelChildren[0]));
     }
 
+    /**
+     * Tests that a concurrently expanded callers tree is returned by getChildren from the cache.
+     *
+     * @throws JavaModelException
+     * @throws CoreException
+     */
+    public void testGetChildrenOfExpandedCallerRoot() throws JavaModelException, CoreException {
+        helper.createSimpleClasses();
+
+        MethodWrapper[] roots= CallHierarchy.getDefault().getCallerRoots(new IMember[] { helper.getMethod1() });
+        final Map<MethodWrapper, MethodWrapper[]> expanded= Collections.synchronizedMap(new HashMap<MethodWrapper, MethodWrapper[]>());
+        int parallelism= CallHierarchy.getDefault().getExpansionParallelism();
+        CallHierarchy.getDefault().setExpansionParallelism(4);
+        try {
+            CallHierarchy.getDefault().expand(roots, DEFAULT_MAX_DEPTH, new CallHierarchy.IExpansionListener() {
+                @Override
+                public void callsFound(MethodWrapper wrapper, MethodWrapper[] calls) {
+                    assertNull("Expanded twice", expanded.put(wrapper, calls));
+                }
+            }, null);
+        } finally {
+            CallHierarchy.getDefault().setExpansionParallelism(parallelism);
+        }
+        // method1, method2, method3 (twice) and method4 (twice)
+        assertEquals("Wrong number of expanded wrappers", 6, expanded.size());
+
+        Object[] secondLevelChildren= fProvider.getChildren(roots[0]);
+        assertTrue(Arrays.equals(expanded.get(roots[0]), secondLevelChildren));
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3()}, secondLevelChildren);
+
+        MethodWrapper thirdLevelMethodWrapper= helper.findMethodWrapper(helper.getMethod3(), secondLevelChildren);
+        assertNotNull("method3() not found", thirdLevelMethodWrapper);
+        Object[] thirdLevelChildren= fProvider.getChildren(thirdLevelMethodWrapper);
+        assertTrue(Arrays.equals(expanded.get(thirdLevelMethodWrapper), thirdLevelChildren));
+        helper.assertCalls(new IMember[] { helper.getMethod4()}, thirdLevelChildren);
+    }
+
     /**
      * Tests getChildren and hasChildren on an callers tree which exceeds the max call depth.
      *
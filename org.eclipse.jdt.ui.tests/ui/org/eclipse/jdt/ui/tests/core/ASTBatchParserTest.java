@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
+import org.eclipse.jdt.internal.corext.dom.ASTBatchSizer;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests {@link ASTBatchParser} and {@link ASTBatchSizer}.
+ */
+public class ASTBatchParserTest extends TestCase {
+
+	private static final Class<ASTBatchParserTest> THIS= ASTBatchParserTest.class;
+
+	private static final int UNITS_PER_PROJECT= 20;
+
+	private IJavaProject fJProject1;
+	private IJavaProject fJProject2;
+	private ICompilationUnit[] fUnits;
+
+	public ASTBatchParserTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		JavaProjectHelper.addRTJar(fJProject1);
+		fJProject2= JavaProjectHelper.createJavaProject("TestProject2", "bin");
+		JavaProjectHelper.addRTJar(fJProject2);
+
+		List<ICompilationUnit> units= new ArrayList<>();
+		createUnits(fJProject1, units);
+		createUnits(fJProject2, units);
+		fUnits= units.toArray(new ICompilationUnit[units.size()]);
+	}
+
+	private static void createUnits(IJavaProject project, List<ICompilationUnit> result) throws Exception {
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(project, "src");
+		IPackageFragment pack= sourceFolder.createPackageFragment("test", false, null);
+		for (int i= 0; i < UNITS_PER_PROJECT; i++) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package test;\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("    String foo() { return \"" + i + "\"; }\n");
+			buf.append("}\n");
+			result.add(pack.createCompilationUnit("E" + i + ".java", buf.toString(), false, null));
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fJProject1);
+		JavaProjectHelper.delete(fJProject2);
+	}
+
+	private Map<ICompilationUnit, String> createASTs(int parallelism) {
+		final Map<ICompilationUnit, String> result= new HashMap<>();
+		ASTBatchParser parser= new ASTBatchParser();
+		parser.setParallelism(parallelism);
+		parser.createASTs(fUnits, new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				assertNull(result.put(source, ast.toString()));
+				assertEquals(0, ast.getProblems().length);
+			}
+		}, null);
+		return result;
+	}
+
+	public void testSequential() throws Exception {
+		Map<ICompilationUnit, String> asts= createASTs(1);
+		assertEquals(fUnits.length, asts.size());
+	}
+
+	public void testParallelSameAsSequential() throws Exception {
+		Map<ICompilationUnit, String> sequential= createASTs(1);
+		Map<ICompilationUnit, String> parallel= createASTs(4);
+		assertEquals(sequential, parallel);
+	}
+
+	public void testChunksDoNotMixProjects() throws Exception {
+		ICompilationUnit[] units1= new ICompilationUnit[UNITS_PER_PROJECT];
+		ICompilationUnit[] units2= new ICompilationUnit[UNITS_PER_PROJECT];
+		System.arraycopy(fUnits, 0, units1, 0, UNITS_PER_PROJECT);
+		System.arraycopy(fUnits, UNITS_PER_PROJECT, units2, 0, UNITS_PER_PROJECT);
+
+		ASTBatchSizer sizer= new ASTBatchSizer(new ICompilationUnit[][] { units1, units2 }, 1);
+		int count= 0;
+		ASTBatchSizer.Chunk chunk;
+		while ((chunk= sizer.nextChunk()) != null) {
+			ICompilationUnit[] units= chunk.getUnits();
+			assertTrue(units.length > 0);
+			for (int i= 0; i < units.length; i++) {
+				assertEquals(units[0].getJavaProject(), units[i].getJavaProject());
+				assertEquals(fUnits[count + i], units[i]);
+			}
+			assertTrue(chunk.getSourceLength() > 0);
+			sizer.chunkDone(chunk);
+			count+= units.length;
+		}
+		assertEquals(fUnits.length, count);
+		assertTrue(sizer.getBytesPerChar() > 0);
+	}
+
+	public void testMinimumUnitsPerChunk() throws Exception {
+		ICompilationUnit[] units1= new ICompilationUnit[UNITS_PER_PROJECT];
+		System.arraycopy(fUnits, 0, units1, 0, UNITS_PER_PROJECT);
+
+		// with this parallelism the heap budget of a chunk is 0 characters
+		ASTBatchSizer sizer= new ASTBatchSizer(new ICompilationUnit[][] { units1 }, Integer.MAX_VALUE);
+		int count= 0;
+		ASTBatchSizer.Chunk chunk;
+		while ((chunk= sizer.nextChunk()) != null) {
+			assertTrue(chunk.getUnits().length > 1);
+			sizer.chunkDone(chunk);
+			count+= chunk.getUnits().length;
+		}
+		assertEquals(UNITS_PER_PROJECT, count);
+	}
+
+	public void testEstimateDoesNotJump() throws Exception {
+		ICompilationUnit[][] unitsByProject= new ICompilationUnit[fUnits.length][];
+		for (int i= 0; i < fUnits.length; i++) {
+			unitsByProject[i]= new ICompilationUnit[] { fUnits[i] };
+		}
+
+		ASTBatchSizer sizer= new ASTBatchSizer(unitsByProject, 1);
+		ASTBatchSizer.Chunk chunk;
+		while ((chunk= sizer.nextChunk()) != null) {
+			long previousEstimate= sizer.getBytesPerChar();
+			// allocations of other threads make the measured growth noisy
+			byte[][] garbage= new byte[64][];
+			for (int i= 0; i < garbage.length; i++) {
+				garbage[i]= new byte[64 * 1024];
+			}
+			sizer.chunkDone(chunk);
+			assertEquals(64 * 1024, garbage[garbage.length - 1].length);
+			assertTrue("estimate jumped to " + sizer.getBytesPerChar(), sizer.getBytesPerChar() <= 2 * previousEstimate);
+		}
+	}
+}
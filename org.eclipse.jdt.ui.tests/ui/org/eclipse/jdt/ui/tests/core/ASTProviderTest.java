@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,12 +32,17 @@ import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.manipulation.CoreASTProvider;
 import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
 
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
+import org.eclipse.jdt.internal.core.manipulation.ASTCache;
+
 
 /**
  * Tests the AST provider.
@@ -144,6 +149,92 @@ public class ASTProviderTest extends CoreTests {
 		cu.getBuffer().save(null, true);
 	}
 
+	public void testASTOfInactiveEditorIsCached() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E1 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu1= pack1.createCompilationUnit("E1.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E2 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu2= pack1.createCompilationUnit("E2.java", buf.toString(), false, null);
+
+		JavaUI.openInEditor(cu1);
+		CompilationUnit ast1= SharedASTProvider.getAST(cu1, SharedASTProvider.WAIT_ACTIVE_ONLY, null);
+		assertNotNull(ast1);
+
+		JavaUI.openInEditor(cu2);
+		assertNotNull(SharedASTProvider.getAST(cu2, SharedASTProvider.WAIT_ACTIVE_ONLY, null));
+
+		ASTCache cache= CoreASTProvider.getInstance().getASTCache();
+		int hits= cache.getHits();
+		assertSame(ast1, SharedASTProvider.getAST(cu1, SharedASTProvider.WAIT_NO, null));
+		assertEquals(hits + 1, cache.getHits());
+
+		cu1.getBuffer().append("// changed\n");
+		assertNull(SharedASTProvider.getAST(cu1, SharedASTProvider.WAIT_NO, null));
+		cu1.getBuffer().save(null, true);
+	}
+
+	public void testCachedASTInvalidatedByChangeWithSameHash() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E1 {\n");
+		buf.append("    int Aa;\n");
+		buf.append("}\n");
+		ICompilationUnit cu1= pack1.createCompilationUnit("E1.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E2 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu2= pack1.createCompilationUnit("E2.java", buf.toString(), false, null);
+
+		JavaUI.openInEditor(cu1);
+		assertNotNull(SharedASTProvider.getAST(cu1, SharedASTProvider.WAIT_ACTIVE_ONLY, null));
+		JavaUI.openInEditor(cu2);
+		assertNotNull(SharedASTProvider.getAST(cu2, SharedASTProvider.WAIT_ACTIVE_ONLY, null));
+
+		// "Aa" and "BB" have the same hash code, the buffer keeps its length and hash code
+		String contents= cu1.getBuffer().getContents();
+		cu1.getBuffer().replace(contents.indexOf("Aa"), 2, "BB");
+		assertEquals(contents.hashCode(), cu1.getBuffer().getContents().hashCode());
+		assertNull(SharedASTProvider.getAST(cu1, SharedASTProvider.WAIT_NO, null));
+		cu1.getBuffer().save(null, true);
+	}
+
+	public void testRemovedPackageInvalidatesOnlyItsASTs() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit cu1= pack1.createCompilationUnit("E1.java", "package test1;\npublic class E1 {\n}\n", false, null);
+		IPackageFragment pack2= fSourceFolder.createPackageFragment("test2", false, null);
+		ICompilationUnit cu2= pack2.createCompilationUnit("E2.java", "package test2;\npublic class E2 {\n}\n", false, null);
+
+		ASTCache cache= new ASTCache();
+		try {
+			CompilationUnit ast1= createAST(cu1);
+			cache.put(cu1, ast1);
+			cache.put(cu2, createAST(cu2));
+			assertEquals(2, cache.size());
+
+			pack2.delete(true, null);
+			assertEquals(1, cache.size());
+			assertSame(ast1, cache.get(cu1));
+		} finally {
+			cache.dispose();
+		}
+	}
+
+	private static CompilationUnit createAST(ICompilationUnit cu) {
+		ASTParser parser= ASTParser.newParser(AST.JLS9);
+		parser.setSource(cu);
+		return (CompilationUnit) parser.createAST(null);
+	}
+
 	private static String getNormalizeNumber(int number) {
 		if (number < 10) {
 			return "000" + number;
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.examples.AddTestMarkersAction;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.viewsupport.IProblemChangedListener;
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemMarkerIndex;
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemMarkerManager;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests {@link ProblemMarkerIndex} and its maintenance by the {@link ProblemMarkerManager}.
+ */
+public class ProblemMarkerIndexTest extends TestCase {
+
+	private static final Class<ProblemMarkerIndexTest> THIS= ProblemMarkerIndexTest.class;
+
+	private IJavaProject fJProject1;
+	private IResource fFile;
+	private ProblemMarkerManager fManager;
+	private IProblemChangedListener fListener;
+
+	public ProblemMarkerIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack= sourceFolder.createPackageFragment("test", false, null);
+		ICompilationUnit cu= pack.createCompilationUnit("E.java", "package test;\npublic class E {\n}\n", false, null);
+		fFile= cu.getResource();
+
+		fManager= JavaPlugin.getDefault().getProblemMarkerManager();
+		fListener= new IProblemChangedListener() {
+			@Override
+			public void problemsChanged(IResource[] changedResources, boolean isMarkerChange) {
+				// the index is only maintained while listeners are registered
+			}
+		};
+		fManager.addListener(fListener);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fManager.removeListener(fListener);
+		JavaProjectHelper.delete(fJProject1);
+	}
+
+	private IMarker createMarker(int start, int severity) throws Exception {
+		// a problem marker which is also a text marker
+		IMarker marker= fFile.createMarker(AddTestMarkersAction.MARKER_TYPE);
+		marker.setAttribute(IMarker.CHAR_START, start);
+		marker.setAttribute(IMarker.CHAR_END, start + 1);
+		marker.setAttribute(IMarker.SEVERITY, severity);
+		return marker;
+	}
+
+	public void testEmpty() throws Exception {
+		ProblemMarkerIndex index= fManager.getMarkerIndex(fFile);
+		assertNotNull(index);
+		assertEquals(0, index.size());
+		assertEquals(-1, index.getMaxSeverity(0, Integer.MAX_VALUE / 2));
+	}
+
+	public void testMaxSeverity() throws Exception {
+		for (int i= 0; i < 1000; i++)
+			createMarker(i * 10, IMarker.SEVERITY_WARNING);
+		createMarker(505, IMarker.SEVERITY_ERROR);
+		createMarker(5005, IMarker.SEVERITY_INFO);
+
+		ProblemMarkerIndex index= fManager.getMarkerIndex(fFile);
+		assertEquals(1002, index.size());
+		assertEquals(IMarker.SEVERITY_ERROR, index.getMaxSeverity(500, 10));
+		assertEquals(IMarker.SEVERITY_WARNING, index.getMaxSeverity(500, 5));
+		assertEquals(IMarker.SEVERITY_ERROR, index.getMaxSeverity(505, 1));
+		assertEquals(-1, index.getMaxSeverity(506, 4));
+		assertEquals(IMarker.SEVERITY_INFO, index.getMaxSeverity(5001, 9));
+		assertEquals(-1, index.getMaxSeverity(10000, 100));
+		assertEquals(IMarker.SEVERITY_ERROR, index.getMaxSeverity(0, 10000));
+	}
+
+	public void testIgnoredMarkers() throws Exception {
+		createMarker(10, IMarker.SEVERITY_WARNING);
+		IMarker noOffset= fFile.createMarker(AddTestMarkersAction.MARKER_TYPE);
+		noOffset.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+		IMarker noText= fFile.createMarker(IMarker.PROBLEM);
+		noText.setAttribute(IMarker.CHAR_START, 10);
+		noText.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+		IMarker task= fFile.createMarker(IMarker.TASK);
+		task.setAttribute(IMarker.CHAR_START, 10);
+
+		ProblemMarkerIndex index= fManager.getMarkerIndex(fFile);
+		assertEquals(1, index.size());
+		assertEquals(IMarker.SEVERITY_WARNING, index.getMaxSeverity(0, 100));
+	}
+
+	public void testMarkerChanges() throws Exception {
+		IMarker marker= createMarker(10, IMarker.SEVERITY_WARNING);
+		ProblemMarkerIndex index= fManager.getMarkerIndex(fFile);
+		assertSame(index, fManager.getMarkerIndex(fFile));
+		assertEquals(IMarker.SEVERITY_WARNING, index.getMaxSeverity(0, 20));
+
+		// moving a marker does not change the error ticks, but the index
+		marker.setAttribute(IMarker.CHAR_START, 30);
+		index= fManager.getMarkerIndex(fFile);
+		assertEquals(-1, index.getMaxSeverity(0, 20));
+		assertEquals(IMarker.SEVERITY_WARNING, index.getMaxSeverity(20, 20));
+
+		marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+		assertEquals(IMarker.SEVERITY_ERROR, fManager.getMarkerIndex(fFile).getMaxSeverity(20, 20));
+
+		marker.delete();
+		assertEquals(0, fManager.getMarkerIndex(fFile).size());
+	}
+}
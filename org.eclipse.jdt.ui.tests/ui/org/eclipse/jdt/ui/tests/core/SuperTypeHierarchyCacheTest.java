@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+
+import org.eclipse.jdt.internal.corext.util.MethodOverrideTester;
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the lookup, invalidation, eviction and statistics of the {@link SuperTypeHierarchyCache}.
+ */
+public class SuperTypeHierarchyCacheTest extends TestCase {
+
+	private static final Class<SuperTypeHierarchyCacheTest> THIS= SuperTypeHierarchyCacheTest.class;
+
+	private IJavaProject fJProject1;
+	private IPackageFragment fPackage;
+
+	public SuperTypeHierarchyCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPackage= sourceFolder.createPackageFragment("test", false, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		SuperTypeHierarchyCache.setCacheBudget(0, 0);
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private IType createType(String name, String superclass) throws Exception {
+		String source= "package test;\npublic class " + name + (superclass != null ? " extends " + superclass : "") + " {\n}\n";
+		ICompilationUnit cu= fPackage.createCompilationUnit(name + ".java", source, false, null);
+		return cu.getType(name);
+	}
+
+	public void testSupertypesShareHierarchy() throws Exception {
+		IType a= createType("A", null);
+		IType b= createType("B", "A");
+		IType c= createType("C", "B");
+
+		int hits= SuperTypeHierarchyCache.getCacheHits();
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(c);
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+		assertTrue(SuperTypeHierarchyCache.hasInCache(a));
+
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(b));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(a));
+		assertEquals(hits + 2, SuperTypeHierarchyCache.getCacheHits());
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+	}
+
+	public void testMethodOverrideTester() throws Exception {
+		createType("A", null);
+		IType b= createType("B", "A");
+
+		MethodOverrideTester tester= SuperTypeHierarchyCache.getMethodOverrideTester(b);
+		assertSame(tester, SuperTypeHierarchyCache.getMethodOverrideTester(b));
+		assertTrue(tester.getTypeHierarchy().contains(b));
+		assertSame(tester.getTypeHierarchy(), SuperTypeHierarchyCache.getTypeHierarchy(b));
+	}
+
+	public void testChangedHierarchy() throws Exception {
+		IType a= createType("A", null);
+		IType b= createType("B", "A");
+
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(b);
+		assertTrue(SuperTypeHierarchyCache.hasInCache(a));
+
+		b.getCompilationUnit().delete(true, null);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(a));
+
+		b= createType("B", null);
+		assertNotSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(b));
+		assertFalse(SuperTypeHierarchyCache.getTypeHierarchy(b).contains(a));
+	}
+
+	public void testOlderHierarchyAfterRemoval() throws Exception {
+		IType a= createType("A", null);
+		IType b= createType("B", "A");
+
+		ITypeHierarchy hierarchyA= SuperTypeHierarchyCache.getTypeHierarchy(a);
+		ITypeHierarchy hierarchyB= SuperTypeHierarchyCache.getTypeHierarchy(b);
+		assertSame(hierarchyB, SuperTypeHierarchyCache.getTypeHierarchy(a));
+
+		// removes the hierarchy of B, A is still found in its own hierarchy
+		b.getCompilationUnit().delete(true, null);
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+		assertSame(hierarchyA, SuperTypeHierarchyCache.getTypeHierarchy(a));
+		assertEquals(misses, SuperTypeHierarchyCache.getCacheMisses());
+	}
+
+	public void testLeastRecentlyAccessedEvicted() throws Exception {
+		SuperTypeHierarchyCache.setCacheBudget(3, 0);
+		IType[] types= new IType[4];
+		for (int i= 0; i < types.length; i++)
+			types[i]= createType("T" + i, null);
+
+		int evictions= SuperTypeHierarchyCache.getCacheEvictions();
+		SuperTypeHierarchyCache.getTypeHierarchy(types[0]);
+		SuperTypeHierarchyCache.getTypeHierarchy(types[1]);
+		SuperTypeHierarchyCache.getTypeHierarchy(types[2]);
+		SuperTypeHierarchyCache.getTypeHierarchy(types[0]);
+		SuperTypeHierarchyCache.getTypeHierarchy(types[3]);
+
+		assertTrue(SuperTypeHierarchyCache.getCacheEvictions() > evictions);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(types[1]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[0]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[2]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[3]));
+	}
+
+	public void testTypeBudget() throws Exception {
+		// each hierarchy contains its type and java.lang.Object
+		SuperTypeHierarchyCache.setCacheBudget(0, 5);
+		IType[] types= new IType[3];
+		for (int i= 0; i < types.length; i++)
+			types[i]= createType("T" + i, null);
+
+		for (int i= 0; i < types.length; i++)
+			assertEquals(2, SuperTypeHierarchyCache.getTypeHierarchy(types[i]).getAllTypes().length);
+
+		assertFalse(SuperTypeHierarchyCache.hasInCache(types[0]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[1]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[2]));
+	}
+
+	public void testDefaultHierarchyBudget() throws Exception {
+		assertEquals(Integer.getInteger("org.eclipse.jdt.core.manipulation.typeHierarchyCacheSize", 64).intValue(), SuperTypeHierarchyCache.getMaxHierarchies());
+		assertEquals(Integer.getInteger("org.eclipse.jdt.core.manipulation.typeHierarchyCacheTypes", 20000).intValue(), SuperTypeHierarchyCache.getMaxTypes());
+
+		int max= SuperTypeHierarchyCache.getMaxHierarchies();
+		IType[] types= new IType[max + 1];
+		for (int i= 0; i < types.length; i++)
+			types[i]= createType("T" + i, null);
+
+		int evictions= SuperTypeHierarchyCache.getCacheEvictions();
+		for (int i= 0; i < types.length; i++)
+			SuperTypeHierarchyCache.getTypeHierarchy(types[i]);
+
+		assertTrue(SuperTypeHierarchyCache.getCacheEvictions() > evictions);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(types[0]));
+		for (int i= 1; i < types.length; i++)
+			assertTrue(SuperTypeHierarchyCache.hasInCache(types[i]));
+	}
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+import org.eclipse.jdt.internal.corext.util.TypeFilterMatcher;
+
+import org.eclipse.jdt.internal.ui.util.StringMatcher;
+
+/**
+ * Tests that the {@link TypeFilterMatcher} matches type names like the {@link StringMatcher}s
+ * which were used for the type filters.
+ */
+public class TypeFilterMatcherTest extends TestCase {
+
+	private static final String[] PATTERNS= {
+			"java.awt.*",
+			"java.awt.List",
+			"java.util.List",
+			"java.util.List*",
+			"java.*.L?st",
+			"*.internal.*",
+			"*Impl",
+			"sun.*",
+			"com.sun.*.Lex*er",
+			"org.eclipse.?",
+			"org.*.a*b*c",
+			"*",
+			"?",
+			"**",
+			"a\\*b",
+			"a\\?b",
+			"a\\\\b",
+			"a\\b",
+			"a\\",
+			"*.*",
+			"java.lang.Object",
+			"java.lang.Object.*",
+			"p.*.*.X",
+	};
+
+	private static final String[] NAMES= {
+			"",
+			"a",
+			"java.awt.List",
+			"java.awt",
+			"java.awt.",
+			"java.util.List",
+			"java.util.ListIterator",
+			"java.util.Lst",
+			"java.util.Last",
+			"java.lang.Object",
+			"java.lang.ObjectX",
+			"java.lang.Object.Inner",
+			"org.eclipse.jdt.internal.ui.JavaPlugin",
+			"org.eclipse.jdt.ui.JavaUI",
+			"org.eclipse.x",
+			"org.eclipse.xy",
+			"org.foo.aXbYc",
+			"org.foo.abcc",
+			"org.foo.acb",
+			"com.sun.tools.Lexer",
+			"com.sun.tools.LexicalAnalyzer",
+			"sun.misc.Unsafe",
+			"sunny.Day",
+			"p.a.b.X",
+			"p.a.X",
+			"FooImpl",
+			"foo.Impl",
+			"a*b",
+			"axb",
+			"a?b",
+			"a\\b",
+			"a\\",
+			"ab",
+			"NoPackage",
+	};
+
+	public static Test suite() {
+		return new TestSuite(TypeFilterMatcherTest.class);
+	}
+
+	public TypeFilterMatcherTest(String name) {
+		super(name);
+	}
+
+	private static boolean matchesAny(StringMatcher[] matchers, String name) {
+		for (int i= 0; i < matchers.length; i++) {
+			if (matchers[i].match(name))
+				return true;
+		}
+		return false;
+	}
+
+	private static void assertSameAsStringMatcher(String[] patterns) {
+		StringMatcher[] matchers= new StringMatcher[patterns.length];
+		for (int i= 0; i < patterns.length; i++) {
+			matchers[i]= new StringMatcher(patterns[i], false, false);
+		}
+		TypeFilterMatcher matcher= new TypeFilterMatcher(patterns);
+		for (int i= 0; i < NAMES.length; i++) {
+			String name= NAMES[i];
+			boolean expected= matchesAny(matchers, name);
+			String message= name + " " + Arrays.asList(patterns);
+			assertEquals(message, expected, matcher.matches(name));
+			assertEquals(message, expected, matcher.matches(name.toCharArray()));
+
+			int dot= name.lastIndexOf('.');
+			if (dot > 0 && dot < name.length() - 1) {
+				char[] packageName= name.substring(0, dot).toCharArray();
+				char[] typeName= name.substring(dot + 1).toCharArray();
+				assertEquals(message, expected, matcher.matches(packageName, typeName));
+			} else if (dot == -1) {
+				assertEquals(message, expected, matcher.matches(null, name.toCharArray()));
+				assertEquals(message, expected, matcher.matches(new char[0], name.toCharArray()));
+				assertEquals(message, expected, matcher.matches(name.toCharArray(), null));
+			}
+		}
+	}
+
+	public void testEachPattern() throws Exception {
+		for (int i= 0; i < PATTERNS.length; i++) {
+			assertSameAsStringMatcher(new String[] { PATTERNS[i] });
+		}
+	}
+
+	public void testAllPatterns() throws Exception {
+		String[] patterns= new String[PATTERNS.length - 3];
+		int k= 0;
+		for (int i= 0; i < PATTERNS.length; i++) {
+			String pattern= PATTERNS[i];
+			if (!"*".equals(pattern) && !"**".equals(pattern) && !"*.*".equals(pattern))
+				patterns[k++]= pattern;
+		}
+		assertSameAsStringMatcher(patterns);
+	}
+
+	public void testPatternPairs() throws Exception {
+		for (int i= 0; i < PATTERNS.length; i++) {
+			for (int j= i + 1; j < PATTERNS.length; j++) {
+				assertSameAsStringMatcher(new String[] { PATTERNS[i], PATTERNS[j] });
+			}
+		}
+	}
+
+	public void testConcatenatedName() throws Exception {
+		TypeFilterMatcher matcher= new TypeFilterMatcher(new String[] { "java.util.Map.Entry", "Outer.*" });
+		char[] packageName= "java.util".toCharArray();
+		char[] typeName= "Map.Entry".toCharArray();
+		assertTrue(matcher.matches(packageName, typeName));
+		assertEquals(matcher.matches(JavaModelUtil.concatenateName(packageName, typeName)), matcher.matches(packageName, typeName));
+		assertTrue(matcher.matches(null, "Outer.Inner".toCharArray()));
+		assertFalse(matcher.matches("java".toCharArray(), "util".toCharArray()));
+	}
+
+	public void testEmpty() throws Exception {
+		TypeFilterMatcher matcher= new TypeFilterMatcher(new String[0]);
+		assertTrue(matcher.isEmpty());
+		assertFalse(matcher.matches(""));
+		assertFalse(matcher.matches("java.lang.Object"));
+		assertFalse(matcher.matches(null, null));
+
+		assertTrue(new TypeFilterMatcher(new String[] { "" }).isEmpty());
+		assertFalse(new TypeFilterMatcher(new String[] { "java.*" }).isEmpty());
+	}
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.manipulation.TypeNameMatchCollector;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
+
+/**
+ * Tests that the {@link TypeNameIndex} answers type name queries like the search engine and
+ * follows changes of compilation units and working copies.
+ */
+public class TypeNameIndexTest extends TestCase {
+
+	private static final Class<TypeNameIndexTest> THIS= TypeNameIndexTest.class;
+
+	private IJavaProject fJProject1;
+	private IPackageFragment fPack;
+
+	public TypeNameIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		assertNotNull("jre is null", JavaProjectHelper.addRTJar(fJProject1));
+		File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381);
+		assertTrue("Junit source", junitSrcArchive != null && junitSrcArchive.exists());
+		JavaProjectHelper.addSourceContainerWithImport(fJProject1, "junit", junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPack= root.createPackageFragment("com.oti", true, null);
+		fPack.getCompilationUnit("IndexedA.java").createType("public class IndexedA {\n static interface IndexedInner {\n}\n}\n", null, true, null);
+
+		TypeNameIndex.getDefault().build(null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fJProject1);
+	}
+
+	private IJavaSearchScope getScope() {
+		return SearchEngine.createJavaSearchScope(new IJavaElement[] { fJProject1 });
+	}
+
+	private Set<String> searchIndex(String packageName, int packageMatchRule, String typeName, int typeMatchRule, int searchFor) {
+		List<TypeNameMatch> result= new ArrayList<>();
+		boolean answered= TypeNameIndex.getDefault().searchAllTypeNames(packageName == null ? null : packageName.toCharArray(), packageMatchRule,
+				typeName.toCharArray(), typeMatchRule, searchFor, getScope(), new TypeNameMatchCollector(result), null);
+		assertTrue("index not ready", answered);
+		return getNames(result);
+	}
+
+	private Set<String> searchEngine(String packageName, int packageMatchRule, String typeName, int typeMatchRule, int searchFor) throws Exception {
+		List<TypeNameMatch> result= new ArrayList<>();
+		new SearchEngine().searchAllTypeNames(packageName == null ? null : packageName.toCharArray(), packageMatchRule, typeName.toCharArray(), typeMatchRule,
+				searchFor, getScope(), new TypeNameMatchCollector(result), IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		return getNames(result);
+	}
+
+	private static Set<String> getNames(List<TypeNameMatch> matches) {
+		Set<String> names= new TreeSet<>();
+		for (int i= 0; i < matches.size(); i++) {
+			names.add(matches.get(i).getFullyQualifiedName());
+		}
+		return names;
+	}
+
+	private void assertSameAsSearchEngine(String packageName, int packageMatchRule, String typeName, int typeMatchRule, int searchFor) throws Exception {
+		Set<String> expected= searchEngine(packageName, packageMatchRule, typeName, typeMatchRule, searchFor);
+		assertFalse("no match for " + typeName, expected.isEmpty());
+		assertEquals(typeName, expected, searchIndex(packageName, packageMatchRule, typeName, typeMatchRule, searchFor));
+	}
+
+	public void testSameAsSearchEngine() throws Exception {
+		assertSameAsSearchEngine(null, 0, "Test", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine(null, 0, "tes", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine(null, 0, "TestCase", SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine(null, 0, "NPE", SearchPattern.R_CAMELCASE_MATCH, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine(null, 0, "TeLi", SearchPattern.R_CAMELCASE_MATCH, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine(null, 0, "TeLi", SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine(null, 0, "*Test*", SearchPattern.R_PATTERN_MATCH, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine(null, 0, "T?st*", SearchPattern.R_PATTERN_MATCH, IJavaSearchConstants.CLASS);
+		assertSameAsSearchEngine(null, 0, "Test", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.INTERFACE);
+		assertSameAsSearchEngine("j*.fr*", SearchPattern.R_PATTERN_MATCH, "T", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine("com.oti", SearchPattern.R_EXACT_MATCH, "Indexed", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE);
+		// member types, the package pattern is matched against the package and the enclosing types
+		assertSameAsSearchEngine("com.oti.IndexedA", SearchPattern.R_PREFIX_MATCH, "IndexedI", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE);
+		assertSameAsSearchEngine("com.oti.Indexed*", SearchPattern.R_PATTERN_MATCH, "I", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.INTERFACE);
+		assertSameAsSearchEngine("*.IndexedA", SearchPattern.R_PATTERN_MATCH, "IndexedInner", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE);
+	}
+
+	public void testMemberTypes() throws Exception {
+		assertEquals("[com.oti.IndexedA.IndexedInner]",
+				searchIndex("com.oti.IndexedA", SearchPattern.R_PREFIX_MATCH, "IndexedI", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE).toString());
+		assertEquals("[com.oti.IndexedA.IndexedInner]",
+				searchIndex("*IndexedA", SearchPattern.R_PATTERN_MATCH, "I", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE).toString());
+		assertEquals("[com.oti.IndexedA, com.oti.IndexedA.IndexedInner]",
+				searchIndex("com.oti", SearchPattern.R_EXACT_MATCH, "Indexed", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE).toString());
+		assertTrue(searchIndex("com.oti.IndexedA", SearchPattern.R_EXACT_MATCH, "IndexedInner", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).isEmpty());
+	}
+
+	public void testAddedAndRemovedPackage() throws Exception {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) fPack.getParent();
+		IPackageFragment pack= root.createPackageFragment("com.oti.added", true, null);
+		pack.getCompilationUnit("IndexedD.java").createType("public class IndexedD {\n}\n", null, true, null);
+		// an added package does not discard the index, the query is answered
+		assertEquals("[com.oti.added.IndexedD]", searchIndex(null, 0, "IndexedD", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).toString());
+
+		pack.delete(true, null);
+		assertTrue(searchIndex(null, 0, "IndexedD", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).isEmpty());
+		assertEquals("[com.oti.IndexedA]", searchIndex(null, 0, "IndexedA", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).toString());
+	}
+
+	public void testChangedUnit() throws Exception {
+		assertTrue(searchIndex(null, 0, "IndexedB", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).isEmpty());
+
+		ICompilationUnit cu= fPack.getCompilationUnit("IndexedA.java");
+		cu.createType("class IndexedB {\n}\n", null, true, null);
+		assertEquals("[com.oti.IndexedB]", searchIndex(null, 0, "IndexedB", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).toString());
+
+		cu.delete(true, null);
+		assertTrue(searchIndex(null, 0, "Indexed", SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE).isEmpty());
+	}
+
+	public void testWorkingCopy() throws Exception {
+		ICompilationUnit cu= fPack.getCompilationUnit("IndexedA.java");
+		cu.becomeWorkingCopy(null);
+		try {
+			IBuffer buffer= cu.getBuffer();
+			buffer.setContents("package com.oti;\npublic class IndexedC {\n}\n");
+			cu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			assertEquals("[com.oti.IndexedC]", searchIndex(null, 0, "IndexedC", SearchPattern.R_CAMELCASE_MATCH, IJavaSearchConstants.TYPE).toString());
+			assertTrue(searchIndex(null, 0, "IndexedA", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).isEmpty());
+		} finally {
+			cu.discardWorkingCopy();
+		}
+		assertTrue(searchIndex(null, 0, "IndexedC", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).isEmpty());
+		assertEquals("[com.oti.IndexedA]", searchIndex(null, 0, "IndexedA", SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.TYPE).toString());
+	}
+}
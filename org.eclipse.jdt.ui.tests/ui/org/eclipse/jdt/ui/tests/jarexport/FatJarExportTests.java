@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ package org.eclipse.jdt.ui.tests.jarexport;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Enumeration;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -88,6 +89,7 @@ import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarAntExporter;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.CopyLibraryHandler;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.ExtractLibraryHandler;
+import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.IndexedPackageLibraryHandler;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.LibraryHandler;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.PackageLibraryHandler;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarRsrcUrlBuilder;
@@ -164,7 +166,8 @@ public class FatJarExportTests extends TestCase {
 				data= assertFatJarExport(project, testName, compressJar, libraryHandler);
 				break;
 			}
-			case PackageLibraryHandler.ID: {
+			case PackageLibraryHandler.ID:
+			case IndexedPackageLibraryHandler.ID: {
 				data= assertFatJarWithLoaderExport(project, testName, compressJar, libraryHandler);
 				break;
 			}
@@ -249,6 +252,15 @@ public class FatJarExportTests extends TestCase {
 		in.close();
 		assertEquals("loader is a class file", 0xCAFEBABE, magic); //$NON-NLS-1$
 		assertEquals("loader compiled with JDK 1.3.1", "45.3", majorVersion + "." + minorVersion); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		if (libraryHandler.getID() == IndexedPackageLibraryHandler.ID) {
+			assertNotNull(generatedArchive.getEntry("org/eclipse/jdt/internal/jarinjarloader/IndexedJarRsrcLoader.class")); //$NON-NLS-1$
+			// libraries are stored to be read in place
+			for (Enumeration<? extends ZipEntry> entries= generatedArchive.entries(); entries.hasMoreElements();) {
+				ZipEntry entry= entries.nextElement();
+				if (entry.getName().endsWith(".jar")) //$NON-NLS-1$
+					assertEquals(entry.getName(), ZipEntry.STORED, entry.getMethod());
+			}
+		}
 		
 		generatedArchive.close();
 
@@ -452,7 +464,11 @@ public class FatJarExportTests extends TestCase {
 				break;
 			}
 			case PackageLibraryHandler.ID: {
-				assertAntScriptPackage(archiveName, antScriptLocation, filesets, zipfilesets);
+				assertAntScriptPackage(archiveName, antScriptLocation, "org.eclipse.jdt.internal.jarinjarloader.JarRsrcLoader", filesets, zipfilesets); //$NON-NLS-1$
+				break;
+			}
+			case IndexedPackageLibraryHandler.ID: {
+				assertAntScriptPackage(archiveName, antScriptLocation, "org.eclipse.jdt.internal.jarinjarloader.IndexedJarRsrcLoader", filesets, zipfilesets); //$NON-NLS-1$
 				break;
 			}
 			case CopyLibraryHandler.ID: {
@@ -532,7 +548,7 @@ public class FatJarExportTests extends TestCase {
 		
 	}
 
-	private static void assertAntScriptPackage(String archiveName, IPath antScriptLocation, String[] filesets, String[] zipfilesets) throws Exception {
+	private static void assertAntScriptPackage(String archiveName, IPath antScriptLocation, String loaderMainClass, String[] filesets, String[] zipfilesets) throws Exception {
 		String projectNameValue= "Create Runnable Jar for Project TestSetupProject"; //$NON-NLS-1$
 		projectNameValue+= " with Jar-in-Jar Loader"; //$NON-NLS-1$
 
@@ -551,7 +567,7 @@ public class FatJarExportTests extends TestCase {
 
 		Element xmlAttribute1= (Element)xmlManifest.getElementsByTagName("attribute").item(0); //$NON-NLS-1$
 		assertEquals("Main-Class", xmlAttribute1.getAttribute("name")); //$NON-NLS-1$ //$NON-NLS-2$
-		assertEquals("org.eclipse.jdt.internal.jarinjarloader.JarRsrcLoader", xmlAttribute1.getAttribute("value")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(loaderMainClass, xmlAttribute1.getAttribute("value")); //$NON-NLS-1$
 
 		Element xmlAttribute2= (Element)xmlManifest.getElementsByTagName("attribute").item(1); //$NON-NLS-1$
 		assertEquals("Rsrc-Main-Class", xmlAttribute2.getAttribute("name")); //$NON-NLS-1$ //$NON-NLS-2$
@@ -820,6 +836,13 @@ public class FatJarExportTests extends TestCase {
 					new String[] { "TestSetupProject/bin" },//$NON-NLS-1$
 					new String[] { "rtstubs15.jar", "mylib_stdout.jar" }); //$NON-NLS-1$  //$NON-NLS-2$
 			
+			// indexed Jar-in-Jar loader
+			data= createAndRunFatJar(fProject, getName() + "_IJiJ", true, new IndexedPackageLibraryHandler()); //$NON-NLS-1$
+			assertAntScript(data, antScriptLocation(getName() + "_IJiJ"), //$NON-NLS-1$
+					new IndexedPackageLibraryHandler(),
+					new String[] { "TestSetupProject/bin" },//$NON-NLS-1$
+					new String[] { "rtstubs15.jar", "mylib_stdout.jar" }); //$NON-NLS-1$  //$NON-NLS-2$
+			
 			// sub-folder libraries
 			data= createAndRunFatJar(fProject, getName() + "_SL", true, new CopyLibraryHandler()); //$NON-NLS-1$
 			assertAntScript(data, antScriptLocation(getName() + "_SL"), //$NON-NLS-1$
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.jarexport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.internal.ui.jarpackager.ParallelJarOutputStream;
+
+/**
+ * Tests the order, the content and the format of the archives written by the
+ * {@link ParallelJarOutputStream}.
+ */
+public class ParallelJarOutputStreamTest extends TestCase {
+
+	private static final Class<ParallelJarOutputStreamTest> THIS= ParallelJarOutputStreamTest.class;
+
+	/** Larger than the size from which on entries are streamed */
+	private static final int LARGE_SIZE= 9 * 1024 * 1024;
+
+	private static final long ZIP64_MAGIC= 0xFFFFFFFFL;
+
+	private File fFile;
+
+	public ParallelJarOutputStreamTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFile= File.createTempFile("ParallelJarOutputStreamTest", ".jar");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+	}
+
+	private static Manifest createManifest() {
+		Manifest manifest= new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		return manifest;
+	}
+
+	private static byte[] createContent(Random random, int size) {
+		byte[] content= new byte[size];
+		// half random, half compressible
+		for (int i= 0; i < size; i++)
+			content[i]= i < size / 2 ? (byte) random.nextInt() : (byte) (i % 7);
+		return content;
+	}
+
+	private static ZipEntry createEntry(String name, boolean stored) {
+		JarEntry entry= new JarEntry(name);
+		entry.setMethod(stored ? ZipEntry.STORED : ZipEntry.DEFLATED);
+		return entry;
+	}
+
+	private static byte[] read(InputStream stream) throws IOException {
+		ByteArrayOutputStream output= new ByteArrayOutputStream();
+		byte[] buffer= new byte[8192];
+		int count;
+		while ((count= stream.read(buffer)) != -1)
+			output.write(buffer, 0, count);
+		return output.toByteArray();
+	}
+
+	private File createContentFile(byte[] content) throws IOException {
+		File file= File.createTempFile("ParallelJarOutputStreamTest", ".bin");
+		try (OutputStream output= new FileOutputStream(file)) {
+			output.write(content);
+		}
+		return file;
+	}
+
+	/**
+	 * Checks the names and the content of the entries with a {@link JarInputStream}, which reads
+	 * the local headers, and with a {@link ZipFile}, which reads the central directory.
+	 *
+	 * @param names the expected names, in the expected order
+	 * @param contents the expected contents
+	 * @throws IOException if the archive cannot be read
+	 */
+	private void assertEntries(List<String> names, List<byte[]> contents) throws IOException {
+		try (JarInputStream input= new JarInputStream(new FileInputStream(fFile))) {
+			assertNotNull(input.getManifest());
+			for (int i= 0; i < names.size(); i++) {
+				JarEntry entry= input.getNextJarEntry();
+				assertNotNull(names.get(i), entry);
+				assertEquals(names.get(i), entry.getName());
+				assertTrue(entry.getName(), Arrays.equals(contents.get(i), read(input)));
+			}
+			assertNull(input.getNextJarEntry());
+		}
+		try (ZipFile zip= new ZipFile(fFile)) {
+			assertEquals(names.size() + 1, zip.size());
+			Enumeration<? extends ZipEntry> entries= zip.entries();
+			assertEquals("META-INF/MANIFEST.MF", entries.nextElement().getName());
+			for (int i= 0; i < names.size(); i++) {
+				ZipEntry entry= entries.nextElement();
+				assertEquals(names.get(i), entry.getName());
+				assertEquals(contents.get(i).length, entry.getSize());
+				try (InputStream content= zip.getInputStream(entry)) {
+					assertTrue(entry.getName(), Arrays.equals(contents.get(i), read(content)));
+				}
+			}
+		}
+	}
+
+	public void testParallelOrder() throws Exception {
+		Random random= new Random(42);
+		List<String> names= new ArrayList<>();
+		List<byte[]> contents= new ArrayList<>();
+		try (ParallelJarOutputStream output= new ParallelJarOutputStream(new FileOutputStream(fFile), createManifest(), false, 4, 1024 * 1024)) {
+			for (int i= 0; i < 300; i++) {
+				String name= "p/Entry" + (299 - i) + ".class";
+				byte[] content= createContent(random, random.nextInt(5) == 0 ? 200 * 1024 : random.nextInt(4096));
+				output.putNextEntry(createEntry(name, i % 5 == 0), new ByteArrayInputStream(content));
+				names.add(name);
+				contents.add(content);
+			}
+		}
+		assertEntries(names, contents);
+	}
+
+	public void testBackPressure() throws Exception {
+		Random random= new Random(42);
+		int maxPendingBytes= 100 * 1024;
+		List<String> names= new ArrayList<>();
+		List<byte[]> contents= new ArrayList<>();
+		try (ParallelJarOutputStream output= new ParallelJarOutputStream(new FileOutputStream(fFile), createManifest(), false, 2, maxPendingBytes)) {
+			for (int i= 0; i < 100; i++) {
+				String name= "Entry" + i;
+				byte[] content= createContent(random, 30 * 1024);
+				output.putNextEntry(createEntry(name, false), new ByteArrayInputStream(content));
+				assertTrue(output.getPendingBytes() < maxPendingBytes);
+				names.add(name);
+				contents.add(content);
+			}
+		}
+		assertEntries(names, contents);
+	}
+
+	public void testLargeEntries() throws Exception {
+		checkLargeEntries(false);
+	}
+
+	public void testLargeEntriesReproducible() throws Exception {
+		checkLargeEntries(true);
+	}
+
+	private void checkLargeEntries(boolean reproducible) throws Exception {
+		Random random= new Random(42);
+		byte[] small= createContent(random, 1000);
+		byte[] large= createContent(random, LARGE_SIZE);
+		File file= createContentFile(large);
+		List<String> names= new ArrayList<>();
+		List<byte[]> contents= new ArrayList<>();
+		try (ParallelJarOutputStream output= new ParallelJarOutputStream(new FileOutputStream(fFile), createManifest(), reproducible, 4, 1024 * 1024)) {
+			String[] kinds= { "a", "b", "c", "d" };
+			for (int i= 0; i < kinds.length; i++) {
+				output.putNextEntry(createEntry(kinds[i] + "/1-small", i % 2 == 0), new ByteArrayInputStream(small));
+				names.add(kinds[i] + "/1-small");
+				contents.add(small);
+
+				boolean stored= i % 2 == 0;
+				boolean fromFile= i >= 2;
+				try (InputStream content= fromFile ? new FileInputStream(file) : new ByteArrayInputStream(large)) {
+					output.putNextEntry(createEntry(kinds[i] + "/2-large", stored), content);
+				}
+				names.add(kinds[i] + "/2-large");
+				contents.add(large);
+			}
+		} finally {
+			file.delete();
+		}
+		assertEntries(names, contents);
+	}
+
+	public void testZip64EntryCount() throws Exception {
+		int count= 70000;
+		try (ParallelJarOutputStream output= new ParallelJarOutputStream(new FileOutputStream(fFile), createManifest(), false)) {
+			for (int i= 0; i < count; i++)
+				output.putNextEntry(createEntry("Entry" + i, i % 2 == 0), new ByteArrayInputStream(new byte[] { (byte) i }));
+		}
+		try (ZipFile zip= new ZipFile(fFile)) {
+			assertEquals(count + 1, zip.size());
+			ZipEntry entry= zip.getEntry("Entry" + (count - 1));
+			try (InputStream content= zip.getInputStream(entry)) {
+				assertEquals((byte) (count - 1), (byte) content.read());
+			}
+		}
+	}
+
+	public void testZip64EntrySize() throws Exception {
+		final long size= ZIP64_MAGIC + 1024 * 1024;
+		InputStream zeros= new InputStream() {
+			private long fRemaining= size;
+
+			@Override
+			public int read() {
+				if (fRemaining == 0)
+					return -1;
+				fRemaining--;
+				return 0;
+			}
+
+			@Override
+			public int read(byte[] bytes, int offset, int length) {
+				if (fRemaining == 0)
+					return -1;
+				int count= (int) Math.min(length, fRemaining);
+				Arrays.fill(bytes, offset, offset + count, (byte) 0);
+				fRemaining-= count;
+				return count;
+			}
+		};
+		byte[] small= createContent(new Random(42), 1000);
+		try (ParallelJarOutputStream output= new ParallelJarOutputStream(new FileOutputStream(fFile), createManifest(), false)) {
+			output.putNextEntry(createEntry("large", false), zeros);
+			output.putNextEntry(createEntry("small", false), new ByteArrayInputStream(small));
+		}
+		try (ZipFile zip= new ZipFile(fFile)) {
+			ZipEntry entry= zip.getEntry("large");
+			assertEquals(size, entry.getSize());
+			try (InputStream content= zip.getInputStream(zip.getEntry("small"))) {
+				assertTrue(Arrays.equals(small, read(content)));
+			}
+		}
+	}
+
+	public void testOutputError() throws Exception {
+		final int limit= 200 * 1024;
+		OutputStream failing= new OutputStream() {
+			private int fCount;
+
+			@Override
+			public void write(int b) throws IOException {
+				if (++fCount > limit)
+					throw new IOException("disk full");
+			}
+		};
+		Random random= new Random(42);
+		IOException error= null;
+		ParallelJarOutputStream output= new ParallelJarOutputStream(failing, createManifest(), false, 4, 64 * 1024);
+		try {
+			for (int i= 0; i < 100 && error == null; i++) {
+				try {
+					output.putNextEntry(createEntry("Entry" + i, false), new ByteArrayInputStream(createContent(random, 20 * 1024)));
+				} catch (IOException e) {
+					error= e;
+				}
+			}
+		} finally {
+			try {
+				output.close();
+			} catch (IOException e) {
+				if (error == null)
+					error= e;
+			}
+		}
+		assertNotNull(error);
+		assertEquals("disk full", error.getMessage());
+	}
+
+	public void testContentError() throws Exception {
+		InputStream failing= new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("cannot read");
+			}
+		};
+		byte[] small= createContent(new Random(42), 1000);
+		try (ParallelJarOutputStream output= new ParallelJarOutputStream(new FileOutputStream(fFile), createManifest(), false, 4, 1024 * 1024)) {
+			output.putNextEntry(createEntry("before", false), new ByteArrayInputStream(small));
+			try {
+				output.putNextEntry(createEntry("failing", false), failing);
+				fail("read error not propagated");
+			} catch (IOException e) {
+				assertEquals("cannot read", e.getMessage());
+			}
+			output.putNextEntry(createEntry("after", false), new ByteArrayInputStream(small));
+		}
+		assertEntries(Arrays.asList("before", "after"), Arrays.asList(small, small));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2015 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.ui.tests.jarexport;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -157,6 +158,53 @@ public class PlainJarExportTests extends TestCase {
 		assertEquals(expected.toString(), entries.toString());
 	}
 
+	public void testReproducibleExport() throws Exception {
+		JarPackageData data= createJarPackageData();
+		data.setElements(new Object[] { fCU });
+		data.setExportClassFiles(true);
+		data.setReproducible(true);
+
+		ZipFile jar= createArchive(data);
+		ArrayList<String> entries= new ArrayList<>();
+		for (Enumeration<? extends ZipEntry> entriesEnum= jar.entries(); entriesEnum.hasMoreElements(); ) {
+			ZipEntry entry= entriesEnum.nextElement();
+			entries.add(entry.getName() + "\n");
+		}
+		jar.close();
+		List<String> expected= Arrays.asList(new String[] {
+				"META-INF/MANIFEST.MF\n",
+				"org/eclipse/jdt/ui/test/Main$1.class\n",
+				"org/eclipse/jdt/ui/test/Main$MainInner.class\n",
+				"org/eclipse/jdt/ui/test/Main.class\n",
+		});
+		assertEquals("entries are sorted", expected.toString(), entries.toString());
+		byte[] first= Files.readAllBytes(data.getAbsoluteJarLocation().toFile().toPath());
+
+		// touch the class files, the time stamps must not end up in the jar
+		fCU.getResource().touch(null);
+		data.setJarLocation(data.getJarLocation().removeLastSegments(1).append(getName() + "2.jar"));
+		createArchive(data).close();
+		byte[] second= Files.readAllBytes(data.getAbsoluteJarLocation().toFile().toPath());
+		assertTrue("jars are identical", Arrays.equals(first, second));
+	}
+
+	public void testUncompressedExport() throws Exception {
+		JarPackageData data= createJarPackageData();
+		data.setElements(new Object[] { fCU });
+		data.setExportClassFiles(true);
+		data.setCompress(false);
+
+		ZipFile jar= createArchive(data);
+		try {
+			ZipEntry entry= jar.getEntry("org/eclipse/jdt/ui/test/Main.class");
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			assertEquals(entry.getSize(), entry.getCompressedSize());
+			assertTrue(entry.getSize() > 0);
+		} finally {
+			jar.close();
+		}
+	}
+
 	private JarPackageData createJarPackageData() {
 		JarPackageData data= new JarPackageData();
 		data.setJarLocation(ResourcesPlugin.getWorkspace().getRoot().getLocation().append(getName() + ".jar"));
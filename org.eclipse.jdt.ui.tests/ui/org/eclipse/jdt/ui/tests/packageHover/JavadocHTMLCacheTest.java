@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.packageHover;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.tests.core.CoreTests;
+import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
+
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentAccess2;
+
+/**
+ * Tests that the cached Javadoc of archive elements is not used after the archive or its source
+ * attachment has changed.
+ *
+ * @since 3.14
+ */
+public class JavadocHTMLCacheTest extends CoreTests {
+
+	private static final String PACKAGE_NAME= "org.eclipse.jdt.ui.tests.noJavadoc";
+
+	/** Longer than the interval after which the cache checks the time stamps of the files again. */
+	private static final long CHECK_DELAY= 2500;
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(JavadocHTMLCacheTest.class));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	private IJavaProject fJProject1;
+	private List<File> fFiles;
+
+	public JavadocHTMLCacheTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		fFiles= new ArrayList<>();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+		for (File file : fFiles)
+			file.delete();
+	}
+
+	private File createSourceZip(String documentation) throws IOException {
+		File file= File.createTempFile("JavadocHTMLCacheTest", ".zip");
+		fFiles.add(file);
+		writeSourceZip(file, documentation);
+		return file;
+	}
+
+	private static void writeSourceZip(File file, String documentation) throws IOException {
+		try (ZipOutputStream out= new ZipOutputStream(new FileOutputStream(file))) {
+			out.putNextEntry(new ZipEntry(PACKAGE_NAME.replace('.', '/') + "/package.html"));
+			out.write(("<html><body>" + documentation + "</body></html>").getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+	}
+
+	private IPackageFragment addLibrary(File sourceZip) throws Exception {
+		File clsJarPath= JavaTestPlugin.getDefault().getFileInPlugin(new Path("/testresources/PackageJavadocTests/testData.zip"));
+		IPackageFragmentRoot root= JavaProjectHelper.addLibraryWithImport(fJProject1, new Path(clsJarPath.getAbsolutePath()), new Path(sourceZip.getAbsolutePath()), null);
+		IPackageFragment pack= root.getPackageFragment(PACKAGE_NAME);
+		assertTrue(pack.exists());
+		return pack;
+	}
+
+	private static String getContent(IPackageFragment pack) throws Exception {
+		String content= JavadocContentAccess2.getHTMLContent(pack);
+		assertNotNull(content);
+		return content;
+	}
+
+	public void testCachedContent() throws Exception {
+		IPackageFragment pack= addLibrary(createSourceZip("First version"));
+
+		String content= getContent(pack);
+		assertTrue(content, content.contains("First version"));
+		assertEquals(content, getContent(pack));
+	}
+
+	public void testSourceAttachmentChanged() throws Exception {
+		IPackageFragment pack= addLibrary(createSourceZip("First version"));
+		String content= getContent(pack);
+		assertTrue(content, content.contains("First version"));
+
+		IPackageFragmentRoot root= (IPackageFragmentRoot) pack.getParent();
+		JavaProjectHelper.removeFromClasspath(fJProject1, root.getPath());
+		JavaProjectHelper.addLibrary(fJProject1, root.getPath(), new Path(createSourceZip("Second version").getAbsolutePath()), null);
+
+		content= getContent(pack);
+		assertTrue(content, content.contains("Second version"));
+	}
+
+	public void testSourceArchiveReplaced() throws Exception {
+		File sourceZip= createSourceZip("First version");
+		IPackageFragment pack= addLibrary(sourceZip);
+		String content= getContent(pack);
+		assertTrue(content, content.contains("First version"));
+
+		// the stamp of the archive covers the length of the source attachment
+		writeSourceZip(sourceZip, "Second, longer version");
+		Thread.sleep(CHECK_DELAY);
+
+		content= getContent(pack);
+		assertTrue(content, content.contains("Second, longer version"));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,17 +14,27 @@ package org.eclipse.jdt.ui.tests.quickfix;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.jdt.testplugin.JavaTestPlugin;
 
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.TextChange;
+
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IPackageFragment;
@@ -32,10 +42,14 @@ import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.JavaModelException;
 
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
 
 import org.eclipse.jdt.ui.JavaElementLabels;
+import org.eclipse.jdt.ui.cleanup.ICleanUp;
 import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
@@ -5325,6 +5339,95 @@ public class CleanUpStressTest extends CleanUpTestCase {
         }
 	}
 
+	public void testParallelParsingSameAsSequential() throws Exception {
+		List<IJavaElement> cus= new ArrayList<>();
+		addAllCUs(fJProject1.getChildren(), cus);
+
+		enable(CleanUpConstants.MEMBER_ACCESSES_NON_STATIC_FIELD_USE_THIS);
+		enable(CleanUpConstants.MEMBER_ACCESSES_NON_STATIC_FIELD_USE_THIS_ALWAYS);
+		enable(CleanUpConstants.CONTROL_STATEMENTS_USE_BLOCKS);
+		enable(CleanUpConstants.CONTROL_STATMENTS_USE_BLOCKS_ALWAYS);
+		enable(CleanUpConstants.ADD_MISSING_ANNOTATIONS);
+		enable(CleanUpConstants.ADD_MISSING_ANNOTATIONS_OVERRIDE);
+		enable(CleanUpConstants.ADD_MISSING_NLS_TAGS);
+		enable(CleanUpConstants.REMOVE_UNUSED_CODE_IMPORTS);
+		enable(CleanUpConstants.VARIABLE_DECLARATIONS_USE_FINAL);
+		enable(CleanUpConstants.VARIABLE_DECLARATIONS_USE_FINAL_LOCAL_VARIABLES);
+		enable(CleanUpConstants.ORGANIZE_IMPORTS);
+
+		ICompilationUnit[] units= cus.toArray(new ICompilationUnit[cus.size()]);
+		Map<Object, String> sequential= createPreviews(units, false);
+		Map<Object, String> parallel= createPreviews(units, true);
+		assertFalse(sequential.isEmpty());
+		assertEquals(sequential, parallel);
+	}
+
+	/**
+	 * Creates the clean up change outside of the display thread, so that parallel parsing is not
+	 * disabled, and returns the new contents of the changed compilation units.
+	 *
+	 * @param units the compilation units to clean up
+	 * @param parallel whether to parse with several jobs
+	 * @return the new contents by compilation unit
+	 * @throws Exception if creating the change fails
+	 */
+	private Map<Object, String> createPreviews(ICompilationUnit[] units, boolean parallel) throws Exception {
+		final CleanUpRefactoring ref= new CleanUpRefactoring();
+		ref.setUseOptionsFromProfile(true);
+		ref.setUseParallelParsing(parallel);
+		for (int i= 0; i < units.length; i++) {
+			ref.addCompilationUnit(units[i]);
+		}
+		ICleanUp[] cleanUps= JavaPlugin.getDefault().getCleanUpRegistry().createCleanUps();
+		for (int i= 0; i < cleanUps.length; i++) {
+			ref.addCleanUp(cleanUps[i]);
+		}
+
+		final Display display= Display.getCurrent();
+		final Change[] change= new Change[1];
+		final Exception[] exception= new Exception[1];
+		Thread thread= new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ref.checkAllConditions(new NullProgressMonitor());
+					change[0]= ref.createChange(new NullProgressMonitor());
+				} catch (Exception e) {
+					exception[0]= e;
+				} finally {
+					if (display != null)
+						display.wake();
+				}
+			}
+		}, "CleanUpStressTest");
+		thread.start();
+		while (thread.isAlive()) {
+			// clean ups may need the display thread
+			if (display == null || !display.readAndDispatch()) {
+				if (display != null)
+					display.sleep();
+				thread.join(display == null ? 0 : 10);
+			}
+		}
+		if (exception[0] != null)
+			throw exception[0];
+
+		Map<Object, String> result= new HashMap<>();
+		collectPreviews(change[0], result);
+		return result;
+	}
+
+	private static void collectPreviews(Change change, Map<Object, String> result) throws Exception {
+		if (change instanceof CompositeChange) {
+			Change[] children= ((CompositeChange) change).getChildren();
+			for (int i= 0; i < children.length; i++) {
+				collectPreviews(children[i], result);
+			}
+		} else if (change instanceof TextChange) {
+			assertNull(result.put(change.getModifiedElement(), ((TextChange) change).getPreviewContent(new NullProgressMonitor())));
+		}
+	}
+
 	private static String getCompilationUnitName(ICompilationUnit cu) {
 		StringBuffer result= new StringBuffer();
 		JavaElementLabels.getCompilationUnitLabel(cu, JavaElementLabels.CU_QUALIFIED, result);
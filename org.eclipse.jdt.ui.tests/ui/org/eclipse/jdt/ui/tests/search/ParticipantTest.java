@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,17 +15,29 @@ import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.search.ui.text.Match;
 
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
 
+import org.eclipse.jdt.ui.search.IMatchPresentation;
 import org.eclipse.jdt.ui.search.IQueryParticipant;
+import org.eclipse.jdt.ui.search.ISearchRequestor;
+import org.eclipse.jdt.ui.search.PatternQuerySpecification;
+import org.eclipse.jdt.ui.search.QuerySpecification;
 
 import org.eclipse.jdt.internal.ui.search.JavaSearchQuery;
 import org.eclipse.jdt.internal.ui.search.JavaSearchResult;
+import org.eclipse.jdt.internal.ui.search.JavaSearchScopeFactory;
 import org.eclipse.jdt.internal.ui.search.SearchParticipantDescriptor;
 import org.eclipse.jdt.internal.ui.search.SearchParticipantRecord;
 import org.eclipse.jdt.internal.ui.search.SearchParticipantsExtensionPoint;
@@ -36,10 +48,49 @@ public class ParticipantTest extends TestCase {
 
 	private static Class<ParticipantTest> THIS= ParticipantTest.class;
 
+	/** The participant of the next searches, <code>null</code> for a {@link TestParticipant} */
+	static IQueryParticipant fgParticipant;
+
 	static class TestExtensionPoint extends SearchParticipantsExtensionPoint {
 		@Override
 		public SearchParticipantRecord[] getSearchParticipants(IProject[] concernedProjects) {
-			return new SearchParticipantRecord[] { new SearchParticipantRecord(new TestParticipantRecord(), new TestParticipant()) };
+			IQueryParticipant participant= fgParticipant != null ? fgParticipant : new TestParticipant();
+			return new SearchParticipantRecord[] { new SearchParticipantRecord(new TestParticipantRecord(), participant) };
+		}
+	}
+
+	/**
+	 * Reports matches on the workspace root, which are added to the result in batches. Calls
+	 * {@link #reported(int, JavaSearchResult)} after every match.
+	 */
+	static abstract class ResourceParticipant implements IQueryParticipant {
+		JavaSearchResult fResult;
+		private final int fMatchCount;
+		volatile boolean fFinished;
+
+		ResourceParticipant(int matchCount) {
+			fMatchCount= matchCount;
+		}
+
+		@Override
+		public void search(ISearchRequestor requestor, QuerySpecification data, IProgressMonitor monitor) throws CoreException {
+			for (int i= 0; i < fMatchCount; i++) {
+				requestor.reportMatch(new Match(ResourcesPlugin.getWorkspace().getRoot(), i, 1));
+				reported(i, fResult);
+			}
+			fFinished= true;
+		}
+
+		abstract void reported(int index, JavaSearchResult result);
+
+		@Override
+		public int estimateTicks(QuerySpecification data) {
+			return 100;
+		}
+
+		@Override
+		public IMatchPresentation getUIParticipant() {
+			return null;
 		}
 	}
 
@@ -93,4 +144,78 @@ public class ParticipantTest extends TestCase {
 		}
 	}
 
+	private static JavaSearchQuery createQuery(ResourceParticipant participant) {
+		JavaSearchQuery query= new JavaSearchQuery(new PatternQuerySpecification("frufru", IJavaSearchConstants.METHOD, true, IJavaSearchConstants.REFERENCES, JavaSearchScopeFactory.getInstance().createWorkspaceScope(true), "workspace scope"));
+		participant.fResult= (JavaSearchResult) query.getSearchResult();
+		fgParticipant= participant;
+		return query;
+	}
+
+	public void testCanceledSearchWaitsForParticipants() throws Exception {
+		final IProgressMonitor monitor= new NullProgressMonitor();
+		ResourceParticipant participant= new ResourceParticipant(10) {
+			@Override
+			void reported(int index, JavaSearchResult result) {
+				monitor.setCanceled(true);
+				try {
+					Thread.sleep(50); // a participant which does not check for cancellation
+				} catch (InterruptedException e) {
+					// continue
+				}
+			}
+		};
+		JavaSearchQuery query= createQuery(participant);
+		try {
+			try {
+				query.run(monitor);
+			} catch (OperationCanceledException e) {
+				// expected if the core search is still running
+			}
+			assertTrue(participant.fFinished);
+			JavaSearchResult result= participant.fResult;
+			assertEquals(10, result.getMatchCount());
+
+			// a search with the same result must not get matches of the canceled search
+			result.removeAll();
+			Thread.sleep(300);
+			assertEquals(0, result.getMatchCount());
+		} finally {
+			fgParticipant= null;
+		}
+	}
+
+	public void testPartialBatchAdded() throws Exception {
+		final boolean[] added= new boolean[1];
+		ResourceParticipant participant= new ResourceParticipant(1) {
+			@Override
+			void reported(int index, JavaSearchResult result) {
+				// the match must be added although no further matches arrive
+				for (int i= 0; i < 200 && !added[0]; i++) {
+					added[0]= result.getMatchCount() == 1;
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		};
+		JavaSearchQuery query= createQuery(participant);
+		try {
+			query.run(new NullProgressMonitor());
+			assertTrue(added[0]);
+			assertEquals(1, participant.fResult.getMatchCount());
+		} finally {
+			fgParticipant= null;
+		}
+	}
+
+	public void testParticipantSearchTimes() throws Exception {
+		JavaSearchQuery query= SearchTestHelper.runMethodRefQuery("frufru");
+		JavaSearchResult result= (JavaSearchResult) query.getSearchResult();
+		assertEquals(20, result.getMatchCount());
+		assertTrue(result.getTooltip(), result.getTooltip().startsWith(result.getLabel()));
+		assertTrue(result.getTooltip(), result.getTooltip().contains("TestParticipant1 ID"));
+	}
+
 }
@@ -0,0 +1,891 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+import org.eclipse.jdt.internal.corext.util.LRUMap;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * An index of the callers and callees of members which is shared by all call hierarchies and
+ * persisted across sessions.
+ * <p>
+ * Callees of a member are found in the AST of its compilation unit, callers by a search for
+ * references in the workspace. The index keeps the calls before the search scope, the filters and
+ * the implementors setting of the call hierarchy are applied, so that changing the settings does
+ * not invalidate it.
+ * </p>
+ * <p>
+ * Staleness is detected per compilation unit: every change of a compilation unit reported by a
+ * reconcile or a resource change is recorded with an increasing change count. Callees of a member
+ * are computed again if the member's compilation unit changed. For callers, only the compilation
+ * units which changed since the entry was computed are searched again. Changes which can affect
+ * the bindings in other compilation units, like added or removed members or classpath changes,
+ * clear the index. If a compilation unit changed without a fine grained delta, e.g. on disk, its
+ * members may have changed as well, so the callers of its members and the callees which call into
+ * it are dropped.
+ * </p>
+ * <p>
+ * On shutdown, the index is saved to the plug-in state location together with the modification
+ * stamps of the Java files and libraries in the workspace. It is loaded again in a background job
+ * when it is first accessed. Compilation units which changed in between are marked as changed, and
+ * the saved index is discarded if anything else changed.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class CallGraphIndex {
+
+	/**
+	 * A call as stored in the index.
+	 */
+	static final class Call {
+		/**
+		 * Handle identifier of the calling member for callers, of the called member for callees.
+		 */
+		final String fMember;
+		/**
+		 * Handle identifier of the type root containing the call, only set for callers.
+		 */
+		final String fTypeRoot;
+		final int fStart;
+		final int fEnd;
+		final int fLineNumber;
+		/**
+		 * Tells whether the called member is a method declared in an interface, only set for
+		 * callees.
+		 */
+		final boolean fInterfaceMethod;
+
+		Call(String member, String typeRoot, int start, int end, int lineNumber, boolean interfaceMethod) {
+			fMember= member;
+			fTypeRoot= typeRoot;
+			fStart= start;
+			fEnd= end;
+			fLineNumber= lineNumber;
+			fInterfaceMethod= interfaceMethod;
+		}
+	}
+
+	private static final class Entry {
+		/**
+		 * Handle identifier of the type root of the indexed member.
+		 */
+		final String fTypeRoot;
+		/**
+		 * The change count at the time the calls were computed.
+		 */
+		final long fChangeCount;
+		final List<Call> fCalls;
+
+		Entry(String typeRoot, long changeCount, List<Call> calls) {
+			fTypeRoot= typeRoot;
+			fChangeCount= changeCount;
+			fCalls= calls;
+		}
+	}
+
+	private static final String FILE_NAME= "callgraph.index"; //$NON-NLS-1$
+	private static final int FILE_VERSION= 1;
+
+	/**
+	 * Maximum number of caller and of callee entries.
+	 */
+	static final int MAX_ENTRIES= 10000;
+
+	/**
+	 * Maximum number of changed compilation units which are searched again for callers. If more
+	 * units changed since an entry was computed, the callers are searched in the whole workspace.
+	 */
+	static final int MAX_INCREMENTAL_UNITS= 100;
+
+	/**
+	 * Maximum number of changed compilation units which are remembered. If more units changed,
+	 * the index is cleared.
+	 */
+	static final int MAX_TRACKED_CHANGES= 2000;
+
+	private static final String JAVA_FILE_PREFIX= "J:"; //$NON-NLS-1$
+	private static final String LIBRARY_PREFIX= "L:"; //$NON-NLS-1$
+	private static final String PROJECT_PREFIX= "P:"; //$NON-NLS-1$
+
+	/**
+	 * The character which starts a type in a handle identifier, see
+	 * {@link IJavaElement#getHandleIdentifier()}.
+	 */
+	private static final char JAVA_TYPE_DELIMITER= '[';
+
+	/**
+	 * Stamp of libraries whose contents cannot be checked.
+	 */
+	private static final long UNKNOWN_STAMP= -1;
+
+	/**
+	 * Delta flags of projects, package fragment roots and package fragments which clear the index.
+	 */
+	private static final int STRUCTURE_FLAGS= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+			| IJavaElementDelta.F_REORDER | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+	/**
+	 * Delta flags of compilation units which mark them as changed.
+	 */
+	private static final int UNIT_CHANGE_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_PRIMARY_RESOURCE
+			| IJavaElementDelta.F_PRIMARY_WORKING_COPY;
+
+	private static CallGraphIndex fgInstance;
+
+	private final IElementChangedListener fElementChangedListener= new IElementChangedListener() {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			processChanges(event.getDelta());
+		}
+	};
+
+	private final Job fLoadJob= new Job(CallHierarchyMessages.CallGraphIndex_load_job) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			if (monitor.isCanceled())
+				return Status.CANCEL_STATUS;
+			load();
+			return Status.OK_STATUS;
+		}
+	};
+
+	/**
+	 * Map from member handle identifier to the entry with the member's callees.
+	 */
+	private final LRUMap<String, Entry> fCallees= new LRUMap<>(MAX_ENTRIES);
+
+	/**
+	 * Map from member handle identifier and search kind to the entry with the member's callers.
+	 */
+	private final LRUMap<String, Entry> fCallers= new LRUMap<>(MAX_ENTRIES);
+
+	/**
+	 * Map from type root handle identifier to the change count of its last change.
+	 */
+	private final Map<String, Long> fUnitChanges= new HashMap<>();
+
+	private long fChangeCount;
+
+	/**
+	 * Incremented whenever the index is cleared. Results computed concurrently to a clear are not
+	 * stored.
+	 */
+	private int fGeneration;
+
+	private int fHits;
+	private int fMisses;
+
+	private CallGraphIndex() {
+		fLoadJob.setSystem(true);
+		fLoadJob.setPriority(Job.LONG);
+	}
+
+	/**
+	 * Returns the shared index. The index saved in the plug-in state location is loaded in the
+	 * background when the index is first accessed, until then the index starts empty.
+	 *
+	 * @return the shared index
+	 */
+	public static synchronized CallGraphIndex getDefault() {
+		if (fgInstance == null) {
+			fgInstance= new CallGraphIndex();
+			JavaCore.addElementChangedListener(fgInstance.fElementChangedListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+			fgInstance.fLoadJob.schedule();
+		}
+		return fgInstance;
+	}
+
+	/**
+	 * Saves the shared index to the plug-in state location, if it has been used in this session.
+	 */
+	public static void shutdown() {
+		CallGraphIndex instance;
+		synchronized (CallGraphIndex.class) {
+			instance= fgInstance;
+			fgInstance= null;
+		}
+		if (instance != null) {
+			JavaCore.removeElementChangedListener(instance.fElementChangedListener);
+			instance.fLoadJob.cancel();
+			try {
+				instance.fLoadJob.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return; // do not overwrite the saved index with a partial one
+			}
+			instance.save();
+		}
+	}
+
+	/**
+	 * Returns the callees of the given member. The calls are taken from the index if the member's
+	 * compilation unit did not change since they were computed.
+	 *
+	 * @param member the calling member
+	 * @param monitor the progress monitor or <code>null</code>
+	 * @return a map from handle identifier ({@link String}) to {@link MethodCall}
+	 */
+	Map<String, MethodCall> getCallees(IMember member, IProgressMonitor monitor) {
+		String key= member.getHandleIdentifier();
+		ITypeRoot typeRoot= member.getTypeRoot();
+		String typeRootHandle= typeRoot.getHandleIdentifier();
+
+		long changeCount;
+		int generation;
+		synchronized (this) {
+			Entry entry= fCallees.get(key);
+			if (entry != null && !hasChanged(typeRootHandle, entry.fChangeCount)) {
+				fHits++;
+				return CalleeAnalyzerVisitor.createCallees(member, entry.fCalls);
+			}
+			fMisses++;
+			changeCount= fChangeCount;
+			generation= fGeneration;
+		}
+
+		CompilationUnit cu= CallHierarchy.getCompilationUnitNode(member, true);
+		if (monitor != null) {
+			monitor.worked(5);
+		}
+		if (cu == null) {
+			return new HashMap<>(0);
+		}
+		CalleeAnalyzerVisitor visitor= new CalleeAnalyzerVisitor(member, cu, monitor);
+		cu.accept(visitor);
+		List<Call> calls= visitor.getCalls();
+
+		synchronized (this) {
+			if (generation == fGeneration) {
+				fCallees.put(key, new Entry(typeRootHandle, changeCount, calls));
+			}
+		}
+		return CalleeAnalyzerVisitor.createCallees(member, calls);
+	}
+
+	/**
+	 * Returns the callers of the given member in the workspace. If the index contains the callers
+	 * of the member, only the compilation units which changed since then are searched.
+	 *
+	 * @param member the called member
+	 * @param searchKind the kind of references searched, e.g.
+	 *            {@link org.eclipse.jdt.core.search.IJavaSearchConstants#REFERENCES}
+	 * @param pattern the search pattern for the references of the member
+	 * @param monitor the progress monitor or <code>null</code>
+	 * @return a map from handle identifier ({@link String}) to {@link MethodCall}
+	 * @throws CoreException if the search fails
+	 */
+	Map<String, MethodCall> getCallers(IMember member, int searchKind, SearchPattern pattern, IProgressMonitor monitor) throws CoreException {
+		String key= member.getHandleIdentifier() + '#' + searchKind;
+
+		Entry entry;
+		List<String> changedUnits= null;
+		long changeCount;
+		int generation;
+		synchronized (this) {
+			entry= fCallers.get(key);
+			if (entry != null) {
+				changedUnits= getChangedUnits(entry.fChangeCount);
+				if (changedUnits == null)
+					entry= null; // too many changes, search everything again
+			}
+			if (entry != null && changedUnits.isEmpty()) {
+				fHits++;
+				return createCallers(entry.fCalls);
+			}
+			fMisses++;
+			changeCount= fChangeCount;
+			generation= fGeneration;
+		}
+
+		List<Call> calls;
+		if (entry == null) {
+			calls= search(pattern, SearchEngine.createWorkspaceScope(), monitor);
+		} else {
+			Set<String> changed= new HashSet<>(changedUnits);
+			calls= new ArrayList<>(entry.fCalls.size());
+			for (Iterator<Call> iter= entry.fCalls.iterator(); iter.hasNext();) {
+				Call call= iter.next();
+				if (!changed.contains(call.fTypeRoot))
+					calls.add(call);
+			}
+			List<IJavaElement> units= new ArrayList<>(changedUnits.size());
+			for (Iterator<String> iter= changedUnits.iterator(); iter.hasNext();) {
+				IJavaElement unit= JavaCore.create(iter.next());
+				if (unit != null && unit.exists())
+					units.add(unit);
+			}
+			if (!units.isEmpty()) {
+				IJavaSearchScope scope= SearchEngine.createJavaSearchScope(units.toArray(new IJavaElement[units.size()]));
+				calls.addAll(search(pattern, scope, monitor));
+			}
+		}
+
+		synchronized (this) {
+			if (generation == fGeneration) {
+				fCallers.put(key, new Entry(member.getTypeRoot().getHandleIdentifier(), changeCount, calls));
+			}
+		}
+		return createCallers(calls);
+	}
+
+	/**
+	 * Removes all entries from the index.
+	 */
+	public synchronized void clear() {
+		fCallees.clear();
+		fCallers.clear();
+		fUnitChanges.clear();
+		fGeneration++;
+	}
+
+	/**
+	 * Returns a summary of the index statistics used for debugging.
+	 *
+	 * @return a string describing the index statistics
+	 */
+	public synchronized String getStatistics() {
+		int requests= fHits + fMisses;
+		int hitRate= requests == 0 ? 0 : fHits * 100 / requests;
+		return "callees: " + fCallees.size() + ", callers: " + fCallers.size() + ", changed units: " + fUnitChanges.size() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ ", hits: " + fHits + ", misses: " + fMisses + " (" + hitRate + "% hits)"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	private static List<Call> search(SearchPattern pattern, IJavaSearchScope scope, IProgressMonitor monitor) throws CoreException {
+		final List<Call> calls= new ArrayList<>();
+		SearchRequestor requestor= new SearchRequestor() {
+			@Override
+			public void acceptSearchMatch(SearchMatch match) {
+				IMember member= MethodReferencesSearchRequestor.getCallingMember(match, true);
+				if (member != null) {
+					int start= match.getOffset();
+					String typeRoot= member.getTypeRoot().getPrimaryElement().getHandleIdentifier();
+					calls.add(new Call(member.getHandleIdentifier(), typeRoot, start, start + match.getLength(), CallLocation.UNKNOWN_LINE_NUMBER, false));
+				}
+			}
+		};
+		new SearchEngine().search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, scope, requestor, monitor);
+		return calls;
+	}
+
+	private static Map<String, MethodCall> createCallers(List<Call> calls) {
+		CallSearchResultCollector searchResults= new CallSearchResultCollector();
+		for (Iterator<Call> iter= calls.iterator(); iter.hasNext();) {
+			Call call= iter.next();
+			IJavaElement element= JavaCore.create(call.fMember);
+			if (element instanceof IMember) {
+				IMember member= (IMember) element;
+				searchResults.addMember(member, member, call.fStart, call.fEnd);
+			}
+		}
+		return searchResults.getCallers();
+	}
+
+	private boolean hasChanged(String typeRoot, long changeCount) {
+		Long lastChange= fUnitChanges.get(typeRoot);
+		return lastChange != null && lastChange.longValue() > changeCount;
+	}
+
+	/**
+	 * Returns the compilation units which changed after the given change count.
+	 *
+	 * @param changeCount the change count
+	 * @return the handle identifiers of the changed units or <code>null</code> if more than
+	 *         {@link #MAX_INCREMENTAL_UNITS} units changed
+	 */
+	private List<String> getChangedUnits(long changeCount) {
+		List<String> result= new ArrayList<>();
+		for (Iterator<Map.Entry<String, Long>> iter= fUnitChanges.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Long> change= iter.next();
+			if (change.getValue().longValue() > changeCount) {
+				if (result.size() == MAX_INCREMENTAL_UNITS)
+					return null;
+				result.add(change.getKey());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Marks the given compilation unit as changed.
+	 *
+	 * @param unit the changed compilation unit
+	 * @param structureUnknown <code>true</code> if the change may have modified the members of
+	 *            the unit without reporting it. Callers of the unit's members are searched again
+	 *            in this case.
+	 * @param structureUnknownUnits collects the handle identifiers of the units whose members may
+	 *            have changed. Callees which call into these units have to be removed with
+	 *            {@link #removeDependentCallees(Set)}.
+	 */
+	private void markChanged(ICompilationUnit unit, boolean structureUnknown, Set<String> structureUnknownUnits) {
+		String handle= unit.getPrimary().getHandleIdentifier();
+		if (!fUnitChanges.containsKey(handle) && fUnitChanges.size() >= MAX_TRACKED_CHANGES) {
+			clear();
+		}
+		fUnitChanges.put(handle, Long.valueOf(++fChangeCount));
+		if (structureUnknown) {
+			removeEntries(fCallers, handle);
+			structureUnknownUnits.add(handle);
+		}
+		removeEntries(fCallees, handle);
+	}
+
+	/**
+	 * Removes the callee entries which contain calls to members of the given compilation units.
+	 *
+	 * @param units the handle identifiers of the compilation units
+	 */
+	private void removeDependentCallees(Set<String> units) {
+		if (units.isEmpty())
+			return;
+		for (Iterator<Entry> iter= fCallees.values().iterator(); iter.hasNext();) {
+			List<Call> calls= iter.next().fCalls;
+			for (int i= 0; i < calls.size(); i++) {
+				if (units.contains(getUnitHandle(calls.get(i).fMember))) {
+					iter.remove();
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the handle identifier of the compilation unit or class file declaring a member.
+	 *
+	 * @param memberHandle the handle identifier of the member
+	 * @return the handle identifier of the type root, or the given handle if it cannot be determined
+	 */
+	private static String getUnitHandle(String memberHandle) {
+		int end= memberHandle.indexOf(JAVA_TYPE_DELIMITER);
+		while (end > 0 && isEscaped(memberHandle, end)) {
+			end= memberHandle.indexOf(JAVA_TYPE_DELIMITER, end + 1);
+		}
+		return end > 0 ? memberHandle.substring(0, end) : memberHandle;
+	}
+
+	private static boolean isEscaped(String handle, int index) {
+		int escapes= 0;
+		while (index - escapes > 0 && handle.charAt(index - escapes - 1) == '\\') {
+			escapes++;
+		}
+		return escapes % 2 != 0;
+	}
+
+	private static void removeEntries(Map<String, Entry> entries, String typeRoot) {
+		for (Iterator<Entry> iter= entries.values().iterator(); iter.hasNext();) {
+			if (typeRoot.equals(iter.next().fTypeRoot))
+				iter.remove();
+		}
+	}
+
+	private synchronized void processChanges(IJavaElementDelta delta) {
+		Set<String> structureUnknownUnits= new HashSet<>();
+		processDelta(delta, structureUnknownUnits);
+		removeDependentCallees(structureUnknownUnits);
+	}
+
+	private void processDelta(IJavaElementDelta delta, Set<String> structureUnknownUnits) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & STRUCTURE_FLAGS) != 0) {
+					clear();
+					return;
+				}
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				processUnitDelta(delta, structureUnknownUnits);
+				return;
+			case IJavaElement.CLASS_FILE:
+				clear(); // class folder library changed
+				return;
+			default:
+				return;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			processDelta(children[i], structureUnknownUnits);
+		}
+	}
+
+	private void processUnitDelta(IJavaElementDelta delta, Set<String> structureUnknownUnits) {
+		ICompilationUnit unit= (ICompilationUnit) delta.getElement();
+		int flags= delta.getFlags();
+		if (delta.getKind() != IJavaElementDelta.CHANGED) {
+			clear();
+		} else if ((flags & UNIT_CHANGE_FLAGS) == 0) {
+			return; // e.g. only the AST was affected
+		} else if ((flags & IJavaElementDelta.F_FINE_GRAINED) != 0) {
+			if (hasStructuralChange(delta)) {
+				clear();
+			} else {
+				markChanged(unit, false, structureUnknownUnits);
+			}
+		} else {
+			// without a fine grained delta, only open working copies have reported their structural changes
+			// when they were reconciled. A closed working copy may have reverted unsaved changes.
+			markChanged(unit, !unit.getPrimary().isWorkingCopy(), structureUnknownUnits);
+		}
+	}
+
+	/**
+	 * Tells whether the given delta contains changes which can affect the bindings in other
+	 * compilation units.
+	 *
+	 * @param delta the fine grained delta of a compilation unit or a member
+	 * @return <code>true</code> if the delta contains structural changes
+	 */
+	private static boolean hasStructuralChange(IJavaElementDelta delta) {
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElementDelta child= children[i];
+			IJavaElement element= child.getElement();
+			int type= element.getElementType();
+			if (type == IJavaElement.IMPORT_CONTAINER || type == IJavaElement.IMPORT_DECLARATION || isLocal(element))
+				continue;
+			if (child.getKind() != IJavaElementDelta.CHANGED)
+				return true;
+			if ((child.getFlags() & (IJavaElementDelta.F_MODIFIERS | IJavaElementDelta.F_SUPER_TYPES)) != 0)
+				return true;
+			if (hasStructuralChange(child))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tells whether the given element is declared inside a method, field or initializer body.
+	 *
+	 * @param element the element
+	 * @return <code>true</code> if the element is local
+	 */
+	private static boolean isLocal(IJavaElement element) {
+		IJavaElement parent= element.getParent();
+		while (parent != null && parent.getElementType() != IJavaElement.COMPILATION_UNIT) {
+			switch (parent.getElementType()) {
+				case IJavaElement.METHOD:
+				case IJavaElement.FIELD:
+				case IJavaElement.INITIALIZER:
+					return true;
+			}
+			parent= parent.getParent();
+		}
+		return false;
+	}
+
+	//---- persistence ----
+
+	private static File getIndexFile() {
+		return JavaPlugin.getDefault().getStateLocation().append(FILE_NAME).toFile();
+	}
+
+	private void load() {
+		File file= getIndexFile();
+		if (!file.exists())
+			return;
+
+		Map<String, Long> savedStamps= new HashMap<>();
+		Map<String, Entry> callees= new HashMap<>();
+		Map<String, Entry> callers= new HashMap<>();
+		Map<String, Long> unitChanges= new HashMap<>();
+		long changeCount;
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != FILE_VERSION)
+				return;
+			changeCount= in.readLong();
+			readStamps(in, savedStamps);
+			readStamps(in, unitChanges);
+			readEntries(in, callees);
+			readEntries(in, callers);
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+			return;
+		} finally {
+			file.delete(); // written again on shutdown
+		}
+
+		Map<String, Long> currentStamps;
+		try {
+			currentStamps= createStamps();
+		} catch (CoreException e) {
+			JavaPlugin.log(e);
+			return;
+		}
+		List<ICompilationUnit> changedUnits= new ArrayList<>();
+		if (!getChangedUnits(savedStamps, currentStamps, changedUnits))
+			return;
+
+		synchronized (this) {
+			if (fGeneration != 0 || fChangeCount != 0)
+				return; // changes were reported while loading
+			// entries computed while loading are up to date
+			Map<String, Entry> currentCallees= new HashMap<>(fCallees);
+			Map<String, Entry> currentCallers= new HashMap<>(fCallers);
+
+			fChangeCount= changeCount;
+			fUnitChanges.putAll(unitChanges);
+			fCallees.putAll(callees);
+			fCallers.putAll(callers);
+			Set<String> structureUnknownUnits= new HashSet<>();
+			for (Iterator<ICompilationUnit> iter= changedUnits.iterator(); iter.hasNext();) {
+				markChanged(iter.next(), true, structureUnknownUnits);
+			}
+			removeDependentCallees(structureUnknownUnits);
+
+			putCurrent(fCallees, currentCallees);
+			putCurrent(fCallers, currentCallers);
+		}
+	}
+
+	private void putCurrent(Map<String, Entry> entries, Map<String, Entry> currentEntries) {
+		for (Iterator<Map.Entry<String, Entry>> iter= currentEntries.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Entry> current= iter.next();
+			Entry entry= current.getValue();
+			entries.put(current.getKey(), new Entry(entry.fTypeRoot, fChangeCount, entry.fCalls));
+		}
+	}
+
+	private void save() {
+		synchronized (this) {
+			if (fCallees.isEmpty() && fCallers.isEmpty())
+				return;
+		}
+		Map<String, Long> stamps;
+		try {
+			stamps= createStamps();
+		} catch (CoreException e) {
+			JavaPlugin.log(e);
+			return;
+		}
+		File file= getIndexFile();
+		synchronized (this) {
+			try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+				out.writeInt(FILE_VERSION);
+				out.writeLong(fChangeCount);
+				writeStamps(out, stamps);
+				writeStamps(out, fUnitChanges);
+				writeEntries(out, fCallees);
+				writeEntries(out, fCallers);
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+				file.delete();
+			}
+		}
+	}
+
+	private static void readStamps(DataInputStream in, Map<String, Long> stamps) throws IOException {
+		int size= in.readInt();
+		for (int i= 0; i < size; i++) {
+			stamps.put(in.readUTF(), Long.valueOf(in.readLong()));
+		}
+	}
+
+	private static void writeStamps(DataOutputStream out, Map<String, Long> stamps) throws IOException {
+		out.writeInt(stamps.size());
+		for (Iterator<Map.Entry<String, Long>> iter= stamps.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Long> stamp= iter.next();
+			out.writeUTF(stamp.getKey());
+			out.writeLong(stamp.getValue().longValue());
+		}
+	}
+
+	private static void readEntries(DataInputStream in, Map<String, Entry> entries) throws IOException {
+		int size= in.readInt();
+		for (int i= 0; i < size; i++) {
+			String key= in.readUTF();
+			String typeRoot= in.readUTF();
+			long changeCount= in.readLong();
+			int callCount= in.readInt();
+			List<Call> calls= new ArrayList<>(callCount);
+			for (int j= 0; j < callCount; j++) {
+				String member= in.readUTF();
+				String callTypeRoot= in.readUTF();
+				calls.add(new Call(member, callTypeRoot.length() == 0 ? null : callTypeRoot, in.readInt(), in.readInt(), in.readInt(), in.readBoolean()));
+			}
+			entries.put(key, new Entry(typeRoot, changeCount, calls));
+		}
+	}
+
+	private static void writeEntries(DataOutputStream out, Map<String, Entry> entries) throws IOException {
+		out.writeInt(entries.size());
+		for (Iterator<Map.Entry<String, Entry>> iter= entries.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Entry> mapEntry= iter.next();
+			Entry entry= mapEntry.getValue();
+			out.writeUTF(mapEntry.getKey());
+			out.writeUTF(entry.fTypeRoot);
+			out.writeLong(entry.fChangeCount);
+			out.writeInt(entry.fCalls.size());
+			for (Iterator<Call> callIter= entry.fCalls.iterator(); callIter.hasNext();) {
+				Call call= callIter.next();
+				out.writeUTF(call.fMember);
+				out.writeUTF(call.fTypeRoot == null ? "" : call.fTypeRoot); //$NON-NLS-1$
+				out.writeInt(call.fStart);
+				out.writeInt(call.fEnd);
+				out.writeInt(call.fLineNumber);
+				out.writeBoolean(call.fInterfaceMethod);
+			}
+		}
+	}
+
+	/**
+	 * Compares the stamps saved with the index to the current stamps.
+	 *
+	 * @param savedStamps the stamps saved with the index
+	 * @param currentStamps the current stamps
+	 * @param changedUnits collects the compilation units whose files changed
+	 * @return <code>false</code> if anything else than the contents of Java files changed
+	 */
+	private static boolean getChangedUnits(Map<String, Long> savedStamps, Map<String, Long> currentStamps, List<ICompilationUnit> changedUnits) {
+		if (savedStamps.size() != currentStamps.size())
+			return false;
+		IWorkspaceRoot root= ResourcesPlugin.getWorkspace().getRoot();
+		for (Iterator<Map.Entry<String, Long>> iter= savedStamps.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Long> saved= iter.next();
+			String key= saved.getKey();
+			Long current= currentStamps.get(key);
+			if (current == null || current.longValue() == UNKNOWN_STAMP)
+				return false;
+			if (current.equals(saved.getValue()))
+				continue;
+			if (!key.startsWith(JAVA_FILE_PREFIX))
+				return false;
+			IFile file= root.getFile(new Path(key.substring(JAVA_FILE_PREFIX.length())));
+			IJavaElement element= JavaCore.create(file);
+			if (element instanceof ICompilationUnit)
+				changedUnits.add((ICompilationUnit) element);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the modification stamps of all Java files, the resolved classpaths of all Java
+	 * projects and the libraries on the classpaths.
+	 *
+	 * @return a map from a prefixed path or name to a stamp
+	 * @throws CoreException if the workspace cannot be visited
+	 */
+	private static Map<String, Long> createStamps() throws CoreException {
+		final Map<String, Long> stamps= new HashMap<>();
+		IWorkspaceRoot root= ResourcesPlugin.getWorkspace().getRoot();
+		root.accept(new IResourceProxyVisitor() {
+			@Override
+			public boolean visit(IResourceProxy proxy) throws CoreException {
+				if (proxy.getType() == IResource.FILE && proxy.getName().endsWith(".java")) //$NON-NLS-1$
+					stamps.put(JAVA_FILE_PREFIX + proxy.requestFullPath().toString(), Long.valueOf(proxy.getModificationStamp()));
+				return true;
+			}
+		}, IResource.NONE);
+
+		IJavaProject[] projects= JavaCore.create(root).getJavaProjects();
+		for (int i= 0; i < projects.length; i++) {
+			IJavaProject project= projects[i];
+			if (!project.getProject().isOpen())
+				continue;
+			IClasspathEntry[] entries= project.getResolvedClasspath(true);
+			stamps.put(PROJECT_PREFIX + project.getElementName(), Long.valueOf(Arrays.asList(entries).toString().hashCode()));
+			for (int j= 0; j < entries.length; j++) {
+				if (entries[j].getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
+					IPath path= entries[j].getPath();
+					stamps.put(LIBRARY_PREFIX + path.toString(), Long.valueOf(getLibraryStamp(root, path)));
+				}
+			}
+		}
+		return stamps;
+	}
+
+	private static long getLibraryStamp(IWorkspaceRoot root, IPath path) throws CoreException {
+		IResource resource= root.findMember(path);
+		if (resource instanceof IFile) {
+			return resource.getModificationStamp();
+		} else if (resource instanceof IContainer) {
+			// class folder: combine the stamps of all contained files
+			final long[] stamp= { 0 };
+			resource.accept(new IResourceProxyVisitor() {
+				@Override
+				public boolean visit(IResourceProxy proxy) throws CoreException {
+					if (proxy.getType() == IResource.FILE)
+						stamp[0]= 31 * stamp[0] + proxy.getModificationStamp();
+					return true;
+				}
+			}, IResource.NONE);
+			return stamp[0];
+		}
+		File file= path.toFile();
+		if (file.isFile())
+			return file.lastModified();
+		return file.exists() ? UNKNOWN_STAMP : 0; // external class folders are not checked
+	}
+
+	@Override
+	public String toString() {
+		return "CallGraphIndex [" + getStatistics() + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
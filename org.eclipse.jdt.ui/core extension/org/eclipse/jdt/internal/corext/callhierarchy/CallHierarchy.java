@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.StringTokenizer;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -43,6 +44,32 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.util.StringMatcher;
 
 public class CallHierarchy {
+
+    /**
+     * Receives the calls found while a call hierarchy is expanded.
+     *
+     * @see CallHierarchy#expand(MethodWrapper[], int, IExpansionListener, IProgressMonitor)
+     * @since 3.14
+     */
+    public interface IExpansionListener {
+
+        /**
+         * Called when the calls of a wrapper have been found. Called from the
+         * threads which expand the hierarchy, possibly concurrently.
+         *
+         * @param wrapper the expanded wrapper
+         * @param calls the calls of the wrapper
+         */
+        void callsFound(MethodWrapper wrapper, MethodWrapper[] calls);
+    }
+
+    /**
+     * The maximum number of wrappers expanded concurrently by default.
+     *
+     * @since 3.14
+     */
+    public static final int MAX_EXPANSION_PARALLELISM= 4;
+
     private static final String PREF_USE_IMPLEMENTORS= "PREF_USE_IMPLEMENTORS"; //$NON-NLS-1$
     private static final String PREF_USE_FILTERS = "PREF_USE_FILTERS"; //$NON-NLS-1$
     private static final String PREF_FILTERS_LIST = "PREF_FILTERS_LIST"; //$NON-NLS-1$
@@ -52,8 +79,9 @@ public class CallHierarchy {
     private static CallHierarchy fgInstance;
     private IJavaSearchScope fSearchScope;
     private StringMatcher[] fFilters;
+    private int fExpansionParallelism= Math.min(MAX_EXPANSION_PARALLELISM, Runtime.getRuntime().availableProcessors());
 
-    public static CallHierarchy getDefault() {
+    public static synchronized CallHierarchy getDefault() {
         if (fgInstance == null) {
             fgInstance = new CallHierarchy();
         }
@@ -163,6 +191,42 @@ public class CallHierarchy {
 		roots.add(root);
 	}
 
+    /**
+     * Expands the given wrappers and their descendants up to the given depth. Sibling
+     * wrappers are expanded concurrently, and the calls of the wrappers are reported
+     * to the listener as soon as they have been found. Recursive calls are not expanded.
+     *
+     * @param roots the wrappers to expand
+     * @param maxDepth the maximum level of the wrappers to expand
+     * @param listener the listener receiving the calls
+     * @param monitor the progress monitor or <code>null</code>
+     * @throws org.eclipse.core.runtime.OperationCanceledException if the expansion has been canceled
+     * @since 3.14
+     */
+    public void expand(MethodWrapper[] roots, int maxDepth, IExpansionListener listener, IProgressMonitor monitor) {
+        new CallHierarchyExpander(roots, maxDepth, listener).expand(getExpansionParallelism(), monitor);
+    }
+
+    /**
+     * Sets the number of wrappers which are expanded concurrently by
+     * {@link #expand(MethodWrapper[], int, IExpansionListener, IProgressMonitor)}.
+     *
+     * @param parallelism the maximum number of concurrently expanded wrappers,
+     *            <code>1</code> to expand them sequentially in the calling thread
+     * @since 3.14
+     */
+    public void setExpansionParallelism(int parallelism) {
+        fExpansionParallelism= Math.max(1, parallelism);
+    }
+
+    /**
+     * @return the maximum number of concurrently expanded wrappers
+     * @since 3.14
+     */
+    public int getExpansionParallelism() {
+        return fExpansionParallelism;
+    }
+
     public static CallLocation getCallLocation(Object element) {
         CallLocation callLocation = null;
 
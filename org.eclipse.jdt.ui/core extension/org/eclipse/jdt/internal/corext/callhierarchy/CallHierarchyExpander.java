@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+
+/**
+ * Expands the wrappers of a call hierarchy level by level. The calls of the wrappers in the queue
+ * are searched concurrently by a bounded number of jobs.
+ *
+ * @see CallHierarchy#expand(MethodWrapper[], int, CallHierarchy.IExpansionListener, IProgressMonitor)
+ * @since 3.14
+ */
+class CallHierarchyExpander {
+
+	/**
+	 * Forwards the cancellation of the expansion to the searches of a single wrapper.
+	 */
+	private final class WrapperProgressMonitor extends NullProgressMonitor {
+
+		private final IProgressMonitor fMonitor;
+
+		WrapperProgressMonitor(IProgressMonitor monitor) {
+			fMonitor= monitor;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return fMonitor.isCanceled() || isStopped();
+		}
+	}
+
+	private final LinkedList<MethodWrapper> fQueue= new LinkedList<>();
+	private final int fMaxDepth;
+	private final CallHierarchy.IExpansionListener fListener;
+
+	/**
+	 * The number of wrappers which are currently being expanded.
+	 */
+	private int fActive;
+	private boolean fCanceled;
+	private Throwable fError;
+
+	CallHierarchyExpander(MethodWrapper[] roots, int maxDepth, CallHierarchy.IExpansionListener listener) {
+		fMaxDepth= maxDepth;
+		fListener= listener;
+		for (int i= 0; i < roots.length; i++) {
+			if (isExpandable(roots[i]))
+				fQueue.add(roots[i]);
+		}
+	}
+
+	/**
+	 * Expands the roots and all their descendants up to the maximum depth.
+	 *
+	 * @param parallelism the maximum number of wrappers expanded concurrently
+	 * @param monitor the progress monitor or <code>null</code>
+	 * @throws OperationCanceledException if the expansion has been canceled
+	 */
+	void expand(int parallelism, final IProgressMonitor monitor) {
+		final IProgressMonitor pm= monitor != null ? monitor : new NullProgressMonitor();
+		pm.beginTask(CallHierarchyMessages.CallHierarchyExpander_taskname, IProgressMonitor.UNKNOWN);
+		try {
+			if (parallelism <= 1) {
+				work(pm);
+			} else {
+				String name= CallHierarchyExpander.class.getName();
+				JobGroup group= new JobGroup(name, parallelism, parallelism);
+				for (int i= 0; i < parallelism; i++) {
+					Job job= new Job(name) {
+						@Override
+						protected IStatus run(IProgressMonitor jobMonitor) {
+							work(pm);
+							return Status.OK_STATUS;
+						}
+					};
+					job.setSystem(true);
+					job.setJobGroup(group);
+					job.schedule();
+				}
+				try {
+					group.join(0, null);
+				} catch (InterruptedException e) {
+					group.cancel();
+					Thread.currentThread().interrupt();
+					throw new OperationCanceledException();
+				}
+			}
+
+			synchronized (this) {
+				if (fError instanceof Error)
+					throw (Error) fError;
+				if (fError != null)
+					throw (RuntimeException) fError;
+				if (fCanceled || pm.isCanceled())
+					throw new OperationCanceledException();
+			}
+		} finally {
+			pm.done();
+		}
+	}
+
+	private void work(IProgressMonitor monitor) {
+		IProgressMonitor wrapperMonitor= new WrapperProgressMonitor(monitor);
+		MethodWrapper wrapper;
+		while ((wrapper= next(monitor)) != null) {
+			List<MethodWrapper> children= new ArrayList<>();
+			try {
+				MethodWrapper[] calls= wrapper.getCalls(wrapperMonitor);
+				fListener.callsFound(wrapper, calls);
+				for (int i= 0; i < calls.length; i++) {
+					if (isExpandable(calls[i]))
+						children.add(calls[i]);
+				}
+			} catch (OperationCanceledException e) {
+				stop(null);
+			} catch (RuntimeException e) {
+				stop(e);
+			} catch (Error e) {
+				stop(e);
+			} finally {
+				done(children, monitor);
+			}
+		}
+	}
+
+	private boolean isExpandable(MethodWrapper wrapper) {
+		// same conditions as in the call hierarchy view
+		return wrapper.getLevel() <= fMaxDepth && wrapper.canHaveChildren() && !wrapper.isRecursive();
+	}
+
+	/**
+	 * Returns the next wrapper to expand. Waits while the queue is empty and other wrappers are
+	 * still expanded, since they may add new wrappers to the queue.
+	 *
+	 * @param monitor the progress monitor
+	 * @return the next wrapper or <code>null</code> if the expansion is finished
+	 */
+	private synchronized MethodWrapper next(IProgressMonitor monitor) {
+		while (fQueue.isEmpty() && fActive > 0 && !isStopped() && !monitor.isCanceled()) {
+			try {
+				wait(100); // poll for cancellation
+			} catch (InterruptedException e) {
+				fCanceled= true;
+			}
+		}
+		if (fQueue.isEmpty() || isStopped() || monitor.isCanceled()) {
+			notifyAll();
+			return null;
+		}
+		fActive++;
+		return fQueue.removeFirst();
+	}
+
+	private synchronized void done(List<MethodWrapper> children, IProgressMonitor monitor) {
+		fQueue.addAll(children);
+		fActive--;
+		monitor.worked(1);
+		notifyAll();
+	}
+
+	private synchronized void stop(Throwable error) {
+		if (error == null)
+			fCanceled= true;
+		else if (fError == null)
+			fError= error;
+		notifyAll();
+	}
+
+	private synchronized boolean isStopped() {
+		return fCanceled || fError != null;
+	}
+}
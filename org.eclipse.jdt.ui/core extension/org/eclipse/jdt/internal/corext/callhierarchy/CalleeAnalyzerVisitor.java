@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.callhierarchy;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -24,6 +25,7 @@ import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
@@ -47,16 +49,14 @@ import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 
 class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
-    private final CallSearchResultCollector fSearchResults;
-    private final IMember fMember;
+    private final List<CallGraphIndex.Call> fCalls;
     private final CompilationUnit fCompilationUnit;
     private final IProgressMonitor fProgressMonitor;
     private int fMethodEndPosition;
     private int fMethodStartPosition;
 
     CalleeAnalyzerVisitor(IMember member, CompilationUnit compilationUnit, IProgressMonitor progressMonitor) {
-        fSearchResults = new CallSearchResultCollector();
-        this.fMember = member;
+        fCalls = new ArrayList<>();
         this.fCompilationUnit= compilationUnit;
         this.fProgressMonitor = progressMonitor;
 
@@ -70,10 +70,45 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
     }
 
     /**
+     * Returns the calls found in the member. The search scope, the filters and the implementors
+     * setting have not been applied to the calls yet.
+     *
+     * @return the calls
+     * @see #createCallees(IMember, List)
+     */
+    public List<CallGraphIndex.Call> getCalls() {
+        return fCalls;
+    }
+
+    /**
+     * Applies the current call hierarchy settings to the calls found in the given member.
+     *
+     * @param member the calling member
+     * @param calls the calls found in the member
      * @return a map from handle identifier ({@link String}) to {@link MethodCall}
      */
-    public Map<String, MethodCall> getCallees() {
-        return fSearchResults.getCallers();
+    static Map<String, MethodCall> createCallees(IMember member, List<CallGraphIndex.Call> calls) {
+        CallSearchResultCollector searchResults = new CallSearchResultCollector();
+        for (Iterator<CallGraphIndex.Call> iter = calls.iterator(); iter.hasNext();) {
+            CallGraphIndex.Call call = iter.next();
+            IJavaElement element = JavaCore.create(call.fMember);
+            if (!(element instanceof IMember)) {
+                continue;
+            }
+            IMember referencedMember = (IMember) element;
+            if (referencedMember instanceof IMethod) {
+                IMethod calledMethod = (IMethod) referencedMember;
+                if (call.fInterfaceMethod) {
+                    calledMethod = findImplementingMethods(calledMethod);
+                }
+                if (isIgnoredBySearchScope(calledMethod)) {
+                    continue;
+                }
+                referencedMember = calledMethod;
+            }
+            searchResults.addMember(member, referencedMember, call.fStart, call.fEnd, call.fLineNumber);
+        }
+        return searchResults.getCallers();
     }
 
     @Override
@@ -253,22 +288,20 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
                         calledType, fProgressMonitor);
 
                 IMember referencedMember= null;
+                boolean interfaceMethod= false;
                 if (calledMethod == null) {
                     if (calledMethodBinding.isConstructor() && calledMethodBinding.getParameterTypes().length == 0) {
                         referencedMember= calledType;
                     }
                 } else {
-                    if (calledType.isInterface()) {
-                        calledMethod = findImplementingMethods(calledMethod);
-                    }
-
-                    if (!isIgnoredBySearchScope(calledMethod)) {
-                        referencedMember= calledMethod;
-                    }
+                    referencedMember= calledMethod;
+                    interfaceMethod= calledType.isInterface();
+                }
+                if (referencedMember != null) {
+                    final int position= node.getStartPosition();
+                    final int number= fCompilationUnit.getLineNumber(position);
+                    fCalls.add(new CallGraphIndex.Call(referencedMember.getHandleIdentifier(), null, position, position + node.getLength(), number < 1 ? 1 : number, interfaceMethod));
                 }
-                final int position= node.getStartPosition();
-				final int number= fCompilationUnit.getLineNumber(position);
-				fSearchResults.addMember(fMember, referencedMember, position, position + node.getLength(), number < 1 ? 1 : number);
             }
         } catch (JavaModelException jme) {
             JavaPlugin.log(jme);
@@ -288,7 +321,7 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
 		return null;
 	}
 
-    private boolean isIgnoredBySearchScope(IMethod enclosingElement) {
+    private static boolean isIgnoredBySearchScope(IMethod enclosingElement) {
         if (enclosingElement != null) {
             return !getSearchScope().encloses(enclosingElement);
         } else {
@@ -296,7 +329,7 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
         }
     }
 
-    private IJavaSearchScope getSearchScope() {
+    private static IJavaSearchScope getSearchScope() {
         return CallHierarchy.getDefault().getSearchScope();
     }
 
@@ -330,7 +363,7 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
         return isNodeWithinMethod(node) || isNodeEnclosingMethod(node);
     }
 
-    private IMethod findImplementingMethods(IMethod calledMethod) {
+    private static IMethod findImplementingMethods(IMethod calledMethod) {
         Collection<IJavaElement> implementingMethods = CallHierarchy.getDefault()
                                                         .getImplementingMethods(calledMethod);
 
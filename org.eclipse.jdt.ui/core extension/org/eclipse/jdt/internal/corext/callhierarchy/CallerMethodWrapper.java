@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -103,6 +103,7 @@ public class CallerMethodWrapper extends MethodWrapper {
 
 			IMember member= getMember();
 			SearchPattern pattern= null;
+			int searchKind= IJavaSearchConstants.CONSTRUCTOR;
 			IType type= null;
 			if (member instanceof IType) {
 				type= (IType) member;
@@ -124,6 +125,7 @@ public class CallerMethodWrapper extends MethodWrapper {
 					}
 				} else if (type.getParent() instanceof IMethod) {
 					// good enough for local types (does not find super(..) references in subtype constructors):
+					searchKind= IJavaSearchConstants.CLASS_INSTANCE_CREATION_TYPE_REFERENCE;
 					pattern= SearchPattern.createPattern(type,
 							IJavaSearchConstants.CLASS_INSTANCE_CREATION_TYPE_REFERENCE,
 							SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
@@ -135,19 +137,23 @@ public class CallerMethodWrapper extends MethodWrapper {
 				}
 			}
 			if (pattern == null) {
-				int limitTo= IJavaSearchConstants.REFERENCES;
+				searchKind= IJavaSearchConstants.REFERENCES;
 				if (member.getElementType() == IJavaElement.FIELD)
-					limitTo= getFieldSearchMode();
-				pattern= SearchPattern.createPattern(member, limitTo, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
+					searchKind= getFieldSearchMode();
+				pattern= SearchPattern.createPattern(member, searchKind, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
 			}
 			if (pattern == null) { // e.g. for initializers
 				return new HashMap<>(0);
 			}
 
-			SearchEngine searchEngine= new SearchEngine();
-			MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor();
 			IJavaSearchScope defaultSearchScope= getSearchScope();
 			boolean isWorkspaceScope= SearchEngine.createWorkspaceScope().equals(defaultSearchScope);
+			if (isWorkspaceScope && !JdtFlags.isPrivate(member)) {
+				return CallGraphIndex.getDefault().getCallers(member, searchKind, pattern, monitor);
+			}
+
+			SearchEngine searchEngine= new SearchEngine();
+			MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor();
 			IJavaSearchScope searchScope= isWorkspaceScope ? getAccurateSearchScope(defaultSearchScope, member) : defaultSearchScope;
 			searchEngine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, searchScope, searchRequestor,
 					monitor);
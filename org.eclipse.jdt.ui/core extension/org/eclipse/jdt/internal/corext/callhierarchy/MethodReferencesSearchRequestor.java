@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,12 +32,26 @@ class MethodReferencesSearchRequestor extends SearchRequestor {
 
     @Override
 	public void acceptSearchMatch(SearchMatch match) {
-        if (fRequireExactMatch && (match.getAccuracy() != SearchMatch.A_ACCURATE)) {
-            return;
+        IMember member= getCallingMember(match, fRequireExactMatch);
+        if (member != null) {
+            fSearchResults.addMember(member, member, match.getOffset(), match.getOffset()+match.getLength());
+        }
+    }
+
+    /**
+     * Returns the member containing the given reference match.
+     *
+     * @param match the search match
+     * @param requireExactMatch <code>true</code> if only accurate matches should be considered
+     * @return the member containing the reference or <code>null</code> if the match is not a call
+     */
+    static IMember getCallingMember(SearchMatch match, boolean requireExactMatch) {
+        if (requireExactMatch && (match.getAccuracy() != SearchMatch.A_ACCURATE)) {
+            return null;
         }
 
         if (match.isInsideDocComment()) {
-            return;
+            return null;
         }
 
         if (match.getElement() != null && match.getElement() instanceof IMember) {
@@ -47,9 +61,9 @@ class MethodReferencesSearchRequestor extends SearchRequestor {
                 case IJavaElement.TYPE:
                 case IJavaElement.FIELD:
                 case IJavaElement.INITIALIZER:
-                    fSearchResults.addMember(member, member, match.getOffset(), match.getOffset()+match.getLength());
-                    break;
+                    return member;
             }
         }
+        return null;
     }
 }
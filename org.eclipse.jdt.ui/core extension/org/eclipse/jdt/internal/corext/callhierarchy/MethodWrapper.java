@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -33,15 +34,25 @@ import org.eclipse.jdt.internal.ui.callhierarchy.MethodWrapperWorkbenchAdapter;
 /**
  * This class represents the general parts of a method call (either to or from a
  * method).
- *
+ * <p>
+ * A single wrapper must not be expanded by several threads at the same time, but
+ * different wrappers of the same hierarchy can be expanded concurrently, see
+ * {@link CallHierarchy#expand(MethodWrapper[], int, CallHierarchy.IExpansionListener, IProgressMonitor)}.
+ * </p>
  */
 public abstract class MethodWrapper extends PlatformObject {
-    private Map<String, MethodCall> fElements = null;
+    /*
+     * The calls found for this wrapper. The map is only assigned once it is complete, and
+     * is read by the UI while the hierarchy is expanded in the background.
+     */
+    private volatile Map<String, MethodCall> fElements = null;
 
     /*
      * A cache of previously found methods. This cache should be searched
      * before adding a "new" method object reference to the list of elements.
      * This way previously found methods won't be searched again.
+     * The cache is shared by all wrappers of a hierarchy, which may search
+     * concurrently. The calls of a method are only added once they are complete.
      */
     private Map<String, Map<String, MethodCall>> fMethodCache;
     private final MethodCall fMethodCall;
@@ -57,7 +68,7 @@ public abstract class MethodWrapper extends PlatformObject {
         Assert.isNotNull(methodCall);
 
         if (parent == null) {
-            setMethodCache(new HashMap<String, Map<String, MethodCall>>());
+            setMethodCache(new ConcurrentHashMap<String, Map<String, MethodCall>>());
             fLevel = 1;
         } else {
             setMethodCache(parent.getMethodCache());
@@ -81,21 +92,36 @@ public abstract class MethodWrapper extends PlatformObject {
 	}
 
     public MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
-        if (fElements == null) {
-            doFindChildren(progressMonitor);
+        Map<String, MethodCall> elements = fElements;
+        if (elements == null) {
+            elements = doFindChildren(progressMonitor);
         }
 
-        MethodWrapper[] result = new MethodWrapper[fElements.size()];
+        MethodWrapper[] result = new MethodWrapper[elements.size()];
         int i = 0;
 
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
+        for (Iterator<String> iter = elements.keySet().iterator(); iter.hasNext();) {
+            MethodCall methodCall = getMethodCallFromMap(elements, iter.next());
             result[i++] = createMethodWrapper(methodCall);
         }
 
         return result;
     }
 
+    /**
+     * Returns the calls if they have already been found for this wrapper or for
+     * another wrapper of the same member in this hierarchy.
+     *
+     * @return the calls or <code>null</code> if they still have to be searched
+     * @since 3.14
+     */
+    public MethodWrapper[] getCachedCalls() {
+        if (fElements == null && lookupMethod(getMethodCall()) == null) {
+            return null;
+        }
+        return getCalls(null);
+    }
+
     public int getLevel() {
         return fLevel;
     }
@@ -203,11 +229,6 @@ public abstract class MethodWrapper extends PlatformObject {
 
     protected abstract String getTaskName();
 
-    private void addCallToCache(MethodCall methodCall) {
-        Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
-        cachedCalls.put(methodCall.getKey(), methodCall);
-    }
-
 	/**
 	 * Creates a method wrapper for the child of the receiver.
 	 * 
@@ -216,21 +237,20 @@ public abstract class MethodWrapper extends PlatformObject {
 	 */
     protected abstract MethodWrapper createMethodWrapper(MethodCall methodCall);
 
-    private void doFindChildren(IProgressMonitor progressMonitor) {
+    private Map<String, MethodCall> doFindChildren(IProgressMonitor progressMonitor) {
         Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
 
-        if (existingResults != null && !existingResults.isEmpty()) {
-            fElements = new HashMap<>();
-            fElements.putAll(existingResults);
+        if (existingResults != null) {
+            Map<String, MethodCall> elements = new HashMap<>(existingResults);
+            fElements = elements;
+            return elements;
         } else {
-            initCalls();
-
             if (progressMonitor != null) {
                 progressMonitor.beginTask(getTaskName(), 100);
             }
 
             try {
-                performSearch(progressMonitor);
+                return performSearch(progressMonitor);
             } catch (OperationCanceledException e){
             	fElements= null;
             	throw e;
@@ -283,12 +303,6 @@ public abstract class MethodWrapper extends PlatformObject {
         return fMethodCache;
     }
 
-    private void initCalls() {
-        this.fElements = new HashMap<>();
-
-        initCacheForMethod();
-    }
-
     /**
      * Looks up a previously created search result in the "global" cache.
      * @param methodCall the method call
@@ -298,26 +312,25 @@ public abstract class MethodWrapper extends PlatformObject {
         return getMethodCache().get(methodCall.getKey());
     }
 
-    private void performSearch(IProgressMonitor progressMonitor) {
-        fElements = findChildren(progressMonitor);
+    private Map<String, MethodCall> performSearch(IProgressMonitor progressMonitor) {
+        Map<String, MethodCall> elements = findChildren(progressMonitor);
 
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
+        Map<String, MethodCall> cachedCalls = new HashMap<>();
+        for (Iterator<String> iter = elements.keySet().iterator(); iter.hasNext();) {
             checkCanceled(progressMonitor);
 
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            addCallToCache(methodCall);
+            MethodCall methodCall = getMethodCallFromMap(elements, iter.next());
+            cachedCalls.put(methodCall.getKey(), methodCall);
         }
+        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
+        fElements = elements;
+        return elements;
     }
 
     private MethodCall getMethodCallFromMap(Map<String, MethodCall> elements, String key) {
         return elements.get(key);
     }
 
-    private void initCacheForMethod() {
-        Map<String, MethodCall> cachedCalls = new HashMap<>();
-        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
-    }
-
     /**
      * Checks with the progress monitor to see whether the creation of the type hierarchy
      * should be canceled. Should be regularly called
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,40 +11,110 @@
 package org.eclipse.jdt.internal.corext.dom;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.IBinding;
 
 /**
  * Creates AST from a set of compilation units. Uses the
  * batch parser. Splits the set of compilation units in subsets
  * such that it is unlikely that a out of memory exception will occur.
+ * The size of the subsets is adapted to the length of the sources and
+ * the heap available, see {@link ASTBatchSizer}.
+ * <p>
+ * If a parallelism greater than one is set, the subsets are parsed concurrently
+ * on a bounded number of worker jobs. The requestor is still called by one thread
+ * at a time, so requestors do not need to be thread safe.
+ * </p>
  *
  * @since 3.4
  */
 public class ASTBatchParser {
 
-	private static final int MAX_AT_ONCE;
-	static {
-		long maxMemory= Runtime.getRuntime().maxMemory() / (1 << 20); // in MiB
-		
-		if      (maxMemory >= 2000) MAX_AT_ONCE= 400;
-		else if (maxMemory >= 1500) MAX_AT_ONCE= 300;
-		else if (maxMemory >= 1000) MAX_AT_ONCE= 200;
-		else if (maxMemory >=  500) MAX_AT_ONCE= 100;
-		else                        MAX_AT_ONCE=  25;
+	/**
+	 * Requestor forwarding to another requestor. Calls from concurrent
+	 * parsers are serialized.
+	 */
+	private static final class SynchronizedASTRequestor extends ASTRequestor {
+
+		private final ASTRequestor fRequestor;
+
+		public SynchronizedASTRequestor(ASTRequestor requestor) {
+			fRequestor= requestor;
+		}
+
+		@Override
+		public synchronized void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+			fRequestor.acceptAST(source, ast);
+		}
+
+		@Override
+		public synchronized void acceptBinding(String bindingKey, IBinding binding) {
+			fRequestor.acceptBinding(bindingKey, binding);
+		}
+	}
+
+	/**
+	 * Progress monitor for worker jobs, forwards cancellation to the
+	 * monitor of the client.
+	 */
+	private static final class CancelForwardingProgressMonitor extends NullProgressMonitor {
+
+		private final IProgressMonitor fMonitor;
+		private final List<Throwable> fErrors;
+
+		public CancelForwardingProgressMonitor(IProgressMonitor monitor, List<Throwable> errors) {
+			fMonitor= monitor;
+			fErrors= errors;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return fMonitor.isCanceled() || !fErrors.isEmpty();
+		}
+	}
+
+	private int fParallelism= 1;
+
+	/**
+	 * Sets the number of subsets of compilation units that are parsed concurrently.
+	 * <p>
+	 * With a parallelism greater than one, the requestor must not call
+	 * {@link ASTRequestor#createBindings(String[])}.
+	 * </p>
+	 *
+	 * @param parallelism the maximum number of concurrent parsers, <code>1</code>
+	 *   to parse sequentially in the calling thread (the default)
+	 */
+	public void setParallelism(int parallelism) {
+		fParallelism= Math.max(1, parallelism);
+	}
+
+	/**
+	 * Returns the number of subsets of compilation units that are parsed concurrently.
+	 *
+	 * @return the maximum number of concurrent parsers
+	 */
+	public int getParallelism() {
+		return fParallelism;
 	}
 
 	/**
@@ -74,25 +144,15 @@ public class ASTBatchParser {
 
 		monitor.beginTask("", compilationUnits.length); //$NON-NLS-1$
 		try {
-
-			ICompilationUnit[][] splited= splitByProject(compilationUnits);
-			for (int i= 0; i < splited.length; i++) {
-				ICompilationUnit[] units= splited[i];
-
-				if (units.length <= MAX_AT_ONCE) {
+			ASTBatchSizer sizer= new ASTBatchSizer(splitByProject(compilationUnits), fParallelism);
+			if (fParallelism > 1 && compilationUnits.length > 1) {
+				createASTsInParallel(sizer, bindingKeys, requestor, monitor);
+			} else {
+				ASTBatchSizer.Chunk chunk;
+				while ((chunk= sizer.nextChunk()) != null) {
+					ICompilationUnit[] units= chunk.getUnits();
 					createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, requestor, new SubProgressMonitor(monitor, units.length));
-				} else {
-					List<ICompilationUnit> list= Arrays.asList(units);
-					int end= 0;
-					int cursor= 0;
-					while (cursor < units.length) {
-						end= Math.min(end + MAX_AT_ONCE, units.length);
-						List<ICompilationUnit> toParse= list.subList(cursor, end);
-
-						createParser(units[0].getJavaProject()).createASTs(toParse.toArray(new ICompilationUnit[toParse.size()]), bindingKeys, requestor,
-								new SubProgressMonitor(monitor, toParse.size()));
-						cursor= end;
-					}
+					sizer.chunkDone(chunk);
 				}
 			}
 		} finally {
@@ -100,6 +160,64 @@ public class ASTBatchParser {
 		}
 	}
 
+	private void createASTsInParallel(final ASTBatchSizer sizer, final String[] bindingKeys, ASTRequestor requestor, final IProgressMonitor monitor) {
+		final SynchronizedASTRequestor synchronizedRequestor= new SynchronizedASTRequestor(requestor);
+		final List<Throwable> errors= Collections.synchronizedList(new ArrayList<Throwable>());
+
+		String name= ASTBatchParser.class.getName();
+		JobGroup group= new JobGroup(name, fParallelism, fParallelism);
+		for (int i= 0; i < fParallelism; i++) {
+			Job job= new Job(name) {
+				@Override
+				protected IStatus run(IProgressMonitor jobMonitor) {
+					IProgressMonitor parserMonitor= new CancelForwardingProgressMonitor(monitor, errors);
+					try {
+						ASTBatchSizer.Chunk chunk;
+						while (!parserMonitor.isCanceled() && (chunk= sizer.nextChunk()) != null) {
+							ICompilationUnit[] units= chunk.getUnits();
+							createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, synchronizedRequestor, parserMonitor);
+							sizer.chunkDone(chunk);
+							synchronized (synchronizedRequestor) {
+								monitor.worked(units.length);
+							}
+						}
+					} catch (OperationCanceledException e) {
+						return Status.CANCEL_STATUS;
+					} catch (RuntimeException e) {
+						errors.add(e);
+						return Status.CANCEL_STATUS;
+					} catch (Error e) {
+						errors.add(e);
+						return Status.CANCEL_STATUS;
+					}
+					return parserMonitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+				}
+			};
+			job.setSystem(true);
+			job.setJobGroup(group);
+			job.schedule();
+		}
+
+		try {
+			group.join(0, null);
+		} catch (InterruptedException e) {
+			group.cancel();
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+
+		synchronized (errors) {
+			if (!errors.isEmpty()) {
+				Throwable error= errors.get(0);
+				if (error instanceof Error)
+					throw (Error) error;
+				throw (RuntimeException) error;
+			}
+		}
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+	}
+
 	/**
 	 * Creates a new parser which can be used to create ASTs
 	 * for compilation units in <code>project</code>
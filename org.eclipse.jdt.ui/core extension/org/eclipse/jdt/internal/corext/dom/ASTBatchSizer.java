@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.dom;
+
+import java.net.URI;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Splits the compilation units of an {@link ASTBatchParser} run into chunks which are parsed
+ * together.
+ * <p>
+ * The size of a chunk is chosen from the source length of its compilation units and the heap
+ * currently available. After each chunk, the memory used per character of source is measured and
+ * the estimate used for the next chunks is adapted. The estimate is smoothed and clamped, so that a
+ * single noisy measurement cannot make it jump, and a chunk always contains a minimum number of
+ * compilation units. Chunks never contain compilation units from different projects.
+ * </p>
+ * <p>
+ * This class is thread safe, several parsers may take chunks concurrently.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class ASTBatchSizer {
+
+	/**
+	 * Share of the available heap a single round of parsing may use.
+	 */
+	private static final double HEAP_SHARE= 0.5;
+
+	/**
+	 * Initial estimate of the heap needed per character of source to create
+	 * binding-resolved ASTs.
+	 */
+	static final long INITIAL_BYTES_PER_CHAR= 300;
+
+	/**
+	 * Lower bound for the estimate of the heap needed per character of source.
+	 */
+	static final long MIN_BYTES_PER_CHAR= 50;
+
+	/**
+	 * Upper bound for the estimate of the heap needed per character of source.
+	 */
+	static final long MAX_BYTES_PER_CHAR= 3000;
+
+	/**
+	 * Lower bound for the number of compilation units parsed together, unless fewer units of the
+	 * project remain. Parsing units one by one would resolve the same bindings again and again.
+	 */
+	static final int MIN_UNITS_AT_ONCE= 10;
+
+	/**
+	 * Upper bound for the number of compilation units parsed together.
+	 */
+	static final int MAX_UNITS_AT_ONCE= 1000;
+
+	/**
+	 * Source length assumed for compilation units whose length cannot be determined.
+	 */
+	private static final int DEFAULT_SOURCE_LENGTH= 8 * 1024;
+
+	private final ICompilationUnit[][] fUnitsByProject;
+	private final int fParallelism;
+	private final Runtime fRuntime;
+
+	private int fProject;
+	private int fCursor;
+	private long fBytesPerChar;
+
+	/**
+	 * Creates a new sizer.
+	 *
+	 * @param unitsByProject the compilation units to parse, grouped by project
+	 * @param parallelism the number of chunks parsed concurrently
+	 */
+	public ASTBatchSizer(ICompilationUnit[][] unitsByProject, int parallelism) {
+		fUnitsByProject= unitsByProject;
+		fParallelism= Math.max(1, parallelism);
+		fRuntime= Runtime.getRuntime();
+		fBytesPerChar= INITIAL_BYTES_PER_CHAR;
+	}
+
+	/**
+	 * Returns the next chunk of compilation units to parse.
+	 *
+	 * @return the next chunk or <code>null</code> if all compilation units have been handed out
+	 */
+	public synchronized Chunk nextChunk() {
+		while (fProject < fUnitsByProject.length && fCursor == fUnitsByProject[fProject].length) {
+			fProject++;
+			fCursor= 0;
+		}
+		if (fProject == fUnitsByProject.length)
+			return null;
+
+		ICompilationUnit[] units= fUnitsByProject[fProject];
+		long usedMemory= getUsedMemory();
+		long budget= getCharBudget(usedMemory);
+
+		int start= fCursor;
+		long chars= 0;
+		while (fCursor < units.length && fCursor - start < MAX_UNITS_AT_ONCE) {
+			int length= getSourceLength(units[fCursor]);
+			if (chars + length > budget && fCursor - start >= MIN_UNITS_AT_ONCE)
+				break;
+			chars+= length;
+			fCursor++;
+		}
+
+		ICompilationUnit[] chunkUnits= new ICompilationUnit[fCursor - start];
+		System.arraycopy(units, start, chunkUnits, 0, chunkUnits.length);
+
+		if (JavaPlugin.DEBUG_AST_BATCH_PARSER) {
+			System.out.println("ASTBatchParser > chunk of " + chunkUnits.length + " units (" + (chars / 1024) + "K chars) in " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ units[0].getJavaProject().getElementName()
+					+ ", budget: " + (budget / 1024) + "K chars, estimate: " + fBytesPerChar + " bytes/char, heap: " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ (usedMemory >> 20) + "M of " + (fRuntime.maxMemory() >> 20) + "M"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return new Chunk(chunkUnits, chars, usedMemory);
+	}
+
+	/**
+	 * Informs this sizer that the given chunk has been parsed. Adapts the estimate of the heap
+	 * needed per character of source.
+	 *
+	 * @param chunk the parsed chunk
+	 */
+	public synchronized void chunkDone(Chunk chunk) {
+		long growth= getUsedMemory() - chunk.fUsedMemoryBefore;
+		if (growth <= 0 || chunk.fSourceLength == 0)
+			return; // a garbage collection happened in between, nothing to learn
+
+		long observed= growth / chunk.fSourceLength;
+		if (fParallelism > 1)
+			observed/= fParallelism; // growth includes the chunks parsed concurrently
+
+		// clamp the observation, the used memory also grows with allocations of other threads
+		observed= Math.max(MIN_BYTES_PER_CHAR, Math.min(MAX_BYTES_PER_CHAR, Math.min(observed, 2 * fBytesPerChar)));
+		if (observed > fBytesPerChar) {
+			fBytesPerChar= (fBytesPerChar + observed) / 2; // be conservative: adapt to growth quickly
+		} else {
+			fBytesPerChar= (3 * fBytesPerChar + observed) / 4;
+		}
+	}
+
+	/**
+	 * @return the current estimate of the heap needed per character of source
+	 */
+	public synchronized long getBytesPerChar() {
+		return fBytesPerChar;
+	}
+
+	private long getCharBudget(long usedMemory) {
+		long available= Math.max(0, fRuntime.maxMemory() - usedMemory);
+		return (long) (available * HEAP_SHARE) / fParallelism / fBytesPerChar;
+	}
+
+	private long getUsedMemory() {
+		return fRuntime.totalMemory() - fRuntime.freeMemory();
+	}
+
+	/**
+	 * Returns the length of the source of the given compilation unit without opening it.
+	 *
+	 * @param unit the compilation unit
+	 * @return the source length or an estimate if it cannot be determined
+	 */
+	static int getSourceLength(ICompilationUnit unit) {
+		try {
+			if (unit.isWorkingCopy() || unit.isOpen()) {
+				IBuffer buffer= unit.getBuffer();
+				if (buffer != null)
+					return buffer.getLength();
+			}
+			IResource resource= unit.getResource();
+			if (resource != null) {
+				URI location= resource.getLocationURI();
+				if (location != null) {
+					IFileInfo info= EFS.getStore(location).fetchInfo();
+					if (info.exists())
+						return (int) Math.min(info.getLength(), Integer.MAX_VALUE);
+				}
+			}
+		} catch (CoreException e) {
+			// use the default length
+		}
+		return DEFAULT_SOURCE_LENGTH;
+	}
+
+	/**
+	 * Compilation units to be parsed together.
+	 */
+	public static final class Chunk {
+
+		private final ICompilationUnit[] fUnits;
+		private final long fSourceLength;
+		private final long fUsedMemoryBefore;
+
+		Chunk(ICompilationUnit[] units, long sourceLength, long usedMemoryBefore) {
+			fUnits= units;
+			fSourceLength= sourceLength;
+			fUsedMemoryBefore= usedMemoryBefore;
+		}
+
+		public ICompilationUnit[] getUnits() {
+			return fUnits;
+		}
+
+		public long getSourceLength() {
+			return fSourceLength;
+		}
+	}
+}
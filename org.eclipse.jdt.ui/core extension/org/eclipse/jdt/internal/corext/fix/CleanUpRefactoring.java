@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -247,7 +247,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private static class CleanUpASTRequestor extends ASTRequestor {
 
-		private final List<ParseListElement> fUndoneElements;
+		private final List<ParseListElement> fParseList;
+		private final Hashtable<ICompilationUnit, ParseListElement> fUndoneElements;
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ParseListElement> fCompilationUnitParseElementMap;
 		private final CleanUpRefactoringProgressMonitor fMonitor;
@@ -255,7 +256,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		public CleanUpASTRequestor(List<ParseListElement> parseList, Hashtable<ICompilationUnit, List<CleanUpChange>> solutions, CleanUpRefactoringProgressMonitor monitor) {
 			fSolutions= solutions;
 			fMonitor= monitor;
-			fUndoneElements= new ArrayList<>();
+			fParseList= parseList;
+			fUndoneElements= new Hashtable<>();
 			fCompilationUnitParseElementMap= new Hashtable<>(parseList.size());
 			for (Iterator<ParseListElement> iter= parseList.iterator(); iter.hasNext();) {
 				ParseListElement element= iter.next();
@@ -281,7 +283,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			ICleanUp[] rejectedCleanUps= calculateSolutions(context, element.getCleanUps());
 
 			if (rejectedCleanUps.length > 0) {
-				fUndoneElements.add(new ParseListElement(target, rejectedCleanUps));
+				fUndoneElements.put(primary, new ParseListElement(target, rejectedCleanUps));
 				fMonitor.reset();
 			} else {
 				fMonitor.flush();
@@ -292,8 +294,20 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			acceptAST(source, null);
 		}
 
+		/**
+		 * Returns the elements which need another round, in the order of the parse list. The order
+		 * does not depend on the order in which the ASTs have been accepted.
+		 *
+		 * @return the elements with rejected clean ups
+		 */
 		public List<ParseListElement> getUndoneElements() {
-			return fUndoneElements;
+			List<ParseListElement> result= new ArrayList<>(fUndoneElements.size());
+			for (Iterator<ParseListElement> iter= fParseList.iterator(); iter.hasNext();) {
+				ParseListElement undone= fUndoneElements.get(iter.next().getTarget().getCompilationUnit());
+				if (undone != null)
+					result.add(undone);
+			}
+			return result;
 		}
 
 		private ICleanUp[] calculateSolutions(CleanUpContext context, ICleanUp[] cleanUps) {
@@ -399,6 +413,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 							return result;
 						}
 					};
+					parser.setParallelism(getParserParallelism());
 					try {
 						ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
 						parser.createASTs(units, new String[0], requestor, cuMonitor);
@@ -507,6 +522,11 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private static final RefactoringTickProvider CLEAN_UP_REFACTORING_TICK_PROVIDER= new RefactoringTickProvider(0, 1, 0, 0);
 
+	/**
+	 * The maximum number of parsers creating ASTs for clean ups concurrently.
+	 */
+	private static final int MAX_PARSER_PARALLELISM= 4;
+
 	/**
 	 * A clean up is considered slow if its execution lasts longer then the value of
 	 * SLOW_CLEAN_UP_THRESHOLD in ms.
@@ -520,6 +540,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	private final String fName;
 
 	private boolean fUseOptionsFromProfile;
+	private boolean fUseParallelParsing;
 
 	public CleanUpRefactoring() {
 		this(FixMessages.CleanUpRefactoring_Refactoring_name);
@@ -530,6 +551,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fCleanUps= new ArrayList<>();
 		fProjects= new Hashtable<>();
 		fUseOptionsFromProfile= false;
+		fUseParallelParsing= true;
 	}
 
 	public void setUseOptionsFromProfile(boolean enabled) {
@@ -592,6 +614,24 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fLeaveFilesDirty= leaveFilesDirty;
 	}
 
+	/**
+	 * Sets whether ASTs are created concurrently. The clean ups themselves are
+	 * always calculated by one thread at a time. The resulting change does not
+	 * depend on this setting.
+	 *
+	 * @param useParallelParsing <code>true</code> to parse on several worker jobs
+	 */
+	public void setUseParallelParsing(boolean useParallelParsing) {
+		fUseParallelParsing= useParallelParsing;
+	}
+
+	private int getParserParallelism() {
+		// clean ups might need the display thread, parsing in jobs while the display thread waits could deadlock
+		if (!fUseParallelParsing || Display.getCurrent() != null)
+			return 1;
+		return Math.min(MAX_PARSER_PARALLELISM, Runtime.getRuntime().availableProcessors());
+	}
+
 	@Override
 	public String getName() {
 		return fName;
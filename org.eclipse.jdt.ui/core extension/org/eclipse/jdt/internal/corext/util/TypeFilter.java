@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,7 +23,6 @@ import org.eclipse.jdt.core.search.TypeNameMatch;
 import org.eclipse.jdt.ui.PreferenceConstants;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
-import org.eclipse.jdt.internal.ui.util.StringMatcher;
 
 /**
  *
@@ -39,11 +38,11 @@ public class TypeFilter implements IPropertyChangeListener {
 	}
 
 	public static boolean isFiltered(char[] fullTypeName) {
-		return getDefault().filter(new String(fullTypeName));
+		return getDefault().fMatcher.matches(fullTypeName);
 	}
 
 	public static boolean isFiltered(char[] packageName, char[] typeName) {
-		return getDefault().filter(JavaModelUtil.concatenateName(packageName, typeName));
+		return getDefault().fMatcher.matches(packageName, typeName);
 	}
 
 	public static boolean isFiltered(IType type) {
@@ -55,8 +54,8 @@ public class TypeFilter implements IPropertyChangeListener {
 	}
 
 	public static boolean isFiltered(TypeNameMatch match) {
-		boolean filteredByPattern= getDefault().filter(match.getFullyQualifiedName());
-		if (filteredByPattern)
+		TypeFilter typeFilter= getDefault();
+		if (typeFilter.hasFilters() && typeFilter.filter(match.getFullyQualifiedName()))
 			return true;
 		
 		int accessibility= match.getAccessibility();
@@ -70,41 +69,36 @@ public class TypeFilter implements IPropertyChangeListener {
 		}
 	}
 
-	private StringMatcher[] fStringMatchers;
+	/**
+	 * The compiled filter patterns, replaced when the preference changes. Readers do not lock.
+	 */
+	private volatile TypeFilterMatcher fMatcher;
 
 	/**
 	 *
 	 */
 	public TypeFilter() {
-		fStringMatchers= null;
+		fMatcher= createMatcher();
 		PreferenceConstants.getPreferenceStore().addPropertyChangeListener(this);
 	}
 
-	private synchronized StringMatcher[] getStringMatchers() {
-		if (fStringMatchers == null) {
-			String str= PreferenceConstants.getPreferenceStore().getString(PreferenceConstants.TYPEFILTER_ENABLED);
-			StringTokenizer tok= new StringTokenizer(str, ";"); //$NON-NLS-1$
-			int nTokens= tok.countTokens();
-
-			fStringMatchers= new StringMatcher[nTokens];
-			for (int i= 0; i < nTokens; i++) {
-				String curr= tok.nextToken();
-				if (curr.length() > 0) {
-					fStringMatchers[i]= new StringMatcher(curr, false, false);
-				}
-			}
+	private static TypeFilterMatcher createMatcher() {
+		String str= PreferenceConstants.getPreferenceStore().getString(PreferenceConstants.TYPEFILTER_ENABLED);
+		StringTokenizer tok= new StringTokenizer(str, ";"); //$NON-NLS-1$
+		String[] patterns= new String[tok.countTokens()];
+		for (int i= 0; i < patterns.length; i++) {
+			patterns[i]= tok.nextToken();
 		}
-		return fStringMatchers;
+		return new TypeFilterMatcher(patterns);
 	}
 
 	public void dispose() {
 		PreferenceConstants.getPreferenceStore().removePropertyChangeListener(this);
-		fStringMatchers= null;
 	}
 
 
 	public boolean hasFilters() {
-		return getStringMatchers().length > 0;
+		return !fMatcher.isEmpty();
 	}
 
 	/**
@@ -112,20 +106,13 @@ public class TypeFilter implements IPropertyChangeListener {
 	 * @return <code>true</code> iff the given type is filtered out
 	 */
 	public boolean filter(String fullTypeName) {
-		StringMatcher[] matchers= getStringMatchers();
-		for (int i= 0; i < matchers.length; i++) {
-			StringMatcher curr= matchers[i];
-			if (curr.match(fullTypeName)) {
-				return true;
-			}
-		}
-		return false;
+		return fMatcher.matches(fullTypeName);
 	}
 
 	@Override
 	public synchronized void propertyChange(PropertyChangeEvent event) {
 		if (PreferenceConstants.TYPEFILTER_ENABLED.equals(event.getProperty())) {
-			fStringMatchers= null;
+			fMatcher= createMatcher();
 		}
 	}
 
@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * Matches fully qualified type names against a set of type filter patterns. The patterns have
+ * the syntax of {@link org.eclipse.jdt.internal.ui.util.StringMatcher}: <code>*</code> matches
+ * any string, <code>?</code> matches one character and <code>\</code> escapes these characters.
+ * <p>
+ * All patterns are compiled into one trie of their literal prefixes, so that a name is read only
+ * once for all patterns. The wildcard parts of the patterns are kept at the trie node where their
+ * prefix ends. Names can be given as a string or as a package and a type name in character arrays,
+ * matching does not allocate any objects.
+ * </p>
+ * <p>
+ * This class is immutable and thread-safe.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class TypeFilterMatcher {
+
+	private static final int ANY_STRING= -1;
+	private static final int ANY_CHAR= -2;
+
+	private static final Node[] NO_CHILDREN= new Node[0];
+	private static final int[][] NO_SUFFIXES= new int[0][];
+
+	private static final class Node {
+		/**
+		 * The characters leading to the children, sorted ascending.
+		 */
+		final char[] fKeys;
+		final Node[] fChildren;
+		/**
+		 * Tells whether a pattern without wildcards ends at this node.
+		 */
+		final boolean fEnd;
+		/**
+		 * Tells whether a pattern ends with a single <code>*</code> at this node, then every name
+		 * reaching the node matches.
+		 */
+		final boolean fMatchAll;
+		/**
+		 * The remaining parts of the patterns whose first wildcard is at this node.
+		 * {@link TypeFilterMatcher#ANY_STRING} and {@link TypeFilterMatcher#ANY_CHAR} stand for the
+		 * wildcards, other values are literal characters.
+		 */
+		final int[][] fSuffixes;
+
+		Node(char[] keys, Node[] children, boolean end, boolean matchAll, int[][] suffixes) {
+			fKeys= keys;
+			fChildren= children;
+			fEnd= end;
+			fMatchAll= matchAll;
+			fSuffixes= suffixes;
+		}
+
+		Node getChild(char c) {
+			int low= 0;
+			int high= fKeys.length - 1;
+			while (low <= high) {
+				int mid= (low + high) >>> 1;
+				char key= fKeys[mid];
+				if (key < c)
+					low= mid + 1;
+				else if (key > c)
+					high= mid - 1;
+				else
+					return fChildren[mid];
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A mutable node used while compiling the patterns.
+	 */
+	private static final class NodeBuilder {
+		final Map<Character, NodeBuilder> fChildren= new TreeMap<>();
+		boolean fEnd;
+		boolean fMatchAll;
+		final List<int[]> fSuffixes= new ArrayList<>();
+
+		Node build() {
+			char[] keys= new char[fChildren.size()];
+			Node[] children= fChildren.isEmpty() ? NO_CHILDREN : new Node[keys.length];
+			int i= 0;
+			for (Iterator<Map.Entry<Character, NodeBuilder>> iter= fChildren.entrySet().iterator(); iter.hasNext(); i++) {
+				Map.Entry<Character, NodeBuilder> entry= iter.next();
+				keys[i]= entry.getKey().charValue();
+				children[i]= entry.getValue().build();
+			}
+			int[][] suffixes= fMatchAll || fSuffixes.isEmpty() ? NO_SUFFIXES : fSuffixes.toArray(new int[fSuffixes.size()][]);
+			return new Node(keys, children, fEnd, fMatchAll, suffixes);
+		}
+	}
+
+	private final Node fRoot;
+	private final int fPatternCount;
+
+	/**
+	 * Compiles the given patterns.
+	 *
+	 * @param patterns the type filter patterns, empty patterns are ignored
+	 */
+	public TypeFilterMatcher(String[] patterns) {
+		NodeBuilder root= new NodeBuilder();
+		int count= 0;
+		for (int i= 0; i < patterns.length; i++) {
+			if (patterns[i].length() > 0) {
+				add(root, parse(patterns[i]));
+				count++;
+			}
+		}
+		fRoot= root.build();
+		fPatternCount= count;
+	}
+
+	/**
+	 * Tells whether there are no patterns, then no name matches.
+	 *
+	 * @return <code>true</code> if there are no patterns
+	 */
+	public boolean isEmpty() {
+		return fPatternCount == 0;
+	}
+
+	/**
+	 * @param fullyQualifiedName the fully qualified type name
+	 * @return <code>true</code> if the name matches one of the patterns
+	 */
+	public boolean matches(String fullyQualifiedName) {
+		return matches(fullyQualifiedName, null, null);
+	}
+
+	/**
+	 * @param fullyQualifiedName the fully qualified type name
+	 * @return <code>true</code> if the name matches one of the patterns
+	 */
+	public boolean matches(char[] fullyQualifiedName) {
+		return matches(null, fullyQualifiedName, null);
+	}
+
+	/**
+	 * Matches the name which results from joining the given names with a dot, as in
+	 * {@link JavaModelUtil#concatenateName(char[], char[])}.
+	 *
+	 * @param packageName the package name, can be <code>null</code> or empty
+	 * @param typeName the type name, qualified by its enclosing types, can be <code>null</code> or empty
+	 * @return <code>true</code> if the name matches one of the patterns
+	 */
+	public boolean matches(char[] packageName, char[] typeName) {
+		if (packageName == null || packageName.length == 0)
+			return matches(null, typeName == null ? CharOperation.NO_CHAR : typeName, null);
+		if (typeName == null || typeName.length == 0)
+			return matches(null, packageName, null);
+		return matches(null, packageName, typeName);
+	}
+
+	/**
+	 * Matches a name given either as a string, or as one or two character arrays which are
+	 * joined with a dot.
+	 *
+	 * @param string the name or <code>null</code>
+	 * @param first the name or its first part, if <code>string</code> is <code>null</code>
+	 * @param second the second part of the name or <code>null</code>
+	 * @return <code>true</code> if the name matches one of the patterns
+	 */
+	private boolean matches(String string, char[] first, char[] second) {
+		if (fPatternCount == 0)
+			return false;
+		int length= length(string, first, second);
+		Node node= fRoot;
+		for (int i= 0;; i++) {
+			if (node.fMatchAll)
+				return true;
+			int[][] suffixes= node.fSuffixes;
+			for (int k= 0; k < suffixes.length; k++) {
+				if (matchSuffix(suffixes[k], string, first, second, i, length))
+					return true;
+			}
+			if (i == length)
+				return node.fEnd;
+			if (node.fKeys.length == 0)
+				return false;
+			node= node.getChild(charAt(string, first, second, i));
+			if (node == null)
+				return false;
+		}
+	}
+
+	/**
+	 * Matches the remaining part of a pattern against the name from the given position. The part
+	 * after the last <code>*</code> is compared with the end of the name first, the part before it
+	 * is matched with backtracking to the last <code>*</code>.
+	 *
+	 * @param pattern the remaining part of the pattern
+	 * @param string the name or <code>null</code>
+	 * @param first the name or its first part
+	 * @param second the second part of the name or <code>null</code>
+	 * @param start the position in the name
+	 * @param length the length of the name
+	 * @return <code>true</code> if the rest of the name matches
+	 */
+	private static boolean matchSuffix(int[] pattern, String string, char[] first, char[] second, int start, int length) {
+		int end= length;
+		int last= pattern.length;
+		while (last > 0 && pattern[last - 1] != ANY_STRING) {
+			if (end == start)
+				return false;
+			int c= pattern[--last];
+			if (c != ANY_CHAR && c != charAt(string, first, second, end - 1))
+				return false;
+			end--;
+		}
+		if (last == 0)
+			return end == start;
+
+		int p= 0;
+		int n= start;
+		int starP= -1;
+		int starN= 0;
+		while (n < end) {
+			if (p < last && (pattern[p] == ANY_CHAR || pattern[p] == charAt(string, first, second, n))) {
+				p++;
+				n++;
+			} else if (p < last && pattern[p] == ANY_STRING) {
+				starP= p++;
+				starN= n;
+			} else if (starP != -1) {
+				p= starP + 1;
+				n= ++starN;
+			} else {
+				return false;
+			}
+		}
+		while (p < last && pattern[p] == ANY_STRING) {
+			p++;
+		}
+		return p == last;
+	}
+
+	private static int length(String string, char[] first, char[] second) {
+		if (string != null)
+			return string.length();
+		if (second == null)
+			return first.length;
+		return first.length + 1 + second.length;
+	}
+
+	private static char charAt(String string, char[] first, char[] second, int i) {
+		if (string != null)
+			return string.charAt(i);
+		if (i < first.length)
+			return first[i];
+		if (i == first.length)
+			return '.';
+		return second[i - first.length - 1];
+	}
+
+	private static void add(NodeBuilder root, int[] pattern) {
+		NodeBuilder node= root;
+		int i= 0;
+		while (i < pattern.length && pattern[i] >= 0) {
+			Character key= Character.valueOf((char) pattern[i++]);
+			NodeBuilder child= node.fChildren.get(key);
+			if (child == null) {
+				child= new NodeBuilder();
+				node.fChildren.put(key, child);
+			}
+			node= child;
+		}
+		if (i == pattern.length) {
+			node.fEnd= true;
+		} else if (i == pattern.length - 1 && pattern[i] == ANY_STRING) {
+			node.fMatchAll= true;
+		} else {
+			int[] suffix= new int[pattern.length - i];
+			System.arraycopy(pattern, i, suffix, 0, suffix.length);
+			node.fSuffixes.add(suffix);
+		}
+	}
+
+	/**
+	 * Parses a pattern into literal characters and wildcards, with the escapes of
+	 * {@link org.eclipse.jdt.internal.ui.util.StringMatcher}.
+	 *
+	 * @param pattern the pattern
+	 * @return the characters of the pattern, with {@link #ANY_STRING} and {@link #ANY_CHAR} for
+	 *         the wildcards
+	 */
+	private static int[] parse(String pattern) {
+		int length= pattern.length();
+		int[] result= new int[length];
+		int size= 0;
+		int pos= 0;
+		while (pos < length) {
+			char c= pattern.charAt(pos++);
+			switch (c) {
+				case '\\':
+					if (pos < length) {
+						char next= pattern.charAt(pos);
+						if (next == '*' || next == '?' || next == '\\') {
+							result[size++]= next;
+							pos++;
+							break;
+						}
+					}
+					result[size++]= c; // not an escape sequence, insert literally
+					break;
+				case '*':
+					if (size == 0 || result[size - 1] != ANY_STRING)
+						result[size++]= ANY_STRING;
+					break;
+				case '?':
+					result[size++]= ANY_CHAR;
+					break;
+				default:
+					result[size++]= c;
+			}
+		}
+		if (pattern.endsWith("\\\\*") && result[size - 1] == ANY_STRING) //$NON-NLS-1$
+			size--; // like the StringMatcher, a '*' after an escaped backslash is not a trailing wildcard
+		int[] trimmed= new int[size];
+		System.arraycopy(result, 0, trimmed, 0, size);
+		return trimmed;
+	}
+}
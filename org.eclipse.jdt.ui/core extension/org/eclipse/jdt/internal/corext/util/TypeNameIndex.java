@@ -0,0 +1,881 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.corext.CorextMessages;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * An in-memory index of the names of all types in the workspace, which answers type name queries
+ * like {@link SearchEngine#searchAllTypeNames(char[], int, char[], int, int, IJavaSearchScope, TypeNameMatchRequestor, int, IProgressMonitor)}
+ * without going to the search indexes. It is shared by the Open Type dialog, "Add Import" and the
+ * type resolution of templates.
+ * <p>
+ * The simple type names are packed into one character array. The candidates for a pattern are
+ * taken from postings lists of the first character of the names, of the first character combined
+ * with a later camel case initial, and of the lower case trigrams of the names. The candidates are
+ * then matched like the search engine matches type names.
+ * </p>
+ * <p>
+ * The index is built in a background job when it is first queried. Until it is ready, queries
+ * answer <code>false</code> and the caller has to fall back to the search engine. Compilation
+ * units reported as changed by Java element deltas and the compilation units of added or removed
+ * source packages are read again on the next query, other changes like classpath changes discard
+ * the index. Like the search engine, queries take the types of open primary working copies from
+ * the working copies.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class TypeNameIndex {
+
+	/**
+	 * Ascending type ids.
+	 */
+	private static final class Postings {
+		int[] fIds= new int[4];
+		int fSize;
+
+		void add(int id) {
+			if (fSize > 0 && fIds[fSize - 1] == id)
+				return; // the key occurs several times in the name
+			if (fSize == fIds.length)
+				fIds= Arrays.copyOf(fIds, fSize * 2);
+			fIds[fSize++]= id;
+		}
+	}
+
+	/**
+	 * The patterns, match rules and element kind of a query.
+	 */
+	private static final class Query {
+		final char[] fPackagePattern;
+		final int fPackageMode;
+		final boolean fPackageCaseSensitive;
+		final char[] fTypePattern;
+		final int fTypeMode;
+		final boolean fTypeCaseSensitive;
+		final int fSearchFor;
+		/**
+		 * Tells whether the package pattern is matched against the package name followed by the
+		 * names of the enclosing types, like the search engine does for all but exact package
+		 * match rules.
+		 */
+		final boolean fMatchesContainer;
+
+		Query(char[] packagePattern, int packageMatchRule, char[] typePattern, int typeMatchRule, int searchFor) {
+			fPackagePattern= packagePattern == null ? CharOperation.NO_CHAR : packagePattern;
+			fPackageMode= getMatchMode(packageMatchRule);
+			fPackageCaseSensitive= (packageMatchRule & SearchPattern.R_CASE_SENSITIVE) != 0;
+			fTypePattern= typePattern == null || isMatchAll(typePattern) ? CharOperation.NO_CHAR : typePattern;
+			fTypeMode= getMatchMode(typeMatchRule);
+			fTypeCaseSensitive= (typeMatchRule & SearchPattern.R_CASE_SENSITIVE) != 0;
+			fSearchFor= searchFor;
+			fMatchesContainer= fPackageMode != SearchPattern.R_EXACT_MATCH;
+		}
+
+		boolean matchesName(char[] name, int start, int end) {
+			return matches(fTypePattern, fTypeMode, fTypeCaseSensitive, name, start, end);
+		}
+
+		/**
+		 * @param qualifier the package name, or the type container name if
+		 *            {@link #fMatchesContainer} is set
+		 * @return <code>true</code> if the qualifier matches the package pattern
+		 */
+		boolean matchesQualifier(char[] qualifier) {
+			return matches(fPackagePattern, fPackageMode, fPackageCaseSensitive, qualifier, 0, qualifier.length);
+		}
+
+		boolean matchesPackage(TypeNameMatch match) {
+			return matchesQualifier((fMatchesContainer ? match.getTypeContainerName() : match.getPackageName()).toCharArray());
+		}
+
+		boolean matchesKind(int modifiers) {
+			return TypeNameIndex.matchesKind(fSearchFor, modifiers);
+		}
+	}
+
+	/**
+	 * The indexed types. Types are never removed from the arrays, the types of a changed
+	 * compilation unit are marked as removed and added again.
+	 */
+	private static final class TypeTable {
+
+		private static final Postings NONE= new Postings();
+
+		final int fGeneration;
+
+		private char[] fNames= new char[1 << 16];
+		private int fNamesLength;
+		private int[] fNameStarts= new int[1024];
+		private int[] fNameEnds= new int[1024];
+		private int[] fPackages= new int[1024];
+		/**
+		 * The ids of the type container names, i.e. the package names followed by the names of the
+		 * enclosing types.
+		 */
+		private int[] fContainers= new int[1024];
+		private int[] fModifiers= new int[1024];
+		/**
+		 * The matches by type id, <code>null</code> for removed types.
+		 */
+		private TypeNameMatch[] fMatches= new TypeNameMatch[1024];
+		/**
+		 * The compilation units by type id, <code>null</code> for binary types.
+		 */
+		private ICompilationUnit[] fUnits= new ICompilationUnit[1024];
+		private int fSize;
+		private int fRemovedCount;
+
+		/**
+		 * The package and type container names by id.
+		 */
+		private final List<char[]> fQualifierNames= new ArrayList<>();
+		private final Map<String, Integer> fQualifierIds= new HashMap<>();
+
+		private final Map<ICompilationUnit, Postings> fUnitTypes= new HashMap<>();
+		private final Map<Integer, Postings> fFirstChars= new HashMap<>();
+		private final Map<Integer, Postings> fCamelCaseInitials= new HashMap<>();
+		private final Map<Long, Postings> fTrigrams= new HashMap<>();
+
+		TypeTable(int generation) {
+			fGeneration= generation;
+		}
+
+		void add(TypeNameMatch match, ICompilationUnit unit) {
+			String name= match.getSimpleTypeName();
+			int length= name.length();
+			if (length == 0)
+				return;
+			ensureCapacity(length);
+			int id= fSize++;
+			int start= fNamesLength;
+			int end= start + length;
+			name.getChars(0, length, fNames, start);
+			fNamesLength= end;
+			fNameStarts[id]= start;
+			fNameEnds[id]= end;
+			fPackages[id]= getQualifierId(match.getPackageName());
+			fContainers[id]= getQualifierId(match.getTypeContainerName());
+			fModifiers[id]= match.getModifiers();
+			fMatches[id]= match;
+			fUnits[id]= unit;
+			if (unit != null)
+				getPostings(fUnitTypes, unit).add(id);
+
+			char first= fNames[start];
+			getPostings(fFirstChars, Integer.valueOf(Character.toLowerCase(first))).add(id);
+			for (int i= start + 1; i < end; i++) {
+				if (Character.isUpperCase(fNames[i]))
+					getPostings(fCamelCaseInitials, Integer.valueOf(getCamelCaseKey(first, fNames[i]))).add(id);
+			}
+			for (int i= start; i + 2 < end; i++) {
+				getPostings(fTrigrams, Long.valueOf(getTrigramKey(fNames, i))).add(id);
+			}
+		}
+
+		/**
+		 * Reads the types of the given compilation unit again.
+		 *
+		 * @param unit the primary compilation unit
+		 * @throws JavaModelException if the types cannot be read
+		 */
+		void update(ICompilationUnit unit) throws JavaModelException {
+			Postings ids= fUnitTypes.remove(unit);
+			if (ids != null) {
+				for (int i= 0; i < ids.fSize; i++) {
+					fMatches[ids.fIds[i]]= null;
+					fUnits[ids.fIds[i]]= null;
+				}
+				fRemovedCount+= ids.fSize;
+			}
+			if (!unit.exists())
+				return;
+			IType[] types= unit.getAllTypes();
+			for (int i= 0; i < types.length; i++) {
+				add(SearchEngine.createTypeNameMatch(types[i], types[i].getFlags()), unit);
+			}
+		}
+
+		/**
+		 * Reads the compilation units of the given source package again, the units which have been
+		 * indexed in it as well as the units which it currently contains.
+		 *
+		 * @param fragment the added or removed package
+		 * @throws JavaModelException if the types cannot be read
+		 */
+		void update(IPackageFragment fragment) throws JavaModelException {
+			Set<ICompilationUnit> units= new HashSet<>();
+			for (ICompilationUnit unit : fUnitTypes.keySet()) {
+				if (fragment.equals(unit.getParent()))
+					units.add(unit);
+			}
+			if (fragment.exists())
+				units.addAll(Arrays.asList(fragment.getCompilationUnits()));
+			for (ICompilationUnit unit : units) {
+				update(unit);
+			}
+		}
+
+		/**
+		 * Tells whether more than half of the types have been removed.
+		 *
+		 * @return <code>true</code> if the table should be built again
+		 */
+		boolean isFragmented() {
+			return fRemovedCount > MIN_FRAGMENTATION && fRemovedCount > fSize / 2;
+		}
+
+		/**
+		 * Collects the types which match the given query.
+		 *
+		 * @param query the query
+		 * @param skippedUnits the compilation units whose types are not collected
+		 * @param result collects the matches
+		 * @param monitor the progress monitor or <code>null</code>
+		 */
+		void collect(Query query, Set<ICompilationUnit> skippedUnits, List<TypeNameMatch> result, IProgressMonitor monitor) {
+			byte[] qualifierStates= new byte[fQualifierNames.size()];
+			Postings[] candidates= getCandidates(query);
+			if (candidates == null) {
+				for (int id= 0; id < fSize; id++) {
+					collect(id, query, skippedUnits, qualifierStates, result, monitor);
+				}
+			} else if (candidates.length == 1) {
+				Postings postings= candidates[0];
+				for (int i= 0; i < postings.fSize; i++) {
+					collect(postings.fIds[i], query, skippedUnits, qualifierStates, result, monitor);
+				}
+			} else {
+				// merge the ascending ids to visit every type once
+				Postings p1= candidates[0];
+				Postings p2= candidates[1];
+				int i1= 0;
+				int i2= 0;
+				while (i1 < p1.fSize || i2 < p2.fSize) {
+					int id1= i1 < p1.fSize ? p1.fIds[i1] : Integer.MAX_VALUE;
+					int id2= i2 < p2.fSize ? p2.fIds[i2] : Integer.MAX_VALUE;
+					if (id1 <= id2)
+						i1++;
+					if (id2 <= id1)
+						i2++;
+					collect(Math.min(id1, id2), query, skippedUnits, qualifierStates, result, monitor);
+				}
+			}
+		}
+
+		private void collect(int id, Query query, Set<ICompilationUnit> skippedUnits, byte[] qualifierStates, List<TypeNameMatch> result, IProgressMonitor monitor) {
+			if ((id & 0xfff) == 0 && monitor != null && monitor.isCanceled())
+				throw new OperationCanceledException();
+			TypeNameMatch match= fMatches[id];
+			if (match == null || !query.matchesKind(fModifiers[id]) || !query.matchesName(fNames, fNameStarts[id], fNameEnds[id]))
+				return;
+			if (fUnits[id] != null && skippedUnits.contains(fUnits[id]))
+				return;
+			int qualifierId= query.fMatchesContainer ? fContainers[id] : fPackages[id];
+			if (qualifierStates[qualifierId] == 0)
+				qualifierStates[qualifierId]= query.matchesQualifier(fQualifierNames.get(qualifierId)) ? (byte) 1 : (byte) 2;
+			if (qualifierStates[qualifierId] == 1)
+				result.add(match);
+		}
+
+		/**
+		 * Returns one or two postings which together contain all types whose simple names can match
+		 * the type name pattern of the query.
+		 *
+		 * @param query the query
+		 * @return the candidate postings or <code>null</code> if all types have to be matched
+		 */
+		private Postings[] getCandidates(Query query) {
+			char[] pattern= query.fTypePattern;
+			if (pattern.length == 0)
+				return null;
+			switch (query.fTypeMode) {
+				case SearchPattern.R_PATTERN_MATCH:
+					Postings best= null;
+					int runStart= 0;
+					for (int i= 0; i <= pattern.length; i++) {
+						if (i == pattern.length || pattern[i] == '*' || pattern[i] == '?') {
+							if (i - runStart >= 3)
+								best= getSmaller(best, getTrigramPostings(pattern, runStart, i));
+							runStart= i + 1;
+						}
+					}
+					if (best == null && pattern[0] != '*' && pattern[0] != '?')
+						best= getFirstCharPostings(pattern[0]);
+					return best == null ? null : new Postings[] { best };
+				case SearchPattern.R_CAMELCASE_MATCH:
+				case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH:
+					Postings prefix= getPrefixPostings(pattern);
+					for (int i= 1; i < pattern.length; i++) {
+						if (Character.isUpperCase(pattern[i])) {
+							// every upper case character of the pattern must occur in the name
+							Postings camelCase= fCamelCaseInitials.get(Integer.valueOf(getCamelCaseKey(pattern[0], pattern[i])));
+							return new Postings[] { camelCase == null ? NONE : camelCase, prefix };
+						}
+					}
+					return new Postings[] { prefix };
+				default:
+					return new Postings[] { getPrefixPostings(pattern) };
+			}
+		}
+
+		private Postings getPrefixPostings(char[] pattern) {
+			if (pattern.length >= 3)
+				return getTrigramPostings(pattern, 0, pattern.length);
+			return getFirstCharPostings(pattern[0]);
+		}
+
+		private Postings getFirstCharPostings(char first) {
+			Postings postings= fFirstChars.get(Integer.valueOf(Character.toLowerCase(first)));
+			return postings == null ? NONE : postings;
+		}
+
+		/**
+		 * Returns the shortest postings of the trigrams in the given range of the pattern.
+		 *
+		 * @param pattern the pattern
+		 * @param start the start of a range without wildcards
+		 * @param end the end of the range
+		 * @return the postings
+		 */
+		private Postings getTrigramPostings(char[] pattern, int start, int end) {
+			Postings best= null;
+			for (int i= start; i + 2 < end; i++) {
+				Postings postings= fTrigrams.get(Long.valueOf(getTrigramKey(pattern, i)));
+				if (postings == null)
+					return NONE;
+				best= getSmaller(best, postings);
+			}
+			return best;
+		}
+
+		private int getQualifierId(String qualifier) {
+			Integer id= fQualifierIds.get(qualifier);
+			if (id == null) {
+				id= Integer.valueOf(fQualifierNames.size());
+				fQualifierIds.put(qualifier, id);
+				fQualifierNames.add(qualifier.toCharArray());
+			}
+			return id.intValue();
+		}
+
+		private void ensureCapacity(int nameLength) {
+			if (fNamesLength + nameLength > fNames.length)
+				fNames= Arrays.copyOf(fNames, Math.max(fNames.length * 2, fNamesLength + nameLength));
+			if (fSize == fMatches.length) {
+				int capacity= fSize * 2;
+				fNameStarts= Arrays.copyOf(fNameStarts, capacity);
+				fNameEnds= Arrays.copyOf(fNameEnds, capacity);
+				fPackages= Arrays.copyOf(fPackages, capacity);
+				fContainers= Arrays.copyOf(fContainers, capacity);
+				fModifiers= Arrays.copyOf(fModifiers, capacity);
+				fMatches= Arrays.copyOf(fMatches, capacity);
+				fUnits= Arrays.copyOf(fUnits, capacity);
+			}
+		}
+
+		private static Postings getSmaller(Postings p1, Postings p2) {
+			return p1 == null || p2.fSize < p1.fSize ? p2 : p1;
+		}
+
+		private static <K> Postings getPostings(Map<K, Postings> map, K key) {
+			Postings postings= map.get(key);
+			if (postings == null) {
+				postings= new Postings();
+				map.put(key, postings);
+			}
+			return postings;
+		}
+	}
+
+	private final class BuildJob extends Job {
+
+		BuildJob() {
+			super(CorextMessages.TypeNameIndex_build_job);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				build(monitor);
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * Delta flags of projects, package fragment roots and package fragments which discard the
+	 * index.
+	 */
+	private static final int STRUCTURE_FLAGS= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+			| IJavaElementDelta.F_REORDER | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+	/**
+	 * Delta flags of compilation units which mark them as changed.
+	 */
+	private static final int UNIT_CHANGE_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_PRIMARY_RESOURCE
+			| IJavaElementDelta.F_PRIMARY_WORKING_COPY;
+
+	/**
+	 * Maximum number of changed compilation units which are remembered. If more units changed,
+	 * the index is built again.
+	 */
+	static final int MAX_CHANGED_UNITS= 1000;
+
+	/**
+	 * Minimum number of removed types before the index is built again.
+	 */
+	static final int MIN_FRAGMENTATION= 10000;
+
+	/**
+	 * Delay in milliseconds before a discarded index is built again, so that a burst of changes
+	 * causes only one build.
+	 */
+	private static final long BUILD_DELAY= 1000;
+
+	private static final int TYPE_MODIFIERS= Flags.AccEnum | Flags.AccAnnotation | Flags.AccInterface;
+
+	private static TypeNameIndex fgInstance;
+
+	private final IElementChangedListener fElementChangedListener= new IElementChangedListener() {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			processDelta(event.getDelta());
+		}
+	};
+
+	private final BuildJob fBuildJob= new BuildJob();
+
+	/**
+	 * Guards {@link #fChangedUnits}, {@link #fChangedPackages} and {@link #fGeneration}. Delta processing only takes this
+	 * lock, so that it does not wait for queries.
+	 */
+	private final Object fChangeLock= new Object();
+
+	private final Set<ICompilationUnit> fChangedUnits= new HashSet<>();
+
+	/**
+	 * The added or removed source packages, whose compilation units are read again.
+	 */
+	private final Set<IPackageFragment> fChangedPackages= new HashSet<>();
+
+	/**
+	 * Incremented whenever the index is discarded. A table built for an older generation is not
+	 * used.
+	 */
+	private int fGeneration;
+
+	/**
+	 * The indexed types, <code>null</code> until built. Guarded by <code>this</code>.
+	 */
+	private TypeTable fTable;
+
+	/**
+	 * Tells whether the index has been queried, only then it is built again after it has been
+	 * discarded.
+	 */
+	private volatile boolean fUsed;
+
+	private TypeNameIndex() {
+	}
+
+	/**
+	 * Returns the shared index. It starts to track changes when it is first accessed.
+	 *
+	 * @return the shared index
+	 */
+	public static synchronized TypeNameIndex getDefault() {
+		if (fgInstance == null) {
+			fgInstance= new TypeNameIndex();
+			JavaCore.addElementChangedListener(fgInstance.fElementChangedListener, ElementChangedEvent.POST_CHANGE);
+		}
+		return fgInstance;
+	}
+
+	/**
+	 * Stops the shared index and releases its memory.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance != null) {
+			JavaCore.removeElementChangedListener(fgInstance.fElementChangedListener);
+			fgInstance.fBuildJob.cancel();
+			fgInstance= null;
+		}
+	}
+
+	/**
+	 * Searches for the types matching the given patterns, with the semantics of
+	 * {@link SearchEngine#searchAllTypeNames(char[], int, char[], int, int, IJavaSearchScope, TypeNameMatchRequestor, int, IProgressMonitor)}
+	 * for the primary working copies. If the index is not ready, it is built in the background and
+	 * <code>false</code> is returned without reporting any match.
+	 *
+	 * @param packageName the package name pattern or <code>null</code> for all packages
+	 * @param packageMatchRule the match rule of the package name pattern
+	 * @param typeName the simple type name pattern or <code>null</code> for all types
+	 * @param typeMatchRule the match rule of the type name pattern
+	 * @param searchFor the kinds of types, e.g. {@link IJavaSearchConstants#CLASS_AND_INTERFACE}
+	 * @param scope the scope
+	 * @param requestor the requestor which is notified of the matches
+	 * @param monitor the progress monitor or <code>null</code>
+	 * @return <code>true</code> if the query has been answered by the index, <code>false</code> if
+	 *         the caller has to search with the search engine
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public boolean searchAllTypeNames(char[] packageName, int packageMatchRule, char[] typeName, int typeMatchRule, int searchFor, IJavaSearchScope scope,
+			TypeNameMatchRequestor requestor, IProgressMonitor monitor) {
+		fUsed= true;
+		if (((packageMatchRule | typeMatchRule) & SearchPattern.R_REGEXP_MATCH) != 0)
+			return false;
+
+		Query query= new Query(packageName, packageMatchRule, typeName, typeMatchRule, searchFor);
+		ICompilationUnit[] workingCopies= JavaCore.getWorkingCopies(null);
+		Set<ICompilationUnit> workingCopySet= new HashSet<>(Arrays.asList(workingCopies));
+		List<TypeNameMatch> matches= new ArrayList<>();
+		synchronized (this) {
+			TypeTable table= getTable();
+			if (table == null)
+				return false;
+			table.collect(query, workingCopySet, matches, monitor);
+		}
+		for (int i= 0; i < workingCopies.length; i++) {
+			collect(workingCopies[i], query, matches);
+		}
+
+		boolean isWorkspaceScope= scope.equals(SearchEngine.createWorkspaceScope());
+		for (int i= 0, size= matches.size(); i < size; i++) {
+			if (monitor != null && monitor.isCanceled())
+				throw new OperationCanceledException();
+			TypeNameMatch match= matches.get(i);
+			if (isWorkspaceScope || scope.encloses(match.getType()))
+				requestor.acceptTypeNameMatch(match);
+		}
+		return true;
+	}
+
+	/**
+	 * Builds the index in the calling thread. Queries which arrive while the index is built are
+	 * answered from the previous index, if there is one.
+	 *
+	 * @param monitor the progress monitor or <code>null</code>
+	 * @throws JavaModelException if the types cannot be searched
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public void build(IProgressMonitor monitor) throws JavaModelException {
+		fUsed= true;
+		final TypeTable table;
+		synchronized (fChangeLock) {
+			table= new TypeTable(fGeneration);
+		}
+		// the types of open working copies are reported, too. They are read again when the working copy is discarded.
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_PREFIX_MATCH, null, SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE,
+				SearchEngine.createWorkspaceScope(), new TypeNameMatchRequestor() {
+					@Override
+					public void acceptTypeNameMatch(TypeNameMatch match) {
+						table.add(match, match.getType().getCompilationUnit());
+					}
+				}, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+
+		synchronized (this) {
+			synchronized (fChangeLock) {
+				if (table.fGeneration != fGeneration) {
+					fBuildJob.schedule(BUILD_DELAY); // changed while building
+					return;
+				}
+			}
+			fTable= table;
+		}
+	}
+
+	/**
+	 * Returns the table after reading the changed compilation units again.
+	 *
+	 * @return the table or <code>null</code> if the index is not ready
+	 */
+	private TypeTable getTable() {
+		ICompilationUnit[] changedUnits;
+		IPackageFragment[] changedPackages;
+		synchronized (fChangeLock) {
+			if (fTable != null && fTable.fGeneration != fGeneration)
+				fTable= null;
+			if (fTable == null) {
+				scheduleBuild();
+				return null;
+			}
+			changedUnits= fChangedUnits.toArray(new ICompilationUnit[fChangedUnits.size()]);
+			fChangedUnits.clear();
+			changedPackages= fChangedPackages.toArray(new IPackageFragment[fChangedPackages.size()]);
+			fChangedPackages.clear();
+		}
+		for (int i= 0; i < changedPackages.length; i++) {
+			try {
+				fTable.update(changedPackages[i]);
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+			}
+		}
+		for (int i= 0; i < changedUnits.length; i++) {
+			try {
+				fTable.update(changedUnits[i]);
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+			}
+		}
+		if (fTable.isFragmented())
+			scheduleBuild(); // the current table answers until the job has finished
+		return fTable;
+	}
+
+	private void scheduleBuild() {
+		if (fBuildJob.getState() == Job.NONE)
+			fBuildJob.schedule();
+	}
+
+	private static void collect(ICompilationUnit workingCopy, Query query, List<TypeNameMatch> matches) {
+		try {
+			if (!workingCopy.exists())
+				return;
+			IType[] types= workingCopy.getAllTypes();
+			for (int i= 0; i < types.length; i++) {
+				IType type= types[i];
+				int flags= type.getFlags();
+				char[] name= type.getElementName().toCharArray();
+				if (query.matchesKind(flags) && query.matchesName(name, 0, name.length)) {
+					TypeNameMatch match= SearchEngine.createTypeNameMatch(type, flags);
+					if (query.matchesPackage(match))
+						matches.add(match);
+				}
+			}
+		} catch (JavaModelException e) {
+			// the working copy has been discarded
+		}
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED && isSource((IPackageFragment) element)) {
+					markChanged((IPackageFragment) element);
+					return;
+				}
+				//$FALL-THROUGH$
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & STRUCTURE_FLAGS) != 0) {
+					discard();
+					return;
+				}
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & UNIT_CHANGE_FLAGS) != 0)
+					markChanged(((ICompilationUnit) element).getPrimary());
+				return;
+			case IJavaElement.CLASS_FILE:
+				discard(); // class folder library changed
+				return;
+			default:
+				return;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			processDelta(children[i]);
+		}
+	}
+
+	private void markChanged(ICompilationUnit unit) {
+		synchronized (fChangeLock) {
+			if (fChangedUnits.size() + fChangedPackages.size() < MAX_CHANGED_UNITS) {
+				fChangedUnits.add(unit);
+				return;
+			}
+		}
+		discard();
+	}
+
+	private void markChanged(IPackageFragment fragment) {
+		synchronized (fChangeLock) {
+			if (fChangedUnits.size() + fChangedPackages.size() < MAX_CHANGED_UNITS) {
+				fChangedPackages.add(fragment);
+				return;
+			}
+		}
+		discard();
+	}
+
+	/**
+	 * Tells whether the given package is in a source folder. The root of a removed package does not
+	 * exist any more if the whole folder has been removed, then its kind cannot be read.
+	 *
+	 * @param fragment the package
+	 * @return <code>true</code> if the package is in a source folder
+	 */
+	private static boolean isSource(IPackageFragment fragment) {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) fragment.getParent();
+		if (root.isArchive() || root.isExternal())
+			return false;
+		try {
+			return root.getKind() == IPackageFragmentRoot.K_SOURCE;
+		} catch (JavaModelException e) {
+			return false;
+		}
+	}
+
+	private void discard() {
+		synchronized (fChangeLock) {
+			fGeneration++;
+			fChangedUnits.clear();
+			fChangedPackages.clear();
+		}
+		if (fUsed) {
+			fBuildJob.cancel();
+			fBuildJob.schedule(BUILD_DELAY);
+		}
+	}
+
+	private static int getMatchMode(int matchRule) {
+		if ((matchRule & SearchPattern.R_PATTERN_MATCH) != 0)
+			return SearchPattern.R_PATTERN_MATCH;
+		if ((matchRule & SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH) != 0)
+			return SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH;
+		if ((matchRule & SearchPattern.R_CAMELCASE_MATCH) != 0)
+			return SearchPattern.R_CAMELCASE_MATCH;
+		if ((matchRule & SearchPattern.R_PREFIX_MATCH) != 0)
+			return SearchPattern.R_PREFIX_MATCH;
+		return SearchPattern.R_EXACT_MATCH;
+	}
+
+	private static boolean isMatchAll(char[] pattern) {
+		return pattern.length == 1 && pattern[0] == '*';
+	}
+
+	/**
+	 * Matches a name like the search engine matches type names.
+	 *
+	 * @param pattern the pattern, matches all names if empty
+	 * @param mode the match mode, one of the <code>SearchPattern.R_*_MATCH</code> constants
+	 * @param caseSensitive whether the match is case sensitive
+	 * @param name the array containing the name
+	 * @param start the start of the name in the array
+	 * @param end the end of the name in the array
+	 * @return <code>true</code> if the name matches
+	 */
+	static boolean matches(char[] pattern, int mode, boolean caseSensitive, char[] name, int start, int end) {
+		int length= pattern.length;
+		if (length == 0)
+			return true;
+		if (end == start)
+			return false;
+		switch (mode) {
+			case SearchPattern.R_EXACT_MATCH:
+				return end - start == length && regionMatches(pattern, caseSensitive, name, start);
+			case SearchPattern.R_PREFIX_MATCH:
+				return end - start >= length && regionMatches(pattern, caseSensitive, name, start);
+			case SearchPattern.R_PATTERN_MATCH:
+				return CharOperation.match(pattern, 0, length, name, start, end, caseSensitive);
+			case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH:
+				return (!caseSensitive || pattern[0] == name[start]) && SearchPattern.camelCaseMatch(pattern, 0, length, name, start, end, true);
+			default:
+				if ((!caseSensitive || pattern[0] == name[start]) && SearchPattern.camelCaseMatch(pattern, 0, length, name, start, end, false))
+					return true;
+				// like the search engine, fall back to a prefix match
+				return !caseSensitive && end - start >= length && regionMatches(pattern, false, name, start);
+		}
+	}
+
+	private static boolean regionMatches(char[] pattern, boolean caseSensitive, char[] name, int start) {
+		for (int i= 0; i < pattern.length; i++) {
+			char c1= pattern[i];
+			char c2= name[start + i];
+			if (c1 != c2 && (caseSensitive || Character.toLowerCase(c1) != Character.toLowerCase(c2)))
+				return false;
+		}
+		return true;
+	}
+
+	static boolean matchesKind(int searchFor, int modifiers) {
+		if (searchFor == IJavaSearchConstants.TYPE)
+			return true;
+		int kind= modifiers & TYPE_MODIFIERS;
+		switch (searchFor) {
+			case IJavaSearchConstants.CLASS:
+				return kind == 0;
+			case IJavaSearchConstants.ANNOTATION_TYPE:
+				return Flags.isAnnotation(kind);
+			case IJavaSearchConstants.INTERFACE:
+				return kind == Flags.AccInterface;
+			case IJavaSearchConstants.ENUM:
+				return Flags.isEnum(kind);
+			case IJavaSearchConstants.CLASS_AND_INTERFACE:
+				return kind == 0 || kind == Flags.AccInterface;
+			case IJavaSearchConstants.CLASS_AND_ENUM:
+				return kind == 0 || Flags.isEnum(kind);
+			case IJavaSearchConstants.INTERFACE_AND_ANNOTATION:
+				return Flags.isInterface(kind);
+		}
+		return false;
+	}
+
+	private static int getCamelCaseKey(char first, char initial) {
+		return Character.toUpperCase(first) << 16 | initial;
+	}
+
+	private static long getTrigramKey(char[] chars, int start) {
+		return (long) Character.toLowerCase(chars[start]) << 32 | (long) Character.toLowerCase(chars[start + 1]) << 16 | Character.toLowerCase(chars[start + 2]);
+	}
+}
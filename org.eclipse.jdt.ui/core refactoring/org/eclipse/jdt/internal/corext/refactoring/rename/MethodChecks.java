@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -101,6 +101,23 @@ public class MethodChecks {
 	}
 
 	public static IMethod isDeclaredInInterface(IMethod method, ITypeHierarchy hierarchy, IProgressMonitor monitor) throws JavaModelException {
+		return isDeclaredInInterface(method, hierarchy, null, monitor);
+	}
+
+	/**
+	 * Finds a method in a superinterface of a class in the hierarchy which is similar to the given
+	 * method.
+	 *
+	 * @param method the method
+	 * @param hierarchy a type hierarchy of the declaring type of the method
+	 * @param hierarchyCache the cache which provides the supertype hierarchies of the classes, or
+	 *            <code>null</code> to create them
+	 * @param monitor the progress monitor
+	 * @return the method in an interface, or <code>null</code> if none
+	 * @throws JavaModelException if a hierarchy cannot be created
+	 * @since 3.14
+	 */
+	public static IMethod isDeclaredInInterface(IMethod method, ITypeHierarchy hierarchy, SessionTypeHierarchyCache hierarchyCache, IProgressMonitor monitor) throws JavaModelException {
 		Assert.isTrue(isVirtual(method));
 		IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 1);
 		try {
@@ -111,6 +128,8 @@ public class MethodChecks {
 				IType[] superinterfaces= null;
 				if (clazz.equals(hierarchy.getType()))
 					superinterfaces= hierarchy.getAllSuperInterfaces(clazz);
+				else if (hierarchyCache != null)
+					superinterfaces= hierarchyCache.getSupertypeHierarchy(clazz, null, new SubProgressMonitor(subMonitor, 1)).getAllSuperInterfaces(clazz);
 				else
 					superinterfaces= clazz.newSupertypeHierarchy(new SubProgressMonitor(subMonitor, 1)).getAllSuperInterfaces(clazz);
 				for (int j= 0; j < superinterfaces.length; j++) {
@@ -147,6 +166,23 @@ public class MethodChecks {
 	 * @throws JavaModelException
 	 */
 	public static IMethod getTopmostMethod(IMethod method, ITypeHierarchy typeHierarchy, IProgressMonitor monitor) throws JavaModelException {
+		return getTopmostMethod(method, typeHierarchy, null, monitor);
+	}
+
+	/**
+	 * Locates the topmost method of an override ripple and returns it. If none
+	 * is found, null is returned.
+	 *
+	 * @param method the IMethod which may be part of a ripple
+	 * @param typeHierarchy a ITypeHierarchy of the declaring type of the method. May be null
+	 * @param hierarchyCache the cache which provides the missing hierarchies, or <code>null</code>
+	 *            to create them
+	 * @param monitor an IProgressMonitor
+	 * @return the topmost method of the ripple, or null if none
+	 * @throws JavaModelException
+	 * @since 3.14
+	 */
+	public static IMethod getTopmostMethod(IMethod method, ITypeHierarchy typeHierarchy, SessionTypeHierarchyCache hierarchyCache, IProgressMonitor monitor) throws JavaModelException {
 
 		Assert.isNotNull(method);
 
@@ -154,16 +190,24 @@ public class MethodChecks {
 		IMethod topmostMethod= null;
 		final IType declaringType= method.getDeclaringType();
 		if (!declaringType.isInterface()) {
-			if ((hierarchy == null) || !declaringType.equals(hierarchy.getType()))
-				hierarchy= declaringType.newTypeHierarchy(monitor);
+			if ((hierarchy == null) || !declaringType.equals(hierarchy.getType())) {
+				if (hierarchyCache != null)
+					hierarchy= hierarchyCache.getTypeHierarchy(declaringType, null, monitor);
+				else
+					hierarchy= declaringType.newTypeHierarchy(monitor);
+			}
 
-			IMethod inInterface= isDeclaredInInterface(method, hierarchy, monitor);
+			IMethod inInterface= isDeclaredInInterface(method, hierarchy, hierarchyCache, monitor);
 			if (inInterface != null && !inInterface.equals(method))
 				topmostMethod= inInterface;
 		}
 		if (topmostMethod == null) {
-			if (hierarchy == null)
-				hierarchy= declaringType.newSupertypeHierarchy(monitor);
+			if (hierarchy == null) {
+				if (hierarchyCache != null)
+					hierarchy= hierarchyCache.getSupertypeHierarchy(declaringType, null, monitor);
+				else
+					hierarchy= declaringType.newSupertypeHierarchy(monitor);
+			}
 			IMethod overrides= overridesAnotherMethod(method, hierarchy);
 			if (overrides != null && !overrides.equals(method))
 				topmostMethod= overrides;
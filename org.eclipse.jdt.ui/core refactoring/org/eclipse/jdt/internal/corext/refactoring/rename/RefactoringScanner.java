@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.rename;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
@@ -67,9 +67,6 @@ public class RefactoringScanner {
 
 	public void scan(ICompilationUnit cu)	throws JavaModelException {
 		char[] chars= cu.getBuffer().getCharacters();
-		fMatches= new HashSet<>();
-		fScanner= ToolFactory.createScanner(true, true, false, true);
-		fScanner.setSource(chars);
 
 //		IImportContainer importContainer= cu.getImportContainer();
 //		if (importContainer.exists())
@@ -77,6 +74,25 @@ public class RefactoringScanner {
 //		else
 //			fNoFlyZone= null;
 
+		scan(chars);
+	}
+
+	/**
+	 * Scans the given source. The matches are reported in the order of their start positions.
+	 * <p>
+	 * Matches are only found in the raw source of the tokens, so a source which does not contain
+	 * the name is not tokenized at all.
+	 * </p>
+	 *
+	 * @param chars the source
+	 * @since 3.14
+	 */
+	public void scan(char[] chars) {
+		fMatches= new LinkedHashSet<>();
+		if (!contains(chars, fName))
+			return;
+		fScanner= ToolFactory.createScanner(true, true, false, true);
+		fScanner.setSource(chars);
 		doScan();
 		fScanner= null;
 	}
@@ -90,12 +106,25 @@ public class RefactoringScanner {
 	 * @param text the text
 	 */
 	public void scan(String text) {
-		char[] chars= text.toCharArray();
-		fMatches= new HashSet<>();
-		fScanner= ToolFactory.createScanner(true, true, false, true);
-		fScanner.setSource(chars);
-		doScan();
-		fScanner= null;
+		scan(text.toCharArray());
+	}
+
+	private static boolean contains(char[] chars, String name) {
+		int length= name.length();
+		if (length == 0)
+			return true;
+		char first= name.charAt(0);
+		int last= chars.length - length;
+		outer: for (int i= 0; i <= last; i++) {
+			if (chars[i] != first)
+				continue;
+			for (int k= 1; k < length; k++) {
+				if (chars[i + k] != name.charAt(k))
+					continue outer;
+			}
+			return true;
+		}
+		return false;
 	}
 
 	private void doScan() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -113,6 +113,8 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 	private boolean fDelegateUpdating;
 	private boolean fDelegateDeprecation;
 	protected boolean fInitialized= false;
+	private SessionTypeHierarchyCache fHierarchyCache;
+	private boolean fOwnsHierarchyCache;
 
 	/**
 	 * Creates a new rename method processor.
@@ -245,7 +247,7 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 
 	private void initializeMethodsToRename(IProgressMonitor pm, ReferencesInBinaryContext binaryRefs) throws CoreException {
 		if (fMethodsToRename == null) {
-			IMethod[] rippleMethods= RippleMethodFinder2.getRelatedMethods(getMethod(), binaryRefs, pm, null);
+			IMethod[] rippleMethods= RippleMethodFinder2.getRelatedMethods(getMethod(), binaryRefs, getHierarchyCache(), pm, null);
 			fMethodsToRename= new HashSet<>();
 			for (IMethod method : rippleMethods) {
 				if (!method.isLambdaMethod()) {
@@ -255,6 +257,46 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 		}
 	}
 
+	/**
+	 * Returns the cache of the type hierarchies used while checking the conditions.
+	 *
+	 * @return the hierarchy cache
+	 * @since 3.14
+	 */
+	protected final SessionTypeHierarchyCache getHierarchyCache() {
+		if (fHierarchyCache == null) {
+			fHierarchyCache= new SessionTypeHierarchyCache();
+			fOwnsHierarchyCache= true;
+		}
+		return fHierarchyCache;
+	}
+
+	/**
+	 * Makes this processor use the hierarchy cache of another processor, which disposes it.
+	 *
+	 * @param hierarchyCache the hierarchy cache to share
+	 * @since 3.14
+	 */
+	final void setHierarchyCache(SessionTypeHierarchyCache hierarchyCache) {
+		releaseHierarchyCache();
+		fHierarchyCache= hierarchyCache;
+		fOwnsHierarchyCache= false;
+	}
+
+	/**
+	 * Releases the type hierarchies of the hierarchy cache, if this processor has created the
+	 * cache. The cache lives for a single condition check or change creation, and is released at
+	 * its end, so that no hierarchies are left behind if the refactoring is cancelled.
+	 *
+	 * @since 3.14
+	 */
+	protected final void releaseHierarchyCache() {
+		if (fHierarchyCache != null && fOwnsHierarchyCache)
+			fHierarchyCache.dispose();
+		fHierarchyCache= null;
+		fOwnsHierarchyCache= false;
+	}
+
 	protected void setMethodsToRename(IMethod[] methods) {
 		fMethodsToRename= new HashSet<>(Arrays.asList(methods));
 	}
@@ -760,6 +802,7 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 			descriptor.setDeprecateDelegate(fDelegateDeprecation);
 			return new DynamicValidationRefactoringChange(descriptor, RefactoringCoreMessages.RenameMethodProcessor_change_name, list.toArray(new Change[list.size()]));
 		} finally {
+			releaseHierarchyCache();
 			monitor.done();
 		}
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1288,6 +1288,16 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 	 * @throws CoreException should not happen
 	 */
 	private RefactoringStatus initializeSimilarElementsRenameProcessors(IProgressMonitor progressMonitor, CheckConditionsContext context) throws CoreException {
+		// similarly named methods are often declared in the same hierarchies
+		SessionTypeHierarchyCache hierarchyCache= new SessionTypeHierarchyCache();
+		try {
+			return initializeSimilarElementsRenameProcessors(progressMonitor, context, hierarchyCache);
+		} finally {
+			hierarchyCache.dispose();
+		}
+	}
+
+	private RefactoringStatus initializeSimilarElementsRenameProcessors(IProgressMonitor progressMonitor, CheckConditionsContext context, SessionTypeHierarchyCache hierarchyCache) throws CoreException {
 
 		Assert.isNotNull(fPreloadedElementToName);
 		Assert.isNotNull(fPreloadedElementToSelection);
@@ -1371,15 +1381,15 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 					final IType declaringType= currentMethod.getDeclaringType();
 					ITypeHierarchy hierarchy= null;
 					if (!declaringType.isInterface())
-						hierarchy= declaringType.newTypeHierarchy(new NullProgressMonitor());
+						hierarchy= hierarchyCache.getTypeHierarchy(declaringType, null, new NullProgressMonitor());
 
-					final IMethod topmost= MethodChecks.getTopmostMethod(currentMethod, hierarchy, new NullProgressMonitor());
+					final IMethod topmost= MethodChecks.getTopmostMethod(currentMethod, hierarchy, hierarchyCache, new NullProgressMonitor());
 					if (topmost != null)
 						currentMethod= topmost;
 					if (handledTopLevelMethods.contains(currentMethod))
 						continue;
 					handledTopLevelMethods.add(currentMethod);
-					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, new NullProgressMonitor(), null);
+					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, true, hierarchyCache, new NullProgressMonitor(), null);
 
 					if (checkForWarnings(warnings, newName, ripples))
 						continue;
@@ -1388,7 +1398,7 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 					if (status.hasFatalError())
 						return status;
 
-					processor= createVirtualMethodRenameProcessor(currentMethod, newName, ripples, hierarchy);
+					processor= createVirtualMethodRenameProcessor(currentMethod, newName, ripples, hierarchyCache);
 					fFinalSimilarElementToName.put(currentMethod, newName);
 					for (int i= 0; i < ripples.length; i++) {
 						fFinalSimilarElementToName.put(ripples[i], newName);
@@ -1647,8 +1657,8 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 
 	// ----------------- Processor creation --------
 
-	private RenameMethodProcessor createVirtualMethodRenameProcessor(IMethod currentMethod, String newMethodName, IMethod[] ripples, ITypeHierarchy hierarchy) {
-		RenameMethodProcessor processor= new RenameVirtualMethodProcessor(currentMethod, ripples, fChangeManager, hierarchy, CATEGORY_METHOD_RENAME);
+	private RenameMethodProcessor createVirtualMethodRenameProcessor(IMethod currentMethod, String newMethodName, IMethod[] ripples, SessionTypeHierarchyCache hierarchyCache) {
+		RenameMethodProcessor processor= new RenameVirtualMethodProcessor(currentMethod, ripples, fChangeManager, hierarchyCache, CATEGORY_METHOD_RENAME);
 		initMethodProcessor(processor, newMethodName);
 		return processor;
 	}
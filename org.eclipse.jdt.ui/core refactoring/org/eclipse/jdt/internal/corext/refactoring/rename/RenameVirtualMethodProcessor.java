@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -47,7 +47,6 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 
 	private IMethod fOriginalMethod;
 	private boolean fActivationChecked;
-	private ITypeHierarchy fCachedHierarchy= null;
 
 	/**
 	 * Creates a new rename method processor.
@@ -78,14 +77,14 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 	 *
 	 * Protected constructor; only called from RenameTypeProcessor. Initializes
 	 * the method processor with an already resolved top level and ripple
-	 * methods.
+	 * methods, and the hierarchy cache of the type processor.
 	 *
 	 */
-	RenameVirtualMethodProcessor(IMethod topLevel, IMethod[] ripples, TextChangeManager changeManager, ITypeHierarchy hierarchy, GroupCategorySet categorySet) {
+	RenameVirtualMethodProcessor(IMethod topLevel, IMethod[] ripples, TextChangeManager changeManager, SessionTypeHierarchyCache hierarchyCache, GroupCategorySet categorySet) {
 		super(topLevel, changeManager, categorySet);
 		fOriginalMethod= getMethod();
 		fActivationChecked= true; // is top level
-		fCachedHierarchy= hierarchy; // may be null
+		setHierarchyCache(hierarchyCache);
 		setMethodsToRename(ripples);
 	}
 
@@ -94,10 +93,7 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 	}
 
 	private ITypeHierarchy getCachedHierarchy(IType declaring, IProgressMonitor monitor) throws JavaModelException {
-		if (fCachedHierarchy != null && declaring.equals(fCachedHierarchy.getType()))
-			return fCachedHierarchy;
-		fCachedHierarchy= declaring.newTypeHierarchy(new SubProgressMonitor(monitor, 1));
-		return fCachedHierarchy;
+		return getHierarchyCache().getTypeHierarchy(declaring, null, new SubProgressMonitor(monitor, 1));
 	}
 
 	@Override
@@ -126,12 +122,13 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 
 				IMethod topmost= getMethod();
 				if (MethodChecks.isVirtual(topmost))
-					topmost= MethodChecks.getTopmostMethod(getMethod(), hierarchy, monitor);
+					topmost= MethodChecks.getTopmostMethod(getMethod(), hierarchy, getHierarchyCache(), monitor);
 				if (topmost != null)
 					initialize(topmost);
 				fActivationChecked= true;
 			}
 		} finally{
+			releaseHierarchyCache();
 			monitor.done();
 		}
 		return result;
@@ -183,9 +180,9 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 					}
 				}
 			}
-			fCachedHierarchy= null;
 			return result;
 		} finally{
+			releaseHierarchyCache();
 			pm.done();
 		}
 	}
@@ -200,7 +197,7 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 			for (Iterator<IType> iter= types.iterator(); iter.hasNext(); ) {
 				final IMethod found= Checks.findMethod(method, iter.next());
 				final IType declaring= found.getDeclaringType();
-				result.addAll(Arrays.asList(hierarchyDeclaresMethodName(new SubProgressMonitor(pm, 1), declaring.newTypeHierarchy(new SubProgressMonitor(pm, 1)), found, newName)));
+				result.addAll(Arrays.asList(hierarchyDeclaresMethodName(new SubProgressMonitor(pm, 1), getHierarchyCache().getTypeHierarchy(declaring, null, new SubProgressMonitor(pm, 1)), found, newName)));
 			}
 			return result.toArray(new IMethod[result.size()]);
 		} finally {
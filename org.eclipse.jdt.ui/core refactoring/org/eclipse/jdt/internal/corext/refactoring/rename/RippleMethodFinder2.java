@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -55,7 +55,7 @@ public class RippleMethodFinder2 {
 	private Map<IType, IMethod> fTypeToMethod;
 	private Set<IType> fRootTypes;
 	private MultiMap<IType, IType> fRootReps;
-	private Map<IType, ITypeHierarchy> fRootHierarchies;
+	private final SessionTypeHierarchyCache fHierarchyCache;
 	private UnionFind fUnionFind;
 
 	private final boolean fExcludeBinaries;
@@ -126,39 +126,85 @@ public class RippleMethodFinder2 {
 	}
 
 
-	private RippleMethodFinder2(IMethod method, boolean excludeBinaries){
+	private RippleMethodFinder2(IMethod method, boolean excludeBinaries, SessionTypeHierarchyCache hierarchyCache){
 		fMethod= method;
 		fExcludeBinaries= excludeBinaries;
 		fBinaryRefs= null;
+		fHierarchyCache= hierarchyCache;
 	}
 
-	private RippleMethodFinder2(IMethod method, ReferencesInBinaryContext binaryRefs) {
+	private RippleMethodFinder2(IMethod method, ReferencesInBinaryContext binaryRefs, SessionTypeHierarchyCache hierarchyCache) {
 		fMethod= method;
 		fExcludeBinaries= true;
 		fDeclarationToMatch= new HashMap<>();
 		fBinaryRefs= binaryRefs;
+		fHierarchyCache= hierarchyCache;
 	}
 
 	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
+		SessionTypeHierarchyCache hierarchyCache= new SessionTypeHierarchyCache();
+		try {
+			return getRelatedMethods(method, excludeBinaries, hierarchyCache, pm, owner);
+		} finally {
+			hierarchyCache.dispose();
+		}
+	}
+
+	/**
+	 * Finds the methods which must be renamed together with the given method.
+	 *
+	 * @param method the method
+	 * @param excludeBinaries <code>true</code> to exclude methods in binary types
+	 * @param hierarchyCache the cache which provides the type hierarchies, shared with other
+	 *            computations of the refactoring
+	 * @param pm the progress monitor
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @return the related methods
+	 * @throws CoreException if the methods cannot be found
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, SessionTypeHierarchyCache hierarchyCache, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
 		try{
 			if (! MethodChecks.isVirtual(method))
 				return new IMethod[]{ method };
 
-			return new RippleMethodFinder2(method, excludeBinaries).getAllRippleMethods(pm, owner);
+			return new RippleMethodFinder2(method, excludeBinaries, hierarchyCache).getAllRippleMethods(pm, owner);
 		} finally{
 			pm.done();
 		}
 	}
+
 	public static IMethod[] getRelatedMethods(IMethod method, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
 		return getRelatedMethods(method, true, pm, owner);
 	}
 
 	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
+		SessionTypeHierarchyCache hierarchyCache= new SessionTypeHierarchyCache();
+		try {
+			return getRelatedMethods(method, binaryRefs, hierarchyCache, pm, owner);
+		} finally {
+			hierarchyCache.dispose();
+		}
+	}
+
+	/**
+	 * Finds the methods which must be renamed together with the given method, and collects the
+	 * declarations in binary types.
+	 *
+	 * @param method the method
+	 * @param binaryRefs the context which collects the declarations in binary types
+	 * @param hierarchyCache the cache which provides the type hierarchies, shared with other
+	 *            computations of the refactoring
+	 * @param pm the progress monitor
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @return the related methods
+	 * @throws CoreException if the methods cannot be found
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, SessionTypeHierarchyCache hierarchyCache, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
 		try {
 			if (! MethodChecks.isVirtual(method))
 				return new IMethod[]{ method };
 
-			return new RippleMethodFinder2(method, binaryRefs).getAllRippleMethods(pm, owner);
+			return new RippleMethodFinder2(method, binaryRefs, hierarchyCache).getAllRippleMethods(pm, owner);
 		} finally{
 			pm.done();
 		}
@@ -258,7 +304,7 @@ public class RippleMethodFinder2 {
 				IType relatedType= iter.next();
 				ITypeHierarchy hierarchy= getCachedHierarchy(relatedType, owner, new SubProgressMonitor(pm, 1));
 				if (hierarchy == null)
-					hierarchy= relatedType.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
+					hierarchy= fHierarchyCache.getSubtypeHierarchy(relatedType, owner, new SubProgressMonitor(pm, 1));
 				IType[] allSubTypes= hierarchy.getAllSubtypes(relatedType);
 				for (int i= 0; i < allSubTypes.length; i++)
 					relatedSubTypes.add(allSubTypes[i]);
@@ -273,7 +319,7 @@ public class RippleMethodFinder2 {
 				IMethod alienMethod= fTypeToMethod.get(alienType);
 				ITypeHierarchy hierarchy= getCachedHierarchy(alienType, owner, new SubProgressMonitor(pm, 1));
 				if (hierarchy == null)
-					hierarchy= alienType.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
+					hierarchy= fHierarchyCache.getSubtypeHierarchy(alienType, owner, new SubProgressMonitor(pm, 1));
 				IType[] allSubtypes= hierarchy.getAllSubtypes(alienType);
 				for (int i= 0; i < allSubtypes.length; i++) {
 					IType subtype= allSubtypes[i];
@@ -303,7 +349,6 @@ public class RippleMethodFinder2 {
 		}
 
 		fRootReps= null;
-		fRootHierarchies= null;
 		fTypeToMethod= null;
 		fUnionFind= null;
 
@@ -316,11 +361,7 @@ public class RippleMethodFinder2 {
 			Collection<IType> collection= fRootReps.get(rep);
 			for (Iterator<IType> iter= collection.iterator(); iter.hasNext();) {
 				IType root= iter.next();
-				ITypeHierarchy hierarchy= fRootHierarchies.get(root);
-				if (hierarchy == null) {
-					hierarchy= root.newTypeHierarchy(owner, new SubProgressMonitor(monitor, 1));
-					fRootHierarchies.put(root, hierarchy);
-				}
+				ITypeHierarchy hierarchy= fHierarchyCache.getTypeHierarchy(root, owner, new SubProgressMonitor(monitor, 1));
 				if (hierarchy.contains(type))
 					return hierarchy;
 			}
@@ -391,7 +432,6 @@ public class RippleMethodFinder2 {
 			if (rep != null)
 				fRootReps.put(rep, type);
 		}
-		fRootHierarchies= new HashMap<>();
 	}
 
 	private void uniteWithSupertypes(IType anchor, IType type) throws JavaModelException {
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.rename;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.WorkingCopyOwner;
+
+/**
+ * A cache for the type hierarchies computed while checking and creating a refactoring.
+ * <p>
+ * A type hierarchy of a type contains all subtypes and all supertypes of that type. It is therefore
+ * reused for the subtypes of any type below its focus type, and for the supertypes of any type
+ * above it, so that the types of a ripple which share a root type share the hierarchy of that root.
+ * Hierarchies which have changed or no longer exist are dropped from the cache when they are
+ * looked up.
+ * </p>
+ * <p>
+ * A cache lives for a single condition check or change creation of the refactoring which creates
+ * it, and must be {@link #dispose() disposed} at its end. Hierarchies are cached per working copy
+ * owner.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class SessionTypeHierarchyCache {
+
+	private static final class Key {
+
+		private final IType fType;
+		private final WorkingCopyOwner fOwner;
+
+		Key(IType type, WorkingCopyOwner owner) {
+			fType= type;
+			fOwner= owner;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fType.equals(other.fType) && (fOwner == null ? other.fOwner == null : fOwner.equals(other.fOwner));
+		}
+
+		@Override
+		public int hashCode() {
+			return fType.hashCode() * 31 + (fOwner == null ? 0 : fOwner.hashCode());
+		}
+	}
+
+	private static final class Entry implements ITypeHierarchyChangedListener {
+
+		private final ITypeHierarchy fHierarchy;
+		private final WorkingCopyOwner fOwner;
+		private volatile boolean fChanged;
+
+		Entry(ITypeHierarchy hierarchy, WorkingCopyOwner owner) {
+			fHierarchy= hierarchy;
+			fOwner= owner;
+			fHierarchy.addTypeHierarchyChangedListener(this);
+		}
+
+		@Override
+		public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
+			// called while the delta is processed, don't lock the cache
+			fChanged= true;
+		}
+
+		void dispose() {
+			fHierarchy.removeTypeHierarchyChangedListener(this);
+		}
+	}
+
+	/** Focus type to its type hierarchy. */
+	private final Map<Key, Entry> fTypeHierarchies= new HashMap<>();
+
+	/** Type to a type hierarchy which contains all its subtypes. */
+	private final Map<Key, Entry> fSubtypeIndex= new HashMap<>();
+
+	/** Type to a type or supertype hierarchy which contains all its supertypes. */
+	private final Map<Key, Entry> fSupertypeIndex= new HashMap<>();
+
+	private final List<Entry> fEntries= new ArrayList<>();
+
+	/**
+	 * Returns the type hierarchy of a type.
+	 *
+	 * @param type the focus type
+	 * @param owner the working copy owner, or <code>null</code> for the primary working copies
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the type hierarchy whose focus is <code>type</code>
+	 * @throws JavaModelException if the hierarchy cannot be created
+	 */
+	public ITypeHierarchy getTypeHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
+		ITypeHierarchy hierarchy= find(fTypeHierarchies, type, owner);
+		if (hierarchy == null)
+			hierarchy= add(type.newTypeHierarchy(owner, monitor), owner, true);
+		return hierarchy;
+	}
+
+	/**
+	 * Returns a type hierarchy which contains all subtypes of a type. The hierarchy may be the
+	 * hierarchy of a supertype, so that queries other than
+	 * {@link ITypeHierarchy#getSubtypes(IType)} and {@link ITypeHierarchy#getAllSubtypes(IType)}
+	 * on <code>type</code> may return more types than on a type hierarchy of just
+	 * <code>type</code>.
+	 *
+	 * @param type the type
+	 * @param owner the working copy owner, or <code>null</code> for the primary working copies
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return a type hierarchy which contains all subtypes of <code>type</code>
+	 * @throws JavaModelException if the hierarchy cannot be created
+	 */
+	public ITypeHierarchy getSubtypeHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
+		ITypeHierarchy hierarchy= find(fSubtypeIndex, type, owner);
+		if (hierarchy == null)
+			hierarchy= add(type.newTypeHierarchy(owner, monitor), owner, true);
+		return hierarchy;
+	}
+
+	/**
+	 * Returns a hierarchy which contains all supertypes of a type. The hierarchy may be the
+	 * hierarchy of a subtype, so that queries such as {@link ITypeHierarchy#getAllClasses()} may
+	 * return more types than on a supertype hierarchy of just <code>type</code>.
+	 *
+	 * @param type the type
+	 * @param owner the working copy owner, or <code>null</code> for the primary working copies
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return a hierarchy which contains all supertypes of <code>type</code>
+	 * @throws JavaModelException if the hierarchy cannot be created
+	 */
+	public ITypeHierarchy getSupertypeHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
+		ITypeHierarchy hierarchy= find(fSupertypeIndex, type, owner);
+		if (hierarchy == null)
+			hierarchy= add(type.newSupertypeHierarchy(owner, monitor), owner, false);
+		return hierarchy;
+	}
+
+	/**
+	 * Releases all hierarchies of this cache. The cache can still be used afterwards.
+	 */
+	public synchronized void dispose() {
+		for (Iterator<Entry> iter= fEntries.iterator(); iter.hasNext();)
+			iter.next().dispose();
+		fEntries.clear();
+		fTypeHierarchies.clear();
+		fSubtypeIndex.clear();
+		fSupertypeIndex.clear();
+	}
+
+	private synchronized ITypeHierarchy find(Map<Key, Entry> index, IType type, WorkingCopyOwner owner) {
+		Entry entry= index.get(new Key(type, owner));
+		if (entry == null)
+			return null;
+		if (entry.fChanged || !entry.fHierarchy.exists()) {
+			remove(entry);
+			return null;
+		}
+		return entry.fHierarchy;
+	}
+
+	private synchronized ITypeHierarchy add(ITypeHierarchy hierarchy, WorkingCopyOwner owner, boolean isTypeHierarchy) {
+		Entry entry= new Entry(hierarchy, owner);
+		fEntries.add(entry);
+		IType focus= hierarchy.getType();
+		put(fSupertypeIndex, focus, entry);
+		IType[] supertypes= hierarchy.getAllSupertypes(focus);
+		for (int i= 0; i < supertypes.length; i++)
+			put(fSupertypeIndex, supertypes[i], entry);
+		if (isTypeHierarchy) {
+			fTypeHierarchies.put(new Key(focus, owner), entry);
+			put(fSubtypeIndex, focus, entry);
+			IType[] subtypes= hierarchy.getAllSubtypes(focus);
+			for (int i= 0; i < subtypes.length; i++)
+				put(fSubtypeIndex, subtypes[i], entry);
+		}
+		return hierarchy;
+	}
+
+	private static void put(Map<Key, Entry> index, IType type, Entry entry) {
+		index.put(new Key(type, entry.fOwner), entry);
+	}
+
+	private synchronized void remove(Entry entry) {
+		if (!fEntries.remove(entry))
+			return;
+		entry.dispose();
+		fTypeHierarchies.values().remove(entry);
+		removeAll(fSubtypeIndex, entry);
+		removeAll(fSupertypeIndex, entry);
+	}
+
+	private static void removeAll(Map<Key, Entry> index, Entry entry) {
+		for (Iterator<Entry> iter= index.values().iterator(); iter.hasNext();) {
+			if (iter.next() == entry)
+				iter.remove();
+		}
+	}
+}
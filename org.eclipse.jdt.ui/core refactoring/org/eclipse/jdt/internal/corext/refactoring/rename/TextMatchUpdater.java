@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,18 +10,27 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.rename;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -42,6 +51,7 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
 import org.eclipse.jdt.core.search.SearchMatch;
 
+import org.eclipse.jdt.internal.corext.Corext;
 import org.eclipse.jdt.internal.corext.refactoring.RefactoringCoreMessages;
 import org.eclipse.jdt.internal.corext.refactoring.SearchResultGroup;
 import org.eclipse.jdt.internal.corext.refactoring.changes.TextChangeCompatibility;
@@ -51,6 +61,15 @@ import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
 
 class TextMatchUpdater {
 
+	/**
+	 * The system property which configures the maximum number of compilation units scanned
+	 * concurrently, <code>1</code> scans all units in the calling thread. The property is read for
+	 * each update.
+	 *
+	 * @since 3.14
+	 */
+	private static final String PARALLELISM_PROPERTY= "org.eclipse.jdt.ui.textMatchParallelism"; //$NON-NLS-1$
+
 	private static final String TEXT_EDIT_LABEL= RefactoringCoreMessages.TextMatchUpdater_update;
 
 	private static final GroupCategorySet TEXTUAL_MATCHES= new GroupCategorySet(
@@ -63,22 +82,51 @@ class TextMatchUpdater {
 	private final SearchResultGroup[] fReferences;
 	private final boolean fOnlyQualified;
 
-	private final RefactoringScanner fScanner;
+	private final String fCurrentName;
+	private final String fCurrentQualifier;
 	private final String fNewName;
 	private final int fCurrentNameLength;
 
+	/**
+	 * The compilation units in scope, in the order of the resource traversal.
+	 * @since 3.14
+	 */
+	private final List<ICompilationUnit> fUnits= new ArrayList<>();
+
+	/**
+	 * The matches found in the compilation units, at the index of the unit. Guarded by
+	 * <code>this</code>.
+	 * @since 3.14
+	 */
+	private Set<TextMatch>[] fMatches;
+
+	/**
+	 * The index of the next unit to scan. Guarded by <code>this</code>.
+	 * @since 3.14
+	 */
+	private int fNext;
+
+	/**
+	 * The first error of the concurrent scan. Guarded by <code>this</code>.
+	 * @since 3.14
+	 */
+	private Throwable fError;
+
 	private TextMatchUpdater(TextChangeManager manager, IJavaSearchScope scope, String currentName, String currentQualifier, String newName, SearchResultGroup[] references, boolean onlyQualified){
 		Assert.isNotNull(manager);
 		Assert.isNotNull(scope);
 		Assert.isNotNull(references);
+		Assert.isNotNull(currentName);
+		Assert.isNotNull(currentQualifier);
 		fManager= manager;
 		fScope= scope;
 		fReferences= references;
 		fOnlyQualified= onlyQualified;
 
 		fNewName= newName;
+		fCurrentName= currentName;
+		fCurrentQualifier= currentQualifier;
 		fCurrentNameLength= currentName.length();
-		fScanner= new RefactoringScanner(currentName, currentQualifier);
 	}
 
 	static void perform(IProgressMonitor pm, IJavaSearchScope scope, String currentName, String currentQualifier, String newName, TextChangeManager manager, SearchResultGroup[] references, boolean onlyQualified) throws JavaModelException{
@@ -93,18 +141,164 @@ class TextMatchUpdater {
 		try{
 			IProject[] projectsInScope= getProjectsInScope();
 
-			pm.beginTask("", projectsInScope.length); //$NON-NLS-1$
+			pm.beginTask("", projectsInScope.length * 2); //$NON-NLS-1$
 
 			for (int i =0 ; i < projectsInScope.length; i++){
 				if (pm.isCanceled())
 					throw new OperationCanceledException();
-				addTextMatches(projectsInScope[i], new SubProgressMonitor(pm, 1));
+				collectUnits(projectsInScope[i], new SubProgressMonitor(pm, 1));
+			}
+
+			scanUnits(new SubProgressMonitor(pm, projectsInScope.length));
+
+			// merge in the order of the units, as the sequential scan did
+			for (int i= 0; i < fMatches.length; i++) {
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+				addCuTextMatches(fUnits.get(i), fMatches[i]);
 			}
 		} finally{
 			pm.done();
 		}
 	}
 
+	/**
+	 * Scans the collected compilation units, concurrently by up to {@link #getParallelism()} jobs.
+	 * Each job uses its own scanner.
+	 *
+	 * @param pm the progress monitor
+	 * @throws JavaModelException if the source of a unit cannot be read
+	 * @since 3.14
+	 */
+	@SuppressWarnings("unchecked")
+	private void scanUnits(final IProgressMonitor pm) throws JavaModelException {
+		fMatches= new Set[fUnits.size()];
+		pm.beginTask("", fUnits.size()); //$NON-NLS-1$
+		try {
+			int parallelism= Math.min(getParallelism(), fUnits.size());
+			if (parallelism <= 1) {
+				scan(pm);
+			} else {
+				String name= TextMatchUpdater.class.getName();
+				JobGroup group= new JobGroup(name, parallelism, parallelism);
+				for (int i= 0; i < parallelism; i++) {
+					Job job= new Job(name) {
+						@Override
+						protected IStatus run(IProgressMonitor jobMonitor) {
+							scan(pm);
+							return Status.OK_STATUS;
+						}
+					};
+					job.setSystem(true);
+					job.setJobGroup(group);
+					job.schedule();
+				}
+				try {
+					group.join(0, null);
+				} catch (InterruptedException e) {
+					group.cancel();
+					Thread.currentThread().interrupt();
+					throw new OperationCanceledException();
+				}
+			}
+
+			synchronized (this) {
+				if (fError instanceof JavaModelException)
+					throw (JavaModelException) fError;
+				if (fError instanceof CoreException)
+					throw new JavaModelException((CoreException) fError);
+				if (fError instanceof Error)
+					throw (Error) fError;
+				if (fError != null)
+					throw (RuntimeException) fError;
+			}
+			if (pm.isCanceled())
+				throw new OperationCanceledException();
+		} finally {
+			pm.done();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of compilation units scanned concurrently.
+	 *
+	 * @return the value of the {@link #PARALLELISM_PROPERTY}, by default the number of processors
+	 *         up to 4
+	 * @since 3.14
+	 */
+	private static int getParallelism() {
+		return Integer.getInteger(PARALLELISM_PROPERTY, Math.min(4, Runtime.getRuntime().availableProcessors())).intValue();
+	}
+
+	private void scan(IProgressMonitor pm) {
+		RefactoringScanner scanner= new RefactoringScanner(fCurrentName, fCurrentQualifier);
+		int index;
+		while ((index= next(pm)) != -1) {
+			Set<TextMatch> matches= null;
+			try {
+				scanner.scan(getSource(fUnits.get(index)));
+				matches= scanner.getMatches();
+			} catch (CoreException e) {
+				stop(e);
+			} catch (RuntimeException e) {
+				stop(e);
+			} catch (Error e) {
+				stop(e);
+			} finally {
+				done(index, matches, pm);
+			}
+		}
+	}
+
+	private synchronized int next(IProgressMonitor pm) {
+		if (fNext == fMatches.length || fError != null || pm.isCanceled())
+			return -1;
+		return fNext++;
+	}
+
+	private synchronized void done(int index, Set<TextMatch> matches, IProgressMonitor pm) {
+		fMatches[index]= matches;
+		pm.worked(1);
+	}
+
+	private synchronized void stop(Throwable error) {
+		if (fError == null)
+			fError= error;
+	}
+
+	/**
+	 * Returns the source of a compilation unit. The source of a unit which is not open is read
+	 * from its file, so that scanning does not open all units in scope.
+	 *
+	 * @param cu the compilation unit
+	 * @return the source
+	 * @throws CoreException if the source cannot be read
+	 * @since 3.14
+	 */
+	private static char[] getSource(ICompilationUnit cu) throws CoreException {
+		IResource resource= cu.getResource();
+		if (cu.isOpen() || cu.isWorkingCopy() || !(resource instanceof IFile))
+			return cu.getBuffer().getCharacters();
+
+		IFile file= (IFile) resource;
+		try (InputStream contents= file.getContents(true);
+				Reader reader= new InputStreamReader(contents, file.getCharset())) {
+			StringBuilder buf= new StringBuilder();
+			char[] chunk= new char[8192];
+			int read;
+			while ((read= reader.read(chunk)) != -1) {
+				buf.append(chunk, 0, read);
+			}
+			// the buffer of a unit does not contain the byte order mark of a UTF-8 file
+			int start= buf.length() > 0 && buf.charAt(0) == '\uFEFF' ? 1 : 0;
+			char[] result= new char[buf.length() - start];
+			buf.getChars(start, buf.length(), result, 0);
+			return result;
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, Corext.getPluginId(), e.getMessage(), e));
+		}
+	}
+
 	private IProject[] getProjectsInScope() {
 		IPath[] enclosingProjects= fScope.enclosingProjectsAndJars();
 		Set<IPath> enclosingProjectSet= new HashSet<>();
@@ -120,7 +314,7 @@ class TextMatchUpdater {
 		return projectsInScope.toArray(new IProject[projectsInScope.size()]);
 	}
 
-	private void addTextMatches(IResource resource, IProgressMonitor pm) throws JavaModelException{
+	private void collectUnits(IResource resource, IProgressMonitor pm) throws JavaModelException{
 		try{
 			String task= RefactoringCoreMessages.TextMatchUpdater_searching + resource.getFullPath();
 			if (resource instanceof IFile){
@@ -132,7 +326,7 @@ class TextMatchUpdater {
 					return;
 				if (! fScope.encloses(element))
 					return;
-				addCuTextMatches((ICompilationUnit) element);
+				fUnits.add((ICompilationUnit) element);
 
 			} else if (resource instanceof IContainer){
 				IResource[] members= ((IContainer) resource).members();
@@ -142,7 +336,7 @@ class TextMatchUpdater {
 					if (pm.isCanceled())
 						throw new OperationCanceledException();
 
-					addTextMatches(members[i], new SubProgressMonitor(pm, 1));
+					collectUnits(members[i], new SubProgressMonitor(pm, 1));
 				}
 			}
 		} catch (JavaModelException e){
@@ -154,10 +348,8 @@ class TextMatchUpdater {
 		}
 	}
 
-	private void addCuTextMatches(ICompilationUnit cu) throws JavaModelException{
-		fScanner.scan(cu);
-		Set<TextMatch> matches= fScanner.getMatches(); //Set of TextMatch
-		if (matches.size() == 0)
+	private void addCuTextMatches(ICompilationUnit cu, Set<TextMatch> matches) {
+		if (matches == null || matches.size() == 0)
 			return;
 
 		removeReferences(cu, matches);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -76,6 +76,7 @@ import org.eclipse.jdt.internal.core.manipulation.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMInstallType;
@@ -673,16 +674,20 @@ public class TypeInfoViewer {
 			SearchEngine engine= new SearchEngine((WorkingCopyOwner)null);
 			String packPattern= fFilter.getPackagePattern();
 			monitor.setTaskName(JavaUIMessages.TypeInfoViewer_searchJob_taskName);
-			engine.searchAllTypeNames(
-				packPattern == null ? null : packPattern.toCharArray(),
-				fFilter.getPackageFlags(),
-				fFilter.getNamePattern().toCharArray(),
-				fFilter.getSearchFlags(),
-				fElementKind,
-				fScope,
-				fReqestor,
-				IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
-				monitor);
+			char[] packageName= packPattern == null ? null : packPattern.toCharArray();
+			if (!TypeNameIndex.getDefault().searchAllTypeNames(packageName, fFilter.getPackageFlags(), fFilter.getNamePattern().toCharArray(),
+					fFilter.getSearchFlags(), fElementKind, fScope, fReqestor, monitor)) {
+				engine.searchAllTypeNames(
+					packageName,
+					fFilter.getPackageFlags(),
+					fFilter.getNamePattern().toCharArray(),
+					fFilter.getSearchFlags(),
+					fElementKind,
+					fScope,
+					fReqestor,
+					IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+					monitor);
+			}
 			if (DEBUG)
 				System.out.println("Time needed until search has finished: " + (System.currentTimeMillis() - start)); //$NON-NLS-1$
 			TypeNameMatch[] result= fReqestor.getResult();
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * A class loader which loads the classes and resources of the Rsrc-Class-Path through a
+ * {@link RsrcIndex}.
+ * <p>
+ * Resources of nested JARs are returned as <code>jar:rsrc:&lt;nested jar&gt;!/&lt;name&gt;</code>
+ * URLs which are opened through the index, resources of folders of the outer JAR are returned as
+ * regular <code>jar:file:</code> URLs.
+ * </p>
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * @since 3.14
+ */
+final class IndexedJarClassLoader extends ClassLoader {
+
+	/**
+	 * Opens <code>jar:rsrc:&lt;nested jar&gt;!/&lt;name&gt;</code> URLs through the index.
+	 */
+	private final class IndexURLStreamHandler extends URLStreamHandler {
+		protected URLConnection openConnection(URL url) throws IOException {
+			return new IndexURLConnection(url);
+		}
+	}
+
+	private final class IndexURLConnection extends URLConnection {
+		private RsrcIndex.Entry entry;
+
+		IndexURLConnection(URL url) {
+			super(url);
+		}
+
+		public void connect() throws IOException {
+			if (entry != null)
+				return;
+			String file = url.getFile();
+			int separator = file.indexOf(JIJConstants.JAR_INTERNAL_SEPARATOR);
+			if (!file.startsWith(JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON) || separator == -1)
+				throw new MalformedURLException("Invalid URL '" + url + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+			String archivePath = file.substring(JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON.length(), separator);
+			String name = file.substring(separator + JIJConstants.JAR_INTERNAL_SEPARATOR.length());
+			entry = index.getEntry(archivePath, name);
+			if (entry == null)
+				throw new FileNotFoundException("Could not open InputStream for URL '" + url + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+			connected = true;
+		}
+
+		public InputStream getInputStream() throws IOException {
+			connect();
+			return new ByteArrayInputStream(index.read(entry));
+		}
+
+		public int getContentLength() {
+			try {
+				connect();
+			} catch (IOException e) {
+				return -1;
+			}
+			return entry.size > Integer.MAX_VALUE ? -1 : (int) entry.size;
+		}
+	}
+
+	private final RsrcIndex index;
+	private final URL jarURL;
+	private final ClassLoader fallbackClassLoader;
+	private final URLStreamHandler handler;
+	private final Map protectionDomains;
+	private final Map manifests;
+
+	/**
+	 * @param index the index of the Rsrc-Class-Path
+	 * @param fallbackClassLoader the class loader which is asked for resources of folder
+	 *            elements of the Rsrc-Class-Path that are not in the outer JAR
+	 * @param parent the parent class loader
+	 * @throws MalformedURLException if the location of the outer JAR cannot be converted to a URL
+	 */
+	IndexedJarClassLoader(RsrcIndex index, ClassLoader fallbackClassLoader, ClassLoader parent) throws MalformedURLException {
+		super(parent);
+		this.index = index;
+		this.jarURL = index.getJarFile().toURI().toURL();
+		this.fallbackClassLoader = fallbackClassLoader;
+		this.handler = new IndexURLStreamHandler();
+		this.protectionDomains = new HashMap();
+		this.manifests = new HashMap();
+	}
+
+	protected Class findClass(String name) throws ClassNotFoundException {
+		String path = name.replace('.', '/') + JIJConstants.CLASS_FILE_EXTENSION;
+		RsrcIndex.Entry entry = index.getEntry(path);
+		try {
+			if (entry != null) {
+				byte[] bytes = index.read(entry);
+				definePackage(name, entry.archive);
+				return defineClass(name, bytes, 0, bytes.length, getProtectionDomain(entry.archive));
+			}
+			URL url = findFallbackResource(path);
+			if (url != null) {
+				byte[] bytes = readFully(url.openStream());
+				definePackage(name, null);
+				return defineClass(name, bytes, 0, bytes.length, getProtectionDomain(null));
+			}
+		} catch (IOException e) {
+			throw new ClassNotFoundException(name, e);
+		}
+		throw new ClassNotFoundException(name);
+	}
+
+	protected URL findResource(String name) {
+		RsrcIndex.Entry entry = index.getEntry(name);
+		if (entry != null) {
+			try {
+				return toURL(entry);
+			} catch (MalformedURLException e) {
+				return null;
+			}
+		}
+		return findFallbackResource(name);
+	}
+
+	protected Enumeration findResources(String name) throws IOException {
+		Vector result = new Vector();
+		for (RsrcIndex.Entry entry = index.getEntry(name); entry != null; entry = entry.next)
+			result.addElement(toURL(entry));
+		if (result.isEmpty()) {
+			URL url = findFallbackResource(name);
+			if (url != null)
+				result.addElement(url);
+		}
+		return result.elements();
+	}
+
+	private URL toURL(RsrcIndex.Entry entry) throws MalformedURLException {
+		if (entry.archive.isNested())
+			return new URL(JIJConstants.JAR_URL_PROTOCOL, "", -1, JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON + entry.archive.path + JIJConstants.JAR_INTERNAL_SEPARATOR + entry.name, handler); //$NON-NLS-1$
+		return new URL(JIJConstants.JAR_URL_PROTOCOL_WITH_COLON + jarURL + JIJConstants.JAR_INTERNAL_SEPARATOR + entry.entryName);
+	}
+
+	/**
+	 * Folder elements of the Rsrc-Class-Path are also resolved against the class path of the
+	 * JVM, e.g. for files next to the runnable JAR. Only files are accepted, since the entries of
+	 * the outer JAR are already in the index.
+	 *
+	 * @param name the resource name
+	 * @return the URL of the resource or <code>null</code>
+	 */
+	private URL findFallbackResource(String name) {
+		if (!index.hasFolders() || fallbackClassLoader == null)
+			return null;
+		URL url = fallbackClassLoader.getResource(name);
+		if (url != null && JIJConstants.FILE_URL_PROTOCOL.equals(url.getProtocol()))
+			return url;
+		return null;
+	}
+
+	private ProtectionDomain getProtectionDomain(RsrcIndex.Archive archive) throws MalformedURLException {
+		synchronized (protectionDomains) {
+			Object key = archive != null ? (Object) archive : (Object) jarURL;
+			ProtectionDomain result = (ProtectionDomain) protectionDomains.get(key);
+			if (result == null) {
+				URL location = jarURL;
+				if (archive != null && archive.isNested())
+					location = new URL(JIJConstants.JAR_URL_PROTOCOL, "", -1, JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON + archive.path + JIJConstants.JAR_INTERNAL_SEPARATOR, handler); //$NON-NLS-1$
+				result = new ProtectionDomain(new CodeSource(location, (Certificate[]) null), null, this, null);
+				protectionDomains.put(key, result);
+			}
+			return result;
+		}
+	}
+
+	private void definePackage(String className, RsrcIndex.Archive archive) {
+		int lastDot = className.lastIndexOf('.');
+		if (lastDot == -1)
+			return;
+		String packageName = className.substring(0, lastDot);
+		synchronized (this) {
+			if (getPackage(packageName) != null)
+				return;
+			Manifest manifest = getManifest(archive);
+			if (manifest == null) {
+				definePackage(packageName, null, null, null, null, null, null, null);
+				return;
+			}
+			Attributes packageAttributes = manifest.getAttributes(packageName.replace('.', '/') + '/');
+			Attributes mainAttributes = manifest.getMainAttributes();
+			definePackage(packageName,
+					getAttribute(Attributes.Name.SPECIFICATION_TITLE, packageAttributes, mainAttributes),
+					getAttribute(Attributes.Name.SPECIFICATION_VERSION, packageAttributes, mainAttributes),
+					getAttribute(Attributes.Name.SPECIFICATION_VENDOR, packageAttributes, mainAttributes),
+					getAttribute(Attributes.Name.IMPLEMENTATION_TITLE, packageAttributes, mainAttributes),
+					getAttribute(Attributes.Name.IMPLEMENTATION_VERSION, packageAttributes, mainAttributes),
+					getAttribute(Attributes.Name.IMPLEMENTATION_VENDOR, packageAttributes, mainAttributes),
+					null);
+		}
+	}
+
+	private static String getAttribute(Attributes.Name name, Attributes packageAttributes, Attributes mainAttributes) {
+		String value = packageAttributes != null ? packageAttributes.getValue(name) : null;
+		return value != null ? value : mainAttributes.getValue(name);
+	}
+
+	/**
+	 * @param archive the nested JAR or <code>null</code> for resources outside of nested JARs
+	 * @return the manifest of the nested JAR, or <code>null</code> if there is none
+	 */
+	private Manifest getManifest(RsrcIndex.Archive archive) {
+		if (archive == null || !archive.isNested())
+			return null;
+		if (manifests.containsKey(archive))
+			return (Manifest) manifests.get(archive);
+		Manifest result = null;
+		RsrcIndex.Entry entry = index.getEntry(archive.path, JarFile.MANIFEST_NAME);
+		if (entry != null) {
+			try {
+				result = new Manifest(new ByteArrayInputStream(index.read(entry)));
+			} catch (IOException e) {
+				// ignore invalid manifests, like URLClassLoader
+			}
+		}
+		manifests.put(archive, result);
+		return result;
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) != -1)
+				out.write(buffer, 0, n);
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
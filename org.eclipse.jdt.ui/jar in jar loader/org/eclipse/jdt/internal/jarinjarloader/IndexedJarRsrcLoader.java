@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.net.URL;
+import java.security.CodeSource;
+
+/**
+ * Variant of the {@link JarRsrcLoader} which loads the Rsrc-Class-Path through a
+ * {@link RsrcIndex}. Falls back to the {@link JarRsrcLoader} class loader if the runnable JAR cannot
+ * be indexed.
+ * <p>
+ * The index is cached next to the runnable JAR if the manifest contains
+ * <code>Rsrc-Index-Cache: true</code>. The system property
+ * <code>org.eclipse.jdt.internal.jarinjarloader.indexCache</code> overrides the manifest.
+ * </p>
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * @since 3.14
+ */
+public class IndexedJarRsrcLoader {
+
+	public static void main(String[] args) throws ClassNotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, SecurityException, NoSuchMethodException, IOException {
+		JarRsrcLoader.ManifestInfo mi = JarRsrcLoader.getManifestInfo();
+		ClassLoader cl = Thread.currentThread().getContextClassLoader();
+		URL.setURLStreamHandlerFactory(new RsrcURLStreamHandlerFactory(cl));
+		ClassLoader indexedClassLoader;
+		try {
+			RsrcIndex index = RsrcIndex.open(getJarFile(), mi.rsrcClassPath, isIndexCache(mi));
+			indexedClassLoader = new IndexedJarClassLoader(index, cl, JarRsrcLoader.getParentClassLoader());
+		} catch (Exception e) {
+			indexedClassLoader = JarRsrcLoader.createRsrcClassLoader(mi);
+		}
+		JarRsrcLoader.invokeMain(mi, indexedClassLoader, args);
+	}
+
+	private static File getJarFile() throws Exception {
+		CodeSource codeSource = IndexedJarRsrcLoader.class.getProtectionDomain().getCodeSource();
+		if (codeSource == null || codeSource.getLocation() == null)
+			throw new IOException("Unknown location of the runnable JAR"); //$NON-NLS-1$
+		File result = new File(new URI(codeSource.getLocation().toString()));
+		if (!result.isFile())
+			throw new IOException("Runnable JAR not found: " + result); //$NON-NLS-1$
+		return result;
+	}
+
+	private static boolean isIndexCache(JarRsrcLoader.ManifestInfo mi) {
+		String property = System.getProperty(JIJConstants.INDEX_CACHE_PROPERTY);
+		if (property != null)
+			return Boolean.valueOf(property).booleanValue();
+		return mi.indexCache;
+	}
+}
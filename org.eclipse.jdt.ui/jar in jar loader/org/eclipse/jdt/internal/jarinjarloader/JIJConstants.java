@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,4 +33,11 @@ final class JIJConstants {
 	static final String CURRENT_DIR                          = "./";  //$NON-NLS-1$
 	static final String UTF8_ENCODING                        = "UTF-8";  //$NON-NLS-1$
 	static final String RUNTIME                              = "#runtime";  //$NON-NLS-1$
+	static final String JAR_URL_PROTOCOL                     = "jar";  //$NON-NLS-1$
+	static final String JAR_URL_PROTOCOL_WITH_COLON          = "jar:";  //$NON-NLS-1$
+	static final String FILE_URL_PROTOCOL                    = "file";  //$NON-NLS-1$
+	static final String CLASS_FILE_EXTENSION                 = ".class";  //$NON-NLS-1$
+	static final String INDEX_CACHE_MANIFEST_NAME            = "Rsrc-Index-Cache";  //$NON-NLS-1$
+	static final String INDEX_CACHE_PROPERTY                 = "org.eclipse.jdt.internal.jarinjarloader.indexCache";  //$NON-NLS-1$
+	static final String INDEX_CACHE_FILE_SUFFIX              = ".rsrc-index";  //$NON-NLS-1$
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
@@ -34,15 +35,30 @@ import java.util.jar.Manifest;
  */
 public class JarRsrcLoader {
  
-	private static class ManifestInfo {
+	static class ManifestInfo {
 		String rsrcMainClass;
 		String[] rsrcClassPath;
+		boolean indexCache;
 	}
 	
 	public static void main(String[] args) throws ClassNotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, SecurityException, NoSuchMethodException, IOException {
 		ManifestInfo mi = getManifestInfo();
 		ClassLoader cl = Thread.currentThread().getContextClassLoader();
 		URL.setURLStreamHandlerFactory(new RsrcURLStreamHandlerFactory(cl));
+		ClassLoader jceClassLoader = createRsrcClassLoader(mi);
+		invokeMain(mi, jceClassLoader, args);
+	}
+
+	/**
+	 * Creates a class loader which loads the Rsrc-Class-Path through <code>rsrc:</code> URLs.
+	 * 
+	 * @param mi the manifest info
+	 * @return the class loader
+	 * @throws MalformedURLException if the Rsrc-Class-Path contains an invalid element
+	 * @throws InvocationTargetException if the parent class loader cannot be determined
+	 * @throws IllegalAccessException if the parent class loader cannot be determined
+	 */
+	static ClassLoader createRsrcClassLoader(ManifestInfo mi) throws MalformedURLException, InvocationTargetException, IllegalAccessException {
 		URL[] rsrcUrls = new URL[mi.rsrcClassPath.length];
 		for (int i = 0; i < mi.rsrcClassPath.length; i++) {
 			String rsrcPath = mi.rsrcClassPath[i];
@@ -51,14 +67,24 @@ public class JarRsrcLoader {
 			else
 				rsrcUrls[i] = new URL(JIJConstants.JAR_INTERNAL_URL_PROTOCOL_WITH_COLON + rsrcPath + JIJConstants.JAR_INTERNAL_SEPARATOR);    
 		}
-		ClassLoader jceClassLoader = new URLClassLoader(rsrcUrls, getParentClassLoader());
-		Thread.currentThread().setContextClassLoader(jceClassLoader);
-		Class c = Class.forName(mi.rsrcMainClass, true, jceClassLoader);
+		return new URLClassLoader(rsrcUrls, getParentClassLoader());
+	}
+
+	/**
+	 * Invokes the Rsrc-Main-Class with the given class loader.
+	 * 
+	 * @param mi the manifest info
+	 * @param classLoader the class loader for the Rsrc-Class-Path
+	 * @param args the program arguments
+	 */
+	static void invokeMain(ManifestInfo mi, ClassLoader classLoader, String[] args) throws ClassNotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, SecurityException, NoSuchMethodException {
+		Thread.currentThread().setContextClassLoader(classLoader);
+		Class c = Class.forName(mi.rsrcMainClass, true, classLoader);
 		Method main = c.getMethod(JIJConstants.MAIN_METHOD_NAME, new Class[]{args.getClass()}); 
 		main.invoke((Object)null, new Object[]{args});
 	}
 
-	private static ClassLoader getParentClassLoader() throws InvocationTargetException, IllegalAccessException {
+	static ClassLoader getParentClassLoader() throws InvocationTargetException, IllegalAccessException {
 		// On Java8, it is ok to use a null parent class loader, but, starting with Java 9,
 		// we need to provide one that has access to the restricted list of packages that
 		// otherwise would produce a SecurityException when loaded
@@ -73,7 +99,7 @@ public class JarRsrcLoader {
 		}
 	}
 
-	private static ManifestInfo getManifestInfo() throws IOException {
+	static ManifestInfo getManifestInfo() throws IOException {
 		Enumeration resEnum;
 		resEnum = Thread.currentThread().getContextClassLoader().getResources(JarFile.MANIFEST_NAME); 
 		while (resEnum.hasMoreElements()) {
@@ -89,6 +115,7 @@ public class JarRsrcLoader {
 					if (rsrcCP == null)
 						rsrcCP = JIJConstants.DEFAULT_REDIRECTED_CLASSPATH; 
 					result.rsrcClassPath = splitSpaces(rsrcCP);
+					result.indexCache = Boolean.valueOf(mainAttribs.getValue(JIJConstants.INDEX_CACHE_MANIFEST_NAME)).booleanValue();
 					if ((result.rsrcMainClass != null) && !result.rsrcMainClass.trim().equals(""))    //$NON-NLS-1$
 							return result;
 				}
@@ -0,0 +1,540 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Index of all entries which are visible on the Rsrc-Class-Path of a runnable JAR. The index maps
+ * the name of a resource to the nested JAR (or the folder of the outer JAR) and the position of the
+ * entry, so that an entry can be read directly from the outer JAR without opening a stream on the
+ * nested JAR and scanning it.
+ * <p>
+ * The index is built once by reading the central directories of the outer JAR and of all nested
+ * JARs. It can optionally be written next to the outer JAR and is reused as long as the JAR and the
+ * Rsrc-Class-Path are unchanged.
+ * </p>
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * @since 3.14
+ */
+final class RsrcIndex {
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private static final int CACHE_MAGIC = 0x4A494A58;
+	private static final int CACHE_VERSION = 1;
+
+	/**
+	 * The data of an archive: either the outer JAR or the bytes of a nested JAR.
+	 */
+	private static abstract class Storage {
+		abstract long length();
+
+		abstract void read(long position, byte[] buffer, int offset, int length) throws IOException;
+	}
+
+	/**
+	 * A range of the outer JAR file. Stored nested JARs are read in place.
+	 */
+	private static final class FileStorage extends Storage {
+		private final RandomAccessFile file;
+		private final long base;
+		private final long length;
+
+		FileStorage(RandomAccessFile file, long base, long length) {
+			this.file = file;
+			this.base = base;
+			this.length = length;
+		}
+
+		long length() {
+			return length;
+		}
+
+		void read(long position, byte[] buffer, int offset, int len) throws IOException {
+			if (position < 0 || position + len > length)
+				throw new EOFException();
+			synchronized (file) {
+				file.seek(base + position);
+				file.readFully(buffer, offset, len);
+			}
+		}
+	}
+
+	/**
+	 * The inflated bytes of a compressed nested JAR.
+	 */
+	private static final class ArrayStorage extends Storage {
+		private final byte[] bytes;
+
+		ArrayStorage(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		long length() {
+			return bytes.length;
+		}
+
+		void read(long position, byte[] buffer, int offset, int len) throws IOException {
+			if (position < 0 || position + len > bytes.length)
+				throw new EOFException();
+			System.arraycopy(bytes, (int) position, buffer, offset, len);
+		}
+	}
+
+	/**
+	 * An archive which contains indexed entries. The outer JAR has no path, a nested JAR is
+	 * described by its entry in the outer JAR.
+	 */
+	static final class Archive {
+		final String path;
+		final long headerOffset;
+		final int method;
+		final long compressedSize;
+		final long size;
+		private Storage storage;
+
+		Archive(String path, long headerOffset, int method, long compressedSize, long size) {
+			this.path = path;
+			this.headerOffset = headerOffset;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+		}
+
+		boolean isNested() {
+			return path != null;
+		}
+	}
+
+	/**
+	 * An entry of an archive. Entries with the same name form a chain in Rsrc-Class-Path order.
+	 */
+	static final class Entry {
+		final String name;
+		final String entryName;
+		final Archive archive;
+		final long headerOffset;
+		final int method;
+		final long compressedSize;
+		final long size;
+		Entry next;
+
+		Entry(String name, String entryName, Archive archive, long headerOffset, int method, long compressedSize, long size) {
+			this.name = name;
+			this.entryName = entryName;
+			this.archive = archive;
+			this.headerOffset = headerOffset;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+		}
+	}
+
+	private final File jarFile;
+	private final RandomAccessFile file;
+	private final Storage outerStorage;
+	private final Archive outerArchive;
+	private final List archives;
+	private final List entryList;
+	private final Map entries;
+	private boolean hasFolders;
+
+	private RsrcIndex(File jarFile) throws IOException {
+		this.jarFile = jarFile;
+		this.file = new RandomAccessFile(jarFile, "r"); //$NON-NLS-1$
+		this.outerStorage = new FileStorage(file, 0, file.length());
+		this.outerArchive = new Archive(null, 0, ZipEntry.STORED, outerStorage.length(), outerStorage.length());
+		this.outerArchive.storage = outerStorage;
+		this.archives = new ArrayList();
+		this.archives.add(outerArchive);
+		this.entryList = new ArrayList();
+		this.entries = new HashMap();
+	}
+
+	/**
+	 * Opens the index of the given runnable JAR.
+	 *
+	 * @param jarFile the runnable JAR
+	 * @param rsrcClassPath the elements of the Rsrc-Class-Path
+	 * @param useCache <code>true</code> to read and write the index cache next to the JAR
+	 * @return the index
+	 * @throws IOException if the JAR cannot be read or is not supported
+	 */
+	static RsrcIndex open(File jarFile, String[] rsrcClassPath, boolean useCache) throws IOException {
+		RsrcIndex index = new RsrcIndex(jarFile);
+		try {
+			String classPath = join(rsrcClassPath);
+			File cacheFile = new File(jarFile.getPath() + JIJConstants.INDEX_CACHE_FILE_SUFFIX);
+			if (useCache && index.readCache(cacheFile, classPath))
+				return index;
+			index.build(rsrcClassPath);
+			if (useCache)
+				index.writeCache(cacheFile, classPath);
+			return index;
+		} catch (IOException e) {
+			index.close();
+			throw e;
+		} catch (RuntimeException e) {
+			index.close();
+			throw e;
+		}
+	}
+
+	void close() {
+		try {
+			file.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+	File getJarFile() {
+		return jarFile;
+	}
+
+	/**
+	 * @return <code>true</code> if the Rsrc-Class-Path contains folders of the outer JAR
+	 */
+	boolean hasFolders() {
+		return hasFolders;
+	}
+
+	/**
+	 * @param name the resource name
+	 * @return the first entry with the given name on the Rsrc-Class-Path, or <code>null</code>
+	 */
+	Entry getEntry(String name) {
+		return (Entry) entries.get(name);
+	}
+
+	/**
+	 * @param archivePath the path of the nested JAR in the outer JAR
+	 * @param name the resource name
+	 * @return the entry with the given name in the given nested JAR, or <code>null</code>
+	 */
+	Entry getEntry(String archivePath, String name) {
+		for (Entry entry = getEntry(name); entry != null; entry = entry.next) {
+			if (archivePath.equals(entry.archive.path))
+				return entry;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the uncompressed data of an entry.
+	 *
+	 * @param entry the entry
+	 * @return the data
+	 * @throws IOException if the entry cannot be read
+	 */
+	byte[] read(Entry entry) throws IOException {
+		return readData(getStorage(entry.archive), entry.headerOffset, entry.method, entry.compressedSize, entry.size);
+	}
+
+	private Storage getStorage(Archive archive) throws IOException {
+		synchronized (archive) {
+			if (archive.storage == null) {
+				if (archive.method == ZipEntry.STORED) {
+					long dataOffset = getDataOffset(outerStorage, archive.headerOffset);
+					archive.storage = new FileStorage(file, dataOffset, archive.size);
+				} else {
+					archive.storage = new ArrayStorage(readData(outerStorage, archive.headerOffset, archive.method, archive.compressedSize, archive.size));
+				}
+			}
+			return archive.storage;
+		}
+	}
+
+	private static long getDataOffset(Storage storage, long headerOffset) throws IOException {
+		byte[] header = new byte[LOCAL_HEADER_SIZE];
+		storage.read(headerOffset, header, 0, LOCAL_HEADER_SIZE);
+		if (getInt(header, 0) != LOCAL_HEADER_SIGNATURE)
+			throw new ZipException("Invalid local header"); //$NON-NLS-1$
+		return headerOffset + LOCAL_HEADER_SIZE + getShort(header, 26) + getShort(header, 28);
+	}
+
+	private static byte[] readData(Storage storage, long headerOffset, int method, long compressedSize, long size) throws IOException {
+		if (size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE - 1)
+			throw new ZipException("Entry too large"); //$NON-NLS-1$
+		long dataOffset = getDataOffset(storage, headerOffset);
+		if (method == ZipEntry.STORED) {
+			byte[] data = new byte[(int) size];
+			storage.read(dataOffset, data, 0, data.length);
+			return data;
+		}
+		if (method != ZipEntry.DEFLATED)
+			throw new ZipException("Unsupported compression method " + method); //$NON-NLS-1$
+		// the inflater needs an extra dummy byte when reading raw deflate data
+		byte[] input = new byte[(int) compressedSize + 1];
+		storage.read(dataOffset, input, 0, (int) compressedSize);
+		byte[] data = new byte[(int) size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(input);
+			int count = 0;
+			while (count < data.length && !inflater.finished()) {
+				int n = inflater.inflate(data, count, data.length - count);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				count += n;
+			}
+			if (count != data.length)
+				throw new ZipException("Unexpected end of entry"); //$NON-NLS-1$
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		} finally {
+			inflater.end();
+		}
+		return data;
+	}
+
+	private void build(String[] rsrcClassPath) throws IOException {
+		List outerEntries = readCentralDirectory(outerStorage, outerArchive);
+		Map outerByName = new HashMap();
+		for (int i = 0; i < outerEntries.size(); i++) {
+			Entry entry = (Entry) outerEntries.get(i);
+			outerByName.put(entry.entryName, entry);
+		}
+		for (int i = 0; i < rsrcClassPath.length; i++) {
+			String element = decode(rsrcClassPath[i]);
+			if (element.endsWith(JIJConstants.PATH_SEPARATOR)) {
+				hasFolders = true;
+				String prefix = JIJConstants.CURRENT_DIR.equals(element) ? "" : element; //$NON-NLS-1$
+				for (int j = 0; j < outerEntries.size(); j++) {
+					Entry entry = (Entry) outerEntries.get(j);
+					if (entry.entryName.startsWith(prefix) && entry.entryName.length() > prefix.length()) {
+						String name = entry.entryName.substring(prefix.length());
+						add(new Entry(name, entry.entryName, outerArchive, entry.headerOffset, entry.method, entry.compressedSize, entry.size));
+					}
+				}
+			} else {
+				Entry nested = (Entry) outerByName.get(element);
+				if (nested == null)
+					continue;
+				Archive archive = new Archive(element, nested.headerOffset, nested.method, nested.compressedSize, nested.size);
+				archives.add(archive);
+				List nestedEntries = readCentralDirectory(getStorage(archive), archive);
+				for (int j = 0; j < nestedEntries.size(); j++)
+					add((Entry) nestedEntries.get(j));
+			}
+		}
+	}
+
+	private void add(Entry entry) {
+		entryList.add(entry);
+		Entry first = (Entry) entries.get(entry.name);
+		if (first == null) {
+			entries.put(entry.name, entry);
+		} else {
+			while (first.next != null)
+				first = first.next;
+			first.next = entry;
+		}
+	}
+
+	private static List readCentralDirectory(Storage storage, Archive archive) throws IOException {
+		long length = storage.length();
+		int tailLength = (int) Math.min(length, END_SIZE + MAX_COMMENT_SIZE);
+		byte[] tail = new byte[tailLength];
+		storage.read(length - tailLength, tail, 0, tailLength);
+		int end = -1;
+		for (int i = tailLength - END_SIZE; i >= 0; i--) {
+			if (getInt(tail, i) == END_SIGNATURE) {
+				end = i;
+				break;
+			}
+		}
+		if (end == -1)
+			throw new ZipException("End of central directory not found"); //$NON-NLS-1$
+		int total = getShort(tail, end + 10);
+		long directorySize = getUnsignedInt(tail, end + 12);
+		long directoryOffset = getUnsignedInt(tail, end + 16);
+		if (total == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL)
+			throw new ZipException("ZIP64 archives are not supported"); //$NON-NLS-1$
+		if (directoryOffset + directorySize > length || directorySize > Integer.MAX_VALUE)
+			throw new ZipException("Invalid central directory"); //$NON-NLS-1$
+		byte[] directory = new byte[(int) directorySize];
+		storage.read(directoryOffset, directory, 0, directory.length);
+
+		List result = new ArrayList(total);
+		int pos = 0;
+		while (pos + CENTRAL_HEADER_SIZE <= directory.length) {
+			if (getInt(directory, pos) != CENTRAL_HEADER_SIGNATURE)
+				throw new ZipException("Invalid central directory header"); //$NON-NLS-1$
+			int method = getShort(directory, pos + 10);
+			long compressedSize = getUnsignedInt(directory, pos + 20);
+			long size = getUnsignedInt(directory, pos + 24);
+			int nameLength = getShort(directory, pos + 28);
+			int extraLength = getShort(directory, pos + 30);
+			int commentLength = getShort(directory, pos + 32);
+			long headerOffset = getUnsignedInt(directory, pos + 42);
+			if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || headerOffset == 0xFFFFFFFFL)
+				throw new ZipException("ZIP64 archives are not supported"); //$NON-NLS-1$
+			if (pos + CENTRAL_HEADER_SIZE + nameLength > directory.length)
+				throw new ZipException("Invalid central directory header"); //$NON-NLS-1$
+			String name = new String(directory, pos + CENTRAL_HEADER_SIZE, nameLength, JIJConstants.UTF8_ENCODING);
+			result.add(new Entry(name, name, archive, headerOffset, method, compressedSize, size));
+			pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+		return result;
+	}
+
+	private boolean readCache(File cacheFile, String classPath) {
+		if (!cacheFile.isFile())
+			return false;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION)
+				return false;
+			if (in.readLong() != jarFile.length() || in.readLong() != jarFile.lastModified() || !classPath.equals(in.readUTF()))
+				return false;
+			hasFolders = in.readBoolean();
+			int archiveCount = in.readInt();
+			for (int i = 0; i < archiveCount; i++) {
+				archives.add(new Archive(in.readUTF(), in.readLong(), in.readInt(), in.readLong(), in.readLong()));
+			}
+			int entryCount = in.readInt();
+			for (int i = 0; i < entryCount; i++) {
+				String entryName = in.readUTF();
+				int prefixLength = in.readInt();
+				Archive archive = (Archive) archives.get(in.readInt());
+				add(new Entry(entryName.substring(prefixLength), entryName, archive, in.readLong(), in.readInt(), in.readLong(), in.readLong()));
+			}
+			return true;
+		} catch (IOException e) {
+			// fall through
+		} catch (RuntimeException e) {
+			// fall through
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// nothing to do
+				}
+			}
+		}
+		// discard a partially read cache
+		while (archives.size() > 1)
+			archives.remove(archives.size() - 1);
+		entryList.clear();
+		entries.clear();
+		hasFolders = false;
+		return false;
+	}
+
+	private void writeCache(File cacheFile, String classPath) {
+		File tempFile = new File(cacheFile.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			out.writeInt(CACHE_MAGIC);
+			out.writeInt(CACHE_VERSION);
+			out.writeLong(jarFile.length());
+			out.writeLong(jarFile.lastModified());
+			out.writeUTF(classPath);
+			out.writeBoolean(hasFolders);
+			out.writeInt(archives.size() - 1);
+			Map archiveIndexes = new HashMap();
+			archiveIndexes.put(outerArchive, new Integer(0));
+			for (int i = 1; i < archives.size(); i++) {
+				Archive archive = (Archive) archives.get(i);
+				archiveIndexes.put(archive, new Integer(i));
+				out.writeUTF(archive.path);
+				out.writeLong(archive.headerOffset);
+				out.writeInt(archive.method);
+				out.writeLong(archive.compressedSize);
+				out.writeLong(archive.size);
+			}
+			out.writeInt(entryList.size());
+			for (int i = 0; i < entryList.size(); i++) {
+				Entry entry = (Entry) entryList.get(i);
+				out.writeUTF(entry.entryName);
+				out.writeInt(entry.entryName.length() - entry.name.length());
+				out.writeInt(((Integer) archiveIndexes.get(entry.archive)).intValue());
+				out.writeLong(entry.headerOffset);
+				out.writeInt(entry.method);
+				out.writeLong(entry.compressedSize);
+				out.writeLong(entry.size);
+			}
+			out.close();
+			out = null;
+			cacheFile.delete();
+			if (!tempFile.renameTo(cacheFile))
+				tempFile.delete();
+		} catch (IOException e) {
+			// the cache is optional, e.g. the folder of the JAR may be read-only
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e1) {
+					// nothing to do
+				}
+			}
+			tempFile.delete();
+		}
+	}
+
+	private static String decode(String element) throws UnsupportedEncodingException {
+		return URLDecoder.decode(element, JIJConstants.UTF8_ENCODING);
+	}
+
+	private static String join(String[] elements) {
+		StringBuffer buf = new StringBuffer();
+		for (int i = 0; i < elements.length; i++) {
+			if (i > 0)
+				buf.append(' ');
+			buf.append(elements[i]);
+		}
+		return buf.toString();
+	}
+
+	private static int getShort(byte[] b, int off) {
+		return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8);
+	}
+
+	private static int getInt(byte[] b, int off) {
+		return getShort(b, off) | (getShort(b, off + 2) << 16);
+	}
+
+	private static long getUnsignedInt(byte[] b, int off) {
+		return getInt(b, off) & 0xFFFFFFFFL;
+	}
+}
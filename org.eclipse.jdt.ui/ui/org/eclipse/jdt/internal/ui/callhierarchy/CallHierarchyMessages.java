@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -154,6 +154,11 @@ public final class CallHierarchyMessages extends NLS {
 	public static String RemoveFromViewAction_removeFromView_description;
 	public static String RemoveFromViewAction_removeFromView_tooltip;
 
+	public static String ExpandAllAction_text;
+	public static String ExpandAllAction_description;
+	public static String ExpandAllAction_tooltip;
+	public static String ExpandAllAction_job_name;
+
 	public static String ExpandWithConstructorsAction_expandWithConstructors_text;
 	public static String ExpandWithConstructorsAction_expandWithConstructors_description;
 	public static String ExpandWithConstructorsAction_expandWithConstructors_tooltip;
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.callhierarchy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+
+import org.eclipse.ui.PlatformUI;
+
+import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
+import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
+
+import org.eclipse.jdt.internal.ui.IJavaHelpContextIds;
+
+/**
+ * Expands the selected members up to the maximum call depth. The calls of sibling members are
+ * searched concurrently, and the nodes are expanded in the view as soon as their calls have been
+ * found.
+ *
+ * @since 3.14
+ */
+class ExpandAllAction extends Action {
+
+	/**
+	 * The call hierarchy view part.
+	 */
+	private CallHierarchyViewPart fPart;
+
+	/**
+	 * The call hierarchy viewer.
+	 */
+	private CallHierarchyViewer fCallHierarchyViewer;
+
+	/**
+	 * The running expansion or <code>null</code>.
+	 */
+	private Job fJob;
+
+	/**
+	 * Wrappers whose calls have been found but which have not been expanded in the view yet.
+	 */
+	private final List<MethodWrapper> fPendingWrappers= new ArrayList<>();
+
+	/**
+	 * Creates the expand all action.
+	 *
+	 * @param part the call hierarchy view part
+	 * @param viewer the call hierarchy viewer
+	 */
+	public ExpandAllAction(CallHierarchyViewPart part, CallHierarchyViewer viewer) {
+		super(CallHierarchyMessages.ExpandAllAction_text);
+		fPart= part;
+		fCallHierarchyViewer= viewer;
+		setDescription(CallHierarchyMessages.ExpandAllAction_description);
+		setToolTipText(CallHierarchyMessages.ExpandAllAction_tooltip);
+		PlatformUI.getWorkbench().getHelpSystem().setHelp(this, IJavaHelpContextIds.CALL_HIERARCHY_VIEW);
+	}
+
+	@Override
+	public void run() {
+		IStructuredSelection selection= (IStructuredSelection) getSelection();
+		final List<MethodWrapper> wrappers= new ArrayList<>(selection.size());
+		for (Iterator<?> iter= selection.iterator(); iter.hasNext();) {
+			Object element= iter.next();
+			if (element instanceof MethodWrapper)
+				wrappers.add((MethodWrapper) element);
+		}
+		if (wrappers.isEmpty())
+			return;
+
+		cancel();
+		fCallHierarchyViewer.cancelJobs();
+
+		final Object input= fCallHierarchyViewer.getInput();
+		final CallHierarchy.IExpansionListener listener= new CallHierarchy.IExpansionListener() {
+			@Override
+			public void callsFound(MethodWrapper wrapper, MethodWrapper[] calls) {
+				if (calls.length > 0)
+					addPendingWrapper(wrapper, input);
+			}
+		};
+		final int maxDepth= CallHierarchyUI.getDefault().getMaxCallDepth();
+		Job job= new Job(CallHierarchyMessages.ExpandAllAction_job_name) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					CallHierarchy.getDefault().expand(wrappers.toArray(new MethodWrapper[wrappers.size()]), maxDepth, listener, monitor);
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				} finally {
+					jobDone(this);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		synchronized (fPendingWrappers) {
+			fJob= job;
+		}
+		fPart.setCancelEnabled(true);
+		job.schedule();
+	}
+
+	/**
+	 * Cancels the running expansion, if any.
+	 */
+	void cancel() {
+		Job job;
+		synchronized (fPendingWrappers) {
+			job= fJob;
+			fJob= null;
+			fPendingWrappers.clear();
+		}
+		if (job != null)
+			job.cancel();
+	}
+
+	private void jobDone(final Job job) {
+		Display.getDefault().asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (fPendingWrappers) {
+					if (fJob != job)
+						return;
+				}
+				if (!fCallHierarchyViewer.getControl().isDisposed())
+					fPart.setCancelEnabled(false);
+			}
+		});
+	}
+
+	/**
+	 * Remembers a wrapper to be expanded in the view. The view is updated in batches, so that the
+	 * display is not flooded with requests while many calls are found.
+	 *
+	 * @param wrapper the wrapper whose calls have been found
+	 * @param input the input of the viewer when the expansion started
+	 */
+	private void addPendingWrapper(MethodWrapper wrapper, final Object input) {
+		synchronized (fPendingWrappers) {
+			fPendingWrappers.add(wrapper);
+			if (fPendingWrappers.size() > 1)
+				return; // an update is already scheduled
+		}
+		Display.getDefault().asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				expandPendingWrappers(input);
+			}
+		});
+	}
+
+	private void expandPendingWrappers(Object input) {
+		MethodWrapper[] wrappers;
+		synchronized (fPendingWrappers) {
+			wrappers= fPendingWrappers.toArray(new MethodWrapper[fPendingWrappers.size()]);
+			fPendingWrappers.clear();
+		}
+		if (fCallHierarchyViewer.getControl().isDisposed())
+			return;
+		if (fCallHierarchyViewer.getInput() != input) {
+			cancel();
+			return;
+		}
+		for (int i= 0; i < wrappers.length; i++) {
+			// the calls are cached now, so the content provider returns them without a search
+			fCallHierarchyViewer.setExpandedState(wrappers[i], true);
+		}
+	}
+
+	/**
+	 * Gets the selection from the call hierarchy view part.
+	 *
+	 * @return the current selection
+	 */
+	private ISelection getSelection() {
+		return fPart.getSelection();
+	}
+
+	/**
+	 * Checks whether this action can be added for the selected element in the call hierarchy.
+	 *
+	 * @return <code> true</code> if the action can be added, <code>false</code> otherwise
+	 */
+	public boolean canActionBeAdded() {
+		ISelection selection= getSelection();
+		if (selection.isEmpty() || !(selection instanceof IStructuredSelection))
+			return false;
+		for (Iterator<?> iter= ((IStructuredSelection) selection).iterator(); iter.hasNext();) {
+			Object element= iter.next();
+			if (!(element instanceof MethodWrapper) || !((MethodWrapper) element).canHaveChildren())
+				return false;
+		}
+		return true;
+	}
+}
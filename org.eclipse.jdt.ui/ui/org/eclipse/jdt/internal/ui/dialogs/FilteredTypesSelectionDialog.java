@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -96,6 +96,7 @@ import org.eclipse.jdt.internal.corext.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMInstallType;
@@ -506,25 +507,30 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 
 		/*
 		 * Setting the filter into match everything mode avoids filtering twice
-		 * by the same pattern (the search engine only provides filtered
-		 * matches). For the case when the pattern is a camel case pattern with
-		 * a terminator, the filter is not set to match everything mode because
-		 * jdt.core's SearchPattern does not support that case.
+		 * by the same pattern (the type name index and the search engine only
+		 * provide filtered matches). For the case when the pattern is a camel
+		 * case pattern with a terminator, the filter is not set to match
+		 * everything mode because jdt.core's SearchPattern does not support
+		 * that case.
 		 */
 		String typePattern= typeSearchFilter.getNamePattern();
 		int matchRule= typeSearchFilter.getMatchRule();
 		typeSearchFilter.setMatchEverythingMode(true);
 
 		try {
-			engine.searchAllTypeNames(packPattern == null ? null : packPattern.toCharArray(),
-					typeSearchFilter.getPackageFlags(),
-					typePattern.toCharArray(),
-					matchRule,
-					typeSearchFilter.getElementKind(),
-					typeSearchFilter.getSearchScope(),
-					requestor,
-					IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
-					progressMonitor);
+			char[] packageName= packPattern == null ? null : packPattern.toCharArray();
+			if (!TypeNameIndex.getDefault().searchAllTypeNames(packageName, typeSearchFilter.getPackageFlags(), typePattern.toCharArray(), matchRule,
+					typeSearchFilter.getElementKind(), typeSearchFilter.getSearchScope(), requestor, progressMonitor)) {
+				engine.searchAllTypeNames(packageName,
+						typeSearchFilter.getPackageFlags(),
+						typePattern.toCharArray(),
+						matchRule,
+						typeSearchFilter.getElementKind(),
+						typeSearchFilter.getSearchScope(),
+						requestor,
+						IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+						progressMonitor);
+			}
 		} finally {
 			typeSearchFilter.setMatchEverythingMode(false);
 		}
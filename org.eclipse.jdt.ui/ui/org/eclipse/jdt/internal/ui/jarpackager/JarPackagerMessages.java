@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -344,6 +344,8 @@ public final class JarPackagerMessages extends NLS {
 
 	public static String OpenJarPackageWizardDelegate_onlyJardesc;
 
+	public static String ParallelJarOutputStream_compress_job;
+
 	static {
 		NLS.initializeMessages(BUNDLE_NAME, JarPackagerMessages.class);
 	}
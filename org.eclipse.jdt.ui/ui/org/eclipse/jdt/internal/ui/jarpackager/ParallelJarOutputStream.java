@@ -0,0 +1,928 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackager;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Writes a JAR file whose entries are compressed concurrently.
+ * <p>
+ * The content of an entry is read by the caller, its CRC is computed and it is compressed by up to
+ * {@link #PARALLELISM} jobs. The entries are written to the archive in the order in which they
+ * were added. The sizes and the CRC of all entries are computed by this stream, so callers do not
+ * have to read the content of stored entries twice.
+ * </p>
+ * <p>
+ * Entries larger than {@link #STREAMING_THRESHOLD} are not held in memory. They are compressed in
+ * the calling thread and streamed to the archive after all previous entries, with the sizes in a
+ * data descriptor. The content of large stored entries which are not read from a file is copied to
+ * a temporary file first, since their CRC must be known before they are written. Entries and
+ * archives larger than 4 GB are written in the zip64 format.
+ * </p>
+ * <p>
+ * In reproducible mode all entries get the same time stamp and are written sorted by name after
+ * the manifest, so that the same content always results in the same archive. Large entries are
+ * copied to temporary files until the archive is closed.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class ParallelJarOutputStream implements Closeable {
+
+	/**
+	 * The maximum number of jobs that compress entries. Can be configured with the
+	 * <code>org.eclipse.jdt.ui.jarExportParallelism</code> system property, <code>1</code>
+	 * compresses all entries in the calling thread.
+	 */
+	private static final int PARALLELISM= Integer.getInteger("org.eclipse.jdt.ui.jarExportParallelism", Math.min(4, Runtime.getRuntime().availableProcessors())).intValue(); //$NON-NLS-1$
+
+	/**
+	 * The number of content bytes which may wait for compression or for being written before
+	 * {@link #putNextEntry(ZipEntry, InputStream)} blocks.
+	 */
+	private static final int MAX_PENDING_BYTES= 32 * 1024 * 1024;
+
+	/**
+	 * The size of the content from which on an entry is streamed to the archive instead of being
+	 * held in memory.
+	 */
+	private static final int STREAMING_THRESHOLD= 8 * 1024 * 1024;
+
+	private static final int BUFFER_SIZE= 64 * 1024;
+
+	/**
+	 * The time stamp of all entries in reproducible mode. The DOS time of a zip entry is local
+	 * time, so this is the same for all time zones.
+	 */
+	private static final long REPRODUCIBLE_TIME= new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+
+	private static final int LOCAL_HEADER_SIGNATURE= 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE= 0x08074b50;
+	private static final int CENTRAL_HEADER_SIGNATURE= 0x02014b50;
+	private static final int END_SIGNATURE= 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE= 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE= 0x07064b50;
+	private static final int ZIP64_EXTRA_ID= 0x0001;
+	private static final int JAR_MAGIC= 0xCAFE;
+	private static final int UTF8_FLAG= 0x800;
+	private static final int DATA_DESCRIPTOR_FLAG= 0x8;
+	private static final long ZIP64_MAGIC= 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT= 0xFFFF;
+
+	private static final byte[] EMPTY= new byte[0];
+
+	private static final class PendingEntry {
+		final byte[] fName;
+		final int fMethod;
+		final long fDosTime;
+		byte[] fExtra;
+		byte[] fContent;
+		byte[] fData;
+		/** The temporary file with the content of a large entry, or <code>null</code> */
+		File fFile;
+		int fFlags;
+		long fCrc;
+		long fSize;
+		long fCompressedSize;
+		long fOffset;
+		boolean fDone;
+		Throwable fError;
+
+		PendingEntry(String name, int method, long dosTime, byte[] extra, byte[] content) {
+			fName= name.getBytes(StandardCharsets.UTF_8);
+			fMethod= method;
+			fDosTime= dosTime;
+			fExtra= extra;
+			fContent= content;
+		}
+
+		String getName() {
+			return new String(fName, StandardCharsets.UTF_8);
+		}
+
+		boolean isZip64() {
+			return fSize >= ZIP64_MAGIC || fCompressedSize >= ZIP64_MAGIC;
+		}
+
+		void deleteFile() {
+			if (fFile != null) {
+				fFile.delete();
+				fFile= null;
+			}
+		}
+	}
+
+	/**
+	 * Reads the bytes which have already been read from the content of an entry, then the rest of
+	 * the content. The content is not closed.
+	 */
+	private static final class ContentStream extends InputStream {
+
+		private final byte[] fPrefix;
+		private final InputStream fContent;
+		private int fIndex;
+
+		ContentStream(byte[] prefix, InputStream content) {
+			fPrefix= prefix;
+			fContent= content;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (fIndex < fPrefix.length)
+				return fPrefix[fIndex++] & 0xff;
+			return fContent.read();
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (fIndex < fPrefix.length) {
+				int count= Math.min(length, fPrefix.length - fIndex);
+				System.arraycopy(fPrefix, fIndex, bytes, offset, count);
+				fIndex+= count;
+				return count;
+			}
+			return fContent.read(bytes, offset, length);
+		}
+	}
+
+	private final class CompressJob extends Job {
+
+		CompressJob() {
+			super(JarPackagerMessages.ParallelJarOutputStream_compress_job);
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			Deflater deflater= new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				PendingEntry entry;
+				while ((entry= nextQueued()) != null)
+					compute(entry, deflater);
+			} finally {
+				deflater.end();
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private final OutputStream fOutput;
+	private final boolean fReproducible;
+	private final int fParallelism;
+	private final long fMaxPendingBytes;
+	private final Deflater fDeflater;
+	private final Calendar fCalendar;
+	private final Set<String> fNames;
+
+	/** The entries which are not yet written, in the order in which they were added */
+	private final LinkedList<PendingEntry> fPending;
+	/** The entries which wait for a compression job, guarded by <code>fPending</code> */
+	private final LinkedList<PendingEntry> fQueue;
+	/** The entries which are written, for the central directory */
+	private final List<PendingEntry> fWritten;
+
+	private int fActiveJobs;
+	private long fPendingBytes;
+	private long fPosition;
+	private byte[] fComment;
+	private boolean fClosed;
+
+	/**
+	 * Creates a JAR stream.
+	 *
+	 * @param output the stream to write the archive to, is closed when this stream is closed
+	 * @param manifest the manifest to write as first entry, or <code>null</code>
+	 * @param reproducible <code>true</code> to write the entries with a fixed time stamp and in
+	 *            sorted order
+	 * @throws IOException if the manifest cannot be written
+	 */
+	public ParallelJarOutputStream(OutputStream output, Manifest manifest, boolean reproducible) throws IOException {
+		this(output, manifest, reproducible, PARALLELISM, MAX_PENDING_BYTES);
+	}
+
+	/**
+	 * Creates a JAR stream with the given limits. Used for testing.
+	 *
+	 * @param output the stream to write the archive to, is closed when this stream is closed
+	 * @param manifest the manifest to write as first entry, or <code>null</code>
+	 * @param reproducible <code>true</code> to write the entries with a fixed time stamp and in
+	 *            sorted order
+	 * @param parallelism the maximum number of jobs that compress entries
+	 * @param maxPendingBytes the number of content bytes which may wait for compression or for
+	 *            being written before {@link #putNextEntry(ZipEntry, InputStream)} blocks
+	 * @throws IOException if the manifest cannot be written
+	 */
+	public ParallelJarOutputStream(OutputStream output, Manifest manifest, boolean reproducible, int parallelism, long maxPendingBytes) throws IOException {
+		fOutput= new BufferedOutputStream(output, BUFFER_SIZE);
+		fReproducible= reproducible;
+		fParallelism= parallelism;
+		fMaxPendingBytes= maxPendingBytes;
+		fDeflater= new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		fCalendar= Calendar.getInstance();
+		fNames= new HashSet<>();
+		fPending= new LinkedList<>();
+		fQueue= new LinkedList<>();
+		fWritten= new ArrayList<>();
+		if (manifest != null) {
+			ByteArrayOutputStream content= new ByteArrayOutputStream();
+			manifest.write(content);
+			addEntry(new ZipEntry(JarFile.MANIFEST_NAME), content.toByteArray());
+		}
+	}
+
+	/**
+	 * Sets the archive comment.
+	 *
+	 * @param comment the comment, or <code>null</code>
+	 */
+	public void setComment(String comment) {
+		fComment= comment != null ? comment.getBytes(StandardCharsets.UTF_8) : null;
+		if (fComment != null && fComment.length > 0xFFFF)
+			throw new IllegalArgumentException("Comment too long"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Adds an entry. The size and the CRC of the entry are computed from the content. Entries
+	 * without compression method are compressed.
+	 *
+	 * @param entry the entry
+	 * @param content the content of the entry, or <code>null</code> for an empty entry. The
+	 *            content is read, but not closed.
+	 * @throws ZipException if an entry with the same name has already been added
+	 * @throws IOException if the content cannot be read, or if a previous entry cannot be written
+	 */
+	public void putNextEntry(ZipEntry entry, InputStream content) throws IOException {
+		ensureOpen();
+		if (fNames.contains(entry.getName()))
+			throw new ZipException("duplicate entry: " + entry.getName()); //$NON-NLS-1$
+		if (content == null) {
+			addEntry(entry, EMPTY);
+		} else if (content instanceof FileInputStream) {
+			FileChannel channel= ((FileInputStream) content).getChannel();
+			if (channel.size() - channel.position() > STREAMING_THRESHOLD)
+				addLargeEntry(entry, content, (FileInputStream) content);
+			else
+				addEntry(entry, readFile((FileInputStream) content));
+		} else {
+			byte[] bytes= readContent(content, STREAMING_THRESHOLD + 1);
+			if (bytes.length > STREAMING_THRESHOLD)
+				addLargeEntry(entry, new ContentStream(bytes, content), null);
+			else
+				addEntry(entry, bytes);
+		}
+	}
+
+	/**
+	 * Returns the number of content bytes which wait for compression or for being written. Used
+	 * for testing.
+	 *
+	 * @return the number of pending bytes
+	 */
+	public long getPendingBytes() {
+		synchronized (fPending) {
+			return fPendingBytes;
+		}
+	}
+
+	private PendingEntry createEntry(ZipEntry entry, byte[] content) throws ZipException {
+		if (!fNames.add(entry.getName()))
+			throw new ZipException("duplicate entry: " + entry.getName()); //$NON-NLS-1$
+		int method= entry.getMethod() == ZipEntry.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED;
+		long time= fReproducible ? REPRODUCIBLE_TIME : entry.getTime() != -1 ? entry.getTime() : System.currentTimeMillis();
+		return new PendingEntry(entry.getName(), method, toDosTime(time), entry.getExtra(), content);
+	}
+
+	private void addEntry(ZipEntry entry, byte[] content) throws IOException {
+		PendingEntry pending= createEntry(entry, content);
+		boolean compressInline= pending.fMethod == ZipEntry.STORED || fParallelism <= 1 || content.length == 0;
+		synchronized (fPending) {
+			fPending.addLast(pending);
+			fPendingBytes+= content.length;
+			if (!compressInline) {
+				fQueue.addLast(pending);
+				if (fActiveJobs < fParallelism) {
+					fActiveJobs++;
+					new CompressJob().schedule();
+				}
+			}
+		}
+		if (compressInline)
+			compute(pending, fDeflater);
+
+		if (!fReproducible)
+			writeCompleted();
+	}
+
+	/**
+	 * Adds an entry whose content is too large to be held in memory.
+	 *
+	 * @param entry the entry
+	 * @param content the content
+	 * @param file the content if it is read from a file, or <code>null</code>
+	 * @throws IOException if the content cannot be read, or if an entry cannot be written
+	 */
+	private void addLargeEntry(ZipEntry entry, InputStream content, FileInputStream file) throws IOException {
+		PendingEntry pending= createEntry(entry, null);
+		if (fReproducible || pending.fMethod == ZipEntry.STORED && file == null)
+			copyToFile(pending, content);
+		if (fReproducible) {
+			synchronized (fPending) {
+				pending.fDone= true;
+				fPending.addLast(pending);
+			}
+			return;
+		}
+		try {
+			writePending();
+			if (pending.fFile != null) {
+				write(pending);
+			} else {
+				if (pending.fMethod == ZipEntry.STORED)
+					computeCrc(pending, file);
+				writeStreamed(pending, content);
+			}
+		} finally {
+			pending.deleteFile();
+		}
+	}
+
+	/**
+	 * Writes the entries at the head of the pending entries which are compressed. Waits for the
+	 * head if too many bytes are pending.
+	 *
+	 * @throws IOException if an entry cannot be written
+	 */
+	private void writeCompleted() throws IOException {
+		while (true) {
+			PendingEntry head;
+			synchronized (fPending) {
+				head= fPending.peekFirst();
+				if (head == null || !head.fDone && fPendingBytes < fMaxPendingBytes)
+					return;
+			}
+			await(head);
+			synchronized (fPending) {
+				fPending.removeFirst();
+				fPendingBytes-= head.fSize;
+			}
+			write(head);
+		}
+	}
+
+	/**
+	 * Writes all pending entries.
+	 *
+	 * @throws IOException if an entry cannot be written
+	 */
+	private void writePending() throws IOException {
+		while (true) {
+			PendingEntry head;
+			synchronized (fPending) {
+				head= fPending.peekFirst();
+				if (head == null)
+					return;
+			}
+			await(head);
+			synchronized (fPending) {
+				fPending.removeFirst();
+				fPendingBytes-= head.fSize;
+			}
+			write(head);
+		}
+	}
+
+	/**
+	 * Waits until the given entry is compressed. If no job has started to compress the entry
+	 * yet, it is compressed in the calling thread.
+	 *
+	 * @param entry the entry
+	 * @throws IOException if the entry could not be compressed
+	 */
+	private void await(PendingEntry entry) throws IOException {
+		boolean compressInline;
+		synchronized (fPending) {
+			compressInline= fQueue.remove(entry);
+		}
+		if (compressInline)
+			compute(entry, fDeflater);
+		synchronized (fPending) {
+			try {
+				while (!entry.fDone)
+					fPending.wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+		if (entry.fError != null)
+			throw new IOException(entry.fError);
+	}
+
+	private PendingEntry nextQueued() {
+		synchronized (fPending) {
+			if (fQueue.isEmpty()) {
+				fActiveJobs--;
+				return null;
+			}
+			return fQueue.removeFirst();
+		}
+	}
+
+	/**
+	 * Computes the CRC and the compressed data of an entry.
+	 *
+	 * @param entry the entry
+	 * @param deflater the deflater to use, is reset
+	 */
+	private void compute(PendingEntry entry, Deflater deflater) {
+		Throwable error= null;
+		byte[] content= entry.fContent;
+		try {
+			CRC32 crc= new CRC32();
+			crc.update(content, 0, content.length);
+			entry.fCrc= crc.getValue();
+			entry.fSize= content.length;
+			if (entry.fMethod == ZipEntry.STORED) {
+				entry.fData= content;
+			} else {
+				deflater.reset();
+				deflater.setInput(content);
+				deflater.finish();
+				byte[] buffer= new byte[Math.max(64, content.length / 2)];
+				int length= 0;
+				while (!deflater.finished()) {
+					if (length == buffer.length)
+						buffer= Arrays.copyOf(buffer, buffer.length * 2);
+					length+= deflater.deflate(buffer, length, buffer.length - length);
+				}
+				entry.fData= length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+			}
+		} catch (RuntimeException | Error e) {
+			error= e;
+		}
+		synchronized (fPending) {
+			entry.fContent= null;
+			entry.fError= error;
+			entry.fDone= true;
+			fPending.notifyAll();
+		}
+	}
+
+	private void write(PendingEntry entry) throws IOException {
+		if (entry.fFile != null) {
+			try (InputStream content= new FileInputStream(entry.fFile)) {
+				writeStreamed(entry, content);
+			} finally {
+				entry.deleteFile();
+			}
+			return;
+		}
+		byte[] data= entry.fData;
+		entry.fData= null;
+		entry.fCompressedSize= data.length;
+		writeLocalHeader(entry);
+		writeBytes(data);
+		fWritten.add(entry);
+	}
+
+	/**
+	 * Writes an entry whose content is read from the given stream. The CRC and the size of stored
+	 * entries must be known. Compressed entries are followed by a data descriptor with their CRC
+	 * and sizes.
+	 *
+	 * @param entry the entry
+	 * @param content the content, is not closed
+	 * @throws IOException if the content cannot be read or the entry cannot be written
+	 */
+	private void writeStreamed(PendingEntry entry, InputStream content) throws IOException {
+		byte[] buffer= new byte[BUFFER_SIZE];
+		int count;
+		if (entry.fMethod == ZipEntry.STORED) {
+			entry.fCompressedSize= entry.fSize;
+			writeLocalHeader(entry);
+			long remaining= entry.fSize;
+			while (remaining > 0 && (count= content.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+				fOutput.write(buffer, 0, count);
+				fPosition+= count;
+				remaining-= count;
+			}
+			if (remaining != 0)
+				throw new ZipException("content has changed: " + entry.getName()); //$NON-NLS-1$
+		} else {
+			entry.fFlags= DATA_DESCRIPTOR_FLAG;
+			writeLocalHeader(entry);
+			CRC32 crc= new CRC32();
+			byte[] output= new byte[BUFFER_SIZE];
+			long size= 0;
+			long compressedSize= 0;
+			fDeflater.reset();
+			while ((count= content.read(buffer, 0, buffer.length)) != -1) {
+				crc.update(buffer, 0, count);
+				size+= count;
+				fDeflater.setInput(buffer, 0, count);
+				while (!fDeflater.needsInput())
+					compressedSize+= deflate(output);
+			}
+			fDeflater.finish();
+			while (!fDeflater.finished())
+				compressedSize+= deflate(output);
+			entry.fCrc= crc.getValue();
+			entry.fSize= size;
+			entry.fCompressedSize= compressedSize;
+			writeInt(DATA_DESCRIPTOR_SIGNATURE);
+			writeInt(entry.fCrc);
+			if (entry.isZip64()) {
+				writeLong(entry.fCompressedSize);
+				writeLong(entry.fSize);
+			} else {
+				writeInt(entry.fCompressedSize);
+				writeInt(entry.fSize);
+			}
+		}
+		fWritten.add(entry);
+	}
+
+	private int deflate(byte[] output) throws IOException {
+		int count= fDeflater.deflate(output, 0, output.length);
+		fOutput.write(output, 0, count);
+		fPosition+= count;
+		return count;
+	}
+
+	/**
+	 * Writes the local header of an entry. The CRC and the sizes of entries with a data descriptor
+	 * are written after their content.
+	 *
+	 * @param entry the entry
+	 * @throws IOException if the header cannot be written
+	 */
+	private void writeLocalHeader(PendingEntry entry) throws IOException {
+		entry.fOffset= fPosition;
+		if (fWritten.isEmpty())
+			entry.fExtra= addJarMagic(entry.fExtra); // like JarOutputStream
+		boolean hasDescriptor= (entry.fFlags & DATA_DESCRIPTOR_FLAG) != 0;
+		boolean zip64= !hasDescriptor && entry.isZip64();
+		byte[] extra= entry.fExtra;
+		if (zip64) {
+			byte[] zip64Extra= new byte[20];
+			putShort(zip64Extra, 0, ZIP64_EXTRA_ID);
+			putShort(zip64Extra, 2, 16);
+			putLong(zip64Extra, 4, entry.fSize);
+			putLong(zip64Extra, 12, entry.fCompressedSize);
+			extra= concat(zip64Extra, extra);
+		}
+		writeInt(LOCAL_HEADER_SIGNATURE);
+		writeShort(zip64 ? 45 : getVersion(entry));
+		writeShort(UTF8_FLAG | entry.fFlags);
+		writeShort(entry.fMethod);
+		writeInt(entry.fDosTime);
+		if (hasDescriptor) {
+			writeInt(0);
+			writeInt(0);
+			writeInt(0);
+		} else {
+			writeInt(entry.fCrc);
+			writeInt(zip64 ? ZIP64_MAGIC : entry.fCompressedSize);
+			writeInt(zip64 ? ZIP64_MAGIC : entry.fSize);
+		}
+		writeShort(entry.fName.length);
+		writeShort(extra != null ? extra.length : 0);
+		writeBytes(entry.fName);
+		if (extra != null)
+			writeBytes(extra);
+	}
+
+	/**
+	 * Writes all pending entries and the central directory, and closes the underlying stream.
+	 *
+	 * @throws IOException if an entry or the central directory cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (fClosed)
+			return;
+		fClosed= true;
+		List<PendingEntry> pending;
+		synchronized (fPending) {
+			pending= new ArrayList<>(fPending);
+			fPending.clear();
+		}
+		try {
+			if (fReproducible)
+				Collections.sort(pending, new Comparator<PendingEntry>() {
+					@Override
+					public int compare(PendingEntry first, PendingEntry second) {
+						return compareNames(first.getName(), second.getName());
+					}
+				});
+			for (PendingEntry entry : pending) {
+				await(entry);
+				write(entry);
+			}
+			writeCentralDirectory();
+			fOutput.flush();
+		} finally {
+			for (PendingEntry entry : pending)
+				entry.deleteFile();
+			fDeflater.end();
+			fOutput.close();
+		}
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		long directoryOffset= fPosition;
+		for (int i= 0; i < fWritten.size(); i++) {
+			PendingEntry entry= fWritten.get(i);
+			boolean zip64Size= entry.fSize >= ZIP64_MAGIC;
+			boolean zip64CompressedSize= entry.fCompressedSize >= ZIP64_MAGIC;
+			boolean zip64Offset= entry.fOffset >= ZIP64_MAGIC;
+			boolean zip64= zip64Size || zip64CompressedSize || zip64Offset;
+			byte[] extra= entry.fExtra;
+			if (zip64) {
+				// the zip64 extra field only contains the values which do not fit into the header
+				int length= (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+				byte[] zip64Extra= new byte[4 + length];
+				putShort(zip64Extra, 0, ZIP64_EXTRA_ID);
+				putShort(zip64Extra, 2, length);
+				int offset= 4;
+				if (zip64Size) {
+					putLong(zip64Extra, offset, entry.fSize);
+					offset+= 8;
+				}
+				if (zip64CompressedSize) {
+					putLong(zip64Extra, offset, entry.fCompressedSize);
+					offset+= 8;
+				}
+				if (zip64Offset)
+					putLong(zip64Extra, offset, entry.fOffset);
+				extra= concat(zip64Extra, extra);
+			}
+			writeInt(CENTRAL_HEADER_SIGNATURE);
+			writeShort(zip64 ? 45 : getVersion(entry));
+			writeShort(zip64 ? 45 : getVersion(entry));
+			writeShort(UTF8_FLAG | entry.fFlags);
+			writeShort(entry.fMethod);
+			writeInt(entry.fDosTime);
+			writeInt(entry.fCrc);
+			writeInt(Math.min(entry.fCompressedSize, ZIP64_MAGIC));
+			writeInt(Math.min(entry.fSize, ZIP64_MAGIC));
+			writeShort(entry.fName.length);
+			writeShort(extra != null ? extra.length : 0);
+			writeShort(0); // comment length
+			writeShort(0); // disk number
+			writeShort(0); // internal attributes
+			writeInt(0); // external attributes
+			writeInt(zip64 ? ZIP64_MAGIC : entry.fOffset);
+			writeBytes(entry.fName);
+			if (extra != null)
+				writeBytes(extra);
+		}
+		long directorySize= fPosition - directoryOffset;
+		int count= fWritten.size();
+		if (count >= ZIP64_MAGIC_COUNT || directoryOffset >= ZIP64_MAGIC || directorySize >= ZIP64_MAGIC) {
+			long zip64EndOffset= fPosition;
+			writeInt(ZIP64_END_SIGNATURE);
+			writeLong(44); // size of the remaining record
+			writeShort(45);
+			writeShort(45);
+			writeInt(0);
+			writeInt(0);
+			writeLong(count);
+			writeLong(count);
+			writeLong(directorySize);
+			writeLong(directoryOffset);
+			writeInt(ZIP64_LOCATOR_SIGNATURE);
+			writeInt(0);
+			writeLong(zip64EndOffset);
+			writeInt(1);
+		}
+		writeInt(END_SIGNATURE);
+		writeShort(0);
+		writeShort(0);
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeInt(Math.min(directorySize, ZIP64_MAGIC));
+		writeInt(Math.min(directoryOffset, ZIP64_MAGIC));
+		writeShort(fComment != null ? fComment.length : 0);
+		if (fComment != null)
+			writeBytes(fComment);
+	}
+
+	private void ensureOpen() throws IOException {
+		if (fClosed)
+			throw new IOException("Stream closed"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Reads the content of a small entry from a file with a single transfer.
+	 *
+	 * @param content the content
+	 * @return the bytes of the content
+	 * @throws IOException if the content cannot be read
+	 */
+	private static byte[] readFile(FileInputStream content) throws IOException {
+		FileChannel channel= content.getChannel();
+		long remaining= channel.size() - channel.position();
+		ByteBuffer buffer= ByteBuffer.allocate((int) Math.max(0, remaining));
+		while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+			// read until the buffer is full
+		}
+		if (!buffer.hasRemaining() && content.read() == -1)
+			return buffer.array();
+		// the file has changed while reading, fall back to the stream
+		ByteArrayOutputStream output= new ByteArrayOutputStream();
+		output.write(buffer.array(), 0, buffer.position());
+		output.write(readContent(content, Integer.MAX_VALUE));
+		return output.toByteArray();
+	}
+
+	/**
+	 * Reads the content of an entry up to the given number of bytes.
+	 *
+	 * @param content the content
+	 * @param limit the maximum number of bytes to read
+	 * @return the bytes read
+	 * @throws IOException if the content cannot be read
+	 */
+	private static byte[] readContent(InputStream content, int limit) throws IOException {
+		ByteArrayOutputStream output= new ByteArrayOutputStream();
+		byte[] buffer= new byte[BUFFER_SIZE];
+		int count;
+		while (output.size() < limit && (count= content.read(buffer, 0, Math.min(buffer.length, limit - output.size()))) != -1)
+			output.write(buffer, 0, count);
+		return output.toByteArray();
+	}
+
+	/**
+	 * Copies the content of a large entry to a temporary file and computes its CRC and size.
+	 *
+	 * @param entry the entry
+	 * @param content the content, is not closed
+	 * @throws IOException if the content cannot be read or the file cannot be written
+	 */
+	private static void copyToFile(PendingEntry entry, InputStream content) throws IOException {
+		entry.fFile= File.createTempFile("jarentry", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+		boolean copied= false;
+		try (OutputStream output= new FileOutputStream(entry.fFile)) {
+			CRC32 crc= new CRC32();
+			byte[] buffer= new byte[BUFFER_SIZE];
+			long size= 0;
+			int count;
+			while ((count= content.read(buffer, 0, buffer.length)) != -1) {
+				crc.update(buffer, 0, count);
+				output.write(buffer, 0, count);
+				size+= count;
+			}
+			entry.fCrc= crc.getValue();
+			entry.fSize= size;
+			copied= true;
+		} finally {
+			if (!copied)
+				entry.deleteFile();
+		}
+	}
+
+	/**
+	 * Computes the CRC and the size of a large entry from the rest of the given file. The
+	 * position of the file is restored afterwards.
+	 *
+	 * @param entry the entry
+	 * @param content the content
+	 * @throws IOException if the content cannot be read
+	 */
+	private static void computeCrc(PendingEntry entry, FileInputStream content) throws IOException {
+		FileChannel channel= content.getChannel();
+		long position= channel.position();
+		CRC32 crc= new CRC32();
+		ByteBuffer buffer= ByteBuffer.allocate(BUFFER_SIZE);
+		long size= 0;
+		while (channel.read(buffer) != -1) {
+			crc.update(buffer.array(), 0, buffer.position());
+			size+= buffer.position();
+			buffer.clear();
+		}
+		channel.position(position);
+		entry.fCrc= crc.getValue();
+		entry.fSize= size;
+	}
+
+	/**
+	 * Orders the manifest before all other entries, as required by
+	 * {@link java.util.jar.JarInputStream}.
+	 *
+	 * @param first the first name
+	 * @param second the second name
+	 * @return the order of the names
+	 */
+	private static int compareNames(String first, String second) {
+		int delta= getRank(first) - getRank(second);
+		return delta != 0 ? delta : first.compareTo(second);
+	}
+
+	private static int getRank(String name) {
+		if ("META-INF/".equalsIgnoreCase(name)) //$NON-NLS-1$
+			return 0;
+		if (JarFile.MANIFEST_NAME.equalsIgnoreCase(name))
+			return 1;
+		return 2;
+	}
+
+	private static int getVersion(PendingEntry entry) {
+		return entry.fMethod == ZipEntry.STORED ? 10 : 20;
+	}
+
+	private static byte[] addJarMagic(byte[] extra) {
+		byte[] magic= new byte[4];
+		putShort(magic, 0, JAR_MAGIC);
+		return concat(magic, extra);
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		if (second == null || second.length == 0)
+			return first;
+		byte[] result= Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	private long toDosTime(long time) {
+		fCalendar.setTimeInMillis(time);
+		int year= fCalendar.get(Calendar.YEAR);
+		if (year < 1980)
+			return (1 << 21) | (1 << 16);
+		return (year - 1980) << 25 | (fCalendar.get(Calendar.MONTH) + 1) << 21 | fCalendar.get(Calendar.DAY_OF_MONTH) << 16
+				| fCalendar.get(Calendar.HOUR_OF_DAY) << 11 | fCalendar.get(Calendar.MINUTE) << 5 | fCalendar.get(Calendar.SECOND) >> 1;
+	}
+
+	private static void putShort(byte[] bytes, int offset, int value) {
+		bytes[offset]= (byte) value;
+		bytes[offset + 1]= (byte) (value >> 8);
+	}
+
+	private static void putLong(byte[] bytes, int offset, long value) {
+		for (int i= 0; i < 8; i++)
+			bytes[offset + i]= (byte) (value >> (8 * i));
+	}
+
+	private void writeShort(int value) throws IOException {
+		fOutput.write(value & 0xff);
+		fOutput.write((value >> 8) & 0xff);
+		fPosition+= 2;
+	}
+
+	private void writeInt(long value) throws IOException {
+		writeShort((int) (value & 0xffff));
+		writeShort((int) ((value >> 16) & 0xffff));
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt(value & 0xFFFFFFFFL);
+		writeInt(value >>> 32);
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		fOutput.write(bytes);
+		fPosition+= bytes.length;
+	}
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackagerfat;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.debug.core.ILaunchConfiguration;
+
+/**
+ * Create an ANT script for a runnable JAR with indexed class loader export.
+ * 
+ * @since 3.14
+ */
+public class FatJarIndexedRsrcUrlAntExporter extends FatJarRsrcUrlAntExporter {
+
+	public FatJarIndexedRsrcUrlAntExporter(IPath antScriptLocation, IPath jarLocation, ILaunchConfiguration launchConfiguration) {
+		super(antScriptLocation, jarLocation, launchConfiguration);
+	}
+
+	@Override
+	protected String getLoaderMainClass() {
+		return JIJConstants.INDEXED_LOADER_MAIN_CLASS;
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackagerfat;
+
+/**
+ * A jar builder which copies the referenced libraries uncompressed into the generated jar and adds
+ * an indexed class loader which reads the classes of the referenced libraries in place.
+ * 
+ * @since 3.14
+ */
+public class FatJarIndexedRsrcUrlBuilder extends FatJarRsrcUrlBuilder {
+
+	public static final String BUILDER_ID= "org.eclipse.jdt.ui.fat_jar_indexed_rsrc_url_builder"; //$NON-NLS-1$
+
+	@Override
+	public String getId() {
+		return BUILDER_ID;
+	}
+
+	@Override
+	public String getLoaderMainClass() {
+		return JIJConstants.INDEXED_LOADER_MAIN_CLASS;
+	}
+
+	@Override
+	public boolean isStoreNestedArchives() {
+		return true;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -165,6 +165,40 @@ public class FatJarPackageWizardPage extends AbstractJarDestinationWizardPage {
 		}
 	}
 
+	/**
+	 * Packages the required libraries uncompressed into the generated JAR and loads them with an
+	 * indexed class loader.
+	 * 
+	 * @since 3.14
+	 */
+	public static class IndexedPackageLibraryHandler extends LibraryHandler {
+
+		public final static int ID= 4;
+
+		public IndexedPackageLibraryHandler() {
+		}
+
+		@Override
+		public FatJarAntExporter getAntExporter(IPath antScriptLocation, IPath jarLocation, ILaunchConfiguration launchConfiguration) {
+			return new FatJarIndexedRsrcUrlAntExporter(antScriptLocation, jarLocation, launchConfiguration);
+		}
+
+		@Override
+		public FatJarBuilder getBuilder(JarPackageData jarPackageData) {
+			return new FatJarIndexedRsrcUrlBuilder();
+		}
+
+		@Override
+		public int getID() {
+			return ID;
+		}
+
+		@Override
+		public boolean isShowWarning() {
+			return false;
+		}
+	}
+
 	public static class CopyLibraryHandler extends LibraryHandler {
 
 		public final static int ID= 3;
@@ -286,6 +320,7 @@ public class FatJarPackageWizardPage extends AbstractJarDestinationWizardPage {
 	private Composite fLibraryHandlingGroup;
 	private Button fExtractJarsRadioButton;
 	private Button fPackageJarsRadioButton;
+	private Button fIndexedPackageJarsRadioButton;
 	private Button fCopyJarFilesRadioButton;
 
 	public FatJarPackageWizardPage(JarPackageData jarPackage, IStructuredSelection selection) {
@@ -481,6 +516,17 @@ public class FatJarPackageWizardPage extends AbstractJarDestinationWizardPage {
 			}
 		});
 
+		fIndexedPackageJarsRadioButton= new Button(fLibraryHandlingGroup, SWT.RADIO | SWT.LEFT);
+		fIndexedPackageJarsRadioButton.setText(FatJarPackagerMessages.FatJarPackageWizardPage_packageJarsIndexed_text);
+		fIndexedPackageJarsRadioButton.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		fIndexedPackageJarsRadioButton.addListener(SWT.Selection, new Listener() {
+			@Override
+			public void handleEvent(Event event) {
+				if (((Button)event.widget).getSelection())
+					fLibraryHandler= new IndexedPackageLibraryHandler();
+			}
+		});
+
 		fCopyJarFilesRadioButton= new Button(fLibraryHandlingGroup, SWT.RADIO | SWT.LEFT);
 		fCopyJarFilesRadioButton.setText(FatJarPackagerMessages.FatJarPackageWizardPage_copyJarFiles_text);
 		fCopyJarFilesRadioButton.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
@@ -504,12 +550,15 @@ public class FatJarPackageWizardPage extends AbstractJarDestinationWizardPage {
 		fLibraryHandler= libraryHandler;
 		fExtractJarsRadioButton.setSelection(libraryHandler.getID() == ExtractLibraryHandler.ID);
 		fPackageJarsRadioButton.setSelection(libraryHandler.getID() == PackageLibraryHandler.ID);
+		fIndexedPackageJarsRadioButton.setSelection(libraryHandler.getID() == IndexedPackageLibraryHandler.ID);
 		fCopyJarFilesRadioButton.setSelection(libraryHandler.getID() == CopyLibraryHandler.ID);
 	}
 
 	LibraryHandler createLibraryHandlerById(int handlerId) {
 		if (handlerId == PackageLibraryHandler.ID)
 			return new PackageLibraryHandler();
+		if (handlerId == IndexedPackageLibraryHandler.ID)
+			return new IndexedPackageLibraryHandler();
 		if (handlerId == CopyLibraryHandler.ID)
 			return new CopyLibraryHandler();
 		return new ExtractLibraryHandler();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -44,6 +44,8 @@ public final class FatJarPackagerMessages extends NLS {
 
 	public static String FatJarPackageWizardPage_packageJars_text;
 
+	public static String FatJarPackageWizardPage_packageJarsIndexed_text;
+
 	public static String FatJarPackageWizardPage_copyJarFiles_text;
 
 	public static String FatJarPackageWizardPage_error_missingClassFile;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2014 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -61,6 +61,14 @@ public class FatJarRsrcUrlAntExporter extends FatJarAntExporter {
 		copyJarInJarLoader(new File(antScriptFile.getParentFile(), FatJarRsrcUrlBuilder.JAR_RSRC_LOADER_ZIP));
 	}
 
+	/**
+	 * @return the name of the Main-Class which loads the Rsrc-Class-Path
+	 * @since 3.14
+	 */
+	protected String getLoaderMainClass() {
+		return JIJConstants.LOADER_MAIN_CLASS;
+	}
+
 	private void copyJarInJarLoader(File targetFile) throws IOException {
 		InputStream is= JavaPlugin.getDefault().getBundle().getEntry(FatJarRsrcUrlBuilder.JAR_RSRC_LOADER_ZIP).openStream();
 		OutputStream os= new FileOutputStream(targetFile);
@@ -116,7 +124,7 @@ public class FatJarRsrcUrlAntExporter extends FatJarAntExporter {
 
 		Element attribute= document.createElement("attribute"); //$NON-NLS-1$
 		attribute.setAttribute("name", "Main-Class"); //$NON-NLS-1$ //$NON-NLS-2$s 
-		attribute.setAttribute("value", JIJConstants.LOADER_MAIN_CLASS); //$NON-NLS-1$ 
+		attribute.setAttribute("value", getLoaderMainClass()); //$NON-NLS-1$ 
 		manifest.appendChild(attribute);
 
 		attribute= document.createElement("attribute"); //$NON-NLS-1$
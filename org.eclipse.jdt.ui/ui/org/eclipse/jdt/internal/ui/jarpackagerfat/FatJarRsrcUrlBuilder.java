@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2011 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -39,7 +39,6 @@ import org.eclipse.jdt.ui.jarpackager.IManifestProvider;
 import org.eclipse.jdt.ui.jarpackager.JarPackageData;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
-import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerUtil;
 
 /**
  * A jar builder which copies the referenced libraries into the generated jar and adds a special
@@ -53,7 +52,6 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 	public static final String JAR_RSRC_LOADER_ZIP= "jar-in-jar-loader.zip"; //$NON-NLS-1$
 	
 	private Set<String> jarNames;
-	private JarPackageData fJarPackage;
 
 	@Override
 	public String getId() {
@@ -88,10 +86,28 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 		return new FatJarRsrcUrlManifestProvider(this);
 	}
 
+	/**
+	 * @return the name of the Main-Class which loads the Rsrc-Class-Path
+	 * @since 3.14
+	 */
+	public String getLoaderMainClass() {
+		return JIJConstants.LOADER_MAIN_CLASS;
+	}
+
+	/**
+	 * Returns whether the referenced libraries are always stored uncompressed, so that the loader
+	 * can read their entries in place.
+	 * 
+	 * @return <code>true</code> if the libraries are never compressed
+	 * @since 3.14
+	 */
+	public boolean isStoreNestedArchives() {
+		return false;
+	}
+
 	@Override
 	public void open(JarPackageData jarPackage, Shell displayShell, MultiStatus status) throws CoreException {
 		super.open(jarPackage, displayShell, status);
-		fJarPackage= jarPackage;
 		jarNames= new HashSet<>();
 		try {
 			writeRsrcUrlClasses();
@@ -108,13 +124,11 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 			jarName= FatJarPackagerUtil.nextNumberedFileName(jarName);
 		}
 		jarNames.add(jarName);
-		JarEntry newEntry = new JarEntry(jarName);
-		newEntry.setMethod(ZipEntry.STORED);
-		byte[] readBuffer= new byte[4096];             
 		try {
-			if (!fJarPackage.isCompressed())
-				JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(jarPathFile), readBuffer);
-			getJarWriter().addZipEntryStream(newEntry, new FileInputStream(jarPathFile), jarName);
+			if (isStoreNestedArchives())
+				getJarWriter().addStoredZipEntryStream(new FileInputStream(jarPathFile), jarName);
+			else
+				getJarWriter().addZipEntryStream(new JarEntry(jarName), new FileInputStream(jarPathFile), jarName);
 		} catch (FileNotFoundException e) {
 			throw new RuntimeException(e);
 		} catch (IOException e) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,8 +32,11 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
  */
 public class FatJarRsrcUrlManifestProvider extends FatJarManifestProvider {
 
+	private final FatJarRsrcUrlBuilder fRsrcUrlBuilder;
+
 	public FatJarRsrcUrlManifestProvider(FatJarRsrcUrlBuilder builder) {
 		super(builder);
+		fRsrcUrlBuilder= builder;
 	}
 
 	private void setManifestRsrcClasspath(Manifest ownManifest, JarPackageData jarPackage) {
@@ -82,7 +85,7 @@ public class FatJarRsrcUrlManifestProvider extends FatJarManifestProvider {
 
 	private void putMainClass(Manifest manifest, JarPackageData jarPackage) {
 		if (jarPackage.getManifestMainClass() != null && jarPackage.getManifestMainClass().getFullyQualifiedName().length() > 0) {
-			manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, JIJConstants.LOADER_MAIN_CLASS);
+			manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, fRsrcUrlBuilder.getLoaderMainClass());
 			manifest.getMainAttributes().putValue(JIJConstants.REDIRECTED_MAIN_CLASS_MANIFEST_NAME, jarPackage.getManifestMainClass().getFullyQualifiedName());
 		}
 	}
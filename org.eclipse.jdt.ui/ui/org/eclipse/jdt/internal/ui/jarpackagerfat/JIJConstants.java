@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,4 +30,10 @@ final class JIJConstants {
 	 * but that's not visible for the PDE builder when building the org.eclipse.jdt.ui plug-in.
 	 */
 	static final String LOADER_MAIN_CLASS                    = "org.eclipse.jdt.internal.jarinjarloader.JarRsrcLoader";  //$NON-NLS-1$
+
+	/**
+	 * This is <code>{@link org.eclipse.jdt.internal.jarinjarloader.IndexedJarRsrcLoader}.class.getName()</code>,
+	 * but that's not visible for the PDE builder when building the org.eclipse.jdt.ui plug-in.
+	 */
+	static final String INDEXED_LOADER_MAIN_CLASS            = "org.eclipse.jdt.internal.jarinjarloader.IndexedJarRsrcLoader";  //$NON-NLS-1$
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -56,14 +56,8 @@ public class JarWriter4 extends JarWriter3 {
 
 		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
 
-		if (fJarPackage.isCompressed())
-			newEntry.setMethod(ZipEntry.DEFLATED);
-			// Entry is filled automatically.
-		else {
-			newEntry.setMethod(ZipEntry.STORED);
-			newEntry.setSize(zipEntry.getSize());
-			newEntry.setCrc(zipEntry.getCrc());
-		}
+		// Size and CRC are computed when the entry is written
+		newEntry.setMethod(fJarPackage.isCompressed() ? ZipEntry.DEFLATED : ZipEntry.STORED);
 
 		long lastModified= System.currentTimeMillis();
 
@@ -77,20 +71,31 @@ public class JarWriter4 extends JarWriter3 {
 		if (fJarPackage.areDirectoryEntriesIncluded())
 			addDirectories(path);
 		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
-		if (fJarPackage.isCompressed())
-			newEntry.setMethod(ZipEntry.DEFLATED);
-		// Entry is filled automatically.
-		else {
-			newEntry.setMethod(ZipEntry.STORED);
-			newEntry.setSize(zipEntry.getSize());
-			newEntry.setCrc(zipEntry.getCrc());
-		}
+		// Size and CRC are computed when the entry is written
+		newEntry.setMethod(fJarPackage.isCompressed() ? ZipEntry.DEFLATED : ZipEntry.STORED);
 		long lastModified= System.currentTimeMillis();
 		// Set modification time
 		newEntry.setTime(lastModified);
 		addEntry(newEntry, is);
 	}
 
+	/**
+	 * Adds an uncompressed entry, regardless whether the JAR is compressed.
+	 *
+	 * @param is the content
+	 * @param path the path of the entry
+	 * @throws IOException if the entry cannot be written
+	 * @since 3.14
+	 */
+	public void addStoredZipEntryStream(InputStream is, String path) throws IOException {
+		if (fJarPackage.areDirectoryEntriesIncluded())
+			addDirectories(path);
+		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
+		newEntry.setMethod(ZipEntry.STORED);
+		newEntry.setTime(System.currentTimeMillis());
+		addEntry(newEntry, is);
+	}
+
 	public void write(File file, IPath destinationPath) throws CoreException {
 		try {
 			addFile(file, destinationPath);
@@ -113,13 +118,8 @@ public class JarWriter4 extends JarWriter3 {
 
 		JarEntry newEntry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
 
-		if (fJarPackage.isCompressed())
-			newEntry.setMethod(ZipEntry.DEFLATED);
-			// Entry is filled automatically.
-		else {
-			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(file), new byte[4096]);
-		}
+		// Size and CRC are computed when the entry is written
+		newEntry.setMethod(fJarPackage.isCompressed() ? ZipEntry.DEFLATED : ZipEntry.STORED);
 
 		newEntry.setTime(file.lastModified());
 		addEntry(newEntry, new FileInputStream(file));
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -189,6 +189,7 @@ import org.eclipse.jdt.internal.core.manipulation.search.IOccurrencesFinder;
 import org.eclipse.jdt.internal.core.manipulation.search.IOccurrencesFinder.OccurrenceLocation;
 import org.eclipse.jdt.internal.core.manipulation.search.OccurrencesFinder;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
 
 import org.eclipse.jdt.ui.IContextMenuConstants;
 import org.eclipse.jdt.ui.JavaUI;
@@ -2569,6 +2570,11 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 
 		setOutlinePageInput(fOutlinePage, input);
 
+		// hovers, hyperlinks and quick fixes ask for the hierarchies of the edited types
+		ITypeRoot inputElement= getInputJavaElement();
+		if (inputElement instanceof ICompilationUnit)
+			SuperTypeHierarchyCache.prefetch((ICompilationUnit) inputElement);
+
 		if (isShowingOverrideIndicators())
 			installOverrideIndicator(false);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@
 package org.eclipse.jdt.internal.ui.javaeditor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.swt.widgets.Display;
@@ -22,7 +23,9 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.TextPresentation;
@@ -32,12 +35,17 @@ import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
@@ -186,8 +194,9 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 */
 		private void addPosition(int offset, int length, Highlighting highlighting) {
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			PositionIndex index= fRemovedPositionIndex;
+			for (int slot= index.indexAtOffset(offset), n= index.size(); slot < n && index.getOffset(slot) == offset; slot++) {
+				int i= index.getIndex(slot);
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position == null)
 					continue;
@@ -211,8 +220,9 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param length The range length
 		 */
 		private void retainPositions(int offset, int length) {
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			PositionIndex index= fRemovedPositionIndex;
+			for (int slot= index.indexAtOffset(offset), n= index.size(); slot < n && index.getOffset(slot) <= offset + length; slot++) {
+				int i= index.getIndex(slot);
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position != null && position.isContained(offset, length)) {
 					fRemovedPositions.set(i, null);
@@ -222,6 +232,252 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		}
 	}
 
+	/**
+	 * Index of the background job's removed positions by offset. The index is a single array of
+	 * primitive keys, each of which holds the offset of a position in its upper and the index of the
+	 * position in the list of removed positions in its lower 32 bits, so that sorting the keys sorts
+	 * the positions by offset.
+	 * <p>
+	 * Only the index is compact, the highlighted positions themselves are still objects, since they
+	 * are registered with the document which updates them.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	private static final class PositionIndex {
+
+		/** The sorted keys, only the first <code>fSize</code> are valid */
+		private long[] fKeys= new long[0];
+		/** The number of keys */
+		private int fSize;
+
+		/**
+		 * Indexes the given positions.
+		 *
+		 * @param positions the positions, may not contain <code>null</code> elements
+		 */
+		public void reset(List<Position> positions) {
+			int n= positions.size();
+			if (fKeys.length < n)
+				fKeys= new long[n];
+			for (int i= 0; i < n; i++)
+				fKeys[i]= ((long) positions.get(i).getOffset() << 32) | i;
+			fSize= n;
+			Arrays.sort(fKeys, 0, n);
+		}
+
+		/**
+		 * @return the number of indexed positions
+		 */
+		public int size() {
+			return fSize;
+		}
+
+		/**
+		 * Returns the first slot of a position with an offset equal or greater than the given offset.
+		 *
+		 * @param offset the offset
+		 * @return the slot, {@link #size()} if there is no such position
+		 */
+		public int indexAtOffset(int offset) {
+			long key= (long) offset << 32;
+			int i= -1;
+			int j= fSize;
+			while (j - i > 1) {
+				int k= (i + j) >>> 1;
+				if (fKeys[k] >= key)
+					j= k;
+				else
+					i= k;
+			}
+			return j;
+		}
+
+		/**
+		 * @param slot the slot
+		 * @return the offset of the position at the given slot when it was indexed
+		 */
+		public int getOffset(int slot) {
+			return (int) (fKeys[slot] >>> 32);
+		}
+
+		/**
+		 * @param slot the slot
+		 * @return the index of the position at the given slot in the list of removed positions
+		 */
+		public int getIndex(int slot) {
+			return (int) fKeys[slot];
+		}
+	}
+
+	/**
+	 * The region of the document which has changed since the last reconcile.
+	 *
+	 * @since 3.14
+	 */
+	private static final class ChangedRegion {
+
+		/** The offset of the changed region */
+		final int fOffset;
+		/** The end offset of the changed region */
+		final int fEnd;
+		/** The difference of the document length */
+		final int fDelta;
+
+		ChangedRegion(int offset, int end, int delta) {
+			fOffset= offset;
+			fEnd= end;
+			fDelta= delta;
+		}
+	}
+
+	/**
+	 * Tracks the document changes since the last reconcile. A reconcile may only be incremental if
+	 * the highlighted positions of the previous reconcile have been applied to the presenter, and
+	 * no reconcile has been canceled since.
+	 * <p>
+	 * NOTE: The listener methods are called from the UI thread, the others also from the
+	 * background thread.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	private static final class ChangedRegionTracker implements IDocumentListener, ITextInputListener {
+
+		/** Offset of the changed region, <code>-1</code> if the document has not changed */
+		private int fOffset= -1;
+		/** End offset of the changed region */
+		private int fEnd;
+		/** Difference of the document length */
+		private int fDelta;
+		/** <code>false</code> iff the next reconcile must not be incremental */
+		private boolean fIsValid;
+		/** Number of posted but not yet applied presentation updates */
+		private int fPendingUpdates;
+
+		/**
+		 * Starts tracking the changes of the given viewer's documents.
+		 *
+		 * @param sourceViewer the source viewer
+		 */
+		public void install(ISourceViewer sourceViewer) {
+			sourceViewer.addTextInputListener(this);
+			IDocument document= sourceViewer.getDocument();
+			if (document != null)
+				document.addDocumentListener(this);
+		}
+
+		/**
+		 * Stops tracking the changes of the given viewer's documents.
+		 *
+		 * @param sourceViewer the source viewer
+		 */
+		public void uninstall(ISourceViewer sourceViewer) {
+			sourceViewer.removeTextInputListener(this);
+			IDocument document= sourceViewer.getDocument();
+			if (document != null)
+				document.removeDocumentListener(this);
+			invalidate();
+		}
+
+		/**
+		 * Forces the next reconcile to be a full reconcile.
+		 */
+		public synchronized void invalidate() {
+			fIsValid= false;
+			fOffset= -1;
+			fDelta= 0;
+		}
+
+		/**
+		 * Returns and resets the region changed since the last call.
+		 *
+		 * @return the changed region or <code>null</code> if the next reconcile must be a full
+		 *         reconcile
+		 */
+		public synchronized ChangedRegion consume() {
+			ChangedRegion region= null;
+			if (fIsValid && fOffset != -1 && fPendingUpdates == 0)
+				region= new ChangedRegion(fOffset, fEnd, fDelta);
+			fIsValid= true;
+			fOffset= -1;
+			fDelta= 0;
+			return region;
+		}
+
+		/**
+		 * Notifies this tracker that a presentation update has been posted to the UI thread.
+		 */
+		public synchronized void updatePosted() {
+			fPendingUpdates++;
+		}
+
+		/**
+		 * Notifies this tracker that a posted presentation update has been run.
+		 *
+		 * @param applied <code>true</code> iff the update has been applied to the presenter
+		 */
+		public synchronized void updateRun(boolean applied) {
+			fPendingUpdates--;
+			if (!applied)
+				invalidate();
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		@Override
+		public synchronized void documentChanged(DocumentEvent event) {
+			int offset= event.getOffset();
+			int oldEnd= offset + event.getLength();
+			String text= event.getText();
+			int newEnd= offset + (text != null ? text.length() : 0);
+			int delta= newEnd - oldEnd;
+			if (fOffset == -1) {
+				fOffset= offset;
+				fEnd= newEnd;
+			} else {
+				int end;
+				if (fEnd <= offset)
+					end= fEnd;
+				else if (fEnd >= oldEnd)
+					end= fEnd + delta;
+				else
+					end= newEnd;
+				fOffset= Math.min(fOffset, offset);
+				fEnd= Math.max(end, newEnd);
+			}
+			fDelta+= delta;
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentAboutToBeChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		@Override
+		public void inputDocumentAboutToBeChanged(IDocument oldInput, IDocument newInput) {
+			if (oldInput != null)
+				oldInput.removeDocumentListener(this);
+			invalidate();
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		@Override
+		public void inputDocumentChanged(IDocument oldInput, IDocument newInput) {
+			if (newInput != null)
+				newInput.addDocumentListener(this);
+			invalidate();
+		}
+	}
+
 	/** Position collector */
 	private PositionCollector fCollector= new PositionCollector();
 
@@ -242,6 +498,28 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private List<Position> fRemovedPositions= new ArrayList<>();
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
+	/**
+	 * Background job's index of the removed highlighted positions
+	 * @since 3.14
+	 */
+	private final PositionIndex fRemovedPositionIndex= new PositionIndex();
+
+	/**
+	 * Tracks the document changes since the last reconcile
+	 * @since 3.14
+	 */
+	private final ChangedRegionTracker fChangedRegionTracker= new ChangedRegionTracker();
+	/**
+	 * Ranges of the member bodies of the last completely reconciled AST, as pairs of start and end
+	 * offsets, or <code>null</code> if unknown
+	 * @since 3.14
+	 */
+	private int[] fMemberBodyRanges;
+	/**
+	 * Number of completed incremental reconciles, used for testing
+	 * @since 3.14
+	 */
+	private int fIncrementalReconcileCount;
 
 	/** Background job */
 	private Job fJob;
@@ -296,6 +574,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		fJobSemanticHighlightings= fSemanticHighlightings;
 		fJobHighlightings= fHighlightings;
 
+		boolean isComplete= false;
 		try {
 			if (fJobPresenter == null || fJobSemanticHighlightings == null || fJobHighlightings == null)
 				return;
@@ -305,11 +584,13 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			ChangedRegion changedRegion= fChangedRegionTracker.consume();
+			List<Block> memberBodies= getMemberBodies(ast);
+			ASTNode[] subtrees= getAffectedSubtrees(ast, forced ? null : changedRegion, memberBodies);
 			if (subtrees.length == 0)
 				return;
 
-			startReconcilingPositions();
+			startReconcilingPositions(subtrees);
 
 			if (!fJobPresenter.isCanceled()) {
 				fJobDeprecatedMemberHighlighting= null;
@@ -327,11 +608,22 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (!fJobPresenter.isCanceled())
 				textPresentation= fJobPresenter.createPresentation(fAddedPositions, fRemovedPositions);
 
-			if (!fJobPresenter.isCanceled())
-				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
+			if (!fJobPresenter.isCanceled()) {
+				// without added or removed positions there is no update to post
+				isComplete= updatePresentation(textPresentation, fAddedPositions, fRemovedPositions) || fAddedPositions.isEmpty() && fRemovedPositions.isEmpty();
+				if (isComplete) {
+					fMemberBodyRanges= getRanges(memberBodies);
+					if (subtrees[0] != ast)
+						fIncrementalReconcileCount++;
+				}
+			}
 
 			stopReconcilingPositions();
 		} finally {
+			if (!isComplete) {
+				fMemberBodyRanges= null;
+				fChangedRegionTracker.invalidate();
+			}
 			fJobPresenter= null;
 			fJobSemanticHighlightings= null;
 			fJobHighlightings= null;
@@ -343,20 +635,122 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	}
 
 	/**
-	 * @param node Root node
+	 * Returns the subtrees that may be affected by the document changes since the last reconcile.
+	 * <p>
+	 * Changes which are confined to the body of a single method or initializer only affect the
+	 * highlighting of that body, since its local declarations are not visible outside. This only
+	 * holds if the changes have not altered the structure of the compilation unit, i.e. if the other
+	 * member bodies have only been shifted by the changes. In all other cases the whole AST is
+	 * affected.
+	 * </p>
+	 *
+	 * @param ast the AST
+	 * @param changedRegion the region changed since the last reconcile, or <code>null</code> if
+	 *            the whole AST is affected
+	 * @param memberBodies the member bodies of the AST, see {@link #getMemberBodies(CompilationUnit)}
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
-		return new ASTNode[] { node };
+	private ASTNode[] getAffectedSubtrees(CompilationUnit ast, ChangedRegion changedRegion, List<Block> memberBodies) {
+		int[] oldRanges= fMemberBodyRanges;
+		if (changedRegion == null || oldRanges == null || oldRanges.length != 2 * memberBodies.size())
+			return new ASTNode[] { ast };
+
+		Block changedBody= null;
+		for (int i= 0, n= memberBodies.size(); i < n; i++) {
+			Block body= memberBodies.get(i);
+			int start= body.getStartPosition();
+			int end= start + body.getLength();
+			int oldStart= oldRanges[2 * i];
+			int oldEnd= oldRanges[2 * i + 1];
+			if (end <= changedRegion.fOffset) {
+				if (start != oldStart || end != oldEnd)
+					return new ASTNode[] { ast };
+			} else if (start >= changedRegion.fEnd) {
+				if (start != oldStart + changedRegion.fDelta || end != oldEnd + changedRegion.fDelta)
+					return new ASTNode[] { ast };
+			} else if (changedBody == null && start < changedRegion.fOffset && changedRegion.fEnd < end) {
+				if (start != oldStart || end != oldEnd + changedRegion.fDelta)
+					return new ASTNode[] { ast };
+				changedBody= body;
+			} else {
+				return new ASTNode[] { ast };
+			}
+		}
+		if (changedBody == null)
+			return new ASTNode[] { ast };
+		return new ASTNode[] { changedBody };
+	}
+
+	/**
+	 * Returns the bodies of the methods and initializers of the types declared in the given AST,
+	 * including member types, in the order of their offsets. Local and anonymous types are part of
+	 * the bodies which contain them.
+	 *
+	 * @param ast the AST
+	 * @return the member bodies
+	 * @since 3.14
+	 */
+	private static List<Block> getMemberBodies(CompilationUnit ast) {
+		List<Block> bodies= new ArrayList<>();
+		for (Object type : ast.types())
+			addMemberBodies((AbstractTypeDeclaration) type, bodies);
+		return bodies;
+	}
+
+	private static void addMemberBodies(AbstractTypeDeclaration type, List<Block> bodies) {
+		for (Object element : type.bodyDeclarations()) {
+			BodyDeclaration declaration= (BodyDeclaration) element;
+			Block body= null;
+			switch (declaration.getNodeType()) {
+				case ASTNode.METHOD_DECLARATION:
+					body= ((MethodDeclaration) declaration).getBody();
+					break;
+				case ASTNode.INITIALIZER:
+					body= ((Initializer) declaration).getBody();
+					break;
+				case ASTNode.TYPE_DECLARATION:
+				case ASTNode.ENUM_DECLARATION:
+				case ASTNode.ANNOTATION_TYPE_DECLARATION:
+					addMemberBodies((AbstractTypeDeclaration) declaration, bodies);
+					break;
+				default:
+					break;
+			}
+			if (body != null)
+				bodies.add(body);
+		}
+	}
+
+	/**
+	 * @param nodes the nodes
+	 * @return the start and end offsets of the given nodes
+	 * @since 3.14
+	 */
+	private static int[] getRanges(List<? extends ASTNode> nodes) {
+		int[] ranges= new int[2 * nodes.size()];
+		for (int i= 0, n= nodes.size(); i < n; i++) {
+			ASTNode node= nodes.get(i);
+			ranges[2 * i]= node.getStartPosition();
+			ranges[2 * i + 1]= node.getStartPosition() + node.getLength();
+		}
+		return ranges;
 	}
 
 	/**
-	 * Start reconciling positions.
+	 * Start reconciling positions. Positions outside of the affected subtrees are retained.
+	 *
+	 * @param subtrees the affected subtrees
 	 */
-	private void startReconcilingPositions() {
-		fJobPresenter.addAllPositions(fRemovedPositions);
+	private void startReconcilingPositions(ASTNode[] subtrees) {
+		for (int i= 0, n= subtrees.length; i < n; i++) {
+			ASTNode subtree= subtrees[i];
+			if (subtree.getNodeType() == ASTNode.COMPILATION_UNIT)
+				fJobPresenter.addAllPositions(fRemovedPositions);
+			else
+				fJobPresenter.addAllPositions(fRemovedPositions, subtree.getStartPosition(), subtree.getLength());
+		}
 		fNOfRemovedPositions= fRemovedPositions.size();
+		fRemovedPositionIndex.reset(fRemovedPositions);
 	}
 
 	/**
@@ -365,10 +759,6 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param subtrees the AST subtrees
 	 */
 	private void reconcilePositions(ASTNode[] subtrees) {
-		// FIXME: remove positions not covered by subtrees
-
-
-
 		for (int i= 0, n= subtrees.length; i < n; i++)
 			subtrees[i].accept(fCollector);
 		List<Position> oldPositions= fRemovedPositions;
@@ -387,29 +777,41 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param textPresentation the text presentation
 	 * @param addedPositions the added positions
 	 * @param removedPositions the removed positions
+	 * @return <code>true</code> iff the presentation update has been posted to the UI thread
 	 */
-	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
-		Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
+	private boolean updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
+		final Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
 		if (runnable == null)
-			return;
+			return false;
 
 		JavaEditor editor= fEditor;
 		if (editor == null)
-			return;
+			return false;
 
 		IWorkbenchPartSite site= editor.getSite();
 		if (site == null)
-			return;
+			return false;
 
 		Shell shell= site.getShell();
 		if (shell == null || shell.isDisposed())
-			return;
+			return false;
 
 		Display display= shell.getDisplay();
 		if (display == null || display.isDisposed())
-			return;
+			return false;
 
-		display.asyncExec(runnable);
+		final SemanticHighlightingPresenter presenter= fJobPresenter;
+		fChangedRegionTracker.updatePosted();
+		display.asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				// the presenter drops the update if the document has changed in the meantime
+				boolean isApplied= !presenter.isCanceled();
+				runnable.run();
+				fChangedRegionTracker.updateRun(isApplied);
+			}
+		});
+		return true;
 	}
 
 	/**
@@ -436,6 +838,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 
 		fEditor= editor;
 		fSourceViewer= sourceViewer;
+		fChangedRegionTracker.install(sourceViewer);
 
 		if (fEditor instanceof CompilationUnitEditor) {
 			((CompilationUnitEditor)fEditor).addReconcileListener(this);
@@ -460,6 +863,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			fEditor= null;
 		}
 
+		if (fSourceViewer != null)
+			fChangedRegionTracker.uninstall(fSourceViewer);
 		fSourceViewer= null;
 		fSemanticHighlightings= null;
 		fHighlightings= null;
@@ -538,6 +943,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @since 3.2
 	 */
 	public void refresh() {
+		fChangedRegionTracker.invalidate();
 		scheduleJob();
 	}
 }
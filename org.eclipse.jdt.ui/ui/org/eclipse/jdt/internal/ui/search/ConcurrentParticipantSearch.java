@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.search;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.PerformanceStats;
+import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.core.runtime.jobs.JobGroup;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.search.ui.text.Match;
+
+import org.eclipse.jdt.core.IJavaElement;
+
+import org.eclipse.jdt.ui.search.IMatchPresentation;
+import org.eclipse.jdt.ui.search.IQueryParticipant;
+import org.eclipse.jdt.ui.search.ISearchRequestor;
+import org.eclipse.jdt.ui.search.QuerySpecification;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Runs the contributed query participants of a Java search in background jobs, while the core
+ * search engine runs in the invoking thread. The matches of the participants are added to the
+ * search result in batches, and the time spent in every participant is recorded.
+ * <p>
+ * The number of jobs can be configured with the
+ * <code>org.eclipse.jdt.ui.searchParticipantParallelism</code> system property. A parallelism
+ * of <code>1</code> runs the participants one after another in the invoking thread, after the core
+ * search.
+ * </p>
+ *
+ * @since 3.14
+ */
+final class ConcurrentParticipantSearch {
+
+	/** The maximum number of participants which run concurrently. */
+	static final int PARALLELISM= Integer.getInteger("org.eclipse.jdt.ui.searchParticipantParallelism", Math.min(4, Runtime.getRuntime().availableProcessors())).intValue(); //$NON-NLS-1$
+
+	private static final String PERF_SEARCH_PARTICIPANT= "org.eclipse.jdt.ui/perf/search/participants"; //$NON-NLS-1$
+
+	private static class SearchRequestor implements ISearchRequestor {
+		private final IQueryParticipant fParticipant;
+		private final JavaSearchResult fSearchResult;
+		private final MatchBatch fBatch;
+
+		SearchRequestor(IQueryParticipant participant, JavaSearchResult result) {
+			fParticipant= participant;
+			fSearchResult= result;
+			fBatch= new MatchBatch(result);
+		}
+
+		@Override
+		public void reportMatch(Match match) {
+			IMatchPresentation participant= fParticipant.getUIParticipant();
+			if (participant == null || match.getElement() instanceof IJavaElement || match.getElement() instanceof IResource) {
+				fBatch.add(match);
+			} else {
+				fSearchResult.addMatch(match, participant);
+			}
+		}
+	}
+
+	private final class ParticipantJob extends Job {
+
+		private final int fIndex;
+
+		ParticipantJob(int index) {
+			super(fRecords[index].getDescriptor().getID());
+			fIndex= index;
+			setSystem(true);
+			setJobGroup(fGroup);
+			// also notified if the job is canceled before it runs
+			addJobChangeListener(new JobChangeAdapter() {
+				@Override
+				public void done(IJobChangeEvent event) {
+					ConcurrentParticipantSearch.this.done(fIndex);
+				}
+			});
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			search(fIndex, monitor);
+			return Status.OK_STATUS;
+		}
+	}
+
+	private final SearchParticipantRecord[] fRecords;
+	private final List<QuerySpecification> fSpecifications;
+	private final JavaSearchResult fResult;
+	private final long[] fTimes;
+	private final boolean[] fDone;
+	private JobGroup fGroup;
+	private ParticipantJob[] fJobs;
+
+	/**
+	 * @param records the participants
+	 * @param specifications the queries to pass to every participant
+	 * @param result the search result
+	 */
+	ConcurrentParticipantSearch(SearchParticipantRecord[] records, List<QuerySpecification> specifications, JavaSearchResult result) {
+		fRecords= records;
+		fSpecifications= specifications;
+		fResult= result;
+		fTimes= new long[records.length];
+		fDone= new boolean[records.length];
+	}
+
+	/**
+	 * Starts the participants in background jobs, unless they run in the invoking thread.
+	 */
+	void start() {
+		if (PARALLELISM <= 1 || fRecords.length == 0)
+			return;
+		fGroup= new JobGroup(ConcurrentParticipantSearch.class.getName(), PARALLELISM, 0);
+		fJobs= new ParticipantJob[fRecords.length];
+		for (int i= 0; i < fRecords.length; i++) {
+			fJobs[i]= new ParticipantJob(i);
+			fJobs[i].schedule();
+		}
+	}
+
+	/**
+	 * Waits until all participants have finished, or runs them if they have not been started in
+	 * background jobs. Participants are canceled when the monitor is canceled or the thread is
+	 * interrupted, but this method still waits until they have finished, so that no matches are
+	 * added to the search result after it returns.
+	 *
+	 * @param monitor the progress monitor
+	 * @param ticks the ticks of each participant
+	 */
+	void join(SubMonitor monitor, int[] ticks) {
+		if (fJobs == null) {
+			for (int i= 0; i < fRecords.length; i++) {
+				search(i, monitor.split(ticks[i]));
+			}
+			return;
+		}
+		boolean[] reported= new boolean[fRecords.length];
+		int remaining= fRecords.length;
+		boolean canceled= false;
+		boolean interrupted= false;
+		synchronized (this) {
+			while (true) {
+				for (int i= 0; i < fRecords.length; i++) {
+					if (fDone[i] && !reported[i]) {
+						reported[i]= true;
+						remaining--;
+						monitor.worked(ticks[i]);
+					}
+				}
+				if (remaining == 0)
+					break;
+				if (!canceled && (interrupted || monitor.isCanceled())) {
+					fGroup.cancel();
+					canceled= true;
+				}
+				try {
+					wait(100); // poll for cancellation
+				} catch (InterruptedException e) {
+					interrupted= true;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Returns the time spent in every participant. The time of a participant which has not finished
+	 * is 0.
+	 *
+	 * @return the times in milliseconds, indexed like the participants
+	 */
+	synchronized long[] getTimes() {
+		return fTimes.clone();
+	}
+
+	private void search(final int index, final IProgressMonitor monitor) {
+		final SearchParticipantRecord record= fRecords[index];
+		final SearchRequestor requestor= new SearchRequestor(record.getParticipant(), fResult);
+		final long start= System.currentTimeMillis();
+		ISafeRunnable runnable= new ISafeRunnable() {
+			@Override
+			public void handleException(Throwable exception) {
+				record.getDescriptor().disable();
+				String message= SearchMessages.JavaSearchQuery_error_participant_search;
+				JavaPlugin.log(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), 0, message, exception));
+			}
+
+			@Override
+			public void run() throws Exception {
+				IQueryParticipant participant= record.getParticipant();
+
+				PerformanceStats stats= PerformanceStats.getStats(PERF_SEARCH_PARTICIPANT, participant);
+				stats.startRun();
+
+				for (QuerySpecification querySpecification : fSpecifications) {
+					participant.search(requestor, querySpecification, monitor);
+				}
+
+				stats.endRun();
+			}
+		};
+
+		try {
+			SafeRunner.run(runnable);
+		} finally {
+			requestor.fBatch.flush();
+			synchronized (this) {
+				fTimes[index]= System.currentTimeMillis() - start;
+			}
+		}
+	}
+
+	private synchronized void done(int index) {
+		fDone[index]= true;
+		notifyAll();
+	}
+}
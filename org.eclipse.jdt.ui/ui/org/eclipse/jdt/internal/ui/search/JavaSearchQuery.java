@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,20 +17,17 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.PerformanceStats;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 
 import org.eclipse.jface.resource.ImageDescriptor;
 
 import org.eclipse.search.ui.ISearchQuery;
 import org.eclipse.search.ui.ISearchResult;
 import org.eclipse.search.ui.NewSearchUI;
-import org.eclipse.search.ui.text.Match;
 
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.search.IJavaSearchConstants;
@@ -43,9 +40,6 @@ import org.eclipse.jdt.internal.corext.util.SearchUtils;
 
 import org.eclipse.jdt.ui.JavaElementLabels;
 import org.eclipse.jdt.ui.search.ElementQuerySpecification;
-import org.eclipse.jdt.ui.search.IMatchPresentation;
-import org.eclipse.jdt.ui.search.IQueryParticipant;
-import org.eclipse.jdt.ui.search.ISearchRequestor;
 import org.eclipse.jdt.ui.search.PatternQuerySpecification;
 import org.eclipse.jdt.ui.search.QuerySpecification;
 
@@ -55,8 +49,6 @@ import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
 
 public class JavaSearchQuery implements ISearchQuery {
 
-	private static final String PERF_SEARCH_PARTICIPANT= "org.eclipse.jdt.ui/perf/search/participants"; //$NON-NLS-1$
-
 	private ISearchResult fResult;
 	private final List<QuerySpecification> fPatternDataList;
 
@@ -75,26 +67,6 @@ public class JavaSearchQuery implements ISearchQuery {
 		fPatternDataList= dataList;
 	}
 
-	private static class SearchRequestor implements ISearchRequestor {
-		private IQueryParticipant fParticipant;
-		private JavaSearchResult fSearchResult;
-		@Override
-		public void reportMatch(Match match) {
-			IMatchPresentation participant= fParticipant.getUIParticipant();
-			if (participant == null || match.getElement() instanceof IJavaElement || match.getElement() instanceof IResource) {
-				fSearchResult.addMatch(match);
-			} else {
-				fSearchResult.addMatch(match, participant);
-			}
-		}
-
-		protected SearchRequestor(IQueryParticipant participant, JavaSearchResult result) {
-			super();
-			fParticipant= participant;
-			fSearchResult= result;
-		}
-	}
-
 	@Override
 	public IStatus run(IProgressMonitor monitor) {
 		final JavaSearchResult textResult= (JavaSearchResult) getSearchResult();
@@ -172,37 +144,15 @@ public class JavaSearchQuery implements ISearchQuery {
 			NewSearchResultCollector collector= new NewSearchResultCollector(textResult, ignorePotentials);
 
 
-			engine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, getFirstSpecification().getScope(), collector, subMonitor.split(1000));
-			for (int i= 0; i < participantDescriptors.length; i++) {
-				final ISearchRequestor requestor= new SearchRequestor(participantDescriptors[i].getParticipant(), textResult);
-				final IProgressMonitor participantPM= subMonitor.split(ticks[i]);
-
-				final int iPrime= i;
-				ISafeRunnable runnable= new ISafeRunnable() {
-					@Override
-					public void handleException(Throwable exception) {
-						participantDescriptors[iPrime].getDescriptor().disable();
-						String message= SearchMessages.JavaSearchQuery_error_participant_search;
-						JavaPlugin.log(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), 0, message, exception));
-					}
-
-					@Override
-					public void run() throws Exception {
-
-						final IQueryParticipant participant= participantDescriptors[iPrime].getParticipant();
-
-						final PerformanceStats stats= PerformanceStats.getStats(PERF_SEARCH_PARTICIPANT, participant);
-						stats.startRun();
-
-						for (QuerySpecification querySpecification : fPatternDataList) {
-							participant.search(requestor, querySpecification, participantPM);
-						}
-
-						stats.endRun();
-					}
-				};
-
-				SafeRunner.run(runnable);
+			ConcurrentParticipantSearch participantSearch= new ConcurrentParticipantSearch(participantDescriptors, fPatternDataList, textResult);
+			participantSearch.start();
+			long start= System.currentTimeMillis();
+			try {
+				engine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, getFirstSpecification().getScope(), collector, subMonitor.split(1000));
+			} finally {
+				long coreTime= System.currentTimeMillis() - start;
+				participantSearch.join(subMonitor, ticks);
+				textResult.setSearchTimes(coreTime, participantDescriptors, participantSearch.getTimes());
 			}
 
 		} catch (CoreException e) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ public class JavaSearchResult extends AbstractJavaSearchResult {
 
 	private final JavaSearchQuery fQuery;
 	private final Map<Object, IMatchPresentation> fElementsToParticipants;
+	private volatile String fSearchTimes;
 
 	public JavaSearchResult(JavaSearchQuery query) {
 		fQuery= query;
@@ -53,7 +54,31 @@ public class JavaSearchResult extends AbstractJavaSearchResult {
 
 	@Override
 	public String getTooltip() {
-		return getLabel();
+		String searchTimes= fSearchTimes;
+		if (searchTimes == null)
+			return getLabel();
+		return Messages.format(SearchMessages.JavaSearchResult_search_times, new Object[] { getLabel(), searchTimes });
+	}
+
+	/**
+	 * Sets the times spent in the core search and in the query participants, which are shown in
+	 * the tooltip of the result if participants took part in the search.
+	 *
+	 * @param coreTime the time of the core search in milliseconds
+	 * @param participants the participants
+	 * @param participantTimes the times of the participants in milliseconds
+	 */
+	void setSearchTimes(long coreTime, SearchParticipantRecord[] participants, long[] participantTimes) {
+		if (participants.length == 0) {
+			fSearchTimes= null;
+			return;
+		}
+		String result= Messages.format(SearchMessages.JavaSearchResult_search_time, new Object[] { SearchMessages.JavaSearchResult_core_search, Long.valueOf(coreTime) });
+		for (int i= 0; i < participants.length; i++) {
+			String participantTime= Messages.format(SearchMessages.JavaSearchResult_search_time, new Object[] { participants[i].getDescriptor().getID(), Long.valueOf(participantTimes[i]) });
+			result= Messages.format(SearchMessages.JavaSearchResult_search_time_list, new Object[] { result, participantTime });
+		}
+		fSearchTimes= result;
 	}
 
 	@Override
@@ -78,12 +103,14 @@ public class JavaSearchResult extends AbstractJavaSearchResult {
 
 	boolean addMatch(Match match, IMatchPresentation participant) {
 		Object element= match.getElement();
-		if (fElementsToParticipants.get(element) != null) {
-			// TODO must access the participant id / label to properly report the error.
-			JavaPlugin.log(new Status(IStatus.WARNING, JavaPlugin.getPluginId(), 0, "A second search participant was found for an element", null)); //$NON-NLS-1$
-			return false;
+		synchronized (this) { // participants report concurrently
+			if (fElementsToParticipants.get(element) != null) {
+				// TODO must access the participant id / label to properly report the error.
+				JavaPlugin.log(new Status(IStatus.WARNING, JavaPlugin.getPluginId(), 0, "A second search participant was found for an element", null)); //$NON-NLS-1$
+				return false;
+			}
+			fElementsToParticipants.put(element, participant);
 		}
-		fElementsToParticipants.put(element, participant);
 		addMatch(match);
 		return true;
 	}
@@ -93,6 +120,7 @@ public class JavaSearchResult extends AbstractJavaSearchResult {
 		synchronized(this) {
 			fElementsToParticipants.clear();
 		}
+		fSearchTimes= null;
 		super.removeAll();
 	}
 
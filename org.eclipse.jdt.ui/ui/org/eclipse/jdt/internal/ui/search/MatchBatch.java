@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.search.ui.text.AbstractTextSearchResult;
+import org.eclipse.search.ui.text.Match;
+
+/**
+ * Collects matches and adds them to a search result in batches, so that the result sends one
+ * change event per batch instead of one per match. A batch is added when it is full, or by a job
+ * a short delay after its first match, so that a partial batch is shown even if no more matches
+ * arrive. The batch can be filled from several threads, and must be {@link #flush() flushed} when
+ * all matches have been collected.
+ *
+ * @since 3.14
+ */
+final class MatchBatch {
+
+	private static final int SIZE= 500;
+	private static final long DELAY= 100; // ms
+
+	private final AbstractTextSearchResult fResult;
+	private List<Match> fMatches= new ArrayList<>();
+	private final Job fFlushJob= new Job(SearchMessages.MatchBatch_flush_job) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			addBatch();
+			return Status.OK_STATUS;
+		}
+	};
+
+	MatchBatch(AbstractTextSearchResult result) {
+		fResult= result;
+		fFlushJob.setSystem(true);
+	}
+
+	void add(Match match) {
+		Match[] full= null;
+		synchronized (this) {
+			fMatches.add(match);
+			if (fMatches.size() >= SIZE)
+				full= take();
+			else if (fMatches.size() == 1)
+				fFlushJob.schedule(DELAY);
+		}
+		if (full != null)
+			fResult.addMatches(full);
+	}
+
+	/**
+	 * Adds the collected matches to the search result. Waits for a running flush job, so that all
+	 * matches have been added when this method returns.
+	 */
+	void flush() {
+		fFlushJob.cancel();
+		boolean interrupted= false;
+		while (true) {
+			try {
+				fFlushJob.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted= true;
+			}
+		}
+		addBatch();
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private void addBatch() {
+		Match[] matches;
+		synchronized (this) {
+			if (fMatches.isEmpty())
+				return;
+			matches= take();
+		}
+		fResult.addMatches(matches);
+	}
+
+	private Match[] take() {
+		Match[] matches= fMatches.toArray(new Match[fMatches.size()]);
+		fMatches= new ArrayList<>();
+		return matches;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -329,10 +329,30 @@ public final class CompletionProposalCategory {
 	 *         {@link org.eclipse.jface.text.contentassist.ICompletionProposal})
 	 */
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, String partition, SubProgressMonitor monitor) {
+		return computeCompletionProposals(context, partition, monitor, true);
+	}
+
+	/**
+	 * Safely computes completion proposals of the computers of this category through their
+	 * extension, optionally skipping the thread-safe computers. The skipped computers are computed
+	 * concurrently by the caller, see {@link #getThreadSafeComputerDescriptors(String)}.
+	 *
+	 * @param context the invocation context passed on to the extension
+	 * @param partition the partition type where to invocation occurred
+	 * @param monitor the progress monitor passed on to the extension
+	 * @param includeThreadSafe <code>true</code> to compute the proposals of all computers,
+	 *            <code>false</code> to skip the thread-safe computers
+	 * @return the list of computed completion proposals (element type:
+	 *         {@link org.eclipse.jface.text.contentassist.ICompletionProposal})
+	 * @since 3.14
+	 */
+	List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, String partition, SubProgressMonitor monitor, boolean includeThreadSafe) {
 		fLastError= null;
 		List<ICompletionProposal> result= new ArrayList<>();
 		List<CompletionProposalComputerDescriptor> descriptors= new ArrayList<>(fRegistry.getProposalComputerDescriptors(partition));
 		for (CompletionProposalComputerDescriptor desc : descriptors) {
+			if (!includeThreadSafe && desc.isThreadSafe())
+				continue; // computed and reported by a background job, see ConcurrentProposalComputation
 			if (desc.getCategory() == this)
 				result.addAll(desc.computeCompletionProposals(context, monitor));
 			if (fLastError == null && desc.getErrorMessage() != null)
@@ -341,6 +361,22 @@ public final class CompletionProposalCategory {
 		return result;
 	}
 
+	/**
+	 * Returns the thread-safe computers of this category in the given partition.
+	 *
+	 * @param partition the partition type
+	 * @return the thread-safe computers of this category
+	 * @since 3.14
+	 */
+	List<CompletionProposalComputerDescriptor> getThreadSafeComputerDescriptors(String partition) {
+		List<CompletionProposalComputerDescriptor> result= new ArrayList<>();
+		for (CompletionProposalComputerDescriptor desc : fRegistry.getProposalComputerDescriptors(partition)) {
+			if (desc.getCategory() == this && desc.isThreadSafe())
+				result.add(desc);
+		}
+		return result;
+	}
+
 	/**
 	 * Safely computes context information objects of all computers of this category through their
 	 * extension. If an extension is disabled, throws an exception or otherwise does not adhere to
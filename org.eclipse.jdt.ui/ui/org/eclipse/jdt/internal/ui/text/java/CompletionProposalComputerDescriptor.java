@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -64,6 +64,11 @@ final class CompletionProposalComputerDescriptor {
 	private static final String ACTIVATE= "activate"; //$NON-NLS-1$
 	/** The extension schema name of the needsSortingAfterFiltering attribute. */
 	private static final String NEEDS_SORTING_AFTER_FILTERING= "needsSortingAfterFiltering"; //$NON-NLS-1$
+	/**
+	 * The extension schema name of the threadSafe attribute.
+	 * @since 3.14
+	 */
+	private static final String THREAD_SAFE= "threadSafe"; //$NON-NLS-1$
 	/** The extension schema name of the partition child elements. */
 	private static final String PARTITION= "partition"; //$NON-NLS-1$
 	/** Set of Java partition types. */
@@ -144,6 +149,20 @@ final class CompletionProposalComputerDescriptor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * Tells whether the computer of this extension may compute proposals in a background thread.
+	 * 
+	 * @since 3.14
+	 */
+	private final boolean fThreadSafe;
+
+	/**
+	 * The duration of the most recent proposal computation in milliseconds, or <code>-1</code>.
+	 * 
+	 * @since 3.14
+	 */
+	private volatile long fLastDuration= -1;
+
 
 	/**
 	 * Creates a new descriptor.
@@ -189,6 +208,9 @@ final class CompletionProposalComputerDescriptor {
 		String needsSortingAfterFilteringAttribute= element.getAttribute(NEEDS_SORTING_AFTER_FILTERING);
 		fNeedsSortingAfterFiltering= Boolean.valueOf(needsSortingAfterFilteringAttribute).booleanValue();
 
+		String threadSafeAttribute= element.getAttribute(THREAD_SAFE);
+		fThreadSafe= Boolean.valueOf(threadSafeAttribute).booleanValue();
+
 		fClass= element.getAttribute(CLASS);
 		checkNotNull(fClass, CLASS);
 
@@ -328,10 +350,12 @@ final class CompletionProposalComputerDescriptor {
 			if (computer == null) // not active yet
 				return Collections.emptyList();
 
+			long start= System.currentTimeMillis();
 			try {
 				PerformanceStats stats= startMeter(context, computer);
 				List<ICompletionProposal> proposals= computer.computeCompletionProposals(context, monitor);
 				stopMeter(stats, COMPUTE_COMPLETION_PROPOSALS);
+				fLastDuration= System.currentTimeMillis() - start;
 
 				if (proposals != null) {
 					fLastError= computer.getErrorMessage();
@@ -588,4 +612,26 @@ final class CompletionProposalComputerDescriptor {
 	public boolean isSortingAfterFilteringNeeded() {
 		return fNeedsSortingAfterFiltering;
 	}
+
+	/**
+	 * Returns the <code>threadSafe</code> flag of the described extension. Proposals of thread-safe
+	 * computers may be computed in a background thread, concurrently with other computers.
+	 * 
+	 * @return <code>true</code> if the described computer is thread-safe
+	 * @since 3.14
+	 */
+	public boolean isThreadSafe() {
+		return fThreadSafe;
+	}
+
+	/**
+	 * Returns the duration of the most recent successful proposal computation of the described
+	 * extension.
+	 * 
+	 * @return the duration in milliseconds, or <code>-1</code> if no proposals have been computed
+	 * @since 3.14
+	 */
+	long getLastDuration() {
+		return fLastDuration;
+	}
 }
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
+
+/**
+ * Computes the proposals of the thread-safe proposal computers of a content assist invocation in
+ * background jobs, while the other computers run in the invoking thread. The proposals of the jobs
+ * are only collected until the time budget of the invocation is used up, computers which are late
+ * are canceled and their proposals are dropped.
+ * <p>
+ * The lazily computed state of an invocation context is not thread-safe, hence every job gets its
+ * own context. The contexts are created in the invoking thread, which also resolves their
+ * compilation unit from the editor input.
+ * </p>
+ * <p>
+ * The number of jobs and the budget can be configured with the
+ * <code>org.eclipse.jdt.ui.codeAssistParallelism</code> and
+ * <code>org.eclipse.jdt.ui.codeAssistBudget</code> system properties. A parallelism of
+ * <code>1</code> computes all proposals in the invoking thread.
+ * </p>
+ *
+ * @see CompletionProposalComputerDescriptor#isThreadSafe()
+ * @since 3.14
+ */
+final class ConcurrentProposalComputation {
+
+	/** The maximum number of computers which run concurrently. */
+	static final int PARALLELISM= Integer.getInteger("org.eclipse.jdt.ui.codeAssistParallelism", Math.min(4, Runtime.getRuntime().availableProcessors())).intValue(); //$NON-NLS-1$
+
+	/** The time budget of an invocation. */
+	private static final long BUDGET= Long.getLong("org.eclipse.jdt.ui.codeAssistBudget", 2000).longValue(); // ms //$NON-NLS-1$
+
+	/**
+	 * The computers which are running, possibly still from an earlier invocation. They are not
+	 * started again until they have finished.
+	 */
+	private static final Set<CompletionProposalComputerDescriptor> fgRunning= new HashSet<>();
+
+	private final class ComputationJob extends Job {
+
+		private final CompletionProposalComputerDescriptor fDescriptor;
+		private final ContentAssistInvocationContext fContext;
+		private List<ICompletionProposal> fProposals;
+		private String fErrorMessage;
+		private boolean fDone;
+
+		ComputationJob(CompletionProposalComputerDescriptor descriptor, ContentAssistInvocationContext context) {
+			super(descriptor.getName());
+			fDescriptor= descriptor;
+			fContext= context;
+			setSystem(true);
+			setJobGroup(fGroup);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			List<ICompletionProposal> proposals= null;
+			try {
+				proposals= fDescriptor.computeCompletionProposals(fContext, monitor);
+			} finally {
+				done(this, proposals, fDescriptor.getErrorMessage());
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private final JobGroup fGroup;
+	private final List<ComputationJob> fJobs= new ArrayList<>();
+	private final long fDeadline;
+	private final List<CompletionProposalComputerDescriptor> fLate= new ArrayList<>();
+	private int fRemaining;
+	private boolean fJoined;
+
+	/**
+	 * Starts computing the proposals of the thread-safe computers of the given categories.
+	 *
+	 * @param categories the categories to compute proposals for
+	 * @param processor the processor which creates the invocation contexts of the computers
+	 * @param viewer the viewer that content assist is invoked on
+	 * @param offset the content assist offset
+	 * @param partition the partition type where the invocation occurred
+	 */
+	ConcurrentProposalComputation(List<CompletionProposalCategory> categories, ContentAssistProcessor processor, ITextViewer viewer, int offset, String partition) {
+		fDeadline= System.currentTimeMillis() + BUDGET;
+		fGroup= new JobGroup(JavaTextMessages.ConcurrentProposalComputation_job_group, PARALLELISM, 0);
+		List<CompletionProposalComputerDescriptor> descriptors= new ArrayList<>();
+		synchronized (fgRunning) {
+			for (CompletionProposalCategory category : categories) {
+				for (CompletionProposalComputerDescriptor descriptor : category.getThreadSafeComputerDescriptors(partition)) {
+					if (fgRunning.add(descriptor))
+						descriptors.add(descriptor);
+					else
+						fLate.add(descriptor);
+				}
+			}
+		}
+		for (CompletionProposalComputerDescriptor descriptor : descriptors)
+			fJobs.add(new ComputationJob(descriptor, createContext(processor, viewer, offset)));
+		fRemaining= fJobs.size();
+		for (ComputationJob job : fJobs)
+			job.schedule();
+	}
+
+	/**
+	 * Tells whether one of the given categories has a thread-safe computer in the given partition.
+	 *
+	 * @param categories the categories
+	 * @param partition the partition type
+	 * @return <code>true</code> if there is a computer to run concurrently
+	 */
+	static boolean hasThreadSafeComputers(List<CompletionProposalCategory> categories, String partition) {
+		for (CompletionProposalCategory category : categories) {
+			if (!category.getThreadSafeComputerDescriptors(partition).isEmpty())
+				return true;
+		}
+		return false;
+	}
+
+	private static ContentAssistInvocationContext createContext(ContentAssistProcessor processor, ITextViewer viewer, int offset) {
+		ContentAssistInvocationContext context= processor.createContext(viewer, offset);
+		if (context instanceof JavaContentAssistInvocationContext)
+			((JavaContentAssistInvocationContext) context).getCompilationUnit(); // reads the editor input
+		return context;
+	}
+
+	private void done(ComputationJob job, List<ICompletionProposal> proposals, String errorMessage) {
+		synchronized (fgRunning) {
+			fgRunning.remove(job.fDescriptor);
+		}
+		synchronized (this) {
+			if (!fJoined) {
+				job.fProposals= proposals;
+				job.fErrorMessage= errorMessage;
+				job.fDone= true;
+			}
+			fRemaining--;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until all computers have finished or the time budget is used up. Computers which have
+	 * not finished by then are canceled.
+	 *
+	 * @param monitor the progress monitor of the invocation
+	 */
+	synchronized void join(IProgressMonitor monitor) {
+		long remaining;
+		while (fRemaining > 0 && !monitor.isCanceled() && (remaining= fDeadline - System.currentTimeMillis()) > 0) {
+			try {
+				wait(Math.min(remaining, 100)); // poll for cancellation
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		fJoined= true;
+		for (ComputationJob job : fJobs) {
+			if (!job.fDone) {
+				job.cancel();
+				fLate.add(job.fDescriptor);
+			}
+		}
+	}
+
+	/**
+	 * Returns the proposals which the thread-safe computers of the given category have computed
+	 * in time.
+	 *
+	 * @param category the category
+	 * @return the proposals of the category
+	 */
+	synchronized List<ICompletionProposal> getProposals(CompletionProposalCategory category) {
+		List<ICompletionProposal> result= null;
+		for (ComputationJob job : fJobs) {
+			if (job.fDone && job.fProposals != null && job.fDescriptor.getCategory() == category) {
+				if (result == null)
+					result= new ArrayList<>();
+				result.addAll(job.fProposals);
+			}
+		}
+		return result != null ? result : Collections.<ICompletionProposal> emptyList();
+	}
+
+	/**
+	 * Returns the first error message of the thread-safe computers of the given category which
+	 * have finished in time.
+	 *
+	 * @param category the category
+	 * @return the error message or <code>null</code>
+	 */
+	synchronized String getErrorMessage(CompletionProposalCategory category) {
+		for (ComputationJob job : fJobs) {
+			if (job.fDone && job.fDescriptor.getCategory() == category && job.fErrorMessage != null)
+				return job.fErrorMessage;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the computers which have been computed concurrently in this invocation.
+	 *
+	 * @return the computers
+	 */
+	synchronized List<CompletionProposalComputerDescriptor> getComputed() {
+		List<CompletionProposalComputerDescriptor> result= new ArrayList<>();
+		for (ComputationJob job : fJobs) {
+			if (job.fDone)
+				result.add(job.fDescriptor);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the computers whose proposals have been dropped in this invocation, since they had
+	 * not finished within the time budget.
+	 *
+	 * @return the late computers
+	 */
+	synchronized List<CompletionProposalComputerDescriptor> getLate() {
+		return new ArrayList<>(fLate);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -327,12 +327,42 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		boolean needsSortingAfterFiltering= false;
 		List<ICompletionProposal> proposals= new ArrayList<>();
 		List<CompletionProposalCategory> providers= getCategories();
-		for (CompletionProposalCategory cat : providers) {
-			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
-			proposals.addAll(computed);
-			needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !computed.isEmpty());
-			if (fErrorMessage == null)
-				fErrorMessage= cat.getErrorMessage();
+		if (ConcurrentProposalComputation.PARALLELISM <= 1 || !ConcurrentProposalComputation.hasThreadSafeComputers(providers, fPartition)) {
+			for (CompletionProposalCategory cat : providers) {
+				List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
+				proposals.addAll(computed);
+				needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !computed.isEmpty());
+				if (fErrorMessage == null)
+					fErrorMessage= cat.getErrorMessage();
+			}
+			if (JavaPlugin.DEBUG_RESULT_COLLECTOR)
+				printComputerStats(providers, null);
+		} else {
+			// the thread-safe computers run in the background while the others run in this thread
+			ConcurrentProposalComputation computation= new ConcurrentProposalComputation(providers, this, viewer, offset, fPartition);
+			List<List<ICompletionProposal>> computed= new ArrayList<>(providers.size());
+			List<String> errors= new ArrayList<>(providers.size());
+			for (CompletionProposalCategory cat : providers) {
+				computed.add(cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1), false));
+				errors.add(cat.getErrorMessage());
+			}
+			computation.join(monitor);
+			for (int i= 0; i < providers.size(); i++) {
+				CompletionProposalCategory cat= providers.get(i);
+				List<ICompletionProposal> catProposals= computed.get(i);
+				catProposals.addAll(computation.getProposals(cat));
+				proposals.addAll(catProposals);
+				needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !catProposals.isEmpty());
+				if (fErrorMessage == null)
+					fErrorMessage= errors.get(i);
+				if (fErrorMessage == null)
+					fErrorMessage= computation.getErrorMessage(cat);
+			}
+			List<CompletionProposalComputerDescriptor> late= computation.getLate();
+			if (fErrorMessage == null && !late.isEmpty())
+				fErrorMessage= Messages.format(JavaTextMessages.ContentAssistProcessor_computers_late_message, late.get(0).getName());
+			if (JavaPlugin.DEBUG_RESULT_COLLECTOR)
+				printComputerStats(providers, computation);
 		}
 		if (fNeedsSortingAfterFiltering && !needsSortingAfterFiltering)
 			fAssistant.setSorter(null);
@@ -340,6 +370,27 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		return proposals;
 	}
 
+	/**
+	 * Prints the time each computer has taken in this invocation.
+	 *
+	 * @param providers the categories of this invocation
+	 * @param computation the concurrent computation of this invocation, or <code>null</code>
+	 * @since 3.14
+	 */
+	private void printComputerStats(List<CompletionProposalCategory> providers, ConcurrentProposalComputation computation) {
+		List<CompletionProposalComputerDescriptor> late= computation != null ? computation.getLate() : Collections.<CompletionProposalComputerDescriptor> emptyList();
+		for (CompletionProposalComputerDescriptor desc : fComputerRegistry.getProposalComputerDescriptors(fPartition)) {
+			if (!providers.contains(desc.getCategory()))
+				continue;
+			if (late.contains(desc))
+				System.err.println("Code Assist (" + desc.getName() + "):\tlate, dropped"); //$NON-NLS-1$ //$NON-NLS-2$
+			else if (computation != null && desc.isThreadSafe() && computation.getComputed().contains(desc))
+				System.err.println("Code Assist (" + desc.getName() + ", concurrent):\t" + desc.getLastDuration()); //$NON-NLS-1$ //$NON-NLS-2$
+			else
+				System.err.println("Code Assist (" + desc.getName() + "):\t" + desc.getLastDuration()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
 	/**
 	 * Filters and sorts the proposals. The passed list may be modified
 	 * and returned, or a new list may be created and returned.
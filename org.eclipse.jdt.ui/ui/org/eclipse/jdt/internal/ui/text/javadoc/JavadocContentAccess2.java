@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2017 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -531,6 +531,29 @@ public class JavadocContentAccess2 {
 		if (!(element instanceof IMember || element instanceof ITypeParameter || (element instanceof ILocalVariable && (((ILocalVariable) element).isParameter())))) {
 			return null;
 		}
+		JavadocHTMLCache.Entry entry= JavadocHTMLCache.lookup(element, useAttachedJavadoc ? 'A' : 'S');
+		if (entry != null && entry.isCached()) {
+			return entry.getContent();
+		}
+		String content= computeHTMLContent(element, useAttachedJavadoc);
+		if (entry != null) {
+			entry.store(content);
+		}
+		return content;
+	}
+
+	/**
+	 * Computes the Javadoc of a member, type parameter or parameter.
+	 *
+	 * @param element the element to get the Javadoc of
+	 * @param useAttachedJavadoc if <code>true</code> Javadoc will be extracted from attached Javadoc
+	 *            if there's no source
+	 * @return the Javadoc comment content in HTML or <code>null</code>
+	 * @throws CoreException is thrown when the element's Javadoc cannot be accessed
+	 * @see #getHTMLContent(IJavaElement, boolean)
+	 * @since 3.14
+	 */
+	private static String computeHTMLContent(IJavaElement element, boolean useAttachedJavadoc) throws CoreException {
 		String sourceJavadoc= getHTMLContentFromSource(element);
 		if (sourceJavadoc == null || sourceJavadoc.length() == 0 || sourceJavadoc.trim().equals("{@inheritDoc}")) { //$NON-NLS-1$
 			if (useAttachedJavadoc) {
@@ -2008,6 +2031,28 @@ public class JavadocContentAccess2 {
 	 * @since 3.9
 	 */
 	public static String getHTMLContent(IPackageFragment packageFragment) throws CoreException {
+		JavadocHTMLCache.Entry entry= JavadocHTMLCache.lookup(packageFragment, 'P');
+		if (entry != null && entry.isCached()) {
+			return entry.getContent();
+		}
+		String content= computeHTMLContent(packageFragment);
+		if (entry != null) {
+			entry.store(content);
+		}
+		return content;
+	}
+
+	/**
+	 * Computes the Javadoc of a package.
+	 *
+	 * @param packageFragment the package
+	 * @return the document content in HTML format or <code>null</code>
+	 * @throws CoreException if the Java element does not exists or an exception occurs while
+	 *             accessing the file containing the package Javadoc
+	 * @see #getHTMLContent(IPackageFragment)
+	 * @since 3.14
+	 */
+	private static String computeHTMLContent(IPackageFragment packageFragment) throws CoreException {
 		IPackageFragmentRoot root= (IPackageFragmentRoot) packageFragment.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
 
 		//1==> Handle the case when the documentation is present in package-info.java or package-info.class file
@@ -0,0 +1,541 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.javadoc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.internal.corext.javadoc.JavaDocLocations;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Caches the rendered Javadoc HTML of the elements in archives, in memory and in the state
+ * location of the plug-in.
+ * <p>
+ * Entries are keyed by the handle identifier of the element and a stamp of the archive, which
+ * covers the time stamp and length of the archive and of its source attachment and the Javadoc
+ * location. A changed archive or attachment therefore changes the stamp, and the entries of the
+ * old stamp are no longer found. Elements in source folders and class folders are not cached,
+ * since they can change without changing a stamp.
+ * </p>
+ * <p>
+ * The stamps are kept per archive. The classpath information in a stamp is recomputed after a
+ * classpath or archive change is reported by the Java model, the time stamps and lengths of the
+ * files are checked again at most every {@link #CHECK_INTERVAL} ms. Entries are written to disk in
+ * a background job.
+ * </p>
+ * <p>
+ * The hit rates are traced with the <code>org.eclipse.jdt.ui/debug/JavadocCache</code> option.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class JavadocHTMLCache {
+
+	/**
+	 * A lookup of the Javadoc of an element.
+	 */
+	static final class Entry {
+
+		private final JavadocHTMLCache fCache;
+		private final String fKey;
+		private final String fStamp;
+		private boolean fCached;
+		private String fContent;
+
+		private Entry(JavadocHTMLCache cache, String key, String stamp) {
+			fCache= cache;
+			fKey= key;
+			fStamp= stamp;
+		}
+
+		/**
+		 * Tells whether the Javadoc has been found in the cache.
+		 *
+		 * @return <code>true</code> if {@link #getContent()} returns the cached Javadoc
+		 */
+		boolean isCached() {
+			return fCached;
+		}
+
+		/**
+		 * Returns the cached Javadoc.
+		 *
+		 * @return the Javadoc in HTML, or <code>null</code> if the element does not have Javadoc
+		 */
+		String getContent() {
+			return fContent;
+		}
+
+		/**
+		 * Stores the computed Javadoc in the cache.
+		 *
+		 * @param content the Javadoc in HTML, or <code>null</code> if the element does not have
+		 *            Javadoc
+		 */
+		void store(String content) {
+			fCache.put(this, content);
+		}
+	}
+
+	/**
+	 * The stamp of an archive. The paths and locations are fixed, the time stamps and lengths of
+	 * the files are checked again when the stamp is older than {@link #CHECK_INTERVAL}.
+	 */
+	private static final class Stamp {
+
+		private final String fLocations;
+		private final File[] fFiles;
+		private String fValue;
+		private long fChecked;
+
+		Stamp(String locations, File[] files) {
+			fLocations= locations;
+			fFiles= files;
+		}
+
+		String getValue() {
+			long now= System.currentTimeMillis();
+			if (fValue == null || now - fChecked > CHECK_INTERVAL) {
+				StringBuilder buf= new StringBuilder(fLocations);
+				for (File file : fFiles)
+					buf.append('|').append(file.lastModified()).append('|').append(file.length());
+				fValue= buf.toString();
+				fChecked= now;
+			}
+			return fValue;
+		}
+	}
+
+	/**
+	 * Discards the stamps when the classpath or an archive changes.
+	 */
+	private final class ClasspathListener implements IElementChangedListener {
+
+		private static final int CLASSPATH_FLAGS= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+				| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_SOURCEATTACHED | IJavaElementDelta.F_SOURCEDETACHED
+				| IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_CLOSED;
+
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			if (isClasspathChange(event.getDelta())) {
+				synchronized (fStamps) {
+					fStamps.clear();
+				}
+			}
+		}
+
+		private boolean isClasspathChange(IJavaElementDelta delta) {
+			int type= delta.getElement().getElementType();
+			if (type > IJavaElement.PACKAGE_FRAGMENT_ROOT)
+				return false;
+			if (type != IJavaElement.JAVA_MODEL && delta.getKind() != IJavaElementDelta.CHANGED)
+				return true;
+			if ((delta.getFlags() & CLASSPATH_FLAGS) != 0)
+				return true;
+			if (type != IJavaElement.PACKAGE_FRAGMENT_ROOT) {
+				for (IJavaElementDelta child : delta.getAffectedChildren()) {
+					if (isClasspathChange(child))
+						return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the pending entries to the disk cache.
+	 */
+	private final class WriteJob extends Job {
+
+		WriteJob() {
+			super(JavaDocMessages.JavadocHTMLCache_write_job);
+			setSystem(true);
+			setPriority(DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			while (!monitor.isCanceled()) {
+				String[] pending;
+				synchronized (fPendingWrites) {
+					Iterator<String[]> iter= fPendingWrites.values().iterator();
+					if (!iter.hasNext())
+						break;
+					pending= iter.next();
+				}
+				File file= getCacheFile(pending[1], pending[0], true);
+				if (file != null)
+					write(file, pending[1], pending[0], pending[2]);
+				synchronized (fPendingWrites) {
+					if (fPendingWrites.get(pending[1]) == pending)
+						fPendingWrites.remove(pending[1]);
+				}
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	/** The version of the rendering and of the file format, part of every stamp. */
+	private static final String VERSION= "1"; //$NON-NLS-1$
+
+	private static final int MAX_MEMORY_ENTRIES= 256;
+
+	/** The maximum number of archive stamps which have a folder in the disk cache. */
+	private static final int MAX_DISK_STAMPS= 64;
+
+	/** The interval after which the time stamps and lengths of the files of a stamp are checked again. */
+	private static final long CHECK_INTERVAL= 2000; // ms
+
+	/** The delay before pending entries are written to disk. */
+	private static final long WRITE_DELAY= 1000; // ms
+
+	private static final String CACHE_FOLDER= "javadoc"; //$NON-NLS-1$
+
+	private static JavadocHTMLCache fgInstance;
+
+	/** Memory entries in access order: key to <code>{ stamp, content }</code>. Guarded by itself. */
+	private final Map<String, String[]> fMemory= new LinkedHashMap<String, String[]>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+			return size() > MAX_MEMORY_ENTRIES;
+		}
+	};
+
+	/** The stamps of the archives by the handle identifiers of their roots. Guarded by itself. */
+	private final Map<String, Stamp> fStamps= new HashMap<>();
+
+	/** Entries not yet written to disk: key to <code>{ stamp, key, content }</code>. Guarded by itself. */
+	private final Map<String, String[]> fPendingWrites= new LinkedHashMap<>();
+
+	private final WriteJob fWriteJob= new WriteJob();
+
+	private final ClasspathListener fClasspathListener= new ClasspathListener();
+
+	private int fMemoryHits;
+	private int fDiskHits;
+	private int fMisses;
+
+	private JavadocHTMLCache() {
+	}
+
+	/**
+	 * Returns the shared cache. It starts to track classpath changes when it is first accessed.
+	 *
+	 * @return the shared cache
+	 */
+	private static synchronized JavadocHTMLCache getDefault() {
+		if (fgInstance == null) {
+			fgInstance= new JavadocHTMLCache();
+			JavaCore.addElementChangedListener(fgInstance.fClasspathListener, ElementChangedEvent.POST_CHANGE);
+		}
+		return fgInstance;
+	}
+
+	/**
+	 * Stops the shared cache. Entries which have not been written to disk yet are dropped.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance != null) {
+			JavaCore.removeElementChangedListener(fgInstance.fClasspathListener);
+			fgInstance.fWriteJob.cancel();
+			fgInstance= null;
+		}
+	}
+
+	/**
+	 * Looks up the Javadoc of an element in the cache.
+	 *
+	 * @param element the element
+	 * @param kind distinguishes the kinds of Javadoc computed for an element
+	 * @return the lookup, or <code>null</code> if the Javadoc of the element is not cached
+	 */
+	static Entry lookup(IJavaElement element, char kind) {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		if (root == null || !root.isArchive())
+			return null;
+		JavadocHTMLCache cache= getDefault();
+		String stamp;
+		try {
+			stamp= cache.getStamp(root);
+		} catch (JavaModelException e) {
+			return null;
+		}
+		if (stamp == null)
+			return null;
+		Entry entry= new Entry(cache, kind + element.getHandleIdentifier(), stamp);
+		cache.get(entry);
+		return entry;
+	}
+
+	/**
+	 * Returns the stamp of an archive, its source attachment and its Javadoc location.
+	 *
+	 * @param root the archive
+	 * @return the stamp, or <code>null</code> if the archive is not a local file
+	 * @throws JavaModelException if the classpath entry of the archive cannot be accessed
+	 */
+	private String getStamp(IPackageFragmentRoot root) throws JavaModelException {
+		String handle= root.getHandleIdentifier();
+		Stamp stamp;
+		synchronized (fStamps) {
+			stamp= fStamps.get(handle);
+		}
+		if (stamp == null) {
+			stamp= createStamp(root);
+			if (stamp == null)
+				return null;
+			synchronized (fStamps) {
+				fStamps.put(handle, stamp);
+			}
+		}
+		synchronized (stamp) {
+			return stamp.getValue();
+		}
+	}
+
+	private static Stamp createStamp(IPackageFragmentRoot root) throws JavaModelException {
+		File archive= toFile(root.getPath());
+		if (archive == null || !archive.isFile())
+			return null;
+		List<File> files= new ArrayList<>();
+		StringBuilder buf= new StringBuilder();
+		buf.append(VERSION).append('|').append(Locale.getDefault());
+		buf.append('|').append(archive.getAbsolutePath());
+		files.add(archive);
+
+		IPath sourcePath= root.getSourceAttachmentPath();
+		if (sourcePath != null) {
+			buf.append('|').append(sourcePath).append('|').append(root.getSourceAttachmentRootPath());
+			File source= toFile(sourcePath);
+			if (source != null)
+				files.add(source);
+		}
+
+		URL javadocLocation= JavaDocLocations.getJavadocBaseLocation(root);
+		if (javadocLocation != null) {
+			buf.append('|').append(javadocLocation.toExternalForm());
+			if ("file".equals(javadocLocation.getProtocol())) //$NON-NLS-1$
+				files.add(JavaDocLocations.toFile(javadocLocation));
+		}
+		return new Stamp(buf.toString(), files.toArray(new File[files.size()]));
+	}
+
+	private static File toFile(IPath path) {
+		IResource resource= ResourcesPlugin.getWorkspace().getRoot().findMember(path);
+		if (resource != null) {
+			IPath location= resource.getLocation();
+			return location != null ? location.toFile() : null;
+		}
+		return path.toFile();
+	}
+
+	private void get(Entry entry) {
+		synchronized (fMemory) {
+			String[] cached= fMemory.get(entry.fKey);
+			if (cached != null && cached[0].equals(entry.fStamp)) {
+				entry.fCached= true;
+				entry.fContent= cached[1];
+				fMemoryHits++;
+				trace("memory hit", entry); //$NON-NLS-1$
+				return;
+			}
+		}
+
+		synchronized (fPendingWrites) {
+			String[] pending= fPendingWrites.get(entry.fKey);
+			if (pending != null && pending[0].equals(entry.fStamp)) {
+				entry.fCached= true;
+				entry.fContent= pending[2];
+			}
+		}
+		if (entry.fCached) {
+			synchronized (fMemory) {
+				fMemoryHits++;
+				trace("pending write hit", entry); //$NON-NLS-1$
+			}
+			return;
+		}
+
+		File file= getCacheFile(entry.fKey, entry.fStamp, false);
+		if (file != null && file.isFile() && read(file, entry)) {
+			synchronized (fMemory) {
+				fMemory.put(entry.fKey, new String[] { entry.fStamp, entry.fContent });
+				fDiskHits++;
+				trace("disk hit", entry); //$NON-NLS-1$
+			}
+			return;
+		}
+
+		synchronized (fMemory) {
+			fMisses++;
+			trace("miss", entry); //$NON-NLS-1$
+		}
+	}
+
+	private void put(Entry entry, String content) {
+		synchronized (fMemory) {
+			fMemory.put(entry.fKey, new String[] { entry.fStamp, content });
+		}
+		synchronized (fPendingWrites) {
+			fPendingWrites.put(entry.fKey, new String[] { entry.fStamp, entry.fKey, content });
+		}
+		fWriteJob.schedule(WRITE_DELAY);
+	}
+
+	/**
+	 * Returns the file of an entry in the disk cache. The entries of an archive stamp are stored in
+	 * a folder of that stamp.
+	 *
+	 * @param key the key of the entry
+	 * @param stamp the stamp of the entry
+	 * @param create <code>true</code> to create the folder of the stamp
+	 * @return the file, or <code>null</code> if the state location is not available
+	 */
+	private static File getCacheFile(String key, String stamp, boolean create) {
+		JavaPlugin plugin= JavaPlugin.getDefault();
+		if (plugin == null)
+			return null;
+		try {
+			File cacheFolder= plugin.getStateLocation().append(CACHE_FOLDER).toFile();
+			File folder= new File(cacheFolder, Integer.toHexString(stamp.hashCode()));
+			if (create && !folder.isDirectory()) {
+				if (!folder.mkdirs())
+					return null;
+				trimStamps(cacheFolder);
+			}
+			return new File(folder, Integer.toHexString(key.hashCode()));
+		} catch (IllegalStateException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Deletes the least recently created stamp folders if there are more than
+	 * {@link #MAX_DISK_STAMPS}.
+	 *
+	 * @param cacheFolder the folder of the disk cache
+	 */
+	private static void trimStamps(File cacheFolder) {
+		File[] folders= cacheFolder.listFiles();
+		if (folders == null || folders.length <= MAX_DISK_STAMPS)
+			return;
+		Arrays.sort(folders, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(f1.lastModified(), f2.lastModified());
+			}
+		});
+		for (int i= 0; i < folders.length - MAX_DISK_STAMPS; i++) {
+			File[] files= folders[i].listFiles();
+			if (files != null) {
+				for (File file : files)
+					file.delete();
+			}
+			folders[i].delete();
+		}
+	}
+
+	/**
+	 * Reads an entry from the disk cache. The file also holds the key and stamp of the entry, so
+	 * that entries whose file names collide are not confused.
+	 *
+	 * @param file the file of the entry
+	 * @param entry the entry to fill in
+	 * @return <code>true</code> if the file holds the entry
+	 */
+	private static boolean read(File file, Entry entry) {
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (!entry.fStamp.equals(in.readUTF()) || !entry.fKey.equals(in.readUTF()))
+				return false;
+			int length= in.readInt();
+			String content= null;
+			if (length >= 0) {
+				byte[] bytes= new byte[length];
+				in.readFully(bytes);
+				content= new String(bytes, StandardCharsets.UTF_8);
+			}
+			entry.fCached= true;
+			entry.fContent= content;
+			return true;
+		} catch (IOException e) {
+			// a corrupt or concurrently written entry is a miss
+			return false;
+		}
+	}
+
+	private static void write(File file, String key, String stamp, String content) {
+		File temp= new File(file.getParentFile(), file.getName() + '.' + Thread.currentThread().getId());
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeUTF(stamp);
+			out.writeUTF(key);
+			if (content == null) {
+				out.writeInt(-1);
+			} else {
+				byte[] bytes= content.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		} catch (IOException e) {
+			temp.delete();
+			return;
+		}
+		file.delete();
+		if (!temp.renameTo(file))
+			temp.delete();
+	}
+
+	private void trace(String result, Entry entry) {
+		if (JavaPlugin.DEBUG_JAVADOC_CACHE) {
+			int total= fMemoryHits + fDiskHits + fMisses;
+			System.out.println("JavadocCache > " + result + ": " + entry.fKey //$NON-NLS-1$ //$NON-NLS-2$
+					+ ", memory hits: " + fMemoryHits + ", disk hits: " + fDiskHits + ", misses: " + fMisses //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ ", hit rate: " + (100 * (fMemoryHits + fDiskHits) / total) + "%"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -18,6 +19,7 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
@@ -26,7 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -119,12 +121,33 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	protected static final float LOAD_FACTOR= 0.85f;
 
+	/**
+	 * The folder in the state location for the cached dictionaries
+	 * @since 3.14
+	 */
+	private static final String CACHE_FOLDER= "spelling"; //$NON-NLS-1$
+
+	/**
+	 * The file extension of the cached dictionaries
+	 * @since 3.14
+	 */
+	private static final String CACHE_EXTENSION= ".dictionary"; //$NON-NLS-1$
+
 	/** The phonetic distance algorithm */
 	private IPhoneticDistanceAlgorithm fDistanceAlgorithm= new DefaultPhoneticDistanceAlgorithm();
 
-	/** The mapping from phonetic hashes to word lists */
+	/**
+	 * The mapping from phonetic hashes to word lists for the words that have been hashed since the
+	 * dictionary has been compacted
+	 */
 	private final Map<ByteArrayWrapper, Object> fHashBuckets= new HashMap<>(getInitialSize(), LOAD_FACTOR);
 
+	/**
+	 * The compacted words, or <code>null</code> if the dictionary has not been compacted yet
+	 * @since 3.14
+	 */
+	private volatile CompactPhoneticTable fTable;
+
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
 
@@ -157,17 +180,31 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 *
 	 * @param hash
 	 *                   The hash to retrieve the candidates of
-	 * @return Array of candidates for the phonetic hash
+	 * @return List of the UTF-8 bytes of the candidates for the phonetic hash, or
+	 *         <code>null</code> if there are none
 	 */
-	protected final Object getCandidates(final String hash) {
-		ByteArrayWrapper hashBytes;
+	protected final List<byte[]> getCandidates(final String hash) {
+		byte[] hashBytes;
 		try {
-			hashBytes= new ByteArrayWrapper(hash.getBytes(UTF_8));
+			hashBytes= hash.getBytes(UTF_8);
 		} catch (UnsupportedEncodingException e) {
 			JavaPlugin.log(e);
 			return null;
 		}
-		return fHashBuckets.get(hashBytes);
+		final List<byte[]> candidates= new ArrayList<>(BUCKET_CAPACITY);
+		final CompactPhoneticTable table= fTable;
+		if (table != null)
+			table.getWords(hashBytes, candidates);
+
+		final Object bucket= fHashBuckets.get(new ByteArrayWrapper(hashBytes));
+		if (bucket instanceof byte[]) {
+			candidates.add((byte[]) bucket);
+		} else if (bucket != null) {
+			@SuppressWarnings("unchecked")
+			final ArrayList<byte[]> bucketList= (ArrayList<byte[]>) bucket;
+			candidates.addAll(bucketList);
+		}
+		return candidates.isEmpty() ? null : candidates;
 	}
 
 	/**
@@ -195,30 +232,10 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 			hash= hashs.get(index);
 
-			final Object candidates= getCandidates(hash);
-			if (candidates == null)
-				continue;
-			else if (candidates instanceof byte[]) {
-				String candidate;
-				try {
-					candidate= new String((byte[])candidates, UTF_8);
-				} catch (UnsupportedEncodingException e) {
-					JavaPlugin.log(e);
-					return result;
-				}
-				distance= fDistanceAlgorithm.getDistance(word, candidate);
-				if (distance < DISTANCE_THRESHOLD) {
-					buffer.setLength(0);
-					buffer.append(candidate);
-					if (sentence)
-						buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
-					result.add(new RankedWordProposal(buffer.toString(), -distance));
-				}
+			final List<byte[]> candidateList= getCandidates(hash);
+			if (candidateList == null)
 				continue;
-			}
 
-			@SuppressWarnings("unchecked")
-			final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
 			int candidateSize= Math.min(500, candidateList.size()); // see https://bugs.eclipse.org/bugs/show_bug.cgi?id=195357
 			for (int offset= 0; offset < candidateSize; offset++) {
 
@@ -266,27 +283,10 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 		StringBuffer buffer= new StringBuffer(BUFFER_CAPACITY);
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
-		if (candidates == null)
+		final List<byte[]> candidateList= getCandidates(fHashProvider.getHash(word));
+		if (candidateList == null)
 			return;
-		else if (candidates instanceof byte[]) {
-			String candidate;
-			try {
-				candidate= new String((byte[])candidates, UTF_8);
-			} catch (UnsupportedEncodingException e) {
-				JavaPlugin.log(e);
-				return;
-			}
-			distance= fDistanceAlgorithm.getDistance(word, candidate);
-			buffer.append(candidate);
-			if (sentence)
-				buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
-			result.add(new RankedWordProposal(buffer.toString(), -distance));
-			return;
-		}
 
-		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
 		final ArrayList<RankedWordProposal> matches= new ArrayList<>(candidateList.size());
 
 		for (int index= 0; index < candidateList.size(); index++) {
@@ -325,7 +325,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		final CompactPhoneticTable table= fTable;
+		return fHashBuckets.size() == 0 && (table == null || table.isEmpty());
 	}
 
 	/**
@@ -518,32 +519,31 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			// Do nothing
 		}
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
-		if (candidates == null)
-			return false;
-		else if (candidates instanceof byte[]) {
-			String candidate;
-			try {
-				candidate= new String((byte[])candidates, UTF_8);
-			} catch (UnsupportedEncodingException e) {
-				JavaPlugin.log(e);
-				return false;
-			}
-			if (candidate.equals(word) || candidate.equals(word.toLowerCase()))
-				return true;
-			return false;
-		}
-		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		byte[] hashBytes;
 		byte[] wordBytes;
 		byte[] lowercaseWordBytes;
 		try {
+			hashBytes= fHashProvider.getHash(word).getBytes(UTF_8);
 			wordBytes= word.getBytes(UTF_8);
 			lowercaseWordBytes= word.toLowerCase().getBytes(UTF_8);
 		} catch (UnsupportedEncodingException e) {
 			JavaPlugin.log(e);
 			return false;
 		}
+
+		final CompactPhoneticTable table= fTable;
+		if (table != null && (table.contains(hashBytes, wordBytes) || table.contains(hashBytes, lowercaseWordBytes)))
+			return true;
+
+		final Object candidates= fHashBuckets.get(new ByteArrayWrapper(hashBytes));
+		if (candidates == null)
+			return false;
+		else if (candidates instanceof byte[]) {
+			byte[] candidate= (byte[]) candidates;
+			return Arrays.equals(candidate, wordBytes) || Arrays.equals(candidate, lowercaseWordBytes);
+		}
+		@SuppressWarnings("unchecked")
+		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
 		for (int index= 0; index < candidateList.size(); index++) {
 			byte[] candidate= candidateList.get(index);
 			if (Arrays.equals(candidate, wordBytes) || Arrays.equals(candidate, lowercaseWordBytes)) {
@@ -587,7 +587,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 	@Override
 	public synchronized final boolean isLoaded() {
-		return fLoaded || fHashBuckets.size() > 0;
+		return fLoaded || !isEmpty();
 	}
 
 	/**
@@ -606,8 +606,14 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			InputStream stream= null;
 			int line= 0;
 			try {
-				stream= url.openStream();
+				URLConnection connection= url.openConnection();
+				stream= connection.getInputStream();
 				if (stream != null) {
+					String cacheName= getCacheName(url);
+					String cacheKey= getCacheKey(cacheName, connection);
+					if (cacheKey != null && readCache(cacheName, cacheKey))
+						return true;
+
 					String word= null;
 
 					// Setup a reader with a decoder in order to read over malformed input if needed.
@@ -638,6 +644,10 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 						if (doRead)
 							hashWord(word);
 					}
+					if (cacheKey != null) {
+						compact();
+						writeCache(cacheName, cacheKey);
+					}
 					return true;
 				}
 			} catch (FileNotFoundException ex) {
@@ -670,18 +680,135 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return false;
 	}
 
+	/**
+	 * Returns the name that identifies the word list and the phonetic hashes of the words in the
+	 * cache. The name does not change with the content of the word list, so that the cache file of
+	 * a word list is replaced when the word list changes.
+	 *
+	 * @param url the URL of the word list
+	 * @return the name
+	 * @since 3.14
+	 */
+	private String getCacheName(URL url) {
+		return url.toExternalForm() + '|' + getEncoding() + '|' + fHashProvider.getClass().getName();
+	}
+
+	/**
+	 * Returns the key that identifies the content of the word list. The key is stored in the cache
+	 * file and compared when the file is read.
+	 *
+	 * @param cacheName the name of the word list, see {@link #getCacheName(URL)}
+	 * @param connection the connection to the URL
+	 * @return the key, or <code>null</code> if the word list must not be cached
+	 * @since 3.14
+	 */
+	private static String getCacheKey(String cacheName, URLConnection connection) {
+		long lastModified= connection.getLastModified();
+		long length= connection.getContentLengthLong();
+		if (lastModified <= 0 || length < 0)
+			return null;
+		return cacheName + '|' + lastModified + '|' + length;
+	}
+
+	/**
+	 * Returns the file of the cached dictionary for the given word list.
+	 *
+	 * @param cacheName the name of the word list, see {@link #getCacheName(URL)}
+	 * @return the file, or <code>null</code> if the state location is not available
+	 * @since 3.14
+	 */
+	private static File getCacheFile(String cacheName) {
+		JavaPlugin plugin= JavaPlugin.getDefault();
+		if (plugin == null)
+			return null;
+		try {
+			File folder= plugin.getStateLocation().append(CACHE_FOLDER).toFile();
+			if (!folder.isDirectory() && !folder.mkdirs())
+				return null;
+			return new File(folder, Integer.toHexString(cacheName.hashCode()) + CACHE_EXTENSION);
+		} catch (IllegalStateException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the cached dictionary for the given word list, if it has been written for the current
+	 * content of the word list.
+	 *
+	 * @param cacheName the name of the word list
+	 * @param cacheKey the key of the content of the word list
+	 * @return <code>true</code> if the words have been read from the cache
+	 * @since 3.14
+	 */
+	private boolean readCache(String cacheName, String cacheKey) {
+		File file= getCacheFile(cacheName);
+		if (file == null || !file.isFile())
+			return false;
+		try {
+			CompactPhoneticTable table= CompactPhoneticTable.read(file, cacheKey);
+			if (table == null)
+				return false;
+			fHashBuckets.clear();
+			fTable= table;
+			return true;
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the compacted dictionary to the cache, replacing the cache of an older content of the
+	 * word list.
+	 *
+	 * @param cacheName the name of the word list
+	 * @param cacheKey the key of the content of the word list
+	 * @since 3.14
+	 */
+	private void writeCache(String cacheName, String cacheKey) {
+		CompactPhoneticTable table= fTable;
+		File file= getCacheFile(cacheName);
+		if (table == null || file == null)
+			return;
+		try {
+			table.write(file, cacheKey);
+		} catch (IOException e) {
+			file.delete();
+			JavaPlugin.log(e);
+		}
+	}
+
 	/**
 	 * Compacts the dictionary.
+	 * <p>
+	 * Moves the hashed words into a {@link CompactPhoneticTable}, which needs a fraction of the
+	 * memory of the hash buckets.
+	 * </p>
 	 *
 	 * @since 3.3.
 	 */
-	private void compact() {
-		Iterator<Object> iter= fHashBuckets.values().iterator();
-		while (iter.hasNext()) {
-			Object element= iter.next();
-			if (element instanceof ArrayList)
-				((ArrayList<?>)element).trimToSize();
+	private synchronized void compact() {
+		if (fHashBuckets.isEmpty())
+			return;
+
+		CompactPhoneticTable.Builder builder= new CompactPhoneticTable.Builder();
+		CompactPhoneticTable table= fTable;
+		if (table != null)
+			table.addTo(builder);
+		for (Map.Entry<ByteArrayWrapper, Object> entry : fHashBuckets.entrySet()) {
+			byte[] hash= entry.getKey().byteArray;
+			Object bucket= entry.getValue();
+			if (bucket instanceof byte[]) {
+				builder.add(hash, (byte[]) bucket);
+			} else {
+				@SuppressWarnings("unchecked")
+				ArrayList<byte[]> bucketList= (ArrayList<byte[]>) bucket;
+				for (byte[] word : bucketList)
+					builder.add(hash, word);
+			}
 		}
+		fTable= builder.build();
+		fHashBuckets.clear();
 	}
 
 	/**
@@ -709,6 +836,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		fLoaded= false;
 		fMustLoad= true;
 		fHashBuckets.clear();
+		fTable= null;
 	}
 
 	@Override
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Immutable table from phonetic hashes to the words of a dictionary.
+ * <p>
+ * The hashes and the words are stored as UTF-8 bytes in two byte arrays, with int arrays for the
+ * offsets of the hashes and the words and for the first word of each hash. An open addressing
+ * table maps the hashes to their index. Compared to a hash map with an entry per hash and a byte
+ * array per word, this needs a constant number of objects and about a quarter of the memory. The
+ * table can be written to and read from a file without computing the phonetic hashes again.
+ * </p>
+ *
+ * @since 3.14
+ */
+final class CompactPhoneticTable {
+
+	/**
+	 * Collects the words of a table.
+	 */
+	static final class Builder {
+
+		private final Map<ByteBuffer, List<byte[]>> fBuckets= new LinkedHashMap<>();
+
+		private int fWordCount;
+
+		private int fWordLength;
+
+		private int fHashLength;
+
+		/**
+		 * Adds a word.
+		 *
+		 * @param hash the UTF-8 bytes of the phonetic hash of the word
+		 * @param word the UTF-8 bytes of the word
+		 */
+		void add(byte[] hash, byte[] word) {
+			ByteBuffer key= ByteBuffer.wrap(hash);
+			List<byte[]> bucket= fBuckets.get(key);
+			if (bucket == null) {
+				bucket= new ArrayList<>(AbstractSpellDictionary.BUCKET_CAPACITY);
+				fBuckets.put(key, bucket);
+				fHashLength+= hash.length;
+			}
+			bucket.add(word);
+			fWordCount++;
+			fWordLength+= word.length;
+		}
+
+		CompactPhoneticTable build() {
+			int hashCount= fBuckets.size();
+			int[] hashStarts= new int[hashCount + 1];
+			byte[] hashBytes= new byte[fHashLength];
+			int[] firstWords= new int[hashCount + 1];
+			int[] wordStarts= new int[fWordCount + 1];
+			byte[] wordBytes= new byte[fWordLength];
+
+			int hashIndex= 0;
+			int hashOffset= 0;
+			int wordIndex= 0;
+			int wordOffset= 0;
+			for (Entry<ByteBuffer, List<byte[]>> entry : fBuckets.entrySet()) {
+				byte[] hash= entry.getKey().array();
+				hashStarts[hashIndex]= hashOffset;
+				System.arraycopy(hash, 0, hashBytes, hashOffset, hash.length);
+				hashOffset+= hash.length;
+				firstWords[hashIndex]= wordIndex;
+				for (byte[] word : entry.getValue()) {
+					wordStarts[wordIndex++]= wordOffset;
+					System.arraycopy(word, 0, wordBytes, wordOffset, word.length);
+					wordOffset+= word.length;
+				}
+				hashIndex++;
+			}
+			hashStarts[hashCount]= hashOffset;
+			firstWords[hashCount]= wordIndex;
+			wordStarts[fWordCount]= wordOffset;
+			return new CompactPhoneticTable(hashStarts, hashBytes, firstWords, wordStarts, wordBytes);
+		}
+	}
+
+	private static final int MAGIC= 0x53504454;
+
+	private static final int VERSION= 1;
+
+	/** The offsets of the hashes in {@link #fHashBytes}, with the length as last element */
+	private final int[] fHashStarts;
+
+	private final byte[] fHashBytes;
+
+	/** The index of the first word of each hash, with the number of words as last element */
+	private final int[] fFirstWords;
+
+	/** The offsets of the words in {@link #fWordBytes}, with the length as last element */
+	private final int[] fWordStarts;
+
+	private final byte[] fWordBytes;
+
+	/** Open addressing table with the hash index + 1 in each used slot */
+	private final int[] fSlots;
+
+	private CompactPhoneticTable(int[] hashStarts, byte[] hashBytes, int[] firstWords, int[] wordStarts, byte[] wordBytes) {
+		fHashStarts= hashStarts;
+		fHashBytes= hashBytes;
+		fFirstWords= firstWords;
+		fWordStarts= wordStarts;
+		fWordBytes= wordBytes;
+
+		int hashCount= getHashCount();
+		int capacity= Integer.highestOneBit(Math.max(hashCount, 1) * 2 - 1) << 1;
+		fSlots= new int[capacity];
+		int mask= capacity - 1;
+		for (int index= 0; index < hashCount; index++) {
+			int slot= hashCode(fHashBytes, fHashStarts[index], fHashStarts[index + 1]) & mask;
+			while (fSlots[slot] != 0)
+				slot= (slot + 1) & mask;
+			fSlots[slot]= index + 1;
+		}
+	}
+
+	private static int hashCode(byte[] bytes, int start, int end) {
+		int result= 1;
+		for (int index= start; index < end; index++)
+			result= 31 * result + bytes[index];
+		return result ^ (result >>> 16);
+	}
+
+	private int getHashCount() {
+		return fHashStarts.length - 1;
+	}
+
+	/**
+	 * @return <code>true</code> if the table contains no words
+	 */
+	boolean isEmpty() {
+		return getHashCount() == 0;
+	}
+
+	/**
+	 * Returns the index of the given phonetic hash.
+	 *
+	 * @param hash the UTF-8 bytes of the hash
+	 * @return the index of the hash, or <code>-1</code> if the table contains no word with the hash
+	 */
+	private int find(byte[] hash) {
+		int mask= fSlots.length - 1;
+		int slot= hashCode(hash, 0, hash.length) & mask;
+		while (true) {
+			int index= fSlots[slot] - 1;
+			if (index < 0)
+				return -1;
+			if (equals(fHashBytes, fHashStarts[index], fHashStarts[index + 1], hash))
+				return index;
+			slot= (slot + 1) & mask;
+		}
+	}
+
+	private static boolean equals(byte[] bytes, int start, int end, byte[] other) {
+		if (end - start != other.length)
+			return false;
+		for (int index= 0; index < other.length; index++) {
+			if (bytes[start + index] != other[index])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tells whether the table contains the given word.
+	 *
+	 * @param hash the UTF-8 bytes of the phonetic hash of the word
+	 * @param word the UTF-8 bytes of the word
+	 * @return <code>true</code> if the table contains the word
+	 */
+	boolean contains(byte[] hash, byte[] word) {
+		int index= find(hash);
+		if (index < 0)
+			return false;
+		for (int wordIndex= fFirstWords[index]; wordIndex < fFirstWords[index + 1]; wordIndex++) {
+			if (equals(fWordBytes, fWordStarts[wordIndex], fWordStarts[wordIndex + 1], word))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the words with the given phonetic hash to the given list.
+	 *
+	 * @param hash the UTF-8 bytes of the phonetic hash
+	 * @param words the list of UTF-8 bytes of the words
+	 */
+	void getWords(byte[] hash, List<byte[]> words) {
+		int index= find(hash);
+		if (index < 0)
+			return;
+		for (int wordIndex= fFirstWords[index]; wordIndex < fFirstWords[index + 1]; wordIndex++)
+			words.add(Arrays.copyOfRange(fWordBytes, fWordStarts[wordIndex], fWordStarts[wordIndex + 1]));
+	}
+
+	/**
+	 * Adds all words of this table to the given builder.
+	 *
+	 * @param builder the builder
+	 */
+	void addTo(Builder builder) {
+		for (int index= 0; index < getHashCount(); index++) {
+			byte[] hash= Arrays.copyOfRange(fHashBytes, fHashStarts[index], fHashStarts[index + 1]);
+			for (int wordIndex= fFirstWords[index]; wordIndex < fFirstWords[index + 1]; wordIndex++)
+				builder.add(hash, Arrays.copyOfRange(fWordBytes, fWordStarts[wordIndex], fWordStarts[wordIndex + 1]));
+		}
+	}
+
+	/**
+	 * Writes the table to a file.
+	 *
+	 * @param file the file
+	 * @param key the key that identifies the word list, its content and the phonetic hash provider
+	 * @throws IOException if the file could not be written
+	 */
+	void write(File file, String key) throws IOException {
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			byte[] keyBytes= key.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(keyBytes.length);
+			out.write(keyBytes);
+			writeInts(out, fHashStarts);
+			writeBytes(out, fHashBytes);
+			writeInts(out, fFirstWords);
+			writeInts(out, fWordStarts);
+			writeBytes(out, fWordBytes);
+		}
+	}
+
+	/**
+	 * Reads a table from a file.
+	 *
+	 * @param file the file
+	 * @param key the key that identifies the word list, its content and the phonetic hash provider
+	 * @return the table, or <code>null</code> if the file does not contain a table for the key
+	 * @throws IOException if the file could not be read
+	 */
+	static CompactPhoneticTable read(File file, String key) throws IOException {
+		ByteBuffer in= ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		try {
+			if (in.getInt() != MAGIC || in.getInt() != VERSION)
+				return null;
+			byte[] keyBytes= readBytes(in);
+			if (!key.equals(new String(keyBytes, StandardCharsets.UTF_8)))
+				return null;
+			int[] hashStarts= readInts(in);
+			byte[] hashBytes= readBytes(in);
+			int[] firstWords= readInts(in);
+			int[] wordStarts= readInts(in);
+			byte[] wordBytes= readBytes(in);
+			if (hashStarts.length != firstWords.length || hashStarts[hashStarts.length - 1] != hashBytes.length || wordStarts[wordStarts.length - 1] != wordBytes.length)
+				return null;
+			return new CompactPhoneticTable(hashStarts, hashBytes, firstWords, wordStarts, wordBytes);
+		} catch (RuntimeException e) {
+			// truncated or corrupt file
+			return null;
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+		out.writeInt(ints.length);
+		for (int value : ints)
+			out.writeInt(value);
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static int[] readInts(ByteBuffer in) {
+		int[] ints= new int[in.getInt()];
+		in.asIntBuffer().get(ints);
+		in.position(in.position() + ints.length * 4);
+		return ints;
+	}
+
+	private static byte[] readBytes(ByteBuffer in) {
+		byte[] bytes= new byte[in.getInt()];
+		in.get(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.viewsupport;
+
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+
+/**
+ * The text problem markers of a file, sorted by their start offset. Answers the maximum severity
+ * of the markers starting in a source range in <code>O(log M)</code> for <code>M</code>
+ * markers.
+ * <p>
+ * Instances are immutable and obtained from
+ * {@link ProblemMarkerManager#getMarkerIndex(IResource)}.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class ProblemMarkerIndex {
+
+	private static final int[] SEVERITIES= { IMarker.SEVERITY_ERROR, IMarker.SEVERITY_WARNING, IMarker.SEVERITY_INFO };
+
+	/** The index of a resource without text problem markers. */
+	static final ProblemMarkerIndex EMPTY= new ProblemMarkerIndex(new int[0], new int[0]);
+
+	/** The sorted start offsets of the markers. */
+	private final int[] fOffsets;
+
+	/**
+	 * For each severity in {@link #SEVERITIES}, the number of markers with that severity among the
+	 * first <code>i</code> markers at index <code>i</code>.
+	 */
+	private final int[][] fCounts;
+
+	private ProblemMarkerIndex(int[] offsets, int[] severities) {
+		fOffsets= offsets;
+		fCounts= new int[SEVERITIES.length][offsets.length + 1];
+		for (int s= 0; s < SEVERITIES.length; s++) {
+			int[] counts= fCounts[s];
+			for (int i= 0; i < offsets.length; i++)
+				counts[i + 1]= counts[i] + (severities[i] == SEVERITIES[s] ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Creates the index of the text problem markers of a file. Markers without a start offset or
+	 * without a known severity are ignored.
+	 *
+	 * @param file the file
+	 * @return the index
+	 * @throws CoreException if the markers cannot be accessed
+	 */
+	static ProblemMarkerIndex create(IResource file) throws CoreException {
+		IMarker[] markers= file.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+		long[] entries= new long[markers.length];
+		int size= 0;
+		for (int i= 0; i < markers.length; i++) {
+			IMarker marker= markers[i];
+			if (!marker.isSubtypeOf(IMarker.TEXT))
+				continue;
+			int offset= marker.getAttribute(IMarker.CHAR_START, -1);
+			int severity= marker.getAttribute(IMarker.SEVERITY, -1);
+			if (offset < 0 || (severity != IMarker.SEVERITY_INFO && severity != IMarker.SEVERITY_WARNING && severity != IMarker.SEVERITY_ERROR))
+				continue;
+			entries[size++]= (long) offset << 32 | severity;
+		}
+		if (size == 0)
+			return EMPTY;
+
+		Arrays.sort(entries, 0, size);
+		int[] offsets= new int[size];
+		int[] severities= new int[size];
+		for (int i= 0; i < size; i++) {
+			offsets[i]= (int) (entries[i] >>> 32);
+			severities[i]= (int) entries[i];
+		}
+		return new ProblemMarkerIndex(offsets, severities);
+	}
+
+	/**
+	 * Returns the maximum severity of the markers which start in the given range.
+	 *
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 * @return the maximum severity, or <code>-1</code> if no marker starts in the range
+	 */
+	public int getMaxSeverity(int offset, int length) {
+		int from= lowerBound(offset);
+		int to= lowerBound(offset + length);
+		if (from < to) {
+			for (int s= 0; s < SEVERITIES.length; s++) {
+				if (fCounts[s][to] > fCounts[s][from])
+					return SEVERITIES[s];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of markers in this index.
+	 *
+	 * @return the number of markers
+	 */
+	public int size() {
+		return fOffsets.length;
+	}
+
+	/**
+	 * Returns the index of the first marker which starts at or after the given offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first marker at or after the offset, or the size of this index
+	 */
+	private int lowerBound(int offset) {
+		int low= 0;
+		int high= fOffsets.length;
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			if (fOffsets[mid] < offset)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,8 @@ package org.eclipse.jdt.internal.ui.viewsupport;
 
 
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
@@ -47,6 +49,10 @@ import org.eclipse.jdt.internal.ui.javaeditor.CompilationUnitAnnotationModelEven
  * Listens to resource deltas and filters for marker changes of type IMarker.PROBLEM
  * Viewers showing error ticks should register as listener to
  * this type.
+ * <p>
+ * While listeners are registered, the manager also caches the {@link ProblemMarkerIndex} of
+ * recently decorated files and discards it when a delta changes the markers of the file.
+ * </p>
  */
 public class ProblemMarkerManager implements IResourceChangeListener, IAnnotationModelListener , IAnnotationModelListenerExtension {
 
@@ -56,15 +62,22 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 	private static class ProjectErrorVisitor implements IResourceDeltaVisitor {
 
 		private HashSet<IResource> fChangedElements;
+		private HashSet<IResource> fMarkerResources;
+		private boolean fProjectOpenChanged;
 
-		public ProjectErrorVisitor(HashSet<IResource> changedElements) {
+		public ProjectErrorVisitor(HashSet<IResource> changedElements, HashSet<IResource> markerResources) {
 			fChangedElements= changedElements;
+			fMarkerResources= markerResources;
 		}
 
 		@Override
 		public boolean visit(IResourceDelta delta) throws CoreException {
 			IResource res= delta.getResource();
 			if (res instanceof IProject && delta.getKind() == IResourceDelta.CHANGED) {
+				if ((delta.getFlags() & IResourceDelta.OPEN) != 0) {
+					// the deltas of the files in a closed or reopened project are not reported
+					fProjectOpenChanged= true;
+				}
 				IProject project= (IProject) res;
 				if (!project.isAccessible()) {
 					// only track open Java projects
@@ -72,6 +85,10 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 				}
 			}
 			checkInvalidate(delta, res);
+			if (delta.getKind() != IResourceDelta.CHANGED || (delta.getFlags() & IResourceDelta.MARKERS) != 0) {
+				// any marker change may move a marker, not only the ones which change the error ticks
+				fMarkerResources.add(res);
+			}
 			return true;
 		}
 
@@ -111,6 +128,32 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 
 	private UIJob fNotifierJob;
 
+	/**
+	 * The maximum number of cached marker indexes.
+	 * @since 3.14
+	 */
+	private static final int MAX_MARKER_INDEXES= 64;
+
+	/**
+	 * The marker indexes of recently decorated files, in access order. Guarded by itself.
+	 * @since 3.14
+	 */
+	private final Map<IResource, ProblemMarkerIndex> fMarkerIndexes= new LinkedHashMap<IResource, ProblemMarkerIndex>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IResource, ProblemMarkerIndex> eldest) {
+			return size() > MAX_MARKER_INDEXES;
+		}
+	};
+
+	/**
+	 * Incremented whenever marker indexes are discarded, so that an index which was created
+	 * concurrently with a marker change is not cached. Guarded by {@link #fMarkerIndexes}.
+	 * @since 3.14
+	 */
+	private int fMarkerIndexStamp;
+
 	public ProblemMarkerManager() {
 		fListeners= new ListenerList<>();
 		fResourcesWithMarkerChanges= new HashSet<>();
@@ -123,15 +166,27 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 	@Override
 	public void resourceChanged(IResourceChangeEvent event) {
 		HashSet<IResource> changedElements= new HashSet<>();
+		HashSet<IResource> markerResources= new HashSet<>();
 
+		ProjectErrorVisitor visitor= new ProjectErrorVisitor(changedElements, markerResources);
 		try {
 			IResourceDelta delta= event.getDelta();
 			if (delta != null)
-				delta.accept(new ProjectErrorVisitor(changedElements));
+				delta.accept(visitor);
 		} catch (CoreException e) {
 			JavaPlugin.log(e.getStatus());
 		}
 
+		if (!markerResources.isEmpty() || visitor.fProjectOpenChanged) {
+			synchronized (fMarkerIndexes) {
+				fMarkerIndexStamp++;
+				if (visitor.fProjectOpenChanged)
+					fMarkerIndexes.clear();
+				else
+					fMarkerIndexes.keySet().removeAll(markerResources);
+			}
+		}
+
 		if (!changedElements.isEmpty()) {
 			boolean hasChanges= false;
 			synchronized (this) {
@@ -192,7 +247,40 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		if (fListeners.isEmpty()) {
 			JavaPlugin.getWorkspace().removeResourceChangeListener(this);
 			JavaPlugin.getDefault().getCompilationUnitDocumentProvider().removeGlobalAnnotationModelListener(this);
+			synchronized (fMarkerIndexes) {
+				// deltas are no longer tracked
+				fMarkerIndexStamp++;
+				fMarkerIndexes.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the text problem markers of a file. The index is cached until the
+	 * markers of the file change.
+	 *
+	 * @param file the file
+	 * @return the marker index, or <code>null</code> if no listeners are registered and marker
+	 *         changes are therefore not tracked
+	 * @throws CoreException if the markers of the file cannot be accessed
+	 * @since 3.14
+	 */
+	public ProblemMarkerIndex getMarkerIndex(IResource file) throws CoreException {
+		int stamp;
+		synchronized (fMarkerIndexes) {
+			if (fListeners.isEmpty())
+				return null;
+			ProblemMarkerIndex index= fMarkerIndexes.get(file);
+			if (index != null)
+				return index;
+			stamp= fMarkerIndexStamp;
+		}
+		ProblemMarkerIndex index= ProblemMarkerIndex.create(file);
+		synchronized (fMarkerIndexes) {
+			if (stamp == fMarkerIndexStamp && !fListeners.isEmpty())
+				fMarkerIndexes.put(file, index);
 		}
+		return index;
 	}
 
 	private void fireChanges() {
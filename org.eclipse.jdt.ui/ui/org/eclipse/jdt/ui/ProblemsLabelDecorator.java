@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -61,6 +61,7 @@ import org.eclipse.jdt.internal.ui.JavaPluginImages;
 import org.eclipse.jdt.internal.ui.viewsupport.IProblemChangedListener;
 import org.eclipse.jdt.internal.ui.viewsupport.ImageDescriptorRegistry;
 import org.eclipse.jdt.internal.ui.viewsupport.ImageImageDescriptor;
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemMarkerIndex;
 
 /**
  * LabelDecorator that decorates an element's image with error and warning overlays that
@@ -126,6 +127,13 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 	private ListenerList<ILabelProviderListener> fListeners;
 	private ISourceRange fCachedRange;
 
+	/**
+	 * Tells whether the markers of members can be looked up in the marker index of the problem
+	 * marker manager, which is only possible if {@link #isInside(int, ISourceReference)} is not
+	 * overridden.
+	 */
+	private final boolean fUseMarkerIndex= !overridesIsInside(getClass());
+
 	/**
 	 * Creates a new <code>ProblemsLabelDecorator</code>.
 	 */
@@ -146,6 +154,18 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 		fProblemChangedListener= null;
 	}
 
+	private static boolean overridesIsInside(Class<?> clazz) {
+		for (Class<?> curr= clazz; curr != ProblemsLabelDecorator.class; curr= curr.getSuperclass()) {
+			try {
+				curr.getDeclaredMethod("isInside", int.class, ISourceReference.class); //$NON-NLS-1$
+				return true;
+			} catch (NoSuchMethodException e) {
+				// look at the superclass
+			}
+		}
+		return false;
+	}
+
 	private ImageDescriptorRegistry getRegistry() {
 		if (fRegistry == null) {
 			fRegistry= fUseNewRegistry ? new ImageDescriptorRegistry() : JavaPlugin.getImageDescriptorRegistry();
@@ -295,6 +315,14 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 			}
 			severity= res.findMaxProblemSeverity(IMarker.PROBLEM, true, depth);
 		} else {
+			ProblemMarkerIndex index= fUseMarkerIndex ? JavaPlugin.getDefault().getProblemMarkerManager().getMarkerIndex(res) : null;
+			if (index != null) {
+				// same as the loop below, but without reading all markers of the resource for every member
+				ISourceRange range= sourceElement.getSourceRange();
+				if (range != null)
+					severity= index.getMaxSeverity(range.getOffset(), range.getLength());
+				return toErrorTicks(severity);
+			}
 			IMarker[] markers= res.findMarkers(IMarker.PROBLEM, true, depth);
 			if (markers != null && markers.length > 0) {
 				for (int i= 0; i < markers.length && (severity != IMarker.SEVERITY_ERROR); i++) {
@@ -308,6 +336,10 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 				}
 			}
 		}
+		return toErrorTicks(severity);
+	}
+
+	private static int toErrorTicks(int severity) {
 		if (severity == IMarker.SEVERITY_ERROR) {
 			return ERRORTICK_ERROR;
 		} else if (severity == IMarker.SEVERITY_WARNING) {
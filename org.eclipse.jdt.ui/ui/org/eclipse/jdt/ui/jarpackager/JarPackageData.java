@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -131,6 +131,9 @@ public class JarPackageData {
 	// Add directory entries to the jar
 	private boolean fIncludeDirectoryEntries;
 
+	// Write the entries with fixed time stamps and in sorted order
+	private boolean fReproducible;
+
 	// Projects for which to store refactoring information
 	private IProject[] fRefactoringProjects= {};
 
@@ -1054,6 +1057,30 @@ public class JarPackageData {
 		fIncludeDirectoryEntries = includeDirectoryEntries;
 	}
 
+	/**
+	 * Tells whether the jar is reproducible, i.e. whether all entries are written with the same
+	 * time stamp and sorted by name, so that exporting the same content results in the same jar.
+	 *
+	 * @return <code>true</code> if the jar is reproducible
+	 *
+	 * @since 3.14
+	 */
+	public boolean isReproducible() {
+		return fReproducible;
+	}
+
+	/**
+	 * Sets the option to write a reproducible jar.
+	 *
+	 * @param reproducible <code>true</code> to write all entries with the same time stamp and
+	 *            sorted by name, <code>false</code> otherwise
+	 *
+	 * @since 3.14
+	 */
+	public void setReproducible(boolean reproducible) {
+		fReproducible= reproducible;
+	}
+
 	/**
 	 * Returns the projects for which refactoring information should be stored.
 	 * <p>
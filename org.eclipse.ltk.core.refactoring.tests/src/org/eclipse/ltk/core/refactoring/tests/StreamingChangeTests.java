@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.TextFileChange;
+import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+import org.eclipse.ltk.internal.core.refactoring.UndoEditStore;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests performing a {@link CompositeChange} in streaming mode and the {@link UndoEditStore}.
+ */
+public class StreamingChangeTests extends TestCase {
+
+	private static final int FILES= 250;
+
+	private static final String CONTENT= "class A { A a= new A(); }\n// A\n";
+
+	private static final String CHANGED= "/**/class Bee { Bee a= new Bee(); }\n// Bee";
+
+	private SimpleTestProject fProject;
+
+	@Override
+	protected void setUp() throws Exception {
+		fProject= new SimpleTestProject();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fProject.delete();
+	}
+
+	private static TextEdit createEdit() {
+		MultiTextEdit edit= new MultiTextEdit();
+		edit.addChild(new InsertEdit(0, "/**/"));
+		int offset= 0;
+		while ((offset= CONTENT.indexOf('A', offset)) != -1) {
+			edit.addChild(new ReplaceEdit(offset, 1, "Bee"));
+			offset++;
+		}
+		edit.addChild(new DeleteEdit(CONTENT.length() - 1, 1));
+		return edit;
+	}
+
+	private void assertContents(IFile[] files, String expected) throws Exception {
+		for (int i= 0; i < files.length; i++) {
+			assertEquals(files[i].getName(), expected, fProject.getContent(files[i]));
+		}
+	}
+
+	public void testStreamingPerform() throws Exception {
+		IFolder folder= fProject.createFolder("streaming");
+		IFile[] files= new IFile[FILES];
+		CompositeChange change= new CompositeChange("streaming");
+		change.setStreaming(true);
+		assertTrue(change.isStreaming());
+		for (int i= 0; i < FILES; i++) {
+			files[i]= fProject.createFile(folder, "file" + i + ".txt", CONTENT);
+			TextFileChange fileChange= new TextFileChange("file" + i, files[i]);
+			fileChange.setEdit(createEdit());
+			change.add(fileChange);
+		}
+
+		NullProgressMonitor pm= new NullProgressMonitor();
+		change.initializeValidationData(pm);
+		assertTrue(change.isValid(pm).isOK());
+		Change undo= change.perform(pm);
+		change.dispose();
+		assertNotNull(undo);
+		assertContents(files, CHANGED);
+
+		undo.initializeValidationData(pm);
+		assertTrue(undo.isValid(pm).isOK());
+		Change redo= undo.perform(pm);
+		undo.dispose();
+		assertNotNull(redo);
+		assertContents(files, CONTENT);
+
+		redo.initializeValidationData(pm);
+		assertTrue(redo.isValid(pm).isOK());
+		Change undo2= redo.perform(pm);
+		redo.dispose();
+		assertContents(files, CHANGED);
+		undo2.dispose();
+	}
+
+	public void testStoreUndoEdit() throws Exception {
+		IDocument document= new Document(CONTENT);
+		UndoEdit undo= createEdit().apply(document, TextEdit.CREATE_UNDO);
+		assertEquals(CHANGED, document.get());
+
+		UndoEditStore store= UndoEditStore.create();
+		try {
+			long position= store.append(undo);
+			assertTrue(position >= 0);
+			long next= store.append(undo);
+			assertTrue(next > position);
+			store.flush();
+
+			store.read(position).apply(document);
+			assertEquals(CONTENT, document.get());
+			createEdit().apply(document);
+			store.read(next).apply(document);
+			assertEquals(CONTENT, document.get());
+		} finally {
+			store.disconnect();
+		}
+	}
+
+	public void testStoreEmptyUndoEdit() throws Exception {
+		IDocument document= new Document(CONTENT);
+		UndoEdit undo= new MultiTextEdit().apply(document, TextEdit.CREATE_UNDO);
+
+		UndoEditStore store= UndoEditStore.create();
+		try {
+			long position= store.append(undo);
+			assertTrue(position >= 0);
+			store.read(position).apply(document);
+			assertEquals(CONTENT, document.get());
+		} finally {
+			store.disconnect();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.history;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.PerformanceTestCase;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryIndex;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Compares reading a synthetic history of 100'000 refactorings from the history tree with reading
+ * it from the index log.
+ */
+public class RefactoringHistoryIndexPerfTest extends PerformanceTestCase {
+
+	private static final int COUNT= 100000;
+
+	private static final int QUERIES= 1000;
+
+	private static final int RUNS= 5;
+
+	private static final long START= 1104537600000L; // 2005-01-01
+
+	private static final long STEP= 10 * 60 * 1000L;
+
+	private static File fgFolder;
+
+	private static IFileStore fgStore;
+
+	public static Test suite() {
+		return new TestSetup(new TestSuite(RefactoringHistoryIndexPerfTest.class)) {
+			@Override
+			protected void setUp() throws Exception {
+				fgFolder= Files.createTempDirectory("history").toFile();
+				fgStore= EFS.getLocalFileSystem().getStore(new Path(fgFolder.getAbsolutePath()));
+				RefactoringHistoryIndexTests.writeHistory(fgStore, COUNT, START, STEP);
+				new RefactoringHistoryIndex(fgStore).migrate(new NullProgressMonitor());
+			}
+
+			@Override
+			protected void tearDown() throws Exception {
+				RefactoringHistoryIndexTests.deleteHistory(fgFolder);
+			}
+		};
+	}
+
+	public RefactoringHistoryIndexPerfTest(String name) {
+		super(name);
+	}
+
+	public void testReadHistoryTree() throws Exception {
+		tagAsSummary("Refactoring history - read 100'000 refactorings from the history tree", Dimension.ELAPSED_PROCESS);
+		for (int i= 0; i < RUNS; i++) {
+			RefactoringHistoryIndex index= new RefactoringHistoryIndex(fgStore);
+			startMeasuring();
+			index.migrate(new NullProgressMonitor());
+			stopMeasuring();
+			assertEquals(COUNT, index.getSize(new NullProgressMonitor()));
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	public void testReadLog() throws Exception {
+		tagAsSummary("Refactoring history - read 100'000 refactorings from the index log", Dimension.ELAPSED_PROCESS);
+		for (int i= 0; i < RUNS; i++) {
+			RefactoringHistoryIndex index= new RefactoringHistoryIndex(fgStore);
+			startMeasuring();
+			int size= index.getSize(new NullProgressMonitor());
+			stopMeasuring();
+			assertEquals(COUNT, size);
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	public void testRangeQueries() throws Exception {
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fgStore);
+		List<RefactoringDescriptorProxy> proxies= new ArrayList<>();
+		index.readRefactoringDescriptorProxies(null, proxies, 0, Long.MAX_VALUE, new NullProgressMonitor());
+		assertEquals(COUNT, proxies.size());
+
+		for (int i= 0; i < RUNS; i++) {
+			int found= 0;
+			startMeasuring();
+			for (int query= 0; query < QUERIES; query++) {
+				proxies.clear();
+				long start= START + (long) query * (COUNT / QUERIES) * STEP;
+				index.readRefactoringDescriptorProxies(null, proxies, start, start + 9 * STEP, new NullProgressMonitor());
+				found+= proxies.size();
+			}
+			stopMeasuring();
+			assertEquals(QUERIES * 10, found);
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	public void testAppend() throws Exception {
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fgStore);
+		assertEquals(COUNT, index.getSize(new NullProgressMonitor()));
+
+		long start= START + COUNT * STEP;
+		for (int i= 0; i < RUNS; i++) {
+			startMeasuring();
+			for (int add= 0; add < QUERIES; add++)
+				index.addRefactoringDescriptorProxy(start + add, "Added element " + add, new NullProgressMonitor());
+			stopMeasuring();
+			assertEquals(COUNT + QUERIES, index.getSize(new NullProgressMonitor()));
+
+			// restore the history for the next run and the other tests
+			List<RefactoringDescriptorProxy> proxies= new ArrayList<>(QUERIES);
+			index.readRefactoringDescriptorProxies(null, proxies, start, Long.MAX_VALUE, new NullProgressMonitor());
+			index.removeRefactoringDescriptorProxies(proxies.toArray(new RefactoringDescriptorProxy[proxies.size()]), new NullProgressMonitor());
+			assertEquals(COUNT, index.getSize(new NullProgressMonitor()));
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryIndex;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryManager;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryService;
+
+import junit.framework.TestCase;
+
+public class RefactoringHistoryIndexTests extends TestCase {
+
+	private static final class Proxy extends RefactoringDescriptorProxy {
+
+		private final String fDescription;
+
+		private final long fStamp;
+
+		public Proxy(String description, long stamp) {
+			fDescription= description;
+			fStamp= stamp;
+		}
+
+		@Override
+		public String getDescription() {
+			return fDescription;
+		}
+
+		@Override
+		public String getProject() {
+			return null;
+		}
+
+		@Override
+		public long getTimeStamp() {
+			return fStamp;
+		}
+	}
+
+	private static final long START= 1104537600000L; // 2005-01-01
+
+	private static final long STEP= 3 * 60 * 60 * 1000L;
+
+	/**
+	 * Writes the index files of a history in the layout of the refactoring history manager.
+	 *
+	 * @param store the history store
+	 * @param count the number of refactorings
+	 * @param start the time stamp of the first refactoring
+	 * @param step the time between two refactorings
+	 * @throws Exception if the history cannot be written
+	 */
+	static void writeHistory(IFileStore store, int count, long start, long step) throws Exception {
+		Map<IPath, List<RefactoringDescriptorProxy>> folders= new HashMap<>();
+		for (int index= 0; index < count; index++) {
+			long stamp= start + index * step;
+			IPath path= RefactoringHistoryManager.stampToPath(stamp);
+			List<RefactoringDescriptorProxy> proxies= folders.get(path);
+			if (proxies == null) {
+				proxies= new ArrayList<>();
+				folders.put(path, proxies);
+			}
+			proxies.add(new Proxy("Rename element " + index, stamp));
+		}
+		for (Entry<IPath, List<RefactoringDescriptorProxy>> entry : folders.entrySet()) {
+			IFileStore folder= store.getFileStore(entry.getKey());
+			folder.mkdir(EFS.NONE, null);
+			List<RefactoringDescriptorProxy> proxies= entry.getValue();
+			try (OutputStream stream= folder.getChild(RefactoringHistoryService.NAME_INDEX_FILE).openOutputStream(EFS.NONE, null)) {
+				RefactoringHistoryManager.writeRefactoringDescriptorProxies(stream, proxies.toArray(new RefactoringDescriptorProxy[proxies.size()]));
+			}
+		}
+	}
+
+	static void deleteHistory(File folder) {
+		File[] files= folder.listFiles();
+		if (files != null) {
+			for (int index= 0; index < files.length; index++)
+				deleteHistory(files[index]);
+		}
+		folder.delete();
+	}
+
+	private File fFolder;
+
+	private IFileStore fStore;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFolder= Files.createTempDirectory("history").toFile();
+		fStore= EFS.getLocalFileSystem().getStore(new Path(fFolder.getAbsolutePath()));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		deleteHistory(fFolder);
+		super.tearDown();
+	}
+
+	private List<RefactoringDescriptorProxy> read(RefactoringHistoryIndex index, long start, long end) throws CoreException {
+		List<RefactoringDescriptorProxy> proxies= new ArrayList<>();
+		index.readRefactoringDescriptorProxies("project", proxies, start, end, new NullProgressMonitor());
+		return proxies;
+	}
+
+	private File getLogFile() {
+		return new File(fFolder, RefactoringHistoryService.NAME_LOG_FILE);
+	}
+
+	public void testMigrate() throws Exception {
+		writeHistory(fStore, 500, START, STEP);
+		assertFalse(getLogFile().exists());
+
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+		assertEquals(500, index.getSize(new NullProgressMonitor()));
+		assertTrue(getLogFile().exists());
+
+		List<RefactoringDescriptorProxy> proxies= read(index, 0, Long.MAX_VALUE);
+		assertEquals(500, proxies.size());
+		for (int i= 0; i < proxies.size(); i++) {
+			RefactoringDescriptorProxy proxy= proxies.get(i);
+			assertEquals(START + i * STEP, proxy.getTimeStamp());
+			assertEquals("Rename element " + i, proxy.getDescription());
+			assertEquals("project", proxy.getProject());
+		}
+
+		// a new index reads the log without the history tree, unless the history tree has changed since
+		deleteHistory(new File(fFolder, RefactoringHistoryManager.stampToPath(START).segment(0)));
+		assertEquals(500, read(new RefactoringHistoryIndex(fStore), 0, Long.MAX_VALUE).size());
+		index.incrementGeneration(new NullProgressMonitor());
+		assertEquals(0, read(new RefactoringHistoryIndex(fStore), 0, Long.MAX_VALUE).size());
+	}
+
+	public void testHistoryChangedWithoutLog() throws Exception {
+		writeHistory(fStore, 10, START, STEP);
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+		assertEquals(10, index.getSize(new NullProgressMonitor()));
+
+		// e.g. the workbench crashed after the history manager has written the history tree
+		index.incrementGeneration(new NullProgressMonitor());
+		writeHistory(fStore, 20, START, STEP);
+		List<RefactoringDescriptorProxy> proxies= read(new RefactoringHistoryIndex(fStore), 0, Long.MAX_VALUE);
+		assertEquals(20, proxies.size());
+		assertEquals("Rename element 19", proxies.get(19).getDescription());
+	}
+
+	public void testFailedAppend() throws Exception {
+		writeHistory(fStore, 10, START, STEP);
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+		assertEquals(10, index.getSize(new NullProgressMonitor()));
+
+		File log= getLogFile();
+		if (!log.setWritable(false) || log.canWrite())
+			return; // cannot make the log read-only
+		try {
+			// the history manager writes the history before the log
+			index.incrementGeneration(new NullProgressMonitor());
+			writeHistory(fStore, 11, START, STEP);
+			try {
+				index.addRefactoringDescriptorProxy(START + 10 * STEP, "Rename element 10", new NullProgressMonitor());
+				fail("Log must not be writable");
+			} catch (CoreException exception) {
+				// expected
+			}
+		} finally {
+			log.setWritable(true);
+		}
+		// the index is rebuilt from the history tree, not from the outdated log
+		assertEquals(11, index.getSize(new NullProgressMonitor()));
+		assertEquals(11, read(new RefactoringHistoryIndex(fStore), 0, Long.MAX_VALUE).size());
+	}
+
+	public void testRange() throws Exception {
+		writeHistory(fStore, 100, START, STEP);
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+
+		List<RefactoringDescriptorProxy> proxies= read(index, START + 10 * STEP, START + 19 * STEP);
+		assertEquals(10, proxies.size());
+		assertEquals(START + 10 * STEP, proxies.get(0).getTimeStamp());
+		assertEquals(START + 19 * STEP, proxies.get(9).getTimeStamp());
+
+		assertEquals(1, read(index, START + 10 * STEP - 1, START + 10 * STEP + 1).size());
+		assertEquals(0, read(index, START + 10 * STEP + 1, START + 11 * STEP - 1).size());
+		assertEquals(0, read(index, 0, START - 1).size());
+		assertEquals(0, read(index, START + 100 * STEP, Long.MAX_VALUE).size());
+	}
+
+	public void testAddRemove() throws Exception {
+		writeHistory(fStore, 10, START, STEP);
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+		assertEquals(10, index.getSize(new NullProgressMonitor()));
+
+		index.incrementGeneration(new NullProgressMonitor());
+		index.addRefactoringDescriptorProxy(START + 100 * STEP, "Move element", new NullProgressMonitor());
+		index.addRefactoringDescriptorProxy(START + STEP / 2, "Inline element", new NullProgressMonitor());
+		index.addRefactoringDescriptorProxy(START + STEP / 2, "Inline element", new NullProgressMonitor());
+		assertEquals(12, index.getSize(new NullProgressMonitor()));
+		List<RefactoringDescriptorProxy> proxies= read(index, START, START + STEP);
+		assertEquals(3, proxies.size());
+		assertEquals("Inline element", proxies.get(1).getDescription());
+
+		index.incrementGeneration(new NullProgressMonitor());
+		index.removeRefactoringDescriptorProxies(new RefactoringDescriptorProxy[] { new Proxy("Rename element 0", START), new Proxy("Rename element 5", START + 5 * STEP) }, new NullProgressMonitor());
+		assertEquals(10, index.getSize(new NullProgressMonitor()));
+
+		// the changes have been appended to the log
+		RefactoringHistoryIndex reread= new RefactoringHistoryIndex(fStore);
+		proxies= read(reread, 0, Long.MAX_VALUE);
+		assertEquals(10, proxies.size());
+		assertEquals("Inline element", proxies.get(0).getDescription());
+		assertEquals("Move element", proxies.get(9).getDescription());
+		for (int i= 1; i < proxies.size(); i++)
+			assertTrue(proxies.get(i - 1).getTimeStamp() <= proxies.get(i).getTimeStamp());
+	}
+
+	public void testRemoveAll() throws Exception {
+		writeHistory(fStore, 3, START, STEP);
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+		List<RefactoringDescriptorProxy> proxies= read(index, 0, Long.MAX_VALUE);
+		index.removeRefactoringDescriptorProxies(proxies.toArray(new RefactoringDescriptorProxy[proxies.size()]), new NullProgressMonitor());
+		assertFalse(getLogFile().exists());
+
+		// the history manager deletes the emptied history folders as well
+		deleteHistory(new File(fFolder, RefactoringHistoryManager.stampToPath(START).segment(0)));
+		assertEquals(0, index.getSize(new NullProgressMonitor()));
+	}
+
+	public void testCompact() throws Exception {
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+		for (int i= 0; i < 3000; i++) {
+			index.addRefactoringDescriptorProxy(START + i * STEP, "Rename element " + i, new NullProgressMonitor());
+			if (i % 3 != 0)
+				index.removeRefactoringDescriptorProxies(new RefactoringDescriptorProxy[] { new Proxy("Rename element " + i, START + i * STEP) }, new NullProgressMonitor());
+		}
+		assertEquals(1000, index.getSize(new NullProgressMonitor()));
+		// the log has been compacted, it contains less than two records per live entry
+		assertTrue(getLogFile().length() < 1000 * 2 * 40);
+		assertEquals(1000, read(new RefactoringHistoryIndex(fStore), 0, Long.MAX_VALUE).size());
+	}
+
+	public void testTruncatedLog() throws Exception {
+		writeHistory(fStore, 10, START, STEP);
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+		index.addRefactoringDescriptorProxy(START + 100 * STEP, "Move element", new NullProgressMonitor());
+
+		// simulate an interrupted append
+		try (RandomAccessFile file= new RandomAccessFile(getLogFile(), "rw")) {
+			file.setLength(file.length() - 3);
+		} catch (IOException exception) {
+			fail(exception.getMessage());
+		}
+		List<RefactoringDescriptorProxy> proxies= read(new RefactoringHistoryIndex(fStore), 0, Long.MAX_VALUE);
+		assertEquals(10, proxies.size());
+		Collections.reverse(proxies);
+		assertEquals("Rename element 9", proxies.get(0).getDescription());
+	}
+
+	public void testMissingLog() throws Exception {
+		writeHistory(fStore, 10, START, STEP);
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(fStore);
+		assertEquals(10, index.getSize(new NullProgressMonitor()));
+
+		// the history has been deleted together with the log
+		deleteHistory(fFolder);
+		assertEquals(0, index.getSize(new NullProgressMonitor()));
+
+		writeHistory(fStore, 5, START, STEP);
+		assertEquals(5, index.getSize(new NullProgressMonitor()));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.ltk.core.refactoring;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -26,6 +27,7 @@ import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.UndoEditStore;
 
 /**
  * Represents a composite change. Composite changes can be marked
@@ -41,9 +43,23 @@ import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
  */
 public class CompositeChange extends Change {
 
+	/**
+	 * The number of children from which on a composite change is performed in streaming mode.
+	 * Can be configured with the <code>org.eclipse.ltk.core.refactoring.streamingThreshold</code>
+	 * system property.
+	 */
+	private static final int STREAMING_THRESHOLD= Integer.getInteger("org.eclipse.ltk.core.refactoring.streamingThreshold", 1000).intValue(); //$NON-NLS-1$
+
+	/**
+	 * The number of children performed in a batch in streaming mode. Can be configured with the
+	 * <code>org.eclipse.ltk.core.refactoring.streamingBatchSize</code> system property.
+	 */
+	private static final int STREAMING_BATCH_SIZE= Math.max(1, Integer.getInteger("org.eclipse.ltk.core.refactoring.streamingBatchSize", 100).intValue()); //$NON-NLS-1$
+
 	private String fName;
 	private List<Change> fChanges;
 	private boolean fIsSynthetic;
+	private boolean fIsStreaming;
 	private Change fUndoUntilException;
 
 	/**
@@ -93,6 +109,34 @@ public class CompositeChange extends Change {
 		fIsSynthetic= true;
 	}
 
+	/**
+	 * Returns whether this change is performed in streaming mode. A change with many children is
+	 * always performed in streaming mode.
+	 *
+	 * @return <code>true</code> if this change is performed in streaming mode; otherwise
+	 *         <code>false</code>
+	 *
+	 * @see #setStreaming(boolean)
+	 * @since 3.9
+	 */
+	public boolean isStreaming() {
+		return fIsStreaming || fChanges.size() >= STREAMING_THRESHOLD;
+	}
+
+	/**
+	 * Sets whether this change is performed in streaming mode. In streaming mode the children are
+	 * performed in batches, and after each batch the undo edits of the text file changes which
+	 * have been performed are moved to a temporary file and only read back when the change is
+	 * undone. This keeps the memory consumption of changes which modify many files low.
+	 *
+	 * @param streaming <code>true</code> to perform this change in streaming mode
+	 *
+	 * @since 3.9
+	 */
+	public void setStreaming(boolean streaming) {
+		fIsStreaming= streaming;
+	}
+
 	@Override
 	public String getName() {
 		return fName;
@@ -268,6 +312,8 @@ public class CompositeChange extends Change {
 		pm.setTaskName(RefactoringCoreMessages.CompositeChange_performingChangesTask_name);
 		Change change= null;
 		boolean canceled= false;
+		UndoEditStore[] store= isStreaming() ? new UndoEditStore[1] : null;
+		int stored= 0;
 		try {
 			for (Iterator<Change> iter= fChanges.iterator(); iter.hasNext();) {
 				change= iter.next();
@@ -310,7 +356,13 @@ public class CompositeChange extends Change {
 						RefactoringCorePlugin.log(exception);
 					}
 				});
+				if (store != null && undos != null && undos.size() - stored >= STREAMING_BATCH_SIZE) {
+					storeUndos(undos.subList(stored, undos.size()), store);
+					stored= undos.size();
+				}
 			}
+			if (store != null && undos != null)
+				storeUndos(undos.subList(stored, undos.size()), store);
 			if (canceled)
 				throw new OperationCanceledException();
 			if (undos != null) {
@@ -327,6 +379,40 @@ public class CompositeChange extends Change {
 			handleUndos(change, undos);
 			internalHandleException(change, e);
 			throw e;
+		} finally {
+			if (store != null && store[0] != null)
+				store[0].disconnect();
+		}
+	}
+
+	/**
+	 * Moves the undo edits of the given undo changes to the store of a streaming perform.
+	 *
+	 * @param undos the undo changes of a batch
+	 * @param store the store, created on demand
+	 */
+	private static void storeUndos(List<Change> undos, UndoEditStore[] store) {
+		try {
+			for (Iterator<Change> iter= undos.iterator(); iter.hasNext();) {
+				storeUndo(iter.next(), store);
+			}
+			if (store[0] != null)
+				store[0].flush();
+		} catch (IOException e) {
+			// keep the undo edits which are not yet stored in memory
+			RefactoringCorePlugin.log(e);
+		}
+	}
+
+	private static void storeUndo(Change undo, UndoEditStore[] store) throws IOException {
+		if (undo instanceof UndoTextFileChange) {
+			if (store[0] == null)
+				store[0]= UndoEditStore.create();
+			((UndoTextFileChange) undo).storeUndo(store[0]);
+		} else if (undo instanceof CompositeChange) {
+			for (Iterator<Change> iter= ((CompositeChange) undo).fChanges.iterator(); iter.hasNext();) {
+				storeUndo(iter.next(), store);
+			}
 		}
 	}
 
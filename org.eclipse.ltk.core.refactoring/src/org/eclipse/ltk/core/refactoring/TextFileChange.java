@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -236,6 +236,9 @@ public class TextFileChange extends TextChange {
 		if (fAcquireCount == 1) {
 			ITextFileBufferManager manager= FileBuffers.getTextFileBufferManager();
 			manager.disconnect(fFile.getFullPath(), LocationKind.IFILE, pm);
+			// the disconnected buffer still references the document, don't keep it
+			// alive for as long as this change is referenced
+			fBuffer= null;
 		}
 		fAcquireCount--;
  	}
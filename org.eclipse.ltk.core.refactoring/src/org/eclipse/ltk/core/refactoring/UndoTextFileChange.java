@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,7 @@ import org.eclipse.ltk.internal.core.refactoring.Changes;
 import org.eclipse.ltk.internal.core.refactoring.ContentStamps;
 import org.eclipse.ltk.internal.core.refactoring.Lock;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.UndoEditStore;
 
 /**
  * A change to perform the reverse change of a {@link TextFileChange}.
@@ -55,6 +56,8 @@ public class UndoTextFileChange extends Change {
 
 	private String fName;
 	private UndoEdit fUndo;
+	private UndoEditStore fStore;
+	private long fStorePosition;
 	private IFile fFile;
 	private ContentStamp fContentStampToRestore;
 	private int fSaveMode;
@@ -123,6 +126,28 @@ public class UndoTextFileChange extends Change {
 		return new UndoTextFileChange(getName(), fFile, edit, stampToRestore, fSaveMode);
 	}
 
+	/**
+	 * Moves the undo edit of this change to the given store. The undo edit is read back when the
+	 * change is performed.
+	 *
+	 * @param store the store
+	 * @return <code>true</code> if the undo edit has been moved to the store
+	 *
+	 * @since 3.9
+	 */
+	boolean storeUndo(UndoEditStore store) {
+		if (fUndo == null)
+			return false;
+		long position= store.append(fUndo);
+		if (position < 0)
+			return false;
+		store.connect();
+		fStore= store;
+		fStorePosition= position;
+		fUndo= null;
+		return true;
+	}
+
 	@Override
 	public Object getModifiedElement() {
 		return fFile;
@@ -265,9 +290,11 @@ public class UndoTextFileChange extends Change {
 	}
 
 	private UndoEdit doPerformEdits(IDocument document, boolean[] setContentStampSuccess) throws MalformedTreeException, BadLocationException, CoreException {
+		TextEdit undo= fUndo != null ? fUndo : fStore.read(fStorePosition);
+
 		// perform the changes
 		LinkedModeModel.closeAllModels(document);
-		UndoEdit redo= fUndo.apply(document, TextEdit.CREATE_UNDO);
+		UndoEdit redo= undo.apply(document, TextEdit.CREATE_UNDO);
 
 		// try to restore the document content stamp
 		setContentStampSuccess[0]= ContentStamps.set(document, fContentStampToRestore);
@@ -279,6 +306,10 @@ public class UndoTextFileChange extends Change {
 		if (fValidationState != null) {
 			fValidationState.dispose();
 		}
+		if (fStore != null) {
+			fStore.disconnect();
+			fStore= null;
+		}
 	}
 
 	private boolean needsSaving() {
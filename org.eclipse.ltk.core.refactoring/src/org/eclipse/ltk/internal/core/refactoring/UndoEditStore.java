@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.text.edits.MalformedTreeException;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+
+/**
+ * A temporary file which holds the undo edits of the text changes of a large change, so that they
+ * do not have to be kept in memory until the change is undone.
+ * <p>
+ * An undo edit holds replace edits in the order in which they have been recorded, and undoing
+ * applies them in reverse order, each one in the coordinates of the document at that point. If
+ * these replace edits do not overlap, they are stored as replace edits in the coordinates of the
+ * document before the undo, which can be applied as a single {@link MultiTextEdit}. Other undo
+ * edits cannot be stored.
+ * </p>
+ * <p>
+ * Records are appended to a pending buffer and written in batches by {@link #flush()}. The store
+ * is reference counted, the file is deleted when the last reference is released.
+ * </p>
+ *
+ * @since 3.9
+ */
+public final class UndoEditStore {
+
+	private final File fFile;
+	private RandomAccessFile fAccess;
+	private ByteArrayOutputStream fPending= new ByteArrayOutputStream();
+	private long fLength;
+	private int fReferences= 1;
+
+	private UndoEditStore(File file) {
+		fFile= file;
+	}
+
+	/**
+	 * Creates a store in a new temporary file. The caller holds the first reference to the store.
+	 *
+	 * @return the store
+	 * @throws IOException if the file cannot be created
+	 */
+	public static UndoEditStore create() throws IOException {
+		File file= File.createTempFile("undo", ".edits"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.deleteOnExit();
+		return new UndoEditStore(file);
+	}
+
+	/**
+	 * Appends the given undo edit to the store.
+	 *
+	 * @param undo the undo edit
+	 * @return the position of the undo edit in the store, or <code>-1</code> if the undo edit
+	 *         cannot be stored
+	 */
+	public synchronized long append(UndoEdit undo) {
+		ReplaceEdit[] edits= toOriginalCoordinates(undo);
+		if (edits == null || fReferences == 0)
+			return -1;
+		long position= fLength + fPending.size();
+		try {
+			DataOutputStream out= new DataOutputStream(fPending);
+			out.writeInt(edits.length);
+			for (int i= 0; i < edits.length; i++) {
+				ReplaceEdit edit= edits[i];
+				byte[] text= edit.getText().getBytes(StandardCharsets.UTF_8);
+				out.writeInt(edit.getOffset());
+				out.writeInt(edit.getLength());
+				out.writeInt(text.length);
+				out.write(text);
+			}
+		} catch (IOException e) {
+			// cannot happen for a byte array output stream
+			return -1;
+		}
+		return position;
+	}
+
+	/**
+	 * Writes the pending records to the file.
+	 *
+	 * @throws IOException if the records cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		if (fPending.size() == 0)
+			return;
+		RandomAccessFile access= getAccess();
+		access.seek(fLength);
+		access.write(fPending.toByteArray());
+		fLength+= fPending.size();
+		fPending.reset();
+	}
+
+	/**
+	 * Reads an undo edit from the store.
+	 *
+	 * @param position the position returned by {@link #append(UndoEdit)}
+	 * @return an edit with the same effect as the undo edit when applied to the document
+	 * @throws CoreException if the undo edit cannot be read
+	 */
+	public synchronized TextEdit read(long position) throws CoreException {
+		try {
+			DataInput in;
+			if (position >= fLength) {
+				// not yet written, for example because flushing has failed
+				byte[] pending= fPending.toByteArray();
+				int offset= (int) (position - fLength);
+				in= new DataInputStream(new ByteArrayInputStream(pending, offset, pending.length - offset));
+			} else {
+				RandomAccessFile access= getAccess();
+				access.seek(position);
+				in= access;
+			}
+			int count= in.readInt();
+			MultiTextEdit result= new MultiTextEdit();
+			for (int i= 0; i < count; i++) {
+				int editOffset= in.readInt();
+				int editLength= in.readInt();
+				byte[] text= new byte[in.readInt()];
+				in.readFully(text);
+				result.addChild(new ReplaceEdit(editOffset, editLength, new String(text, StandardCharsets.UTF_8)));
+			}
+			return result;
+		} catch (MalformedTreeException e) {
+			throw Changes.asCoreException(e);
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.INTERNAL_ERROR, RefactoringCoreMessages.RefactoringCorePlugin_internal_error, e));
+		}
+	}
+
+	/**
+	 * Adds a reference to the store.
+	 */
+	public synchronized void connect() {
+		fReferences++;
+	}
+
+	/**
+	 * Releases a reference to the store. The file is deleted when the last reference is released.
+	 */
+	public synchronized void disconnect() {
+		if (fReferences == 0)
+			return;
+		fReferences--;
+		if (fReferences == 0) {
+			fPending= new ByteArrayOutputStream();
+			if (fAccess != null) {
+				try {
+					fAccess.close();
+				} catch (IOException e) {
+					RefactoringCorePlugin.log(e);
+				}
+				fAccess= null;
+			}
+			fFile.delete();
+		}
+	}
+
+	private RandomAccessFile getAccess() throws IOException {
+		if (fReferences == 0)
+			throw new IOException("Undo edit store has been disposed"); //$NON-NLS-1$
+		if (fAccess == null)
+			fAccess= new RandomAccessFile(fFile, "rw"); //$NON-NLS-1$
+		return fAccess;
+	}
+
+	/**
+	 * Converts the replace edits of an undo edit into non-overlapping replace edits in the
+	 * coordinates of the document before the undo.
+	 *
+	 * @param undo the undo edit
+	 * @return the replace edits sorted by offset, or <code>null</code> if the undo edit holds other
+	 *         edits or edits which overlap
+	 */
+	private static ReplaceEdit[] toOriginalCoordinates(UndoEdit undo) {
+		TextEdit[] children= undo.getChildren();
+		ReplaceEdit[] result= new ReplaceEdit[children.length];
+		int delta= 0;
+		int end= -1;
+		// undoing applies the children from last to first
+		for (int i= children.length - 1, k= 0; i >= 0; i--, k++) {
+			if (!(children[i] instanceof ReplaceEdit) || children[i].hasChildren())
+				return null;
+			ReplaceEdit edit= (ReplaceEdit) children[i];
+			int offset= edit.getOffset() - delta;
+			if (offset < end || offset == end && k > 0 && result[k - 1].getLength() == 0)
+				return null;
+			result[k]= new ReplaceEdit(offset, edit.getLength(), edit.getText());
+			end= offset + edit.getLength();
+			delta+= edit.getText().length() - edit.getLength();
+		}
+		return result;
+	}
+}
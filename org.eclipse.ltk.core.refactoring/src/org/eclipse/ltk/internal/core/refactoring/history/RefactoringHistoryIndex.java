@@ -0,0 +1,654 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+
+/**
+ * Append-only index of the refactoring descriptor proxies of a refactoring history.
+ * <p>
+ * The refactoring history stores the descriptors in history files and index files in a folder per
+ * week. Reading the proxies of a history therefore walks the whole folder tree. This index keeps the
+ * time stamps and descriptions of all refactorings of a history in a single log file in the root
+ * folder of the history. Additions and removals are appended to the log, and the log is compacted
+ * once it contains more removed than live entries. In memory, the entries are sorted by time stamp,
+ * so that time ranges are found by binary search.
+ * </p>
+ * <p>
+ * A history without log file is migrated by reading its index files once. The log is only used for
+ * the histories in the state location of the refactoring plug-in, since shared histories in the
+ * projects may be changed by the team provider.
+ * </p>
+ * <p>
+ * The history root contains a generation file, which is incremented by
+ * {@link #incrementGeneration(IProgressMonitor)} before the history tree is changed. The log header
+ * contains the generation of the last change it has recorded, so that a log which has missed a
+ * change of the history tree, e.g. because the workbench crashed before the log was updated, is
+ * migrated again. Changes of the history tree which do not increment the generation, e.g. by older
+ * versions, are not detected. If the log cannot be written, it is deleted, so that the index is
+ * migrated from the history tree the next time.
+ * </p>
+ */
+public final class RefactoringHistoryIndex {
+
+	/** The magic number of the log file */
+	private static final int MAGIC= 0x52484c47;
+
+	/** The version of the log file format */
+	private static final int VERSION= 3;
+
+	/** The position of the generation of the history tree in the log file header */
+	private static final int GENERATION_POSITION= 8;
+
+	/** The size of the log file header */
+	private static final int HEADER_SIZE= 16;
+
+	/** The record kind of an added refactoring */
+	private static final byte RECORD_ADD= 1;
+
+	/** The record kind of removed refactorings */
+	private static final byte RECORD_REMOVE= 2;
+
+	/** The minimal number of obsolete records before the log is compacted */
+	private static final int COMPACT_THRESHOLD= 1024;
+
+	/** The shared indexes, keyed by log file */
+	private static final Map<File, RefactoringHistoryIndex> fgIndexes= new HashMap<>();
+
+	/**
+	 * Returns the shared index of the specified refactoring history.
+	 *
+	 * @param store
+	 *            the file store of the history
+	 * @return the index, or <code>null</code> if the history is not stored in the state location of
+	 *         the refactoring plug-in
+	 */
+	public static RefactoringHistoryIndex getIndex(final IFileStore store) {
+		Assert.isNotNull(store);
+		final RefactoringCorePlugin plugin= RefactoringCorePlugin.getDefault();
+		if (plugin == null)
+			return null;
+		try {
+			final IFileStore state= EFS.getLocalFileSystem().getStore(plugin.getStateLocation());
+			if (!state.isParentOf(store))
+				return null;
+			final File folder= store.toLocalFile(EFS.NONE, null);
+			if (folder == null)
+				return null;
+			final File file= new File(folder, RefactoringHistoryService.NAME_LOG_FILE);
+			synchronized (fgIndexes) {
+				RefactoringHistoryIndex index= fgIndexes.get(file);
+				if (index == null) {
+					index= new RefactoringHistoryIndex(store, file);
+					fgIndexes.put(file, index);
+				}
+				return index;
+			}
+		} catch (CoreException exception) {
+			RefactoringCorePlugin.log(exception);
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a new core exception representing an I/O error.
+	 *
+	 * @param exception
+	 *            the throwable to wrap
+	 * @return the core exception
+	 */
+	private static CoreException createCoreException(final Throwable exception) {
+		return new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, exception.getLocalizedMessage(), exception));
+	}
+
+	/** The descriptions of the refactorings, in the order of {@link #fStamps} */
+	private String[] fDescriptions= new String[16];
+
+	/** The log file */
+	private final File fFile;
+
+	/** The generation file */
+	private final File fGenerationFile;
+
+	/** The length of the log file when it has been read or written last, or <code>-1</code> */
+	private long fLength= -1;
+
+	/** The modification stamp of the log file when it has been read or written last */
+	private long fModified= -1;
+
+	/** The number of records in the log file */
+	private int fRecords= 0;
+
+	/**
+	 * Has the log file failed to record a change of the history? If so, the index must be migrated
+	 * from the history tree.
+	 */
+	private boolean fStale= false;
+
+	/** The number of refactorings */
+	private int fSize= 0;
+
+	/** The time stamps of the refactorings, in ascending order */
+	private long[] fStamps= new long[16];
+
+	/** The file store of the history */
+	private final IFileStore fStore;
+
+	/**
+	 * Creates a new refactoring history index.
+	 * <p>
+	 * Clients should use {@link #getIndex(IFileStore)} for the histories of the workspace, since
+	 * the index of a history must not be changed through different instances.
+	 * </p>
+	 *
+	 * @param store
+	 *            the local file store of the history
+	 * @throws CoreException
+	 *             if the file store is not local
+	 */
+	public RefactoringHistoryIndex(final IFileStore store) throws CoreException {
+		this(store, new File(store.toLocalFile(EFS.NONE, null), RefactoringHistoryService.NAME_LOG_FILE));
+	}
+
+	private RefactoringHistoryIndex(final IFileStore store, final File file) {
+		fStore= store;
+		fFile= file;
+		fGenerationFile= new File(file.getParentFile(), RefactoringHistoryService.NAME_GENERATION_FILE);
+	}
+
+	/**
+	 * Adds the specified refactoring to the index.
+	 *
+	 * @param stamp
+	 *            the time stamp of the refactoring
+	 * @param description
+	 *            the description of the refactoring
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while updating the log
+	 */
+	public synchronized void addRefactoringDescriptorProxy(final long stamp, final String description, final IProgressMonitor monitor) throws CoreException {
+		Assert.isNotNull(description);
+		ensureLoaded(monitor);
+		if (!insert(stamp, description)) {
+			appendRecord(null);
+			return;
+		}
+		if (fLength < 0) {
+			writeLog();
+			return;
+		}
+		final byte[] bytes= description.getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer record= ByteBuffer.allocate(1 + 8 + 4 + bytes.length);
+		record.put(RECORD_ADD);
+		record.putLong(stamp);
+		record.putInt(bytes.length);
+		record.put(bytes);
+		appendRecord(record.array());
+	}
+
+	/**
+	 * Appends the specified record to the log, and updates the generation of the history tree in
+	 * the log header.
+	 *
+	 * @param record
+	 *            the record, or <code>null</code> to only update the generation of the history tree
+	 * @throws CoreException
+	 *             if an error occurs while writing the log
+	 */
+	private void appendRecord(final byte[] record) throws CoreException {
+		if (fLength < 0)
+			return;
+		if (!isUpToDate()) {
+			// the log has been removed together with the history tree
+			writeLog();
+			return;
+		}
+		final long generation= readGeneration();
+		try (RandomAccessFile file= new RandomAccessFile(fFile, "rw")) { //$NON-NLS-1$
+			if (record != null) {
+				file.seek(file.length());
+				file.write(record);
+			}
+			file.seek(GENERATION_POSITION);
+			file.writeLong(generation);
+		} catch (IOException exception) {
+			discardLog();
+			throw createCoreException(exception);
+		}
+		if (record != null)
+			fRecords++;
+		updateStamps();
+		if (fRecords - fSize > Math.max(COMPACT_THRESHOLD, fSize))
+			writeLog();
+	}
+
+	/**
+	 * Deletes the log file after it has failed to record a change, so that the index is migrated
+	 * from the history tree again instead of reading an outdated log.
+	 */
+	private void discardLog() {
+		fStale= true;
+		fFile.delete();
+		invalidate();
+	}
+
+	/**
+	 * Makes sure that the index reflects the log file, or the history tree if there is no log file.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while migrating the history
+	 */
+	private void ensureLoaded(final IProgressMonitor monitor) throws CoreException {
+		if (fStale) {
+			migrate(monitor);
+			return;
+		}
+		if (fLength >= 0 && isUpToDate())
+			return;
+		if (!fFile.isFile() || !readLog())
+			migrate(monitor);
+	}
+
+	/**
+	 * Returns the index of the first refactoring whose time stamp is not less than the specified
+	 * one.
+	 *
+	 * @param stamp
+	 *            the time stamp
+	 * @return the index
+	 */
+	private int findFirst(final long stamp) {
+		int low= 0;
+		int high= fSize;
+		while (low < high) {
+			final int middle= (low + high) >>> 1;
+			if (fStamps[middle] < stamp)
+				low= middle + 1;
+			else
+				high= middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the number of refactorings in the index.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @return the number of refactorings
+	 * @throws CoreException
+	 *             if an error occurs while reading the index
+	 */
+	public synchronized int getSize(final IProgressMonitor monitor) throws CoreException {
+		ensureLoaded(monitor);
+		return fSize;
+	}
+
+	/**
+	 * Increments the generation of the history tree.
+	 * <p>
+	 * Writers of the history tree must call this method before they change its index files, and
+	 * update the index afterwards. If the index is not updated, e.g. because the workbench crashes
+	 * in between, the generation of the log does not match the history tree anymore, and the index
+	 * is migrated again.
+	 * </p>
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the index or writing the generation file
+	 */
+	public synchronized void incrementGeneration(final IProgressMonitor monitor) throws CoreException {
+		ensureLoaded(monitor);
+		final long generation= readGeneration() + 1;
+		try {
+			if (!fGenerationFile.getParentFile().isDirectory())
+				fStore.mkdir(EFS.NONE, new NullProgressMonitor());
+			try (DataOutputStream stream= new DataOutputStream(new FileOutputStream(fGenerationFile))) {
+				stream.writeLong(generation);
+			}
+		} catch (IOException exception) {
+			discardLog();
+			throw createCoreException(exception);
+		}
+	}
+
+	/**
+	 * Inserts the specified refactoring at its position in the index.
+	 *
+	 * @param stamp
+	 *            the time stamp of the refactoring
+	 * @param description
+	 *            the description of the refactoring
+	 * @return <code>true</code> if the refactoring has been inserted, <code>false</code> if it
+	 *         already is in the index
+	 */
+	private boolean insert(final long stamp, final String description) {
+		int position= fSize;
+		if (fSize > 0 && fStamps[fSize - 1] >= stamp) {
+			position= findFirst(stamp);
+			for (int index= position; index < fSize && fStamps[index] == stamp; index++) {
+				if (fDescriptions[index].equals(description))
+					return false;
+			}
+		}
+		if (fSize == fStamps.length) {
+			fStamps= Arrays.copyOf(fStamps, fSize * 2);
+			fDescriptions= Arrays.copyOf(fDescriptions, fSize * 2);
+		}
+		System.arraycopy(fStamps, position, fStamps, position + 1, fSize - position);
+		System.arraycopy(fDescriptions, position, fDescriptions, position + 1, fSize - position);
+		fStamps[position]= stamp;
+		fDescriptions[position]= description.intern();
+		fSize++;
+		return true;
+	}
+
+	/**
+	 * Forgets the state of the log file, so that it is read or migrated again.
+	 */
+	private void invalidate() {
+		fLength= -1;
+		fModified= -1;
+	}
+
+	/**
+	 * Returns whether the log file has not been changed since it has been read or written last.
+	 *
+	 * @return <code>true</code> if the log file is up to date
+	 */
+	private boolean isUpToDate() {
+		return fFile.length() == fLength && fFile.lastModified() == fModified;
+	}
+
+	/**
+	 * Migrates the history tree into the index.
+	 * <p>
+	 * All index files of the history are read, and the log file is written if the history is not
+	 * empty.
+	 * </p>
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the history or writing the log
+	 */
+	public synchronized void migrate(final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 100);
+			fSize= 0;
+			fRecords= 0;
+			fStale= false;
+			invalidate();
+			final Set<RefactoringDescriptorProxy> set= new HashSet<>(256);
+			if (fStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 5, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
+				RefactoringHistoryManager.readRefactoringDescriptorProxies(fStore, null, set, 0, Long.MAX_VALUE, new SubProgressMonitor(monitor, 90), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+			final RefactoringDescriptorProxy[] proxies= set.toArray(new RefactoringDescriptorProxy[set.size()]);
+			RefactoringHistoryManager.sortRefactoringDescriptorsAscending(proxies);
+			for (int index= 0; index < proxies.length; index++)
+				insert(proxies[index].getTimeStamp(), proxies[index].getDescription());
+			if (fSize > 0)
+				writeLog();
+			else
+				fFile.delete();
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Reads the refactoring descriptor proxies in the specified time range.
+	 *
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the history
+	 */
+	public synchronized void readRefactoringDescriptorProxies(final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 2);
+			ensureLoaded(new SubProgressMonitor(monitor, 1));
+			for (int index= findFirst(start); index < fSize && fStamps[index] <= end; index++)
+				collection.add(new DefaultRefactoringDescriptorProxy(fDescriptions[index], project, fStamps[index]));
+			monitor.worked(1);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Reads the generation of the history tree.
+	 *
+	 * @return the generation, <code>0</code> if the history tree has no generation file, or
+	 *         <code>-1</code> if the generation file is corrupt
+	 * @throws CoreException
+	 *             if an error occurs while reading the generation file
+	 */
+	private long readGeneration() throws CoreException {
+		if (!fGenerationFile.isFile())
+			return 0;
+		final byte[] bytes;
+		try {
+			bytes= Files.readAllBytes(fGenerationFile.toPath());
+		} catch (IOException exception) {
+			throw createCoreException(exception);
+		}
+		return bytes.length == 8 ? ByteBuffer.wrap(bytes).getLong() : -1;
+	}
+
+	/**
+	 * Reads the log file.
+	 *
+	 * @return <code>true</code> if the log file has been read, <code>false</code> if it is not a
+	 *         valid log file or does not match the generation of the history tree
+	 * @throws CoreException
+	 *             if an error occurs while reading the log
+	 */
+	private boolean readLog() throws CoreException {
+		final ByteBuffer buffer;
+		try {
+			buffer= ByteBuffer.wrap(Files.readAllBytes(fFile.toPath()));
+		} catch (IOException exception) {
+			throw createCoreException(exception);
+		}
+		fSize= 0;
+		fRecords= 0;
+		invalidate();
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			return false;
+		if (buffer.getLong() != readGeneration())
+			return false;
+		boolean truncated= false;
+		while (buffer.hasRemaining()) {
+			if (buffer.remaining() < 9) {
+				truncated= true;
+				break;
+			}
+			final byte kind= buffer.get();
+			final long stamp= buffer.getLong();
+			if (kind == RECORD_ADD) {
+				final int length= buffer.remaining() >= 4 ? buffer.getInt() : -1;
+				if (length < 0 || length > buffer.remaining()) {
+					truncated= true;
+					break;
+				}
+				insert(stamp, new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8));
+				buffer.position(buffer.position() + length);
+			} else if (kind == RECORD_REMOVE) {
+				remove(stamp);
+			} else
+				return false;
+			fRecords++;
+		}
+		if (truncated) {
+			// an interrupted append, drop the incomplete record
+			writeLog();
+		} else
+			updateStamps();
+		return true;
+	}
+
+	/**
+	 * Removes the refactorings with the specified time stamp from the index.
+	 *
+	 * @param stamp
+	 *            the time stamp
+	 * @return <code>true</code> if a refactoring has been removed
+	 */
+	private boolean remove(final long stamp) {
+		final int first= findFirst(stamp);
+		int last= first;
+		while (last < fSize && fStamps[last] == stamp)
+			last++;
+		if (last == first)
+			return false;
+		System.arraycopy(fStamps, last, fStamps, first, fSize - last);
+		System.arraycopy(fDescriptions, last, fDescriptions, first, fSize - last);
+		for (int index= fSize - (last - first); index < fSize; index++)
+			fDescriptions[index]= null;
+		fSize-= last - first;
+		return true;
+	}
+
+	/**
+	 * Removes the refactorings with the specified time stamps from the index.
+	 *
+	 * @param proxies
+	 *            the refactoring descriptor proxies to remove
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while updating the log
+	 */
+	public synchronized void removeRefactoringDescriptorProxies(final RefactoringDescriptorProxy[] proxies, final IProgressMonitor monitor) throws CoreException {
+		ensureLoaded(monitor);
+		final ByteBuffer records= ByteBuffer.allocate(proxies.length * 9);
+		for (int index= 0; index < proxies.length; index++) {
+			final long stamp= proxies[index].getTimeStamp();
+			if (remove(stamp)) {
+				records.put(RECORD_REMOVE);
+				records.putLong(stamp);
+			}
+		}
+		if (records.position() == 0) {
+			appendRecord(null);
+			return;
+		}
+		if (fLength < 0 || fSize == 0) {
+			writeLog();
+			return;
+		}
+		fRecords+= records.position() / 9 - 1;
+		appendRecord(Arrays.copyOf(records.array(), records.position()));
+	}
+
+	/**
+	 * Remembers the length and modification stamp of the log file.
+	 */
+	private void updateStamps() {
+		fLength= fFile.length();
+		fModified= fFile.lastModified();
+	}
+
+	/**
+	 * Writes the log file with the refactorings of the index, or deletes it if the index is empty.
+	 *
+	 * @throws CoreException
+	 *             if an error occurs while writing the log
+	 */
+	private void writeLog() throws CoreException {
+		if (fSize == 0) {
+			fFile.delete();
+			fRecords= 0;
+			invalidate();
+			return;
+		}
+		final long generation= readGeneration();
+		final File folder= fFile.getParentFile();
+		File temporary= null;
+		try {
+			if (!folder.isDirectory())
+				fStore.mkdir(EFS.NONE, new NullProgressMonitor());
+			temporary= File.createTempFile(RefactoringHistoryService.NAME_LOG_FILE, null, folder);
+			try (DataOutputStream stream= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 64 * 1024))) {
+				stream.writeInt(MAGIC);
+				stream.writeInt(VERSION);
+				stream.writeLong(generation);
+				for (int index= 0; index < fSize; index++) {
+					final byte[] bytes= fDescriptions[index].getBytes(StandardCharsets.UTF_8);
+					stream.writeByte(RECORD_ADD);
+					stream.writeLong(fStamps[index]);
+					stream.writeInt(bytes.length);
+					stream.write(bytes);
+				}
+			}
+			try {
+				Files.move(temporary.toPath(), fFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException exception) {
+				Files.move(temporary.toPath(), fFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			temporary= null;
+			fRecords= fSize;
+			updateStamps();
+		} catch (IOException exception) {
+			discardLog();
+			throw createCoreException(exception);
+		} finally {
+			if (temporary != null)
+				temporary.delete();
+		}
+	}
+}
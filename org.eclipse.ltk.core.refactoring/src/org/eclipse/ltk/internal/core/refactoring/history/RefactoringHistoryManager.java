@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -204,7 +204,7 @@ public final class RefactoringHistoryManager {
 	 * @throws CoreException
 	 *             if an error occurs
 	 */
-	private static void readRefactoringDescriptorProxies(final IFileStore store, final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor, final String task) throws CoreException {
+	static void readRefactoringDescriptorProxies(final IFileStore store, final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor, final String task) throws CoreException {
 		try {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 22);
 			final IFileInfo info= store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 2, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
@@ -237,6 +237,46 @@ public final class RefactoringHistoryManager {
 		}
 	}
 
+	/**
+	 * Reads refactoring descriptor proxies from the index of the specified
+	 * history, or from its index files if the history has no index.
+	 *
+	 * @param store
+	 *            the file store of the history
+	 * @param index
+	 *            the index of the history, or <code>null</code>
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private static void readRefactoringDescriptorProxies(final IFileStore store, final RefactoringHistoryIndex index, final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 100);
+			if (index != null) {
+				try {
+					index.readRefactoringDescriptorProxies(project, collection, start, end, new SubProgressMonitor(monitor, 100));
+					return;
+				} catch (CoreException exception) {
+					RefactoringCorePlugin.log(exception);
+				}
+			}
+			if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
+				readRefactoringDescriptorProxies(store, project, collection, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+		} finally {
+			monitor.done();
+		}
+	}
+
 	/**
 	 * Reads refactoring descriptor proxies from the specified input stream.
 	 * <p>
@@ -771,6 +811,12 @@ public final class RefactoringHistoryManager {
 	/** The history file store */
 	private final IFileStore fHistoryStore;
 
+	/**
+	 * The index of the history, or <code>null</code> if the history is read
+	 * from its index files
+	 */
+	private final RefactoringHistoryIndex fHistoryIndex;
+
 	/**
 	 * The non-empty name of the managed project, or <code>null</code> for the
 	 * workspace
@@ -790,6 +836,7 @@ public final class RefactoringHistoryManager {
 		Assert.isNotNull(store);
 		Assert.isTrue(name == null || !"".equals(name)); //$NON-NLS-1$
 		fHistoryStore= store;
+		fHistoryIndex= RefactoringHistoryIndex.getIndex(store);
 		fProjectName= name;
 	}
 
@@ -810,9 +857,10 @@ public final class RefactoringHistoryManager {
 	 */
 	void addRefactoringDescriptor(final RefactoringDescriptor descriptor, final boolean sort, final IProgressMonitor monitor) throws CoreException {
 		try {
-			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 18);
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 20);
 			final long stamp= descriptor.getTimeStamp();
 			if (stamp >= 0) {
+				incrementGeneration(new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
 				final IPath path= stampToPath(stamp);
 				final IFileStore folder= fHistoryStore.getFileStore(path);
 				final IFileStore history= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
@@ -883,6 +931,14 @@ public final class RefactoringHistoryManager {
 						throw createCoreException(exception);
 					}
 				}
+				if (fHistoryIndex != null) {
+					try {
+						fHistoryIndex.addRefactoringDescriptorProxy(stamp, descriptor.getDescription(), new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+					} catch (CoreException exception) {
+						// the history has been written, the index is rebuilt from it
+						RefactoringCorePlugin.log(exception);
+					}
+				}
 			}
 		} finally {
 			monitor.done();
@@ -947,6 +1003,25 @@ public final class RefactoringHistoryManager {
 		}
 	}
 
+	/**
+	 * Increments the generation of the history tree in the index of the
+	 * history before the history tree is changed.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 */
+	private void incrementGeneration(final IProgressMonitor monitor) {
+		try {
+			if (fHistoryIndex != null)
+				fHistoryIndex.incrementGeneration(monitor);
+		} catch (CoreException exception) {
+			// the index is rebuilt from the history tree
+			RefactoringCorePlugin.log(exception);
+		} finally {
+			monitor.done();
+		}
+	}
+
 	/**
 	 * Reads the refactoring history from disk.
 	 *
@@ -963,11 +1038,9 @@ public final class RefactoringHistoryManager {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 200);
 			final Set<RefactoringDescriptorProxy> set= new HashSet<>();
 			try {
-				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+				readRefactoringDescriptorProxies(fHistoryStore, fHistoryIndex, fProjectName, set, start, end, new SubProgressMonitor(monitor, 100));
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
-				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+				readRefactoringDescriptorProxies(store, RefactoringHistoryIndex.getIndex(store), null, set, start, end, new SubProgressMonitor(monitor, 100));
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
 			}
@@ -1086,7 +1159,7 @@ public final class RefactoringHistoryManager {
 	void removeRefactoringDescriptors(final RefactoringDescriptorProxy[] proxies, final IProgressMonitor monitor, final String task) throws CoreException {
 		try {
 			final Map<IPath, Collection<RefactoringDescriptorProxy>> paths= new HashMap<>();
-			monitor.beginTask(task, proxies.length + 300);
+			monitor.beginTask(task, proxies.length + 311);
 			for (int index= 0; index < proxies.length; index++) {
 				final IPath path= stampToPath(proxies[index].getTimeStamp());
 				Collection<RefactoringDescriptorProxy> collection= paths.get(path);
@@ -1096,6 +1169,7 @@ public final class RefactoringHistoryManager {
 				}
 				collection.add(proxies[index]);
 			}
+			incrementGeneration(new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
 			final IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 300);
 			try {
 				final Set<Entry<IPath, Collection<RefactoringDescriptorProxy>>> entries= paths.entrySet();
@@ -1108,6 +1182,14 @@ public final class RefactoringHistoryManager {
 			} finally {
 				subMonitor.done();
 			}
+			if (fHistoryIndex != null) {
+				try {
+					fHistoryIndex.removeRefactoringDescriptorProxies(proxies, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+				} catch (CoreException exception) {
+					// the history has been written, the index is rebuilt from it
+					RefactoringCorePlugin.log(exception);
+				}
+			}
 		} finally {
 			monitor.done();
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -123,6 +123,12 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 	/** The refactoring history index file name */
 	public static final String NAME_INDEX_FILE= "refactorings.index"; //$NON-NLS-1$
 
+	/** The refactoring history index log file name */
+	public static final String NAME_LOG_FILE= "refactorings.log"; //$NON-NLS-1$
+
+	/** The refactoring history generation file name */
+	public static final String NAME_GENERATION_FILE= "refactorings.generation"; //$NON-NLS-1$
+
 	/** The name of the special workspace project */
 	public static final String NAME_WORKSPACE_PROJECT= ".workspace"; //$NON-NLS-1$
 
@@ -256,6 +262,9 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 							destination.mkdir(EFS.NONE, new SubProgressMonitor(monitor, 20));
 							source.copy(destination, EFS.OVERWRITE, new SubProgressMonitor(monitor, 20));
 							source.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
+							// the index log is private to the state location, and migrated again from there
+							destination.getChild(NAME_LOG_FILE).delete(EFS.NONE, null);
+							destination.getChild(NAME_GENERATION_FILE).delete(EFS.NONE, null);
 						}
 					} else {
 						final IFileStore source= EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER);
@@ -266,6 +275,8 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 							destination.mkdir(EFS.NONE, new SubProgressMonitor(monitor, 20));
 							source.copy(destination, EFS.OVERWRITE, new SubProgressMonitor(monitor, 20));
 							source.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
+							// the index log is private to the state location, and migrated again from there
+							destination.getChild(NAME_LOG_FILE).delete(EFS.NONE, null);
 						}
 					}
 				} finally {